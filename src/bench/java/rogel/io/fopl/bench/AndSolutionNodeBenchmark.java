@@ -0,0 +1,49 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * Measures the time to solve rules with long bodies. For each body size n, the RuleSet holds the
+ * facts {@code (g1 a)} to {@code (gn a)} and the rule {@code (all ?X) :- (and (g1 ?X) ... (gn ?X))},
+ * and the query {@code (all a)} is solved repeatedly. Each goal is a single ground unification, so
+ * that the time is spent in the proof tree nodes rather than in unification.
+ * <p>
+ * Arguments: {@code [queries=2000]}.
+ *
+ * @author recardona
+ */
+public class AndSolutionNodeBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int queries = BenchmarkUtils.intArgument(args, 0, 2000);
+
+        for(int goalCount = 10; goalCount <= 50; goalCount += 10) {
+            HornClause[] clauses = new HornClause[goalCount + 1];
+            StringBuilder rule = new StringBuilder("(all ?X) :- (and");
+            for(int index = 1; index <= goalCount; index++) {
+                clauses[index - 1] = ClauseReader.parseClause("(g" + index + " a)");
+                rule.append(" (g").append(index).append(" ?X)");
+            }
+            clauses[goalCount] = ClauseReader.parseClause(rule.append(')').toString());
+            RuleSet rules = new RuleSet(clauses);
+            Formula goal = ClauseReader.parseFormula("(all a)");
+
+            // Warm up.
+            for(int query = 0; query < queries; query++) {
+                BenchmarkUtils.countSolutions(goal, rules);
+            }
+
+            long start = System.nanoTime();
+            for(int query = 0; query < queries; query++) {
+                BenchmarkUtils.countSolutions(goal, rules);
+            }
+            double micros = 1000 * BenchmarkUtils.millisSince(start) / queries;
+            System.out.printf("%2d goals: %,8.1f us per query%n", goalCount, micros);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.StackSolutionNode;
+
+/**
+ * Compares arithmetic with built-in predicates against arithmetic encoded as facts, the only way
+ * numbers could be computed with before. Two recursive programs are run both ways: a countdown,
+ * solved by the stack solver, which steps from a number to its predecessor either with
+ * {@code is} or with a table of {@code pred} facts; and the naive Fibonacci recursion, solved by
+ * the proof tree solver, which adds numbers either with {@code is} or with a table of
+ * {@code plus} facts. The fact tables are built before the queries, and their size is reported.
+ * <p>
+ * Arguments: {@code [countdown=200000] [fibonacci=15] [repetitions=5]}.
+ *
+ * @author recardona
+ */
+public class ArithmeticBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int countdown = BenchmarkUtils.intArgument(args, 0, 200000);
+        int fibonacci = BenchmarkUtils.intArgument(args, 1, 15);
+        int repetitions = BenchmarkUtils.intArgument(args, 2, 5);
+
+        // The countdown.
+        RuleSet builtinCountdown = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(countdown 0)"),
+                ClauseReader.parseClause("(countdown ?N) :- (and (> ?N 0) (is ?M -(?N, 1)) (countdown ?M))")
+        });
+        RuleSet factCountdown = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(countdown 0)"),
+                ClauseReader.parseClause("(countdown ?N) :- (and (pred ?N ?M) (countdown ?M))")
+        });
+        long memoryBefore = BenchmarkUtils.usedMemory();
+        long start = System.nanoTime();
+        ColumnarFactTable pred = new ColumnarFactTable("pred", 2);
+        for(int number = 1; number <= countdown; number++) {
+            pred.add(Symbol.get(Integer.toString(number)), Symbol.get(Integer.toString(number - 1)));
+        }
+        factCountdown.addFactTable(pred);
+        System.out.printf("countdown from %,d: %,d pred facts built in %,.1f ms, about %,d MB%n", countdown,
+                pred.getFactCount(), BenchmarkUtils.millisSince(start),
+                (BenchmarkUtils.usedMemory() - memoryBefore) >> 20);
+
+        Formula countdownGoal = ClauseReader.parseFormula("(countdown " + countdown + ")");
+        System.out.printf("  builtins %,10.1f ms  facts %,10.1f ms%n",
+                timeStack(countdownGoal, builtinCountdown, repetitions),
+                timeStack(countdownGoal, factCountdown, repetitions));
+
+        // The Fibonacci recursion.
+        RuleSet builtinFibonacci = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(fib 0 0)"),
+                ClauseReader.parseClause("(fib 1 1)"),
+                ClauseReader.parseClause("(fib ?N ?F) :- (and (> ?N 1) (is ?A -(?N, 1)) (is ?B -(?N, 2)) "
+                        + "(fib ?A ?FA) (fib ?B ?FB) (is ?F +(?FA, ?FB)))")
+        });
+        RuleSet factFibonacci = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(fib 0 0)"),
+                ClauseReader.parseClause("(fib 1 1)"),
+                ClauseReader.parseClause("(fib ?N ?F) :- (and (pred ?N ?A) (pred ?A ?B) (>1 ?N) "
+                        + "(fib ?A ?FA) (fib ?B ?FB) (plus ?FA ?FB ?F))")
+        });
+        long limit = fibonacciOf(fibonacci);
+        ColumnarFactTable plus = new ColumnarFactTable("plus", 3);
+        ColumnarFactTable greater = new ColumnarFactTable(">1", 1);
+        for(int first = 0; first <= limit; first++) {
+            for(int second = 0; first + second <= limit; second++) {
+                plus.add(Symbol.get(Integer.toString(first)), Symbol.get(Integer.toString(second)),
+                        Symbol.get(Integer.toString(first + second)));
+            }
+        }
+        for(int number = 2; number <= fibonacci; number++) {
+            greater.add(Symbol.get(Integer.toString(number)));
+        }
+        factFibonacci.addFactTable(pred);
+        factFibonacci.addFactTable(plus);
+        factFibonacci.addFactTable(greater);
+        System.out.printf("fib(%d) = %d: %,d plus facts%n", fibonacci, limit, plus.getFactCount());
+
+        Formula fibonacciGoal = ClauseReader.parseFormula("(fib " + fibonacci + " ?F)");
+        System.out.printf("  builtins %,10.1f ms  facts %,10.1f ms%n",
+                timeTree(fibonacciGoal, builtinFibonacci, repetitions),
+                timeTree(fibonacciGoal, factFibonacci, repetitions));
+    }
+
+    /**
+     * Returns a Fibonacci number.
+     *
+     * @param index The index of the number.
+     * @return the number.
+     */
+    private static long fibonacciOf(int index) {
+        long previous = 1;
+        long current = 0;
+        for(int count = 0; count < index; count++) {
+            long next = previous + current;
+            previous = current;
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the average time for the stack solver to find the first solution of a goal, after
+     * as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double timeStack(Formula goal, RuleSet rules, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            solveStack(goal, rules);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            solveStack(goal, rules);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+
+    /**
+     * Finds the first solution of a goal with the stack solver.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     */
+    private static void solveStack(Formula goal, RuleSet rules) {
+        if(new StackSolutionNode(goal, rules, new Substitution()).nextSolution() == null) {
+            throw new IllegalStateException("The goal has no solution.");
+        }
+    }
+
+    /**
+     * Returns the average time to count the solutions of a goal with the proof tree solver,
+     * after as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double timeTree(Formula goal, RuleSet rules, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            BenchmarkUtils.countSolutions(goal, rules);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            if(BenchmarkUtils.countSolutions(goal, rules) != 1) {
+                throw new IllegalStateException("The goal should have one solution.");
+            }
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+}
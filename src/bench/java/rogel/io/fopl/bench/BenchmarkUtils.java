@@ -0,0 +1,75 @@
+package rogel.io.fopl.bench;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Contains utility methods shared by the benchmarks.
+ * 
+ * @author recardona
+ */
+final class BenchmarkUtils {
+    
+    private BenchmarkUtils() { /* Private constructor for no initialization. */ }
+    
+    /**
+     * Returns the integer command-line argument at the given index, or the default value if there
+     * are not enough arguments.
+     * 
+     * @param args The command-line arguments.
+     * @param index The index of the argument.
+     * @param defaultValue The value to use if the argument is missing.
+     * @return the parsed argument, or the default value.
+     */
+    static int intArgument(String[] args, int index, int defaultValue) {
+        return (args.length > index) ? Integer.parseInt(args[index]) : defaultValue;
+    }
+    
+    /**
+     * Returns the number of bytes in use on the heap, after requesting garbage collection.
+     * 
+     * @return the used heap memory, in bytes.
+     */
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int attempt = 0; attempt < 4; attempt++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Counts every solution to the goal, using the proof tree solver.
+     * 
+     * @param goal The goal to solve.
+     * @param rules The RuleSet to solve the goal against.
+     * @return the number of solutions.
+     */
+    static int countSolutions(Formula goal, RuleSet rules) {
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the milliseconds elapsed since the given {@code System.nanoTime()} reading.
+     * 
+     * @param startNanos The starting time, in nanoseconds.
+     * @return the elapsed time, in milliseconds.
+     */
+    static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+}
@@ -0,0 +1,78 @@
+package rogel.io.fopl.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Random;
+
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.BulkFactLoader;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+
+/**
+ * Measures how many rows per second a BulkFactLoader loads from CSV files into ColumnarFactTables,
+ * with one thread and with one thread per file. For reference, it also loads the first file the
+ * straightforward way, splitting each line into Strings and adding a Predicate of constant
+ * Functions for each row. Each file has three columns, of which two are loaded.
+ * <p>
+ * Arguments: {@code [fileCount=4] [rowsPerFile=2000000] [constantCount=100000]}.
+ *
+ * @author recardona
+ */
+public class BulkFactLoaderBenchmark {
+
+    public static void main(String[] args) throws IOException, ParseException {
+        int fileCount = BenchmarkUtils.intArgument(args, 0, 4);
+        int rowsPerFile = BenchmarkUtils.intArgument(args, 1, 2000000);
+        int constantCount = BenchmarkUtils.intArgument(args, 2, 100000);
+
+        File[] files = new File[fileCount];
+        Random random = new Random(42);
+        for(int index = 0; index < fileCount; index++) {
+            files[index] = File.createTempFile("facts" + index, ".csv");
+            files[index].deleteOnExit();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(files[index]), "UTF-8"));
+            writer.write("id,from,to\n");
+            for(int row = 0; row < rowsPerFile; row++) {
+                writer.write(row + ",c" + random.nextInt(constantCount) + ",c" + random.nextInt(constantCount) + "\n");
+            }
+            writer.close();
+        }
+        System.out.printf("%d files of %,d rows, %d processors%n", fileCount, rowsPerFile,
+                Runtime.getRuntime().availableProcessors());
+
+        // Split lines and build a Predicate for each row.
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(files[0]), "UTF-8"));
+        ColumnarFactTable table = new ColumnarFactTable("edge0", 2);
+        reader.readLine();
+        for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+            String[] fields = line.split(",");
+            table.add(new Predicate("edge0", new Function(fields[1]), new Function(fields[2])));
+        }
+        reader.close();
+        System.out.printf("Predicate per row:        %,12.0f rows/s%n",
+                table.getFactCount() / (BenchmarkUtils.millisSince(start) / 1000));
+        table = null;
+
+        for(int threadCount : new int[] {1, fileCount}) {
+            BulkFactLoader loader = new BulkFactLoader(',', true);
+            for(int index = 0; index < fileCount; index++) {
+                loader.addFile(files[index], "edge" + index, 1, 2);
+            }
+            loader.load(threadCount);
+            System.out.printf("BulkFactLoader, %2d threads: %,10.0f rows/s (%,d rows)%n",
+                    threadCount, loader.getRowsPerSecond(), loader.getRowCount());
+            loader = null;
+            BenchmarkUtils.usedMemory();
+        }
+    }
+}
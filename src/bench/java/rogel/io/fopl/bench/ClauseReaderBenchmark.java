@@ -0,0 +1,72 @@
+package rogel.io.fopl.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Random;
+
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * Measures how many clauses per second a ClauseReader parses from a file channel, both when the 
+ * clauses are discarded and when they are kept in a RuleSet. The file holds random 
+ * {@code (edge cX cY)} facts, with one rule of three body goals every ten clauses.
+ * <p>
+ * Arguments: {@code [clauseCount=5000000] [constantCount=100000] [rounds=3]}.
+ * 
+ * @author recardona
+ */
+public class ClauseReaderBenchmark {
+
+    public static void main(String[] args) throws IOException, ParseException {
+        int clauseCount = BenchmarkUtils.intArgument(args, 0, 5000000);
+        int constantCount = BenchmarkUtils.intArgument(args, 1, 100000);
+        int rounds = BenchmarkUtils.intArgument(args, 2, 3);
+        
+        File file = File.createTempFile("clauses", ".fopl");
+        file.deleteOnExit();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        Random random = new Random(42);
+        for(int index = 0; index < clauseCount; index++) {
+            if(index % 10 == 9) {
+                writer.write("(path ?X ?Y) :- (and (edge ?X ?Z) (edge ?Z ?W) (path ?W ?Y))\n");
+            }
+            else {
+                writer.write("(edge c" + random.nextInt(constantCount) + " c" + random.nextInt(constantCount) + ")\n");
+            }
+        }
+        writer.close();
+        
+        System.out.printf("%,d clauses, %,d bytes%n", clauseCount, file.length());
+        for(int round = 1; round <= rounds; round++) {
+            
+            // Parse every clause, without keeping them.
+            long start = System.nanoTime();
+            ClauseReader reader = new ClauseReader(new FileInputStream(file).getChannel());
+            int parsed = 0;
+            while(reader.readClause() != null) {
+                parsed++;
+            }
+            reader.close();
+            double parseMillis = BenchmarkUtils.millisSince(start);
+            
+            // Parse every clause into a RuleSet.
+            start = System.nanoTime();
+            reader = new ClauseReader(new FileInputStream(file).getChannel());
+            RuleSet rules = reader.readRuleSet();
+            reader.close();
+            double loadMillis = BenchmarkUtils.millisSince(start);
+            
+            System.out.printf("round %d: parse %,12.0f clauses/s %,6.1f MB/s   load RuleSet %,12.0f clauses/s%n", 
+                    round, parsed / (parseMillis / 1000), file.length() / (parseMillis / 1000) / (1 << 20), 
+                    rules.getRuleCount() / (loadMillis / 1000));
+            rules = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package rogel.io.fopl.bench;
+
+import java.util.Random;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * Compares the heap used by ground facts stored as HornClauses against the same facts stored in a
+ * ColumnarFactTable, and the time to answer a query with a bound first argument over each.
+ * <p>
+ * Arguments: {@code [factCount=10000000] [constantCount=factCount/10]}. The default fact count 
+ * needs a heap of several gigabytes for the HornClause representation.
+ * 
+ * @author recardona
+ */
+public class ColumnarFactTableBenchmark {
+
+    public static void main(String[] args) {
+        int factCount = BenchmarkUtils.intArgument(args, 0, 10000000);
+        int constantCount = BenchmarkUtils.intArgument(args, 1, Math.max(1, factCount / 10));
+        
+        // Declare every Symbol up front, so neither representation is charged for them.
+        Symbol edge = Symbol.get("edge");
+        Symbol[] constants = new Symbol[constantCount];
+        for(int index = 0; index < constantCount; index++) {
+            constants[index] = Symbol.get("c" + index);
+        }
+        Predicate goal = new Predicate(edge, new Function(constants[0]), new Variable("Y"));
+        
+        System.out.printf("%,d facts over %,d constants%n", factCount, constantCount);
+        
+        // HornClause object graphs.
+        long baseline = BenchmarkUtils.usedMemory();
+        Random random = new Random(42);
+        HornClause[] clauses = new HornClause[factCount];
+        for(int index = 0; index < factCount; index++) {
+            clauses[index] = new HornClause(new Predicate(edge, 
+                    new Function(constants[random.nextInt(constantCount)]),
+                    new Function(constants[random.nextInt(constantCount)])));
+        }
+        RuleSet clauseRules = new RuleSet(clauses);
+        long clauseBytes = BenchmarkUtils.usedMemory() - baseline;
+        
+        long start = System.nanoTime();
+        int clauseAnswers = BenchmarkUtils.countSolutions(goal, clauseRules);
+        double clauseMillis = BenchmarkUtils.millisSince(start);
+        
+        clauses = null;
+        clauseRules = null;
+        
+        // Columns of Symbol ids.
+        baseline = BenchmarkUtils.usedMemory();
+        random = new Random(42);
+        ColumnarFactTable table = new ColumnarFactTable(edge, 2);
+        for(int index = 0; index < factCount; index++) {
+            table.add(constants[random.nextInt(constantCount)].getId(),
+                    constants[random.nextInt(constantCount)].getId());
+        }
+        table.trimToSize();
+        RuleSet tableRules = new RuleSet();
+        tableRules.addFactTable(table);
+        long tableBytes = BenchmarkUtils.usedMemory() - baseline;
+        
+        start = System.nanoTime();
+        int tableAnswers = BenchmarkUtils.countSolutions(goal, tableRules);
+        double tableMillis = BenchmarkUtils.millisSince(start);
+        
+        System.out.printf("%-18s %,15d bytes %8.1f bytes/fact   query %,10.1f ms (%d answers)%n", 
+                "HornClause", clauseBytes, (double) clauseBytes / factCount, clauseMillis, clauseAnswers);
+        System.out.printf("%-18s %,15d bytes %8.1f bytes/fact   query %,10.1f ms (%d answers, "
+                + "includes index build)%n", 
+                "ColumnarFactTable", tableBytes, (double) tableBytes / factCount, tableMillis, tableAnswers);
+    }
+}
@@ -0,0 +1,112 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * Measures the memory a deterministic recursive predicate holds on to once its first solution is
+ * found, with and without cut and once. The predicate counts down a number {@code s(s(...zero))}
+ * with a recursive rule, followed by a fallback rule that never applies but leaves an alternative
+ * at every level of the recursion, unless the recursive rule cuts it. The solver that found the
+ * solution is kept alive, as a caller that may ask for more solutions would.
+ * <p>
+ * Arguments: {@code [stackDepth=1000000] [treeDepth=2000]}.
+ *
+ * @author recardona
+ */
+public class CutBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int stackDepth = BenchmarkUtils.intArgument(args, 0, 1000000);
+        final int treeDepth = BenchmarkUtils.intArgument(args, 1, 2000);
+
+        final RuleSet plain = countRules("(count s(?X)) :- (count ?X)");
+        final RuleSet cut = countRules("(count s(?X)) :- (and (!) (count ?X))");
+
+        Predicate stackGoal = new Predicate("count", number(stackDepth));
+        System.out.printf("stack solver, depth %,d%n", stackDepth);
+        measure("plain", stackGoal, plain, true);
+        measure("cut", stackGoal, cut, true);
+
+        // The proof tree solver recurses on the Java stack, so it runs on a thread with a large one.
+        Thread tree = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                Predicate treeGoal = new Predicate("count", number(treeDepth));
+                System.out.printf("proof tree solver, depth %,d%n", treeDepth);
+                measure("plain", treeGoal, plain, false);
+                measure("cut", treeGoal, cut, false);
+                measure("once", new OnceOperator(treeGoal), plain, false);
+            }
+        }, "tree", 1L << 30);
+        tree.start();
+        tree.join();
+    }
+
+    /**
+     * Returns the rules of the count predicate, with the given recursive rule.
+     *
+     * @param recursiveRule The text of the recursive rule.
+     * @return the RuleSet.
+     * @throws ParseException if a rule cannot be parsed.
+     */
+    private static RuleSet countRules(String recursiveRule) throws ParseException {
+        return new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(count zero)"),
+                ClauseReader.parseClause(recursiveRule),
+                ClauseReader.parseClause("(count s(?X)) :- (fallback ?X)")
+        });
+    }
+
+    /**
+     * Builds the number {@code s(s(...zero))}.
+     *
+     * @param value The value of the number.
+     * @return the Term.
+     */
+    private static Term number(int value) {
+        Term number = new Function("zero");
+        for(int count = 0; count < value; count++) {
+            number = new Function("s", number);
+        }
+        return number;
+    }
+
+    /**
+     * Finds the first solution of a goal, and prints the time it took and the memory the solver
+     * holds on to afterwards.
+     *
+     * @param name The name of the variant.
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param stack Whether to use the stack solver rather than the proof tree solver.
+     */
+    private static void measure(String name, Formula goal, RuleSet rules, boolean stack) {
+        long memoryBefore = BenchmarkUtils.usedMemory();
+        long start = System.nanoTime();
+        AbstractSolutionNode solver = stack ? SolutionNodeFactory.getStackSolver(goal, rules, new Substitution())
+                : SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        if(solver.nextSolution() == null) {
+            throw new IllegalStateException("The goal has no solution.");
+        }
+        double millis = BenchmarkUtils.millisSince(start);
+        long retained = BenchmarkUtils.usedMemory() - memoryBefore;
+        System.out.printf("  %-6s %,10.1f ms  retained %,12d bytes%n", name, millis, retained);
+
+        // Keep the solver alive until its memory is measured.
+        if(solver.getRules() != rules) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.datalog.DatalogEngine;
+import rogel.io.fopl.proof.datalog.DatalogModel;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+/**
+ * Measures the bottom-up evaluation of the transitive closure of a graph. The graph is a forest of
+ * chains of a given length, whose edges are stored in a ColumnarFactTable; the closure of
+ * {@code path} over them is computed by a DatalogEngine, with left-recursive rules. For
+ * comparison, the closure of a smaller graph is also computed top-down, by counting the solutions
+ * to {@code (path ?X ?Y)} over right-recursive rules.
+ * <p>
+ * Arguments: {@code [edgeCount=100000] [chainLength=8] [topDownEdgeCount=2000]}.
+ *
+ * @author recardona
+ */
+public class DatalogBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int edgeCount = BenchmarkUtils.intArgument(args, 0, 100000);
+        int chainLength = BenchmarkUtils.intArgument(args, 1, 8);
+        int topDownEdgeCount = BenchmarkUtils.intArgument(args, 2, 2000);
+
+        RuleSet small = graph(topDownEdgeCount, chainLength,
+                "(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))");
+        double bottomUpMillis = time(topDownEdgeCount + " edges, bottom-up:", small);
+
+        RuleSet rightRecursive = graph(topDownEdgeCount, chainLength,
+                "(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))");
+        Formula goal = ClauseReader.parseFormula("(path ?X ?Y)");
+        BenchmarkUtils.countSolutions(goal, rightRecursive);
+        long start = System.nanoTime();
+        int solutions = BenchmarkUtils.countSolutions(goal, rightRecursive);
+        double topDownMillis = BenchmarkUtils.millisSince(start);
+        System.out.printf("%-28s %,10.1f ms (%,d paths)%n", topDownEdgeCount + " edges, top-down:", topDownMillis, solutions);
+        System.out.printf("speedup %.2fx%n", topDownMillis / bottomUpMillis);
+
+        RuleSet large = graph(edgeCount, chainLength,
+                "(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))");
+        time(edgeCount + " edges, bottom-up:", large);
+    }
+
+    /**
+     * Builds a RuleSet with the edges of a forest of chains, and the rules for {@code path}.
+     *
+     * @param edgeCount The number of edges.
+     * @param chainLength The number of edges of each chain.
+     * @param pathRules The rules for {@code path}.
+     * @return the RuleSet.
+     */
+    private static RuleSet graph(int edgeCount, int chainLength, String... pathRules) throws ParseException {
+        HornClause[] clauses = new HornClause[pathRules.length];
+        for(int rule = 0; rule < pathRules.length; rule++) {
+            clauses[rule] = ClauseReader.parseClause(pathRules[rule]);
+        }
+        RuleSet rules = new RuleSet(clauses);
+
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        Symbol from = null;
+        for(int edge = 0; edge < edgeCount; edge++) {
+            if(edge % chainLength == 0) {
+                from = Symbol.get("n" + edge + "_0");
+            }
+            Symbol to = Symbol.get("n" + (edge - edge % chainLength) + "_" + (edge % chainLength + 1));
+            edges.add(from, to);
+            from = to;
+        }
+        rules.addFactTable(edges);
+        return rules;
+    }
+
+    /**
+     * Prints the time to compute the least model of a RuleSet, after a warm-up run.
+     *
+     * @param name The name of the run.
+     * @param rules The RuleSet.
+     * @return the time, in milliseconds.
+     */
+    private static double time(String name, RuleSet rules) {
+        DatalogEngine engine = new DatalogEngine(rules);
+        engine.evaluate();
+        long start = System.nanoTime();
+        DatalogModel model = engine.evaluate();
+        double millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("%-28s %,10.1f ms (%,d paths, %d rounds)%n", name, millis,
+                model.getRelation(Symbol.get("path"), 2).getFactCount(), model.getRoundCount());
+        return millis;
+    }
+}
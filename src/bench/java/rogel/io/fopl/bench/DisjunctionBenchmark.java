@@ -0,0 +1,112 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Compares a rule with a disjunctive body to the rules it replaces, one per operand of the
+ * disjunction, each repeating the goals before it. The employees of the departments in a region
+ * are flagged if they hold any of several roles; the goals shared by the operands find the
+ * employees of the region, and are solved once with the disjunction, and once per role with the
+ * split rules. The distinct mode of the disjunction is measured as well.
+ * <p>
+ * Arguments: {@code [employeeCount=20000] [roleCount=4] [repetitions=20]}.
+ *
+ * @author recardona
+ */
+public class DisjunctionBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int employeeCount = BenchmarkUtils.intArgument(args, 0, 20000);
+        int roleCount = BenchmarkUtils.intArgument(args, 1, 4);
+        int repetitions = BenchmarkUtils.intArgument(args, 2, 20);
+
+        StringBuilder disjunction = new StringBuilder("(or");
+        HornClause[] clauses = new HornClause[roleCount + 2];
+        for(int role = 0; role < roleCount; role++) {
+            disjunction.append(" (role").append(role).append(" ?X)");
+            clauses[role] = ClauseReader.parseClause("(split ?X) :- (and (works ?X ?D) (located ?D ?R) (region ?R) (role"
+                    + role + " ?X))");
+        }
+        clauses[roleCount] = ClauseReader.parseClause("(flagged ?X) :- (and (works ?X ?D) (located ?D ?R) (region ?R) "
+                + disjunction.append(')') + ")");
+        clauses[roleCount + 1] = ClauseReader.parseClause("(region north)");
+        RuleSet rules = new RuleSet(clauses);
+
+        ColumnarFactTable works = new ColumnarFactTable("works", 2);
+        ColumnarFactTable located = new ColumnarFactTable("located", 2);
+        for(int employee = 0; employee < employeeCount; employee++) {
+            works.add(Symbol.get("e" + employee), Symbol.get("d" + (employee % 100)));
+        }
+        for(int department = 0; department < 100; department++) {
+            located.add(Symbol.get("d" + department), Symbol.get((department % 2 == 0) ? "north" : "south"));
+        }
+        rules.addFactTable(works);
+        rules.addFactTable(located);
+        for(int role = 0; role < roleCount; role++) {
+            ColumnarFactTable roleTable = new ColumnarFactTable("role" + role, 1);
+            for(int employee = role; employee < employeeCount; employee += 3) {
+                roleTable.add(Symbol.get("e" + employee));
+            }
+            rules.addFactTable(roleTable);
+        }
+
+        Formula split = ClauseReader.parseFormula("(split ?X)");
+        Formula flagged = ClauseReader.parseFormula("(flagged ?X)");
+        System.out.printf("split rules    %,7d solutions  %,9.2f ms%n", countSolutions(split, rules, false),
+                time(split, rules, false, repetitions));
+        System.out.printf("disjunction    %,7d solutions  %,9.2f ms%n", countSolutions(flagged, rules, false),
+                time(flagged, rules, false, repetitions));
+        System.out.printf("distinct       %,7d solutions  %,9.2f ms%n", countSolutions(flagged, rules, true),
+                time(flagged, rules, true, repetitions));
+    }
+
+    /**
+     * Returns the average time to solve a goal, after as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param distinct Whether disjunctions return each answer once.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double time(Formula goal, RuleSet rules, boolean distinct, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, distinct);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, distinct);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+
+    /**
+     * Counts every solution to the goal.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param distinct Whether disjunctions return each answer once.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, boolean distinct) {
+        ProofContext context = new ProofContext();
+        context.setDistinctDisjunctions(distinct);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context);
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,126 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.GoalPlanner;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Measures the time to solve badly ordered conjunctions in written order, and in the order chosen
+ * by a GoalPlanner. The employees of a company each work in a department and have a badge; each
+ * department has a head, and a few employees are senior. The queries are:
+ * <ul>
+ * <li>{@code filter}: the head of the department of the employee with a given badge, with the
+ * badge last.</li>
+ * <li>{@code rule}: every pair of colleagues whose second member is senior, through a rule that
+ * joins the departments first.</li>
+ * <li>{@code chain}: the employees of the departments headed by a senior employee, with the
+ * seniors last.</li>
+ * <li>{@code ordered}: a rule of 30 goals, already in a good order, to show the cost of
+ * planning.</li>
+ * </ul>
+ * <p>
+ * Arguments: {@code [employeeCount=20000] [departmentCount=200] [seniorCount=10]}.
+ *
+ * @author recardona
+ */
+public class GoalPlannerBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int employeeCount = BenchmarkUtils.intArgument(args, 0, 20000);
+        int departmentCount = BenchmarkUtils.intArgument(args, 1, 200);
+        int seniorCount = BenchmarkUtils.intArgument(args, 2, 10);
+
+        HornClause[] clauses = new HornClause[32];
+        clauses[0] = ClauseReader.parseClause("(colleague ?X ?Y) :- (and (works ?X ?D) (works ?Y ?D) (senior ?Y))");
+        StringBuilder ordered = new StringBuilder("(all ?X) :- (and");
+        for(int index = 1; index <= 30; index++) {
+            clauses[index] = ClauseReader.parseClause("(g" + index + " a)");
+            ordered.append(" (g").append(index).append(" ?X)");
+        }
+        clauses[31] = ClauseReader.parseClause(ordered.append(')').toString());
+        RuleSet rules = new RuleSet(clauses);
+
+        ColumnarFactTable works = new ColumnarFactTable("works", 2);
+        ColumnarFactTable badge = new ColumnarFactTable("badge", 2);
+        ColumnarFactTable heads = new ColumnarFactTable("heads", 2);
+        ColumnarFactTable senior = new ColumnarFactTable("senior", 1);
+        for(int employee = 0; employee < employeeCount; employee++) {
+            works.add(Symbol.get("e" + employee), Symbol.get("d" + (employee % departmentCount)));
+            badge.add(Symbol.get("e" + employee), Symbol.get("b" + employee));
+        }
+        for(int department = 0; department < departmentCount; department++) {
+            heads.add(Symbol.get("e" + department), Symbol.get("d" + department));
+        }
+        for(int employee = 0; employee < seniorCount; employee++) {
+            senior.add(Symbol.get("e" + (employee * 7)));
+        }
+        rules.addFactTable(works);
+        rules.addFactTable(badge);
+        rules.addFactTable(heads);
+        rules.addFactTable(senior);
+
+        String[][] queries = {
+                {"filter", "(and (works ?E ?D) (heads ?M ?D) (badge ?E b" + (employeeCount / 2) + "))", "1000"},
+                {"rule", "(colleague ?X ?Y)", "1"},
+                {"chain", "(and (works ?E ?D) (heads ?M ?D) (senior ?M))", "10"},
+                {"ordered", "(all a)", "2000"}
+        };
+        GoalPlanner planner = new GoalPlanner(rules);
+        for(String[] query : queries) {
+            Formula goal = ClauseReader.parseFormula(query[1]);
+            int repetitions = Integer.parseInt(query[2]);
+            double written = time(goal, rules, null, repetitions);
+            double planned = time(goal, rules, planner, repetitions);
+            System.out.printf("%-8s %,6d solutions  written %,10.3f ms  planned %,10.3f ms  speedup %,8.1fx%n",
+                    query[0], countSolutions(goal, rules, planner), written, planned, written / planned);
+        }
+    }
+
+    /**
+     * Returns the average time to solve a goal, after as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param planner The GoalPlanner, or null to solve conjunctions in written order.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double time(Formula goal, RuleSet rules, GoalPlanner planner, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, planner);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, planner);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+
+    /**
+     * Counts every solution to the goal, using the proof tree solver with a GoalPlanner.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param planner The GoalPlanner, or null to solve conjunctions in written order.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, GoalPlanner planner) {
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(),
+                new ProofContext(null, planner));
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.datalog.DatalogEngine;
+import rogel.io.fopl.proof.datalog.IncrementalModel;
+import rogel.io.fopl.proof.datalog.StandingQuery;
+import rogel.io.fopl.proof.datalog.StandingQueryListener;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * Measures the latency of an update of an IncrementalModel against evaluating the model again.
+ * The model is the ancestor relation of a forest of random trees, with a StandingQuery for the
+ * descendants of each of the first nodes. Each update moves a random node under another parent of
+ * its tree: it retracts one edge and asserts another, which deletes and derives the paths into
+ * the node's subtree.
+ * <p>
+ * Arguments: {@code [treeCount=200] [treeSize=500] [updateCount=2000] [queryCount=300]}.
+ *
+ * @author recardona
+ */
+public class IncrementalModelBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int treeCount = BenchmarkUtils.intArgument(args, 0, 200);
+        int treeSize = BenchmarkUtils.intArgument(args, 1, 500);
+        int updateCount = BenchmarkUtils.intArgument(args, 2, 2000);
+        int queryCount = BenchmarkUtils.intArgument(args, 3, 300);
+
+        RuleSet rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(path ?X ?Y) :- (and (edge ?X ?Y))"),
+                ClauseReader.parseClause("(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))")
+        });
+
+        // Each node's parent is an earlier node of its tree, so the edges never form a cycle.
+        Random random = new Random(42);
+        int[] parents = new int[treeCount * treeSize];
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        for(int node = 0; node < parents.length; node++) {
+            if(node % treeSize != 0) {
+                parents[node] = node - 1 - random.nextInt(node % treeSize);
+                edges.add(Symbol.get("n" + parents[node]), Symbol.get("n" + node));
+            }
+        }
+        rules.addFactTable(edges);
+
+        long start = System.nanoTime();
+        long factCount = new DatalogEngine(rules).evaluate().getFactCount();
+        double evaluateMillis = BenchmarkUtils.millisSince(start);
+        System.out.printf("evaluate:  %,10.3f ms (%,d facts)%n", evaluateMillis, factCount);
+
+        start = System.nanoTime();
+        IncrementalModel model = new IncrementalModel(rules);
+        final long[] notifications = new long[2];
+        StandingQueryListener listener = new StandingQueryListener() {
+            @Override
+            public void answersChanged(StandingQuery query, List<Predicate> added, List<Predicate> removed) {
+                notifications[0]++;
+                notifications[1] += added.size() + removed.size();
+            }
+        };
+        for(int query = 0; query < queryCount; query++) {
+            model.addQuery(new Predicate("path", new Function("n" + random.nextInt(parents.length)),
+                    new Variable("Y")), listener);
+        }
+        System.out.printf("construct: %,10.3f ms%n", BenchmarkUtils.millisSince(start));
+
+        start = System.nanoTime();
+        for(int update = 0; update < updateCount; update++) {
+            int node = random.nextInt(parents.length);
+            if(node % treeSize == 0) {
+                continue;
+            }
+            List<Predicate> retractions = new ArrayList<Predicate>();
+            List<Predicate> assertions = new ArrayList<Predicate>();
+            retractions.add(new Predicate("edge", new Function("n" + parents[node]), new Function("n" + node)));
+            parents[node] = node - 1 - random.nextInt(node % treeSize);
+            assertions.add(new Predicate("edge", new Function("n" + parents[node]), new Function("n" + node)));
+            model.update(assertions, retractions);
+        }
+        double updateMillis = BenchmarkUtils.millisSince(start) / updateCount;
+        System.out.printf("update:    %,10.3f ms (%,d notifications of %,d answers, %,d facts)%n", updateMillis,
+                notifications[0], notifications[1], model.getModel().getFactCount());
+        System.out.printf("speedup:   %,10.0fx%n", evaluateMillis / updateMillis);
+    }
+}
@@ -0,0 +1,111 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Measures the solving of conjunctions of independent goals. The rule {@code (heavy ?I ?R)}
+ * reverses a list with naive reverse, ignoring ?I. The query
+ * {@code (and (item ?I) (heavy ?I ?R) (heavy ?I ?S))} shares ?I between its operands, so the
+ * reversals are solved again for every {@code (item cI)} fact, in nested loops; the query
+ * {@code (and (item ?I) (heavy c0 ?R) (heavy c0 ?S))} has the same number of solutions, but its
+ * operands are independent, so each reversal is solved once. The independent query is then solved
+ * with its reversals on ForkJoinPools of increasing parallelism.
+ * <p>
+ * Arguments: {@code [itemCount=20] [listLength=12] [maxParallelism=available processors]}.
+ *
+ * @author recardona
+ */
+public class IndependentAndBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int itemCount = BenchmarkUtils.intArgument(args, 0, 20);
+        int listLength = BenchmarkUtils.intArgument(args, 1, 12);
+        int maxParallelism = BenchmarkUtils.intArgument(args, 2, Runtime.getRuntime().availableProcessors());
+
+        StringBuilder list = new StringBuilder();
+        for(int index = 0; index < listLength; index++) {
+            list.append("cons(e").append(index).append(", ");
+        }
+        list.append("nil");
+        for(int index = 0; index < listLength; index++) {
+            list.append(')');
+        }
+
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(int index = 0; index < itemCount; index++) {
+            clauses.add(ClauseReader.parseClause("(item c" + index + ")"));
+        }
+        clauses.add(ClauseReader.parseClause("(append nil ?L ?L)"));
+        clauses.add(ClauseReader.parseClause("(append cons(?H, ?T) ?L cons(?H, ?R)) :- (and (append ?T ?L ?R))"));
+        clauses.add(ClauseReader.parseClause("(nrev nil nil)"));
+        clauses.add(ClauseReader.parseClause("(nrev cons(?H, ?T) ?R) :- (and (nrev ?T ?S) (append ?S cons(?H, nil) ?R))"));
+        clauses.add(ClauseReader.parseClause("(heavy ?I ?R) :- (and (nrev " + list + " ?R))"));
+        RuleSet rules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+
+        Formula nested = ClauseReader.parseFormula("(and (item ?I) (heavy ?I ?R) (heavy ?I ?S))");
+        Formula independent = ClauseReader.parseFormula("(and (item ?I) (heavy c0 ?R) (heavy c0 ?S))");
+
+        BenchmarkUtils.countSolutions(nested, rules);
+        long start = System.nanoTime();
+        int solutions = BenchmarkUtils.countSolutions(nested, rules);
+        double nestedMillis = BenchmarkUtils.millisSince(start);
+        System.out.printf("nested loops:    %,10.1f ms (%d solutions)%n", nestedMillis, solutions);
+
+        countSolutions(independent, rules, null);
+        start = System.nanoTime();
+        solutions = countSolutions(independent, rules, null);
+        double millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("independent:     %,10.1f ms (%d solutions), speedup %.2fx%n", millis, solutions,
+                nestedMillis / millis);
+
+        for(int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            countSolutions(independent, rules, pool);
+
+            start = System.nanoTime();
+            solutions = countSolutions(independent, rules, pool);
+            millis = BenchmarkUtils.millisSince(start);
+            System.out.printf("parallelism %2d: %,10.1f ms (%d solutions), speedup %.2fx%n", parallelism, millis,
+                    solutions, nestedMillis / millis);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Counts every solution to the goal, solving each group of independent operands once.
+     *
+     * @param goal The goal to solve.
+     * @param rules The RuleSet to solve the goal against.
+     * @param pool The ForkJoinPool that solves the independent operands, or null to solve them on
+     *     the caller's thread.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, ForkJoinPool pool) {
+        AbstractSolutionNode root;
+        if(pool == null) {
+            ProofContext context = new ProofContext();
+            context.setIndependentConjunctions(true);
+            root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context);
+        }
+        else {
+            root = SolutionNodeFactory.getAndParallelSolver(goal, rules, new Substitution(), pool);
+        }
+        int solutions = 0;
+        while(root.nextSolution() != null) {
+            solutions++;
+        }
+        return solutions;
+    }
+}
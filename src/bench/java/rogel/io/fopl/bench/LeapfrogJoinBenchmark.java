@@ -0,0 +1,102 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.Random;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Measures the time to find the triangles and 4-cycles of a random graph with a few hubs, with a
+ * LeapfrogJoinSolutionNode and with a StackSolutionNode, which solves the operands one after the
+ * other in written order. Half of the edges touch one of the hubs, so that joining two edges
+ * before checking the third gives many more partial solutions than there are cycles.
+ * <p>
+ * Arguments: {@code [nodeCount=20000] [edgeCount=60000] [hubCount=20]}.
+ *
+ * @author recardona
+ */
+public class LeapfrogJoinBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int nodeCount = BenchmarkUtils.intArgument(args, 0, 20000);
+        int edgeCount = BenchmarkUtils.intArgument(args, 1, 60000);
+        int hubCount = BenchmarkUtils.intArgument(args, 2, 20);
+
+        RuleSet rules = new RuleSet(new HornClause[0]);
+        ColumnarFactTable edge = new ColumnarFactTable("edge", 2);
+        Random random = new Random(44);
+        for(int index = 0; index < edgeCount; index++) {
+            int from = random.nextInt(nodeCount);
+            int to = (index % 2 == 0) ? random.nextInt(hubCount) : random.nextInt(nodeCount);
+            if(random.nextBoolean()) {
+                edge.add(Symbol.get("n" + from), Symbol.get("n" + to));
+            }
+            else {
+                edge.add(Symbol.get("n" + to), Symbol.get("n" + from));
+            }
+        }
+        rules.addFactTable(edge);
+
+        String[][] queries = {
+                {"triangle", "(and (edge ?X ?Y) (edge ?Y ?Z) (edge ?Z ?X))", "3"},
+                {"4-cycle", "(and (edge ?X ?Y) (edge ?Y ?Z) (edge ?Z ?W) (edge ?W ?X))", "1"}
+        };
+        for(String[] query : queries) {
+            Formula goal = ClauseReader.parseFormula(query[1]);
+            int repetitions = Integer.parseInt(query[2]);
+            double leapfrog = time(goal, rules, true, repetitions);
+            double stack = time(goal, rules, false, repetitions);
+            System.out.printf("%-8s %,10d solutions  stack %,10.1f ms  leapfrog %,10.1f ms  speedup %,6.1fx%n",
+                    query[0], countSolutions(goal, rules, true), stack, leapfrog, stack / leapfrog);
+        }
+    }
+
+    /**
+     * Returns the average time to solve a goal, after one run to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param leapfrog Whether to solve the goal with a LeapfrogJoinSolutionNode.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double time(Formula goal, RuleSet rules, boolean leapfrog, int repetitions) {
+        countSolutions(goal, rules, leapfrog);
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, leapfrog);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+
+    /**
+     * Counts every solution to the goal.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param leapfrog Whether to solve the goal with a LeapfrogJoinSolutionNode, or a
+     *  StackSolutionNode.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, boolean leapfrog) {
+        ProofContext context = new ProofContext();
+        context.setLeapfrogJoins(true);
+        AbstractSolutionNode root = leapfrog
+                ? SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context)
+                : SolutionNodeFactory.getStackSolver(goal, rules, new Substitution());
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        return count;
+    }
+}
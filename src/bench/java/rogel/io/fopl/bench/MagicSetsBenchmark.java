@@ -0,0 +1,104 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.datalog.DatalogEngine;
+import rogel.io.fopl.proof.datalog.MagicSets;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+/**
+ * Measures a query with bound terms answered three ways: top-down, by counting its solutions;
+ * bottom-up over the full RuleSet, by computing its least model; and bottom-up over the RuleSet
+ * rewritten with magic sets for the query. The queries are {@code (path n0_0 ?Y)} over a forest
+ * of chains of a given length, and {@code (sg tN ?Y)}, the nodes of the same generation as a leaf
+ * of a complete binary tree of a given depth.
+ * <p>
+ * Arguments: {@code [edgeCount=100000] [chainLength=8] [treeDepth=11]}.
+ *
+ * @author recardona
+ */
+public class MagicSetsBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int edgeCount = BenchmarkUtils.intArgument(args, 0, 100000);
+        int chainLength = BenchmarkUtils.intArgument(args, 1, 8);
+        int treeDepth = BenchmarkUtils.intArgument(args, 2, 11);
+
+        RuleSet chains = rules("(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))");
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        Symbol from = null;
+        for(int edge = 0; edge < edgeCount; edge++) {
+            if(edge % chainLength == 0) {
+                from = Symbol.get("n" + edge + "_0");
+            }
+            Symbol to = Symbol.get("n" + (edge - edge % chainLength) + "_" + (edge % chainLength + 1));
+            edges.add(from, to);
+            from = to;
+        }
+        chains.addFactTable(edges);
+        compare(edgeCount + " edges, (path n0_0 ?Y)", chains, "(path n0_0 ?Y)");
+
+        RuleSet tree = rules("(sg ?X ?X) :- (and (node ?X))",
+                "(sg ?X ?Y) :- (and (parent ?X ?P) (sg ?P ?Q) (parent ?Y ?Q))");
+        ColumnarFactTable parents = new ColumnarFactTable("parent", 2);
+        ColumnarFactTable nodes = new ColumnarFactTable("node", 1);
+        int nodeCount = (1 << (treeDepth + 1)) - 1;
+        for(int node = 1; node <= nodeCount; node++) {
+            nodes.add(Symbol.get("t" + node));
+            if(node > 1) {
+                parents.add(Symbol.get("t" + node), Symbol.get("t" + (node / 2)));
+            }
+        }
+        tree.addFactTable(parents);
+        tree.addFactTable(nodes);
+        compare(nodeCount + " nodes, (sg t" + nodeCount + " ?Y)", tree, "(sg t" + nodeCount + " ?Y)");
+    }
+
+    /**
+     * Parses the rules of a RuleSet.
+     *
+     * @param clauses The rules.
+     * @return the RuleSet.
+     */
+    private static RuleSet rules(String... clauses) throws ParseException {
+        HornClause[] parsed = new HornClause[clauses.length];
+        for(int index = 0; index < clauses.length; index++) {
+            parsed[index] = ClauseReader.parseClause(clauses[index]);
+        }
+        return new RuleSet(parsed);
+    }
+
+    /**
+     * Prints the time to answer a query top-down, bottom-up, and bottom-up with magic sets, each
+     * after a warm-up run.
+     *
+     * @param name The name of the runs.
+     * @param rules The RuleSet.
+     * @param query The query.
+     */
+    private static void compare(String name, RuleSet rules, String query) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        System.out.println(name + ":");
+
+        BenchmarkUtils.countSolutions(goal, rules);
+        long start = System.nanoTime();
+        int solutions = BenchmarkUtils.countSolutions(goal, rules);
+        System.out.printf("  %-12s %,10.1f ms (%,d solutions)%n", "top-down", BenchmarkUtils.millisSince(start), solutions);
+
+        new DatalogEngine(rules).evaluate();
+        start = System.nanoTime();
+        long facts = new DatalogEngine(rules).evaluate().getFactCount();
+        System.out.printf("  %-12s %,10.1f ms (%,d facts derived)%n", "bottom-up", BenchmarkUtils.millisSince(start), facts);
+
+        new MagicSets(rules, (Predicate) goal).solve();
+        start = System.nanoTime();
+        int answers = new MagicSets(rules, (Predicate) goal).solve().size();
+        System.out.printf("  %-12s %,10.1f ms (%,d answers)%n", "magic sets", BenchmarkUtils.millisSince(start), answers);
+    }
+}
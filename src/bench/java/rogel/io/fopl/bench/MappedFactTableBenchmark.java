@@ -0,0 +1,77 @@
+package rogel.io.fopl.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.MappedFactTable;
+import rogel.io.fopl.proof.facts.MappedFactTableWriter;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * Writes a MappedFactTable of random {@code (edge cX cY)} facts, reopens it, and answers queries
+ * with a bound first and a bound second argument through the proof tree solver. 
+ * <p>
+ * Arguments: {@code [factCount=100000000] [constantCount=100000] [file=edge.facts in the temporary
+ * directory]}. Run with a small heap (e.g. {@code -PbenchJvmArgs=-Xmx64m}) to check that the 
+ * table does not need to fit in memory: the default file is about 1.6GB.
+ * 
+ * @author recardona
+ */
+public class MappedFactTableBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int factCount = BenchmarkUtils.intArgument(args, 0, 100000000);
+        int constantCount = BenchmarkUtils.intArgument(args, 1, 100000);
+        File file = (args.length > 2) ? new File(args[2]) 
+                : new File(System.getProperty("java.io.tmpdir"), "edge.facts");
+        
+        Symbol edge = Symbol.get("edge");
+        Symbol[] constants = new Symbol[constantCount];
+        for(int index = 0; index < constantCount; index++) {
+            constants[index] = Symbol.get("c" + index);
+        }
+        
+        long start = System.nanoTime();
+        Random random = new Random(42);
+        MappedFactTableWriter writer = new MappedFactTableWriter(file, edge, 2);
+        for(int index = 0; index < factCount; index++) {
+            writer.add(constants[random.nextInt(constantCount)], constants[random.nextInt(constantCount)]);
+        }
+        writer.close();
+        double writeMillis = BenchmarkUtils.millisSince(start);
+        
+        start = System.nanoTime();
+        MappedFactTable table = MappedFactTable.open(file);
+        double openMillis = BenchmarkUtils.millisSince(start);
+        RuleSet rules = new RuleSet();
+        rules.addFactTable(table);
+        
+        System.out.printf("%,d facts over %,d constants, file %,d bytes, max heap %,d bytes%n", 
+                factCount, constantCount, file.length(), Runtime.getRuntime().maxMemory());
+        System.out.printf("write + index  %,12.1f ms (%,.0f facts/s)%n", writeMillis, factCount / (writeMillis / 1000));
+        System.out.printf("open           %,12.3f ms%n", openMillis);
+        
+        for(int query = 0; query < 5; query++) {
+            Function constant = new Function(constants[random.nextInt(constantCount)]);
+            
+            start = System.nanoTime();
+            int outgoing = BenchmarkUtils.countSolutions(new Predicate(edge, constant, new Variable("Y")), rules);
+            double outgoingMillis = BenchmarkUtils.millisSince(start);
+            
+            start = System.nanoTime();
+            int incoming = BenchmarkUtils.countSolutions(new Predicate(edge, new Variable("X"), constant), rules);
+            double incomingMillis = BenchmarkUtils.millisSince(start);
+            
+            System.out.printf("(edge %s ?Y) %,6d answers %8.3f ms   (edge ?X %s) %,6d answers %8.3f ms%n", 
+                    constant, outgoing, outgoingMillis, constant, incoming, incomingMillis);
+        }
+        
+        System.out.printf("used heap      %,12d bytes%n", BenchmarkUtils.usedMemory());
+        table.close();
+    }
+}
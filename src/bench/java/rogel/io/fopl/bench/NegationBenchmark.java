@@ -0,0 +1,105 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.Random;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+/**
+ * Compares negation as failure with the workaround it replaces: storing the complement of a
+ * relation as facts. Among a number of people, each knows a few others; the queries ask for the
+ * people someone does not know, and for every pair of people who do not know each other, either
+ * as {@code (not (knows ?X ?Y))} or from the {@code stranger} facts of every other pair.
+ * <p>
+ * Arguments: {@code [personCount=1500] [acquaintances=20] [repetitions=20]}.
+ *
+ * @author recardona
+ */
+public class NegationBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int personCount = BenchmarkUtils.intArgument(args, 0, 1500);
+        int acquaintances = BenchmarkUtils.intArgument(args, 1, 20);
+        int repetitions = BenchmarkUtils.intArgument(args, 2, 20);
+
+        Symbol[] people = new Symbol[personCount];
+        ColumnarFactTable person = new ColumnarFactTable("person", 1);
+        for(int index = 0; index < personCount; index++) {
+            people[index] = Symbol.get("p" + index);
+            person.add(people[index]);
+        }
+        boolean[][] known = new boolean[personCount][personCount];
+        ColumnarFactTable knows = new ColumnarFactTable("knows", 2);
+        Random random = new Random(46);
+        for(int index = 0; index < personCount; index++) {
+            for(int count = 0; count < acquaintances; count++) {
+                int other = random.nextInt(personCount);
+                if(!known[index][other]) {
+                    known[index][other] = true;
+                    knows.add(people[index], people[other]);
+                }
+            }
+        }
+
+        RuleSet negation = new RuleSet(new HornClause[0]);
+        negation.addFactTable(person);
+        negation.addFactTable(knows);
+
+        long memoryBefore = BenchmarkUtils.usedMemory();
+        long start = System.nanoTime();
+        ColumnarFactTable stranger = new ColumnarFactTable("stranger", 2);
+        for(int index = 0; index < personCount; index++) {
+            for(int other = 0; other < personCount; other++) {
+                if(!known[index][other]) {
+                    stranger.add(people[index], people[other]);
+                }
+            }
+        }
+        double complementMillis = BenchmarkUtils.millisSince(start);
+        long complementBytes = BenchmarkUtils.usedMemory() - memoryBefore;
+        RuleSet complement = new RuleSet(new HornClause[0]);
+        complement.addFactTable(person);
+        complement.addFactTable(stranger);
+
+        System.out.printf("facts: %,d knows; complement adds %,d stranger facts (%,.1f ms, about %,d MB)%n",
+                knows.getFactCount(), stranger.getFactCount(), complementMillis, complementBytes >> 20);
+
+        String[][] queries = {
+                {"one", "(and (person ?Y) (not (knows p17 ?Y)))", "(stranger p17 ?Y)"},
+                {"all", "(and (person ?X) (person ?Y) (not (knows ?X ?Y)))", "(stranger ?X ?Y)"}
+        };
+        for(String[] query : queries) {
+            Formula negated = ClauseReader.parseFormula(query[1]);
+            Formula stored = ClauseReader.parseFormula(query[2]);
+            int queryRepetitions = query[0].equals("one") ? repetitions * 100 : Math.max(1, repetitions / 10);
+            double negationMillis = time(negated, negation, queryRepetitions);
+            double complementQueryMillis = time(stored, complement, queryRepetitions);
+            System.out.printf("%-4s %,10d solutions  negation %,10.3f ms  complement %,10.3f ms%n", query[0],
+                    BenchmarkUtils.countSolutions(negated, negation), negationMillis, complementQueryMillis);
+        }
+    }
+
+    /**
+     * Returns the average time to count the solutions of a goal, after as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double time(Formula goal, RuleSet rules, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            BenchmarkUtils.countSolutions(goal, rules);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            BenchmarkUtils.countSolutions(goal, rules);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+}
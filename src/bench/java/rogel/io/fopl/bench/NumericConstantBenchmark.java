@@ -0,0 +1,101 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * Compares numbers stored as IntegerConstants with numbers stored as constant Functions named by
+ * their numerals, as they were before. For a number of distinct integers, the benchmark reports
+ * the memory each representation keeps and the Symbols it adds to the domain of discourse, the
+ * time to unify every number with itself, and the time to parse a clause listing the numbers.
+ * The Functions are created first, so that the numerals already have Symbols when the
+ * IntegerConstants are measured; IntegerConstants do not use them.
+ * <p>
+ * Arguments: {@code [numberCount=1000000] [parsedCount=100000]}.
+ *
+ * @author recardona
+ */
+public class NumericConstantBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int numberCount = BenchmarkUtils.intArgument(args, 0, 1000000);
+        int parsedCount = BenchmarkUtils.intArgument(args, 1, 100000);
+        int offset = 1000000000; // Numbers no other benchmark or test has named.
+
+        long memoryBefore = BenchmarkUtils.usedMemory();
+        int symbolsBefore = Symbol.getSymbolCount();
+        long start = System.nanoTime();
+        Term[] functions = new Term[numberCount];
+        for(int index = 0; index < numberCount; index++) {
+            functions[index] = new Function(Integer.toString(offset + index));
+        }
+        double functionMillis = BenchmarkUtils.millisSince(start);
+        long functionBytes = BenchmarkUtils.usedMemory() - memoryBefore;
+        int functionSymbols = Symbol.getSymbolCount() - symbolsBefore;
+
+        memoryBefore = BenchmarkUtils.usedMemory();
+        symbolsBefore = Symbol.getSymbolCount();
+        start = System.nanoTime();
+        Term[] integers = new Term[numberCount];
+        for(int index = 0; index < numberCount; index++) {
+            integers[index] = new IntegerConstant(offset + index);
+        }
+        double integerMillis = BenchmarkUtils.millisSince(start);
+        long integerBytes = BenchmarkUtils.usedMemory() - memoryBefore;
+        int integerSymbols = Symbol.getSymbolCount() - symbolsBefore;
+
+        System.out.printf("%,d distinct integers:%n", numberCount);
+        System.out.printf("  functions %,8.1f ms  %,6d MB  %,10d new symbols  unify %,8.1f ms%n", functionMillis,
+                functionBytes >> 20, functionSymbols, timeUnify(functions, integers));
+        System.out.printf("  integers  %,8.1f ms  %,6d MB  %,10d new symbols  unify %,8.1f ms%n", integerMillis,
+                integerBytes >> 20, integerSymbols, timeUnify(integers, functions));
+
+        StringBuilder clause = new StringBuilder("(numbers");
+        for(int index = 0; index < parsedCount; index++) {
+            clause.append(' ').append(2 * offset + index);
+        }
+        clause.append(')');
+        symbolsBefore = Symbol.getSymbolCount();
+        start = System.nanoTime();
+        ClauseReader.parseClause(clause.toString());
+        System.out.printf("parsed %,d numerals in %,.1f ms, adding %,d symbols%n", parsedCount,
+                BenchmarkUtils.millisSince(start), Symbol.getSymbolCount() - symbolsBefore);
+    }
+
+    /**
+     * Returns the time to unify each Term with an equal copy of itself, after a run to warm up.
+     * The other array keeps both representations alive while each is measured.
+     *
+     * @param terms The Terms.
+     * @param other The Terms of the other representation.
+     * @return the time, in milliseconds.
+     */
+    private static double timeUnify(Term[] terms, Term[] other) {
+        Substitution empty = new Substitution();
+        Term[] copies = new Term[terms.length];
+        for(int index = 0; index < terms.length; index++) {
+            copies[index] = (terms[index] instanceof Function) ? new Function(terms[index].getSymbol())
+                    : new IntegerConstant(((IntegerConstant) terms[index]).longValue());
+        }
+        int unified = 0;
+        long start = 0;
+        for(int run = 0; run < 2; run++) {
+            start = System.nanoTime();
+            for(int index = 0; index < terms.length; index++) {
+                if(terms[index].unify(copies[index], empty) != null) {
+                    unified++;
+                }
+            }
+        }
+        if(unified != 2 * terms.length || other.length != terms.length) {
+            throw new IllegalStateException("Every number should unify with its copy.");
+        }
+        return BenchmarkUtils.millisSince(start);
+    }
+}
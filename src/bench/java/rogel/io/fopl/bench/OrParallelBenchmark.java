@@ -0,0 +1,90 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * Measures how the OrParallelSolutionNode scales with the parallelism of its ForkJoinPool. The
+ * query {@code (work ?I ?R)} has one alternative per {@code (item cI)} fact, each of which reverses
+ * a list with naive reverse; the alternatives are independent, so they can be explored in
+ * parallel. The proof tree solver gives the sequential baseline.
+ * <p>
+ * Arguments: {@code [itemCount=64] [listLength=12] [maxParallelism=available processors]}.
+ *
+ * @author recardona
+ */
+public class OrParallelBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int itemCount = BenchmarkUtils.intArgument(args, 0, 64);
+        int listLength = BenchmarkUtils.intArgument(args, 1, 12);
+        int maxParallelism = BenchmarkUtils.intArgument(args, 2, Runtime.getRuntime().availableProcessors());
+
+        StringBuilder list = new StringBuilder();
+        for(int index = 0; index < listLength; index++) {
+            list.append("cons(e").append(index).append(", ");
+        }
+        list.append("nil");
+        for(int index = 0; index < listLength; index++) {
+            list.append(')');
+        }
+
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(int index = 0; index < itemCount; index++) {
+            clauses.add(ClauseReader.parseClause("(item c" + index + ")"));
+        }
+        clauses.add(ClauseReader.parseClause("(append nil ?L ?L)"));
+        clauses.add(ClauseReader.parseClause("(append cons(?H, ?T) ?L cons(?H, ?R)) :- (and (append ?T ?L ?R))"));
+        clauses.add(ClauseReader.parseClause("(nrev nil nil)"));
+        clauses.add(ClauseReader.parseClause("(nrev cons(?H, ?T) ?R) :- (and (nrev ?T ?S) (append ?S cons(?H, nil) ?R))"));
+        clauses.add(ClauseReader.parseClause("(work ?I ?R) :- (and (item ?I) (nrev " + list + " ?R))"));
+        RuleSet rules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+        Formula goal = ClauseReader.parseFormula("(work ?I ?R)");
+
+        // Warm up, then time the sequential baseline.
+        BenchmarkUtils.countSolutions(goal, rules);
+        long start = System.nanoTime();
+        int solutions = BenchmarkUtils.countSolutions(goal, rules);
+        double sequentialMillis = BenchmarkUtils.millisSince(start);
+        System.out.printf("sequential:      %,10.1f ms (%d solutions)%n", sequentialMillis, solutions);
+
+        for(int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            countSolutions(goal, rules, pool);
+
+            start = System.nanoTime();
+            solutions = countSolutions(goal, rules, pool);
+            double millis = BenchmarkUtils.millisSince(start);
+            System.out.printf("parallelism %2d: %,10.1f ms (%d solutions), speedup %.2fx%n", parallelism, millis,
+                    solutions, sequentialMillis / millis);
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Counts every solution to the goal, using an OrParallelSolutionNode.
+     *
+     * @param goal The goal to solve.
+     * @param rules The RuleSet to solve the goal against.
+     * @param pool The ForkJoinPool that runs the search.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, ForkJoinPool pool) {
+        AbstractSolutionNode root = SolutionNodeFactory.getOrParallelSolver(goal, rules, new Substitution(), pool);
+        int solutions = 0;
+        while(root.nextSolution() != null) {
+            solutions++;
+        }
+        return solutions;
+    }
+}
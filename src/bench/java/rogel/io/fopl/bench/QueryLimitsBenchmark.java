@@ -0,0 +1,118 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.CancellationToken;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.QueryLimits;
+import rogel.io.fopl.proof.tree.QueryLimitException;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.proof.tree.StackSolutionNode;
+
+/**
+ * Measures the overhead of QueryLimits on the proof tree solver and the StackSolutionNode, by
+ * finding every ancestor in a chain of parents with and without limits that are never reached,
+ * and how soon a query is stopped once its CancellationToken is cancelled from another thread.
+ * <p>
+ * Arguments: {@code [chainLength=40] [repetitions=30]}.
+ *
+ * @author recardona
+ */
+public class QueryLimitsBenchmark {
+
+    public static void main(String[] args) throws ParseException, InterruptedException {
+        int chainLength = BenchmarkUtils.intArgument(args, 0, 40);
+        int repetitions = BenchmarkUtils.intArgument(args, 1, 30);
+
+        HornClause[] clauses = new HornClause[chainLength + 2];
+        for(int index = 0; index < chainLength; index++) {
+            clauses[index] = ClauseReader.parseClause("(parent n" + index + " n" + (index + 1) + ")");
+        }
+        clauses[chainLength] = ClauseReader.parseClause("(ancestor ?X ?Y) :- (parent ?X ?Y)");
+        clauses[chainLength + 1] = ClauseReader.parseClause("(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))");
+        RuleSet rules = new RuleSet(clauses);
+        Formula goal = ClauseReader.parseFormula("(ancestor ?X ?Y)");
+        QueryLimits limits = new QueryLimits(3600000, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE,
+                new CancellationToken());
+
+        for(int round = 0; round < 3; round++) {
+            double tree = time(goal, rules, null, false, repetitions);
+            double limitedTree = time(goal, rules, limits, false, repetitions);
+            double stack = time(goal, rules, null, true, repetitions);
+            double limitedStack = time(goal, rules, limits, true, repetitions);
+            System.out.printf("tree %,9.1f ms  limited %,9.1f ms (%+5.1f%%)   stack %,9.1f ms  limited %,9.1f ms (%+5.1f%%)%n",
+                    tree, limitedTree, 100 * (limitedTree / tree - 1), stack, limitedStack, 100 * (limitedStack / stack - 1));
+        }
+
+        // Cancel a query that never ends, and measure how long it takes to stop.
+        final CancellationToken token = new CancellationToken();
+        RuleSet loop = new RuleSet(ClauseReader.parseClause("(ancestor ?X ?Y) :- (ancestor ?X ?Y)"));
+        final AbstractSolutionNode limited = new StackSolutionNode(ClauseReader.parseFormula("(ancestor n0 ?Y)"),
+                loop, new Substitution(), new ProofContext(null, null, new QueryLimits(0, 0, 0, 0, token)));
+        final long[] stoppedAt = new long[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    limited.nextSolution();
+                }
+                catch(QueryLimitException e) {
+                    stoppedAt[0] = System.nanoTime();
+                }
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        long cancelledAt = System.nanoTime();
+        token.cancel();
+        thread.join();
+        System.out.printf("cancelled query stopped after %,.3f ms%n", (stoppedAt[0] - cancelledAt) / 1e6);
+    }
+
+    /**
+     * Returns the average time to find every solution to the goal, after as many runs to warm up.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param limits The QueryLimits, or null for none.
+     * @param stack Whether to use a StackSolutionNode rather than the proof tree solver.
+     * @param repetitions The number of runs to average.
+     * @return the average time, in milliseconds.
+     */
+    private static double time(Formula goal, RuleSet rules, QueryLimits limits, boolean stack, int repetitions) {
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, limits, stack);
+        }
+        long start = System.nanoTime();
+        for(int run = 0; run < repetitions; run++) {
+            countSolutions(goal, rules, limits, stack);
+        }
+        return BenchmarkUtils.millisSince(start) / repetitions;
+    }
+
+    /**
+     * Counts every solution to the goal.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @param limits The QueryLimits, or null for none.
+     * @param stack Whether to use a StackSolutionNode rather than the proof tree solver.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(Formula goal, RuleSet rules, QueryLimits limits, boolean stack) {
+        ProofContext context = new ProofContext(null, null, limits);
+        AbstractSolutionNode root = stack ? new StackSolutionNode(goal, rules, new Substitution(), context)
+                : SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context);
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        return count;
+    }
+}
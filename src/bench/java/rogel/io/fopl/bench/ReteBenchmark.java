@@ -0,0 +1,99 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.rete.ReteNetwork;
+import rogel.io.fopl.terms.Function;
+
+/**
+ * Measures the throughput of a ReteNetwork on a stream of sensor readings. There is one rule per
+ * kind of reading, which raises an alarm for a device whose reading of that kind is high, if the
+ * device is in a critical zone; a last rule escalates every zone with an alarm. The readings are
+ * asserted, then retracted, one at a time. For comparison, the alarms are also found by solving
+ * {@code (alarm ?D ?K)} top-down after each of the first readings, as a client without the
+ * network would.
+ * <p>
+ * Arguments: {@code [ruleCount=2000] [deviceCount=1000] [readingCount=200000] [queryCount=20]}.
+ *
+ * @author recardona
+ */
+public class ReteBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int ruleCount = BenchmarkUtils.intArgument(args, 0, 2000);
+        int deviceCount = BenchmarkUtils.intArgument(args, 1, 1000);
+        int readingCount = BenchmarkUtils.intArgument(args, 2, 200000);
+        int queryCount = BenchmarkUtils.intArgument(args, 3, 20);
+
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(int kind = 0; kind < ruleCount; kind++) {
+            clauses.add(ClauseReader.parseClause("(alarm ?D k" + kind + ") :- (and (reading ?D k" + kind
+                    + " high) (located ?D ?Z) (critical ?Z))"));
+        }
+        clauses.add(ClauseReader.parseClause("(escalate ?Z) :- (and (alarm ?D ?K) (located ?D ?Z))"));
+        RuleSet rules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+
+        ColumnarFactTable located = new ColumnarFactTable("located", 2);
+        ColumnarFactTable critical = new ColumnarFactTable("critical", 1);
+        for(int device = 0; device < deviceCount; device++) {
+            located.add(Symbol.get("d" + device), Symbol.get("z" + (device % 100)));
+        }
+        for(int zone = 0; zone < 100; zone += 10) {
+            critical.add(Symbol.get("z" + zone));
+        }
+        rules.addFactTable(located);
+        rules.addFactTable(critical);
+
+        long start = System.nanoTime();
+        ReteNetwork network = new ReteNetwork(rules);
+        System.out.printf("compiled %s in %,.1f ms%n", network, BenchmarkUtils.millisSince(start));
+
+        Random random = new Random(42);
+        Function[] levels = {new Function("low"), new Function("normal"), new Function("high")};
+        List<Predicate> readings = new ArrayList<Predicate>();
+        for(int reading = 0; reading < readingCount; reading++) {
+            readings.add(new Predicate("reading", new Function("d" + random.nextInt(deviceCount)),
+                    new Function("k" + random.nextInt(ruleCount)), levels[random.nextInt(levels.length)]));
+        }
+
+        start = System.nanoTime();
+        long conclusions = 0;
+        for(Predicate reading : readings) {
+            conclusions += network.assertFact(reading).size();
+        }
+        double millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("assert:  %,10.0f facts/s (%,d conclusions, %,d facts held)%n",
+                readingCount / (millis / 1000), conclusions, network.getFactCount());
+
+        start = System.nanoTime();
+        conclusions = 0;
+        for(Predicate reading : readings) {
+            conclusions += network.retractFact(reading).size();
+        }
+        millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("retract: %,10.0f facts/s (%,d conclusions retracted, %,d facts held)%n",
+                readingCount / (millis / 1000), conclusions, network.getFactCount());
+
+        // The client without a network adds each reading to the RuleSet and queries it again.
+        Formula goal = ClauseReader.parseFormula("(alarm ?D ?K)");
+        ColumnarFactTable readingTable = new ColumnarFactTable("reading", 3);
+        rules.addFactTable(readingTable);
+        start = System.nanoTime();
+        for(int reading = 0; reading < queryCount; reading++) {
+            readingTable.add(readings.get(reading));
+            BenchmarkUtils.countSolutions(goal, rules);
+        }
+        millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("re-query:%,10.0f facts/s%n", queryCount / (millis / 1000));
+    }
+}
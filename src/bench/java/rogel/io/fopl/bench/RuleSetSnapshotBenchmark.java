@@ -0,0 +1,100 @@
+package rogel.io.fopl.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Random;
+
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.snapshot.RuleSetSnapshot;
+
+/**
+ * Compares the time it takes to get a large RuleSet ready for queries by parsing its clauses with
+ * a ClauseReader and by loading a RuleSetSnapshot of it. The clauses are random
+ * {@code (edge cX cY)} facts, one rule every ten clauses, and a hundred {@code (start cX)} facts.
+ * Each way reports its load time, the time to answer a {@code start} query, which only touches a
+ * hundred clauses, and the time to answer an {@code edge} query, which touches most of them.
+ * <p>
+ * Arguments: {@code [clauseCount=2000000] [constantCount=100000]}.
+ *
+ * @author recardona
+ */
+public class RuleSetSnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException, ParseException {
+        int clauseCount = BenchmarkUtils.intArgument(args, 0, 2000000);
+        int constantCount = BenchmarkUtils.intArgument(args, 1, 100000);
+
+        File clauseFile = File.createTempFile("clauses", ".fopl");
+        clauseFile.deleteOnExit();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(clauseFile), "UTF-8"));
+        Random random = new Random(42);
+        for(int index = 0; index < 100; index++) {
+            writer.write("(start c" + random.nextInt(constantCount) + ")\n");
+        }
+        for(int index = 0; index < clauseCount; index++) {
+            if(index % 10 == 9) {
+                writer.write("(path ?X ?Y) :- (and (edge ?X ?Z) (edge ?Z ?W) (path ?W ?Y))\n");
+            }
+            else {
+                writer.write("(edge c" + random.nextInt(constantCount) + " c" + random.nextInt(constantCount) + ")\n");
+            }
+        }
+        writer.close();
+
+        Formula startQuery = ClauseReader.parseFormula("(start ?X)");
+        Formula edgeQuery = ClauseReader.parseFormula("(edge c1 ?Y)");
+
+        // Parse the clauses.
+        long start = System.nanoTime();
+        ClauseReader reader = new ClauseReader(new FileInputStream(clauseFile).getChannel());
+        RuleSet rules = reader.readRuleSet();
+        reader.close();
+        report("parse", clauseFile, BenchmarkUtils.millisSince(start), rules, startQuery, edgeQuery);
+
+        // Save a snapshot of the RuleSet.
+        File snapshotFile = File.createTempFile("rules", ".snapshot");
+        snapshotFile.deleteOnExit();
+        start = System.nanoTime();
+        RuleSetSnapshot.write(rules, snapshotFile);
+        System.out.printf("write snapshot: %,10.1f ms%n", BenchmarkUtils.millisSince(start));
+        rules = null;
+        BenchmarkUtils.usedMemory();
+
+        // Load the snapshot.
+        start = System.nanoTime();
+        rules = RuleSetSnapshot.load(snapshotFile);
+        report("load snapshot", snapshotFile, BenchmarkUtils.millisSince(start), rules, startQuery, edgeQuery);
+    }
+
+    /**
+     * Prints the load time of a RuleSet, and the time to answer each query against it.
+     *
+     * @param name The name of the way the RuleSet was loaded.
+     * @param file The file the RuleSet was loaded from.
+     * @param loadMillis The time it took to load the RuleSet, in milliseconds.
+     * @param rules The loaded RuleSet.
+     * @param startQuery The query that touches few clauses.
+     * @param edgeQuery The query that touches most clauses.
+     */
+    private static void report(String name, File file, double loadMillis, RuleSet rules,
+            Formula startQuery, Formula edgeQuery) {
+        long start = System.nanoTime();
+        int startSolutions = BenchmarkUtils.countSolutions(startQuery, rules);
+        double startMillis = BenchmarkUtils.millisSince(start);
+
+        start = System.nanoTime();
+        int edgeSolutions = BenchmarkUtils.countSolutions(edgeQuery, rules);
+        double edgeMillis = BenchmarkUtils.millisSince(start);
+
+        System.out.printf("%-14s %,d bytes: load %,10.1f ms   start query %,8.1f ms (%d)   edge query %,8.1f ms (%d)%n",
+                name + ":", file.length(), loadMillis, startMillis, startSolutions, edgeMillis, edgeSolutions);
+    }
+}
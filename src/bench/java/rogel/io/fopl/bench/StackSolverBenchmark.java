@@ -0,0 +1,80 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * Measures how deep a proof the proof tree solver and the StackSolutionNode can find. Both compute
+ * the length of lists of growing size with a recursive rule, {@code (length cons(?H, ?T) s(?N))
+ * :- (and (length ?T ?N))}, whose proof is as deep as the list is long. The proof tree solver is
+ * stopped at the first StackOverflowError; the StackSolutionNode goes on up to the maximum length,
+ * reporting its time and the heap in use after each query.
+ * <p>
+ * Arguments: {@code [maximumLength=1000000]}.
+ *
+ * @author recardona
+ */
+public class StackSolverBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int maximumLength = BenchmarkUtils.intArgument(args, 0, 1000000);
+        RuleSet rules = new RuleSet(
+                ClauseReader.parseClause("(length nil zero)"),
+                ClauseReader.parseClause("(length cons(?H, ?T) s(?N)) :- (and (length ?T ?N))"));
+
+        boolean treeOverflowed = false;
+        for(int length = 1000; length <= maximumLength; length *= 10) {
+            Predicate goal = new Predicate("length", list(length), new Variable("N"));
+
+            String treeResult;
+            if(treeOverflowed) {
+                treeResult = "skipped";
+            }
+            else {
+                long start = System.nanoTime();
+                try {
+                    SolutionNodeFactory.getSolver(goal, rules, new Substitution()).nextSolution();
+                    treeResult = String.format("%,10.1f ms", BenchmarkUtils.millisSince(start));
+                }
+                catch(StackOverflowError e) {
+                    treeOverflowed = true;
+                    treeResult = "StackOverflowError";
+                }
+            }
+
+            long start = System.nanoTime();
+            AbstractSolutionNode root = SolutionNodeFactory.getStackSolver(goal, rules, new Substitution());
+            Substitution solution = root.nextSolution();
+            double stackMillis = BenchmarkUtils.millisSince(start);
+            long usedMemory = BenchmarkUtils.usedMemory();
+
+            System.out.printf("length %,10d  tree: %-20s stack: %,10.1f ms, %,6d MB in use (%s)%n", length,
+                    treeResult, stackMillis, usedMemory >> 20, solution == null ? "no solution" : "solved");
+        }
+    }
+
+    /**
+     * Builds a list of the given length.
+     *
+     * @param length The number of elements of the list.
+     * @return the list, as nested {@code cons} Functions ending with {@code nil}.
+     */
+    private static Term list(int length) {
+        Term list = new Function("nil");
+        Term element = new Function("a");
+        for(int index = 0; index < length; index++) {
+            list = new Function("cons", element, list);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,86 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * Measures tabled resolution on path queries. On a DAG of n nodes, where each node has an edge to
+ * the next two, the query {@code (path ?X ?Y)} over right-recursive rules is solved without and
+ * with tabling: untabled, every path is derived once per route to it, whereas tabled, each
+ * {@code (path nI ?Y)} variant is solved once. On a ring of n nodes, with the same edges plus
+ * the edges back to the start, the untabled solver never terminates; the left-recursive query is
+ * only solved with tabling.
+ * <p>
+ * Arguments: {@code [nodeCount=14] [ringNodeCount=60]}.
+ *
+ * @author recardona
+ */
+public class TablingBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int nodeCount = BenchmarkUtils.intArgument(args, 0, 14);
+        int ringNodeCount = BenchmarkUtils.intArgument(args, 1, 60);
+
+        Formula goal = ClauseReader.parseFormula("(path ?X ?Y)");
+        String[] rightRecursive = {"(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))"};
+        String[] leftRecursive = {"(path ?X ?Y) :- (and (edge ?X ?Y))", "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))"};
+
+        RuleSet untabled = graph(nodeCount, false, rightRecursive);
+        RuleSet tabled = graph(nodeCount, false, rightRecursive);
+        tabled.addTabledPredicate(Symbol.get("path"), 2);
+        double untabledMillis = time("DAG, untabled:", goal, untabled);
+        double tabledMillis = time("DAG, tabled:", goal, tabled);
+        System.out.printf("speedup %.2fx%n", untabledMillis / tabledMillis);
+
+        RuleSet ring = graph(ringNodeCount, true, leftRecursive);
+        ring.addTabledPredicate(Symbol.get("path"), 2);
+        time("ring, tabled:", goal, ring);
+    }
+
+    /**
+     * Builds a RuleSet with the edges of a graph, where each node has an edge to the next two.
+     *
+     * @param nodeCount The number of nodes.
+     * @param ring Whether the last two nodes have edges back to the first two.
+     * @param pathRules The rules for {@code path}.
+     * @return the RuleSet.
+     */
+    private static RuleSet graph(int nodeCount, boolean ring, String[] pathRules) throws ParseException {
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(int node = 0; node < nodeCount; node++) {
+            for(int step = 1; step <= 2; step++) {
+                if(ring || node + step < nodeCount) {
+                    clauses.add(ClauseReader.parseClause("(edge n" + node + " n" + ((node + step) % nodeCount) + ")"));
+                }
+            }
+        }
+        for(String rule : pathRules) {
+            clauses.add(ClauseReader.parseClause(rule));
+        }
+        return new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+    }
+
+    /**
+     * Prints the time to count the solutions to a goal, after a warm-up run.
+     *
+     * @param name The name of the run.
+     * @param goal The goal to solve.
+     * @param rules The RuleSet to solve the goal against.
+     * @return the time, in milliseconds.
+     */
+    private static double time(String name, Formula goal, RuleSet rules) {
+        BenchmarkUtils.countSolutions(goal, rules);
+        long start = System.nanoTime();
+        int solutions = BenchmarkUtils.countSolutions(goal, rules);
+        double millis = BenchmarkUtils.millisSince(start);
+        System.out.printf("%-16s %,10.1f ms (%d solutions)%n", name, millis, solutions);
+        return millis;
+    }
+}
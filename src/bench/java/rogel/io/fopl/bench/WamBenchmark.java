@@ -0,0 +1,136 @@
+package rogel.io.fopl.bench;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.wam.WamCompiler;
+import rogel.io.fopl.proof.wam.WamMachine;
+import rogel.io.fopl.proof.wam.WamProgram;
+
+/**
+ * Compares the proof tree solver with the compiled WamMachine on three workloads: naive reverse
+ * of a list of {@code cons} structures, every ancestor of the first person of a chain of
+ * {@code parent} facts, and every node reachable from the roots of a random DAG of {@code edge}
+ * facts. Each workload is solved a number of times by both, after a warm-up, and reports the
+ * time per query and the number of solutions.
+ * <p>
+ * Arguments: {@code [listLength=20] [chainLength=100] [nodeCount=100] [repetitions=5]}.
+ *
+ * @author recardona
+ */
+public class WamBenchmark {
+
+    public static void main(String[] args) throws ParseException {
+        int listLength = BenchmarkUtils.intArgument(args, 0, 20);
+        int chainLength = BenchmarkUtils.intArgument(args, 1, 100);
+        int nodeCount = BenchmarkUtils.intArgument(args, 2, 100);
+        int repetitions = BenchmarkUtils.intArgument(args, 3, 5);
+
+        // Naive reverse.
+        StringBuilder list = new StringBuilder();
+        for(int index = 0; index < listLength; index++) {
+            list.append("cons(e").append(index).append(", ");
+        }
+        list.append("nil");
+        for(int index = 0; index < listLength; index++) {
+            list.append(')');
+        }
+        List<String> clauses = new ArrayList<String>();
+        clauses.add("(append nil ?L ?L)");
+        clauses.add("(append cons(?H, ?T) ?L cons(?H, ?R)) :- (and (append ?T ?L ?R))");
+        clauses.add("(nrev nil nil)");
+        clauses.add("(nrev cons(?H, ?T) ?R) :- (and (nrev ?T ?S) (append ?S cons(?H, nil) ?R))");
+        compare("nrev " + listLength, clauses, "(nrev " + list + " ?R)", repetitions);
+
+        // Ancestry chain.
+        clauses.clear();
+        for(int index = 1; index < chainLength; index++) {
+            clauses.add("(parent p" + (index - 1) + " p" + index + ")");
+        }
+        clauses.add("(ancestor ?X ?Y) :- (and (parent ?X ?Y))");
+        clauses.add("(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))");
+        compare("ancestry chain " + chainLength, clauses, "(ancestor p0 ?Y)", repetitions);
+
+        // DAG reachability.
+        clauses.clear();
+        Random random = new Random(42);
+        for(int node = 1; node < nodeCount; node++) {
+            clauses.add("(edge n" + random.nextInt(node) + " n" + node + ")");
+            if(node > 1 && random.nextBoolean()) {
+                clauses.add("(edge n" + random.nextInt(node) + " n" + node + ")");
+            }
+        }
+        clauses.add("(reach ?X ?Y) :- (and (edge ?X ?Y))");
+        clauses.add("(reach ?X ?Y) :- (and (edge ?X ?Z) (reach ?Z ?Y))");
+        compare("dag reachability " + nodeCount, clauses, "(reach n0 ?Y)", repetitions);
+    }
+
+    /**
+     * Solves a query against some clauses with the proof tree solver and with a WamMachine, and
+     * prints the time per query of each.
+     *
+     * @param name The name of the workload.
+     * @param clauses The clauses of the RuleSet.
+     * @param query The query.
+     * @param repetitions The number of times to solve the query with each solver.
+     * @throws ParseException if a clause or the query is invalid.
+     */
+    private static void compare(String name, List<String> clauses, String query, int repetitions)
+            throws ParseException {
+        HornClause[] rules = new HornClause[clauses.size()];
+        for(int index = 0; index < rules.length; index++) {
+            rules[index] = ClauseReader.parseClause(clauses.get(index));
+        }
+        RuleSet ruleSet = new RuleSet(rules);
+        Formula goal = ClauseReader.parseFormula(query);
+
+        long start = System.nanoTime();
+        WamProgram program = WamCompiler.compile(ruleSet);
+        double compileMillis = BenchmarkUtils.millisSince(start);
+
+        int treeSolutions = 0;
+        int wamSolutions = 0;
+        for(int warmUp = 0; warmUp < 3; warmUp++) {
+            treeSolutions = BenchmarkUtils.countSolutions(goal, ruleSet);
+            wamSolutions = countSolutions(program, goal);
+        }
+
+        start = System.nanoTime();
+        for(int repetition = 0; repetition < repetitions; repetition++) {
+            BenchmarkUtils.countSolutions(goal, ruleSet);
+        }
+        double treeMillis = BenchmarkUtils.millisSince(start) / repetitions;
+
+        start = System.nanoTime();
+        for(int repetition = 0; repetition < repetitions; repetition++) {
+            countSolutions(program, goal);
+        }
+        double wamMillis = BenchmarkUtils.millisSince(start) / repetitions;
+
+        System.out.printf("%-24s tree: %,10.3f ms (%d solutions)  wam: %,10.3f ms (%d solutions, "
+                + "compiled in %.1f ms)  speedup: %.1fx%n", name, treeMillis, treeSolutions, wamMillis,
+                wamSolutions, compileMillis, treeMillis / wamMillis);
+    }
+
+    /**
+     * Counts every solution to the goal, using a WamMachine.
+     *
+     * @param program The compiled RuleSet.
+     * @param goal The goal to solve.
+     * @return the number of solutions.
+     */
+    private static int countSolutions(WamProgram program, Formula goal) {
+        WamMachine machine = program.solve(goal);
+        int solutions = 0;
+        while(machine.nextSolution() != null) {
+            solutions++;
+        }
+        return solutions;
+    }
+}
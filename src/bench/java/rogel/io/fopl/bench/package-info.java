@@ -0,0 +1,7 @@
+/**
+ * Contains the benchmarks of this project. Each benchmark is a standalone program that can be run
+ * through the {@code bench} Gradle task, e.g. {@code ./gradlew bench -Pbenchmark=<ClassName>}.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.bench;
@@ -1,6 +1,7 @@
 package rogel.io.fopl;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Symbol is an object that represents. Everything expressed in FOPL is done in terms of
@@ -9,6 +10,9 @@ import java.util.HashMap;
  * <p>
  * The set of all Symbols that are declared during the execution of any FOPL program constitute
  * that program's domain of discourse. 
+ * <p>
+ * The domain of discourse may be used from several threads at once. Looking up an existing Symbol
+ * by name or id does not lock; only adding a new Symbol to the domain does.
  * 
  * @author recardona
  * @see <a href="https://en.wikipedia.org/wiki/Herbrand_interpretation">https://en.wikipedia.org/wiki/Herbrand_interpretation</a>
@@ -20,7 +24,20 @@ public final class Symbol {
      * formal language may range. For Symbols, this domain captures every Symbol that has been 
      * used during program execution.
      */
-    private static HashMap<String, Symbol> symbolDomainOfDiscourse = new HashMap<String, Symbol>();
+    private static ConcurrentHashMap<String, Symbol> symbolDomainOfDiscourse = new ConcurrentHashMap<String, Symbol>();
+    
+    /**
+     * The Symbols in the domain of discourse, indexed by their id. A Symbol's id is its position
+     * in this array, which allows Symbols to be stored compactly as ints. The array is replaced 
+     * by a larger copy when it is full.
+     */
+    private static volatile Symbol[] symbolsById = new Symbol[1024];
+    
+    /** 
+     * The number of Symbols in the domain of discourse. It is written after the Symbol is stored 
+     * in {@code symbolsById}, so that a thread that reads the count also sees the Symbols.
+     */
+    private static volatile int symbolCount = 0;
 
     /** 
      * The number to use as a suffix for Symbols generated by the method 
@@ -29,7 +46,10 @@ public final class Symbol {
     private static int generatedSymbolSuffix = 0;
     
     /** The String name this Symbol represents. */
-    private String name;
+    private final String name;
+    
+    /** This Symbol's unique identifier within the domain of discourse. */
+    private final int id;
     
     /**
      * Returns a Symbol with the given name. If no such Symbol exists, this method creates a new 
@@ -45,22 +65,73 @@ public final class Symbol {
             throw new IllegalArgumentException("Attempted to get a Symbol without a name.");
         }
 
-        if(Symbol.symbolDomainOfDiscourse.containsKey(name)) {
-            return symbolDomainOfDiscourse.get(name);
+        Symbol existingSymbol = Symbol.symbolDomainOfDiscourse.get(name);
+        if(existingSymbol != null) {
+            return existingSymbol;
+        }
+        
+        return Symbol.add(name);
+    }
+    
+    /**
+     * Adds a Symbol with the given name to the domain of discourse, unless another thread added
+     * it first.
+     * 
+     * @param name The name of the Symbol to add.
+     * @return the Symbol with the given name.
+     */
+    private static synchronized Symbol add(String name) {
+        
+        Symbol existingSymbol = Symbol.symbolDomainOfDiscourse.get(name);
+        if(existingSymbol != null) {
+            return existingSymbol;
+        }
+        
+        int id = Symbol.symbolCount;
+        if(id == Symbol.symbolsById.length) {
+            Symbol.symbolsById = Arrays.copyOf(Symbol.symbolsById, 2 * id);
         }
         
-        Symbol newSymbol = new Symbol(name);
+        Symbol newSymbol = new Symbol(name, id);
+        Symbol.symbolsById[id] = newSymbol;
+        Symbol.symbolCount = id + 1;
         Symbol.symbolDomainOfDiscourse.put(name, newSymbol);
         return newSymbol;
     }
     
+    /**
+     * Returns the Symbol with the given id. Ids are assigned sequentially, starting at 0, as 
+     * Symbols are added to the domain of discourse.
+     * 
+     * @param id The id of the Symbol that is sought.
+     * @return the Symbol with the given id.
+     * @throws IndexOutOfBoundsException if no Symbol has the given id.
+     * @see Symbol#getId()
+     */
+    public static Symbol getById(int id) throws IndexOutOfBoundsException {
+        if(id < 0 || id >= Symbol.symbolCount) {
+            throw new IndexOutOfBoundsException("No Symbol has id " + id);
+        }
+        return Symbol.symbolsById[id];
+    }
+    
+    /**
+     * Returns the number of Symbols in the domain of discourse. Every Symbol id is less than this
+     * number.
+     * 
+     * @return the number of Symbols declared thus far.
+     */
+    public static int getSymbolCount() {
+        return Symbol.symbolCount;
+    }
+    
     /**
      * Generates a new Symbol within the domain of discourse. The new Symbol is guaranteed to be 
      * unique, and will be of the form {@code G{number}}, where {@code {number}} is an integer.
      * 
      * @return the newly generated Symbol.
      */
-    public static Symbol generateSymbol() {
+    public static synchronized Symbol generateSymbol() {
         
         // Attempt to create an unused Symbol name.
         String generatedSymbolName = "G" + Symbol.generatedSymbolSuffix;
@@ -83,7 +154,7 @@ public final class Symbol {
      * @param prefix The prefix of the Symbol to generate.
      * @return the newly generated Symbol.
      */
-    public static Symbol generateSymbol(String prefix) {
+    public static synchronized Symbol generateSymbol(String prefix) {
         
         // Attempt to create an unused Symbol name.
         String generatedSymbolName = prefix + Symbol.generatedSymbolSuffix;
@@ -102,9 +173,22 @@ public final class Symbol {
      * Constructs a Symbol of the given name.
      * 
      * @param name The name of the symbol.
+     * @param id The unique identifier of the symbol.
      */
-    private Symbol(String name) {
+    private Symbol(String name, int id) {
         this.name = name;
+        this.id = id;
+    }
+    
+    /**
+     * Returns this Symbol's unique identifier within the domain of discourse. Ids are small, 
+     * non-negative integers, so they can be used to store Symbols in primitive arrays.
+     * 
+     * @return this Symbol's id.
+     * @see Symbol#getById(int)
+     */
+    public int getId() {
+        return this.id;
     }
     
     /*
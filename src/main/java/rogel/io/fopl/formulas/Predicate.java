@@ -251,6 +251,12 @@ public final class Predicate extends Formula implements Unifiable {
     @Override
     public Expression standardizeVariablesApart(HashMap<Variable, Variable> newVariables) {
         
+        if(this.isPropositional()) {
+            // A propositional Predicate has no Variables to standardize, so we return the 
+            // Predicate itself (unchanged).
+            return this;
+        }
+        
         // We must return a new Predicate with standardized variables in the Terms.
         Term[] newArguments = new Term[this.terms.size()];
         
@@ -9,11 +9,12 @@ import rogel.io.util.VarargsUtils;
 
 /**
  * An AbstractOperator is a Formula whose value is defined by the type of operator the class describes. 
- * There are three types of operators:
+ * There are four types of operators:
  * <ol>
  *     <li> conjunction (the 'and' connective)
  *     <li> disjunction (the 'or' connective)
  *     <li> negation (the 'not' connective)
+ *     <li> commitment to a single proof (the 'once' control construct)
  * </ol>
  * 
  * @author recardona
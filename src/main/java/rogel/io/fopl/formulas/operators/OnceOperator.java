@@ -0,0 +1,65 @@
+package rogel.io.fopl.formulas.operators;
+
+import java.util.HashMap;
+
+import rogel.io.fopl.Expression;
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A OnceOperator is an AbstractOperator Formula whose value is the value of its constituent 
+ * Formula. It does not change what holds, but how a proof is searched for: a solver proves the
+ * operand once, and discards the other ways of proving it.
+ * 
+ * @author recardona
+ */
+public class OnceOperator extends AbstractOperator {
+    
+    /** This is the Formula this operator proves once. */
+    private Formula operand;
+    
+    /**
+     * Constructs a OnceOperator over the operand Formula. The value of this operator is 
+     * {@code formula.getValue()}.
+     * 
+     * @param operand This operator's operand, not null.
+     */
+    public OnceOperator(Formula operand) {
+        super("once", operand);
+        this.operand = this.operands.get(0);
+        this.value = this.operand.getValue();
+    }
+    
+    /**
+     * Because the OnceOperator cannot have a tail as defined by 
+     * {@link AbstractOperator#getOperatorTail()}, this method always returns null.
+     * 
+     * @return null, always.
+     */
+    @Override
+    public AbstractOperator getOperatorTail() {
+        return null; // the OnceOperator only ever applies to one Formula, so there is never a tail.
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Expression#replaceVariables(rogel.io.fopl.Substitution)
+     */
+    @Override
+    public Expression replaceVariables(Substitution substitution) {
+        Formula replacedVariableFormula = (Formula) this.operand.replaceVariables(substitution);        
+        return new OnceOperator(replacedVariableFormula);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Expression#standardizeVariablesApart(java.util.HashMap)
+     */
+    @Override
+    public Expression standardizeVariablesApart(HashMap<Variable, Variable> newVariables) {
+        Formula standardizedVariableFormula = (Formula) this.operand.standardizeVariablesApart(newVariables);
+        return new OnceOperator(standardizedVariableFormula);
+    }
+    
+}
@@ -0,0 +1,301 @@
+package rogel.io.fopl.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.proof.facts.MappedFactTable;
+import rogel.io.fopl.proof.facts.MappedFactTableWriter;
+
+/**
+ * A BulkFactLoader loads the ground facts of delimited text files, such as CSV or TSV files, into
+ * FactTables. Each file holds the facts of one Predicate, one fact per line, and is read by a
+ * DelimitedFactReader with its own column-to-argument mapping. Facts go straight into the rows of
+ * a ColumnarFactTable, or into a MappedFactTable file for tables larger than the heap, without a
+ * Predicate being built for any of them.
+ * <p>
+ * Files are loaded in parallel, one file per thread. The loader reports the number of rows it
+ * loaded, and how fast.
+ *
+ * @author recardona
+ */
+public class BulkFactLoader {
+
+    /** The character that separates the fields of a line. */
+    private char delimiter;
+
+    /** Whether the first line of every file is a header, which is skipped. */
+    private boolean hasHeader;
+
+    /** The files to load. */
+    private List<FactFile> files;
+
+    /** The signatures of the files to load. */
+    private HashSet<Pair<Symbol, Integer>> signatures;
+
+    /** The number of rows loaded by the last call to {@code load}. */
+    private AtomicLong rowCount;
+
+    /** The time the last call to {@code load} took, in nanoseconds. */
+    private long elapsedNanos;
+
+    /**
+     * Constructs a BulkFactLoader for files with the given delimiter.
+     *
+     * @param delimiter The character that separates the fields of a line, such as ',' or '\t'.
+     * @param hasHeader Whether the first line of every file is a header, which is skipped.
+     */
+    public BulkFactLoader(char delimiter, boolean hasHeader) {
+        this.delimiter = delimiter;
+        this.hasHeader = hasHeader;
+        this.files = new ArrayList<FactFile>();
+        this.signatures = new HashSet<Pair<Symbol, Integer>>();
+        this.rowCount = new AtomicLong();
+        this.elapsedNanos = 0;
+    }
+
+    /**
+     * Adds a file whose facts are loaded into a ColumnarFactTable.
+     *
+     * @param file The delimited text file, not null.
+     * @param predicateName The name of the Predicate of the facts, not null.
+     * @param columns The column, starting at 0, of each argument of the facts, not empty.
+     * @throws IllegalArgumentException if another file has the same Predicate and arity.
+     */
+    public void addFile(File file, String predicateName, int... columns) {
+        this.addFile(file, predicateName, null, columns);
+    }
+
+    /**
+     * Adds a file whose facts are written to a MappedFactTable file. The table is opened once all
+     * of its facts are written.
+     *
+     * @param file The delimited text file, not null.
+     * @param predicateName The name of the Predicate of the facts, not null.
+     * @param tableFile The MappedFactTable file to write, or null to load a ColumnarFactTable.
+     * @param columns The column, starting at 0, of each argument of the facts, not empty.
+     * @throws IllegalArgumentException if another file has the same Predicate and arity.
+     */
+    public void addFile(File file, String predicateName, File tableFile, int... columns) {
+
+        if(file == null || columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("A fact file needs a file and at least one column.");
+        }
+
+        Symbol predicateSymbol = Symbol.get(predicateName);
+        if(!this.signatures.add(Pair.of(predicateSymbol, columns.length))) {
+            throw new IllegalArgumentException("Another file already has the facts of "
+                    + predicateSymbol + "/" + columns.length);
+        }
+
+        this.files.add(new FactFile(file, predicateSymbol, tableFile, columns.clone()));
+    }
+
+    /**
+     * Loads every file, using up to the given number of threads, and adds the FactTables to the
+     * parameter RuleSet.
+     *
+     * @param rules The RuleSet to add the FactTables to, not null.
+     * @param threadCount The maximum number of files to load at the same time, at least 1.
+     * @throws IOException if a file cannot be read or written.
+     * @throws ParseException if a file is not valid delimited text.
+     */
+    public void loadInto(RuleSet rules, int threadCount) throws IOException, ParseException {
+        for(FactTable factTable : this.load(threadCount)) {
+            rules.addFactTable(factTable);
+        }
+    }
+
+    /**
+     * Loads every file, using up to the given number of threads.
+     *
+     * @param threadCount The maximum number of files to load at the same time, at least 1.
+     * @return the FactTables of the files, in the order they were added.
+     * @throws IOException if a file cannot be read or written.
+     * @throws ParseException if a file is not valid delimited text.
+     */
+    public List<FactTable> load(int threadCount) throws IOException, ParseException {
+
+        if(threadCount < 1) {
+            throw new IllegalArgumentException("Cannot load facts with " + threadCount + " threads.");
+        }
+
+        long start = System.nanoTime();
+        this.rowCount.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, this.files.size())));
+        try {
+            List<Future<FactTable>> futures = new ArrayList<Future<FactTable>>();
+            for(FactFile file : this.files) {
+                futures.add(executor.submit(file));
+            }
+
+            List<FactTable> factTables = new ArrayList<FactTable>();
+            for(Future<FactTable> future : futures) {
+                factTables.add(getResult(future));
+            }
+            return factTables;
+        }
+        finally {
+            executor.shutdownNow(); // Stops the other files if one of them failed.
+            this.elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Returns the number of rows loaded by the last call to {@code load}.
+     *
+     * @return the number of rows loaded.
+     */
+    public long getRowCount() {
+        return this.rowCount.get();
+    }
+
+    /**
+     * Returns the number of rows loaded per second by the last call to {@code load}, across all
+     * of its threads.
+     *
+     * @return the rows loaded per second.
+     */
+    public double getRowsPerSecond() {
+        return (this.elapsedNanos == 0) ? 0 : this.rowCount.get() / (this.elapsedNanos / 1e9);
+    }
+
+    /**
+     * Waits for the FactTable of a file, rethrowing the exception of the file if it failed.
+     *
+     * @param future The result of loading the file.
+     * @return the FactTable of the file.
+     * @throws IOException if the file could not be read or written.
+     * @throws ParseException if the file is not valid delimited text.
+     */
+    private static FactTable getResult(Future<FactTable> future) throws IOException, ParseException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading facts.");
+        }
+        catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if(cause instanceof ParseException) {
+                throw (ParseException) cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A FactFile is a delimited text file to load, with the signature of its facts and where to
+     * store them.
+     */
+    private class FactFile implements Callable<FactTable> {
+
+        /** The delimited text file. */
+        private File file;
+
+        /** The Symbol of the Predicate of the facts. */
+        private Symbol predicateSymbol;
+
+        /** The MappedFactTable file to write, or null to load a ColumnarFactTable. */
+        private File tableFile;
+
+        /** The column of each argument of the facts. */
+        private int[] columns;
+
+        /**
+         * Constructs a FactFile.
+         *
+         * @param file The delimited text file.
+         * @param predicateSymbol The Symbol of the Predicate of the facts.
+         * @param tableFile The MappedFactTable file to write, or null to load a ColumnarFactTable.
+         * @param columns The column of each argument of the facts.
+         */
+        FactFile(File file, Symbol predicateSymbol, File tableFile, int[] columns) {
+            this.file = file;
+            this.predicateSymbol = predicateSymbol;
+            this.tableFile = tableFile;
+            this.columns = columns;
+        }
+
+        /**
+         * Loads the facts of the file.
+         *
+         * @return the FactTable of the file.
+         * @throws IOException if the file cannot be read or written.
+         * @throws ParseException if the file is not valid delimited text; the message names the
+         *     file.
+         */
+        @Override
+        public FactTable call() throws IOException, ParseException {
+            DelimitedFactReader reader = new DelimitedFactReader(
+                    new FileInputStream(this.file).getChannel(), delimiter, this.columns);
+            try {
+                if(hasHeader) {
+                    reader.skipLine();
+                }
+
+                if(this.tableFile == null) {
+                    ColumnarFactTable factTable = new ColumnarFactTable(this.predicateSymbol, this.columns.length);
+                    Symbol[] row = new Symbol[this.columns.length];
+                    int[] symbolIds = new int[this.columns.length];
+                    while(reader.readRow(row)) {
+                        for(int column = 0; column < row.length; column++) {
+                            symbolIds[column] = row[column].getId();
+                        }
+                        factTable.add(symbolIds);
+                    }
+                    factTable.trimToSize();
+                    rowCount.addAndGet(factTable.getFactCount());
+                    return factTable;
+                }
+
+                MappedFactTableWriter writer = new MappedFactTableWriter(
+                        this.tableFile, this.predicateSymbol, this.columns.length);
+                try {
+                    Symbol[] row = new Symbol[this.columns.length];
+                    while(reader.readRow(row)) {
+                        writer.add(row);
+                    }
+                }
+                finally {
+                    writer.close();
+                }
+                rowCount.addAndGet(writer.getFactCount());
+                return MappedFactTable.open(this.tableFile);
+            }
+            catch(ParseException e) {
+                throw new ParseException(this.file + ": " + e.getMessage(), e.getErrorOffset());
+            }
+            finally {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package rogel.io.fopl.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.NumericConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A ClauseReader reads HornClauses from a channel of UTF-8 text. The syntax is the one produced by
+ * the {@code toString()} methods of HornClauses and the Expressions they are made of:
+ * <ul>
+ *     <li> Predicates and operators are Lisp-style: {@code (parent alice bob)}, 
+ *          {@code (and (parent ?X ?Z) (ancestor ?Z ?Y))}, {@code (or ...)}, {@code (not ...)},
+ *          {@code (once ...)}. The cut is the propositional Predicate {@code (!)}.
+ *     <li> Variables are prefixed by '?': {@code ?X}. Variables with the same name in the same 
+ *          clause are the same Variable.
+ *     <li> Constants are bare names: {@code alice}, and Functions are applied with parentheses 
+ *          immediately after their name: {@code father_of(?X, bob)}.
+ *     <li> Numerals are numbers: {@code 42} and {@code -7} are IntegerConstants, and {@code 2.5}
+ *          and {@code 1.0E-3} are FloatConstants (see {@link NumericConstant#valueOf(String)}).
+ *     <li> Clauses are facts {@code head}, definite clauses {@code head :- body}, or goal clauses
+ *          {@code :- body}. Clauses need no separator; whitespace is insignificant.
+ *     <li> A ';' starts a comment that runs to the end of the line.
+ * </ul>
+ * The reader is streaming: it decodes the channel through a fixed-size buffer, and each distinct
+ * name is decoded into a Symbol only once. Every occurrence of a constant shares a single Term.
+ * 
+ * @author recardona
+ */
+public class ClauseReader implements Closeable {
+    
+    /** The character set of the text. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    /** The size of the buffer the channel is read through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    // The kinds of tokens.
+    private static final int END = 0;
+    private static final int OPEN = 1;
+    private static final int CLOSE = 2;
+    private static final int COMMA = 3;
+    private static final int NECK = 4;
+    private static final int NAME = 5;
+    private static final int VARIABLE = 6;
+    
+    /** The Symbols of the operators. */
+    private static final Symbol AND = Symbol.get("and");
+    private static final Symbol OR = Symbol.get("or");
+    private static final Symbol NOT = Symbol.get("not");
+    private static final Symbol ONCE = Symbol.get("once");
+    
+    /** The channel the text is read from. */
+    private ReadableByteChannel channel;
+    
+    /** The buffer the channel is read through. */
+    private ByteBuffer buffer;
+    
+    /** Whether the channel has reached its end. */
+    private boolean endOfChannel;
+    
+    /** The line of the text the reader is on, starting at 1. */
+    private int lineNumber;
+    
+    /** The Symbols of the names read so far. */
+    private SymbolTable symbolTable;
+    
+    /** The Variables of the clause being read, by name. */
+    private HashMap<Symbol, Variable> variables;
+    
+    /** The bytes of the current name or variable token. */
+    private byte[] tokenBytes;
+    
+    /** The number of bytes in the current token. */
+    private int tokenLength;
+    
+    /** The kind of the next token, if it has been scanned but not consumed. */
+    private int tokenKind;
+    
+    /** Whether the next token has been scanned but not consumed. */
+    private boolean hasToken;
+    
+    /** The SymbolTable slot of the next token, if it is a name or a variable. */
+    private int tokenSlot;
+    
+    /** Whether the next token is a name immediately followed by an opening parenthesis. */
+    private boolean tokenIsApplied;
+    
+    /** The Terms of the Predicates and Functions being read, shared between nesting levels. */
+    private Term[] termStack;
+    
+    /** The number of Terms on the term stack. */
+    private int termCount;
+    
+    /** The operands of the operators being read, shared between nesting levels. */
+    private Formula[] formulaStack;
+    
+    /** The number of Formulas on the formula stack. */
+    private int formulaCount;
+    
+    /**
+     * Parses a single HornClause from the given text.
+     * 
+     * @param text The text of the clause, not null.
+     * @return the HornClause.
+     * @throws ParseException if the text is not exactly one clause.
+     */
+    public static HornClause parseClause(String text) throws ParseException {
+        ClauseReader reader = ClauseReader.forString(text);
+        try {
+            HornClause clause = reader.readClause();
+            if(clause == null) {
+                throw reader.error("Expected a clause");
+            }
+            reader.expectEnd();
+            return clause;
+        }
+        catch(IOException e) {
+            throw new IllegalStateException(e); // Strings cannot fail to be read.
+        }
+    }
+    
+    /**
+     * Parses a single Formula from the given text, for instance a query.
+     * 
+     * @param text The text of the Formula, not null.
+     * @return the Formula.
+     * @throws ParseException if the text is not exactly one Formula.
+     */
+    public static Formula parseFormula(String text) throws ParseException {
+        ClauseReader reader = ClauseReader.forString(text);
+        try {
+            Formula formula = reader.readFormula();
+            reader.expectEnd();
+            return formula;
+        }
+        catch(IOException e) {
+            throw new IllegalStateException(e); // Strings cannot fail to be read.
+        }
+    }
+    
+    /**
+     * Constructs a ClauseReader that reads from the given channel.
+     * 
+     * @param channel The channel of UTF-8 text to read, not null.
+     */
+    public ClauseReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip(); // Start empty.
+        this.endOfChannel = false;
+        this.lineNumber = 1;
+        this.symbolTable = new SymbolTable();
+        this.variables = new HashMap<Symbol, Variable>();
+        this.tokenBytes = new byte[64];
+        this.hasToken = false;
+        this.termStack = new Term[64];
+        this.formulaStack = new Formula[16];
+    }
+    
+    /**
+     * Reads the next HornClause from the channel.
+     * 
+     * @return the next HornClause, or null if the channel has no more clauses.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a valid clause.
+     */
+    public HornClause readClause() throws IOException, ParseException {
+        this.variables.clear();
+        
+        int kind = this.peekToken();
+        if(kind == END) {
+            return null;
+        }
+        
+        // A goal clause has no consequent.
+        if(kind == NECK) {
+            this.hasToken = false;
+            return new HornClause(null, this.parseFormula());
+        }
+        
+        Formula head = this.parseFormula();
+        if(!(head instanceof Predicate)) {
+            throw this.error("The head of a clause must be a Predicate, not " + head);
+        }
+        
+        if(this.peekToken() == NECK) {
+            this.hasToken = false;
+            return new HornClause((Predicate) head, this.parseFormula());
+        }
+        
+        return new HornClause((Predicate) head);
+    }
+    
+    /**
+     * Reads the next Formula from the channel. Variables with the same name in different calls
+     * to this method are different Variables.
+     * 
+     * @return the next Formula.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a valid Formula.
+     */
+    public Formula readFormula() throws IOException, ParseException {
+        this.variables.clear();
+        return this.parseFormula();
+    }
+    
+    /**
+     * Reads every remaining HornClause from the channel into a RuleSet. Goal clauses are queries
+     * rather than rules, so they are read but left out of the RuleSet.
+     * 
+     * @return a RuleSet with the facts and definite clauses, in the order they were read.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a sequence of valid clauses.
+     */
+    public RuleSet readRuleSet() throws IOException, ParseException {
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        HornClause clause;
+        while( (clause = this.readClause()) != null) {
+            if(!clause.isGoalClause()) {
+                clauses.add(clause);
+            }
+        }
+        return new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+    }
+    
+    /**
+     * Returns the line of the text the reader is on, starting at 1.
+     * 
+     * @return the current line number.
+     */
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+    
+    /**
+     * Closes the underlying channel.
+     * 
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+    
+    /**
+     * Parses a Predicate or an operator.
+     * 
+     * @return the Formula.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a valid Formula.
+     */
+    private Formula parseFormula() throws IOException, ParseException {
+        this.expect(OPEN, "Expected '(' to start a Formula");
+        this.expect(NAME, "Expected the name of a Predicate or operator");
+        Symbol symbol = this.symbolTable.getSymbol(this.tokenSlot);
+        
+        // Operators take Formulas as their operands.
+        if(symbol.equals(AND) || symbol.equals(OR) || symbol.equals(NOT) || symbol.equals(ONCE)) {
+            int base = this.formulaCount;
+            while(this.peekToken() != CLOSE) {
+                Formula operand = this.parseFormula();
+                if(this.formulaCount == this.formulaStack.length) {
+                    this.formulaStack = Arrays.copyOf(this.formulaStack, this.formulaCount * 2);
+                }
+                this.formulaStack[this.formulaCount++] = operand;
+            }
+            this.hasToken = false;
+            
+            Formula[] operands = Arrays.copyOfRange(this.formulaStack, base, this.formulaCount);
+            Arrays.fill(this.formulaStack, base, this.formulaCount, null);
+            this.formulaCount = base;
+            
+            if(symbol.equals(AND)) {
+                return new AndOperator(operands);
+            }
+            if(symbol.equals(OR)) {
+                return new OrOperator(operands);
+            }
+            if(operands.length != 1) {
+                throw this.error("A '" + symbol + "' operator must have exactly one operand");
+            }
+            if(symbol.equals(ONCE)) {
+                return new OnceOperator(operands[0]);
+            }
+            return new NotOperator(operands[0]);
+        }
+        
+        // Predicates take Terms.
+        return new Predicate(symbol, this.parseTerms(CLOSE));
+    }
+    
+    /**
+     * Parses Terms up to and including the given closing token. Terms may be separated by commas.
+     * 
+     * @param closingKind The kind of token that ends the Terms.
+     * @return the Terms.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a sequence of valid Terms.
+     */
+    private Term[] parseTerms(int closingKind) throws IOException, ParseException {
+        int base = this.termCount;
+        while(this.peekToken() != closingKind) {
+            Term term = this.parseTerm();
+            if(this.termCount == this.termStack.length) {
+                this.termStack = Arrays.copyOf(this.termStack, this.termCount * 2);
+            }
+            this.termStack[this.termCount++] = term;
+            
+            if(this.peekToken() == COMMA) {
+                this.hasToken = false;
+            }
+        }
+        this.hasToken = false;
+        
+        Term[] terms = Arrays.copyOfRange(this.termStack, base, this.termCount);
+        Arrays.fill(this.termStack, base, this.termCount, null);
+        this.termCount = base;
+        return terms;
+    }
+    
+    /**
+     * Parses a Variable, a constant, or a Function.
+     * 
+     * @return the Term.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the text is not a valid Term.
+     */
+    private Term parseTerm() throws IOException, ParseException {
+        int kind = this.peekToken();
+        this.hasToken = false;
+        
+        if(kind == VARIABLE) {
+            Symbol name = this.symbolTable.getSymbol(this.tokenSlot);
+            Variable variable = this.variables.get(name);
+            if(variable == null) {
+                variable = new Variable(name);
+                this.variables.put(name, variable);
+            }
+            return variable;
+        }
+        
+        if(kind == NAME) {
+            if(!this.tokenIsApplied) {
+                return this.symbolTable.getConstant(this.tokenSlot);
+            }
+            
+            Symbol symbol = this.symbolTable.getSymbol(this.tokenSlot);
+            this.expect(OPEN, "Expected '(' to apply Function " + symbol);
+            return new Function(symbol, this.parseTerms(CLOSE));
+        }
+        
+        throw this.error("Expected a Term");
+    }
+    
+    /**
+     * Consumes the next token, which must be of the given kind.
+     * 
+     * @param kind The expected kind of token.
+     * @param message The message of the exception if the token is of another kind.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the token is of another kind.
+     */
+    private void expect(int kind, String message) throws IOException, ParseException {
+        if(this.peekToken() != kind) {
+            throw this.error(message);
+        }
+        this.hasToken = false;
+    }
+    
+    /**
+     * Checks that there is nothing left to read.
+     * 
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if there is more text.
+     */
+    private void expectEnd() throws IOException, ParseException {
+        if(this.peekToken() != END) {
+            throw this.error("Unexpected text after the end");
+        }
+    }
+    
+    /**
+     * Returns the kind of the next token, scanning it if it has not been scanned yet.
+     * 
+     * @return the kind of the next token.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the next token is not valid.
+     */
+    private int peekToken() throws IOException, ParseException {
+        if(this.hasToken) {
+            return this.tokenKind;
+        }
+        
+        // Skip whitespace and comments.
+        int next;
+        while(true) {
+            next = this.peekByte();
+            if(next == ';') {
+                while(next != '\n' && next != -1) {
+                    this.readByte();
+                    next = this.peekByte();
+                }
+            }
+            else if(next != -1 && next <= ' ') {
+                if(next == '\n') {
+                    this.lineNumber++;
+                }
+                this.readByte();
+            }
+            else {
+                break;
+            }
+        }
+        
+        this.hasToken = true;
+        switch(next) {
+            case -1:
+                this.tokenKind = END;
+                return END;
+            case '(':
+                this.readByte();
+                this.tokenKind = OPEN;
+                return OPEN;
+            case ')':
+                this.readByte();
+                this.tokenKind = CLOSE;
+                return CLOSE;
+            case ',':
+                this.readByte();
+                this.tokenKind = COMMA;
+                return COMMA;
+            case '?':
+                this.readByte();
+                this.scanName();
+                if(this.tokenLength == 0) {
+                    throw this.error("Expected the name of a Variable after '?'");
+                }
+                this.tokenKind = VARIABLE;
+                this.tokenSlot = this.symbolTable.intern(this.tokenBytes, 0, this.tokenLength);
+                return VARIABLE;
+            default:
+                this.scanName();
+                if(this.tokenLength == 2 && this.tokenBytes[0] == ':' && this.tokenBytes[1] == '-') {
+                    this.tokenKind = NECK;
+                    return NECK;
+                }
+                this.tokenKind = NAME;
+                this.tokenSlot = this.symbolTable.intern(this.tokenBytes, 0, this.tokenLength);
+                this.tokenIsApplied = (this.peekByte() == '(');
+                return NAME;
+        }
+    }
+    
+    /**
+     * Reads the bytes of a name into the token bytes. A name ends at whitespace, a parenthesis, a 
+     * comma, a comment, or the end of the channel.
+     * 
+     * @throws IOException if the channel cannot be read.
+     */
+    private void scanName() throws IOException {
+        this.tokenLength = 0;
+        int next = this.peekByte();
+        while(next > ' ' && next != '(' && next != ')' && next != ',' && next != ';') {
+            if(this.tokenLength == this.tokenBytes.length) {
+                this.tokenBytes = Arrays.copyOf(this.tokenBytes, this.tokenLength * 2);
+            }
+            this.tokenBytes[this.tokenLength++] = (byte) this.readByte();
+            next = this.peekByte();
+        }
+    }
+    
+    /**
+     * Returns the next byte of the channel without consuming it.
+     * 
+     * @return the next byte, as an unsigned value, or -1 at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private int peekByte() throws IOException {
+        if(!this.buffer.hasRemaining() && !this.fillBuffer()) {
+            return -1;
+        }
+        return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+    
+    /**
+     * Consumes the next byte of the channel.
+     * 
+     * @return the next byte, as an unsigned value, or -1 at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private int readByte() throws IOException {
+        if(!this.buffer.hasRemaining() && !this.fillBuffer()) {
+            return -1;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+    
+    /**
+     * Reads more bytes from the channel into the (empty) buffer.
+     * 
+     * @return true if bytes were read, false at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private boolean fillBuffer() throws IOException {
+        if(this.endOfChannel) {
+            return false;
+        }
+        
+        this.buffer.clear();
+        int read = 0;
+        while(read == 0) {
+            read = this.channel.read(this.buffer);
+        }
+        this.buffer.flip();
+        
+        if(read < 0) {
+            this.endOfChannel = true;
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Creates a ParseException for the current line.
+     * 
+     * @param message The description of the error.
+     * @return a ParseException whose error offset is the current line number.
+     */
+    private ParseException error(String message) {
+        return new ParseException("Line " + this.lineNumber + ": " + message, this.lineNumber);
+    }
+    
+    /**
+     * Creates a ClauseReader over the UTF-8 bytes of a String.
+     * 
+     * @param text The text to read.
+     * @return a ClauseReader over the text.
+     */
+    private static ClauseReader forString(String text) {
+        return new ClauseReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(UTF8))));
+    }
+}
@@ -0,0 +1,373 @@
+package rogel.io.fopl.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import rogel.io.fopl.Symbol;
+
+/**
+ * A DelimitedFactReader reads ground facts from a channel of delimited UTF-8 text, such as a CSV
+ * or TSV file, with one fact per line. Each argument of the facts is taken from a column of the
+ * text, given by a column-to-argument mapping; the other columns are skipped without being
+ * decoded.
+ * <p>
+ * Facts are read as rows of Symbols, so that they can be added to a ColumnarFactTable or a
+ * MappedFactTableWriter without building a Predicate for each of them. As in a ClauseReader, each
+ * distinct field is decoded into a Symbol only once.
+ * <p>
+ * Fields may be enclosed in double quotes, in which case they may contain the delimiter, line
+ * breaks, and doubled double quotes. Empty lines are skipped, and a carriage return before a line
+ * break is ignored.
+ *
+ * @author recardona
+ */
+public class DelimitedFactReader implements Closeable {
+
+    /** The size of the buffer the channel is read through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The byte that encloses quoted fields. */
+    private static final byte QUOTE = '"';
+
+    /** The channel the text is read from. */
+    private ReadableByteChannel channel;
+
+    /** The buffer the channel is read through. */
+    private ByteBuffer buffer;
+
+    /** The array of the buffer. */
+    private byte[] bytes;
+
+    /** The position of the next unread byte of the buffer. */
+    private int position;
+
+    /** The number of bytes in the buffer. */
+    private int limit;
+
+    /** Whether the channel has reached its end. */
+    private boolean endOfChannel;
+
+    /** The line of the text the reader is on, starting at 1. */
+    private int lineNumber;
+
+    /** The byte that separates the fields of a line. */
+    private byte delimiter;
+
+    /** The column of each argument of the facts. */
+    private int[] columns;
+
+    /** Whether each column of a line is the column of some argument. */
+    private boolean[] isMapped;
+
+    /** The Symbol of each mapped column of the line being read. */
+    private Symbol[] fields;
+
+    /** The Symbols of the fields read so far. */
+    private SymbolTable symbolTable;
+
+    /** The bytes of the current field. */
+    private byte[] fieldBytes;
+
+    /** The number of bytes in the current field. */
+    private int fieldLength;
+
+    /**
+     * Constructs a DelimitedFactReader that reads from the given channel.
+     *
+     * @param channel The channel of UTF-8 text to read, not null.
+     * @param delimiter The character that separates the fields of a line, such as ',' or '\t'.
+     *     It must be an ASCII character other than a line break or a double quote.
+     * @param columns The column, starting at 0, of each argument of the facts, not empty.
+     * @throws IllegalArgumentException if the delimiter or the columns are invalid.
+     */
+    public DelimitedFactReader(ReadableByteChannel channel, char delimiter, int... columns) {
+
+        if(delimiter >= 0x80 || delimiter == '\n' || delimiter == '\r' || delimiter == QUOTE) {
+            throw new IllegalArgumentException("Invalid delimiter '" + delimiter + "'");
+        }
+
+        if(columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("Facts must take at least one column.");
+        }
+
+        int lastColumn = 0;
+        for(int column : columns) {
+            if(column < 0) {
+                throw new IllegalArgumentException("Invalid column " + column);
+            }
+            lastColumn = Math.max(lastColumn, column);
+        }
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.bytes = this.buffer.array();
+        this.position = 0;
+        this.limit = 0;
+        this.endOfChannel = false;
+        this.lineNumber = 1;
+        this.delimiter = (byte) delimiter;
+        this.columns = columns.clone();
+        this.isMapped = new boolean[lastColumn + 1];
+        for(int column : columns) {
+            this.isMapped[column] = true;
+        }
+        this.fields = new Symbol[lastColumn + 1];
+        this.symbolTable = new SymbolTable();
+        this.fieldBytes = new byte[64];
+    }
+
+    /**
+     * Reads the next fact from the channel into the parameter array, one Symbol per argument.
+     *
+     * @param row The array to fill, with one element per mapped column, not null.
+     * @return true if a fact was read, false if the channel has no more facts.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the line has too few columns, or one of its mapped fields is
+     *     empty or badly quoted.
+     * @throws IllegalArgumentException if the array's length is not the number of arguments.
+     */
+    public boolean readRow(Symbol[] row) throws IOException, ParseException {
+
+        if(row.length != this.columns.length) {
+            throw new IllegalArgumentException("Row length (" + row.length
+                    + ") does not match the number of arguments, " + this.columns.length);
+        }
+
+        // Skip empty lines.
+        int next = this.peekByte();
+        while(next == '\n' || next == '\r') {
+            this.readByte();
+            if(next == '\n') {
+                this.lineNumber++;
+            }
+            next = this.peekByte();
+        }
+
+        if(next == -1) {
+            return false;
+        }
+
+        // Read the fields the mapped columns need, then skip the rest of the line.
+        int column = 0;
+        boolean endOfLine = false;
+        while(!endOfLine && column < this.isMapped.length) {
+            endOfLine = this.readField();
+            if(this.isMapped[column]) {
+                if(this.fieldLength == 0) {
+                    throw this.error("Empty field in column " + column);
+                }
+                this.fields[column] = this.symbolTable.getSymbol(
+                        this.symbolTable.intern(this.fieldBytes, 0, this.fieldLength));
+            }
+            column++;
+        }
+
+        if(column < this.isMapped.length) {
+            throw this.error("Expected at least " + this.isMapped.length + " columns, found " + column);
+        }
+
+        while(!endOfLine) {
+            endOfLine = this.readField();
+        }
+        this.lineNumber++;
+
+        for(int argument = 0; argument < this.columns.length; argument++) {
+            row[argument] = this.fields[this.columns[argument]];
+        }
+        return true;
+    }
+
+    /**
+     * Skips the rest of the current line, for instance a header line.
+     *
+     * @throws IOException if the channel cannot be read.
+     */
+    public void skipLine() throws IOException {
+        int next = this.readByte();
+        while(next != '\n' && next != -1) {
+            next = this.readByte();
+        }
+        this.lineNumber++;
+    }
+
+    /**
+     * Returns the line of the text the reader is on, starting at 1.
+     *
+     * @return the current line number.
+     */
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Reads the next field of the current line into {@code fieldBytes}, and consumes the
+     * delimiter or line break that ends it.
+     *
+     * @return true if the field was the last of its line.
+     * @throws IOException if the channel cannot be read.
+     * @throws ParseException if the field is badly quoted.
+     */
+    private boolean readField() throws IOException, ParseException {
+        this.fieldLength = 0;
+
+        if(this.peekByte() == QUOTE) {
+            this.readByte();
+            int quotedLines = 0;
+            while(true) {
+                int next = this.readByte();
+                if(next == -1) {
+                    throw this.error("Unterminated quoted field");
+                }
+                if(next == QUOTE) {
+                    if(this.peekByte() != QUOTE) {
+                        break;
+                    }
+                    this.readByte(); // A doubled quote stands for one quote.
+                }
+                if(next == '\n') {
+                    quotedLines++;
+                }
+                this.appendFieldByte(next);
+            }
+            this.lineNumber += quotedLines;
+
+            int next = this.readByte();
+            if(next == '\r') {
+                next = this.readByte();
+            }
+            if(next != this.delimiter && next != '\n' && next != -1) {
+                throw this.error("Expected a delimiter after a quoted field");
+            }
+            return next != this.delimiter;
+        }
+
+        while(true) {
+
+            // Scan the buffer directly for the end of the field.
+            int start = this.position;
+            int end = start;
+            while(end < this.limit && this.bytes[end] != this.delimiter && this.bytes[end] != '\n') {
+                end++;
+            }
+            this.appendFieldBytes(start, end);
+            this.position = end;
+
+            int next = this.readByte();
+            if(next == this.delimiter) {
+                return false;
+            }
+            if(next == '\n' || next == -1) {
+                if(this.fieldLength > 0 && this.fieldBytes[this.fieldLength - 1] == '\r') {
+                    this.fieldLength--;
+                }
+                return true;
+            }
+
+            // The buffer was refilled in the middle of the field: keep scanning.
+            this.position--;
+        }
+    }
+
+    /**
+     * Appends a byte to {@code fieldBytes}, growing it if needed.
+     *
+     * @param value The byte to append.
+     */
+    private void appendFieldByte(int value) {
+        if(this.fieldLength == this.fieldBytes.length) {
+            this.fieldBytes = Arrays.copyOf(this.fieldBytes, 2 * this.fieldBytes.length);
+        }
+        this.fieldBytes[this.fieldLength++] = (byte) value;
+    }
+
+    /**
+     * Appends a range of the buffer to {@code fieldBytes}, growing it if needed.
+     *
+     * @param start The position of the first byte to append.
+     * @param end The position after the last byte to append.
+     */
+    private void appendFieldBytes(int start, int end) {
+        int length = end - start;
+        while(this.fieldLength + length > this.fieldBytes.length) {
+            this.fieldBytes = Arrays.copyOf(this.fieldBytes, 2 * this.fieldBytes.length);
+        }
+        System.arraycopy(this.bytes, start, this.fieldBytes, this.fieldLength, length);
+        this.fieldLength += length;
+    }
+
+    /**
+     * Returns the next byte of the channel without consuming it.
+     *
+     * @return the next byte, as an unsigned value, or -1 at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private int peekByte() throws IOException {
+        if(this.position == this.limit && !this.fillBuffer()) {
+            return -1;
+        }
+        return this.bytes[this.position] & 0xFF;
+    }
+
+    /**
+     * Consumes the next byte of the channel.
+     *
+     * @return the next byte, as an unsigned value, or -1 at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private int readByte() throws IOException {
+        if(this.position == this.limit && !this.fillBuffer()) {
+            return -1;
+        }
+        return this.bytes[this.position++] & 0xFF;
+    }
+
+    /**
+     * Reads more bytes from the channel into the (fully consumed) buffer.
+     *
+     * @return true if bytes were read, false at the end of the channel.
+     * @throws IOException if the channel cannot be read.
+     */
+    private boolean fillBuffer() throws IOException {
+        if(this.endOfChannel) {
+            return false;
+        }
+
+        this.buffer.clear();
+        int read = 0;
+        while(read == 0) {
+            read = this.channel.read(this.buffer);
+        }
+
+        if(read < 0) {
+            this.endOfChannel = true;
+            return false;
+        }
+
+        this.position = 0;
+        this.limit = read;
+        return true;
+    }
+
+    /**
+     * Creates a ParseException for the current line.
+     *
+     * @param message The description of the error.
+     * @return a ParseException whose error offset is the current line number.
+     */
+    private ParseException error(String message) {
+        return new ParseException("Line " + this.lineNumber + ": " + message, this.lineNumber);
+    }
+}
@@ -0,0 +1,200 @@
+package rogel.io.fopl.parser;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.NumericConstant;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * A SymbolTable maps the bytes of a token to the Symbol they name, without decoding the bytes into
+ * a String. Each distinct token is decoded and looked up in the domain of discourse only once; 
+ * every later occurrence is found by comparing bytes. The table also keeps one constant Term per 
+ * token, which is shared by every occurrence of the constant. A token that is a numeral is a
+ * NumericConstant, and is only looked up in the domain of discourse if its Symbol is asked for.
+ * <p>
+ * The table uses open addressing with linear probing over parallel arrays.
+ * 
+ * @author recardona
+ */
+final class SymbolTable {
+
+    /** The character set tokens are encoded in. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    /** The bytes of each entry's token, or null for an empty slot. */
+    private byte[][] tokens;
+    
+    /** The hash of each entry's token. */
+    private int[] hashes;
+    
+    /** The Symbol named by each entry's token, or null if it has not been looked up yet. */
+    private Symbol[] symbols;
+    
+    /** The constant Term of each entry, created the first time it is needed. */
+    private Term[] constants;
+    
+    /** The number of entries in the table. */
+    private int size;
+    
+    /**
+     * Constructs an empty SymbolTable.
+     */
+    SymbolTable() {
+        this.allocate(1024);
+    }
+    
+    /**
+     * Returns the slot of the entry for the given token bytes, adding an entry if the token has 
+     * not been seen before.
+     * 
+     * @param bytes The array holding the token.
+     * @param offset The position of the token's first byte.
+     * @param length The number of bytes in the token.
+     * @return the slot of the token's entry.
+     */
+    int intern(byte[] bytes, int offset, int length) {
+        
+        // FNV-1a hash of the token, with its high bits mixed into the low bits used for slots.
+        int hash = 0x811C9DC5;
+        for(int index = offset; index < offset + length; index++) {
+            hash = (hash ^ bytes[index]) * 0x01000193;
+        }
+        hash ^= (hash >>> 15);
+        hash *= 0x2C1B3C6D;
+        hash ^= (hash >>> 12);
+        
+        int mask = this.tokens.length - 1;
+        int slot = hash & mask;
+        while(this.tokens[slot] != null) {
+            if(this.hashes[slot] == hash && equals(this.tokens[slot], bytes, offset, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        // The token is new: decode it once, and add it to the table. A numeral needs no Symbol.
+        this.tokens[slot] = Arrays.copyOfRange(bytes, offset, offset + length);
+        this.hashes[slot] = hash;
+        String name = new String(bytes, offset, length, UTF8);
+        if(isNumeral(bytes, offset, length)) {
+            this.constants[slot] = NumericConstant.valueOf(name);
+        }
+        if(this.constants[slot] == null) {
+            this.symbols[slot] = Symbol.get(name);
+        }
+        this.size++;
+        
+        if(2 * this.size > this.tokens.length) {
+            this.rehash();
+            return this.intern(bytes, offset, length); // Find the entry's new slot.
+        }
+        
+        return slot;
+    }
+    
+    /**
+     * Returns the Symbol of the entry at the given slot.
+     * 
+     * @param slot A slot returned by {@code intern}.
+     * @return the Symbol named by the entry's token.
+     */
+    Symbol getSymbol(int slot) {
+        if(this.symbols[slot] == null) {
+            this.symbols[slot] = Symbol.get(new String(this.tokens[slot], UTF8));
+        }
+        return this.symbols[slot];
+    }
+    
+    /**
+     * Returns the constant Term of the entry at the given slot.
+     * 
+     * @param slot A slot returned by {@code intern}.
+     * @return the NumericConstant of a numeral, or the constant (0-ary) Function of the entry's
+     *     Symbol.
+     */
+    Term getConstant(int slot) {
+        if(this.constants[slot] == null) {
+            this.constants[slot] = new Function(this.symbols[slot]);
+        }
+        return this.constants[slot];
+    }
+    
+    /**
+     * Doubles the capacity of the table, re-inserting every entry.
+     */
+    private void rehash() {
+        byte[][] oldTokens = this.tokens;
+        int[] oldHashes = this.hashes;
+        Symbol[] oldSymbols = this.symbols;
+        Term[] oldConstants = this.constants;
+        this.allocate(oldTokens.length * 2);
+        
+        int mask = this.tokens.length - 1;
+        for(int oldSlot = 0; oldSlot < oldTokens.length; oldSlot++) {
+            if(oldTokens[oldSlot] != null) {
+                int slot = oldHashes[oldSlot] & mask;
+                while(this.tokens[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.tokens[slot] = oldTokens[oldSlot];
+                this.hashes[slot] = oldHashes[oldSlot];
+                this.symbols[slot] = oldSymbols[oldSlot];
+                this.constants[slot] = oldConstants[oldSlot];
+                this.size++;
+            }
+        }
+    }
+    
+    /**
+     * Replaces the arrays of this table with empty arrays of the given capacity.
+     * 
+     * @param capacity The number of slots, a power of two.
+     */
+    private void allocate(int capacity) {
+        this.tokens = new byte[capacity][];
+        this.hashes = new int[capacity];
+        this.symbols = new Symbol[capacity];
+        this.constants = new Term[capacity];
+        this.size = 0;
+    }
+    
+    /**
+     * Returns true if a token starts like a numeral: with a digit, or with a sign and a digit.
+     * 
+     * @param bytes The array holding the token.
+     * @param offset The position of the token's first byte.
+     * @param length The number of bytes in the token.
+     * @return true if the token may be a numeral.
+     */
+    private static boolean isNumeral(byte[] bytes, int offset, int length) {
+        int first = offset;
+        if(bytes[first] == '-' || bytes[first] == '+') {
+            first++;
+        }
+        return first < offset + length && bytes[first] >= '0' && bytes[first] <= '9';
+    }
+    
+    /**
+     * Returns true if the token equals the given range of bytes.
+     * 
+     * @param token The bytes of a token in the table.
+     * @param bytes The array holding the other token.
+     * @param offset The position of the other token's first byte.
+     * @param length The number of bytes in the other token.
+     * @return true if both tokens have the same bytes.
+     */
+    private static boolean equals(byte[] token, byte[] bytes, int offset, int length) {
+        if(token.length != length) {
+            return false;
+        }
+        for(int index = 0; index < length; index++) {
+            if(token[index] != bytes[offset + index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Contains classes that read FOPL Expressions from their textual representation, which is the 
+ * same representation produced by their {@code toString()} methods.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.parser;
@@ -0,0 +1,249 @@
+package rogel.io.fopl.proof;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.ProofContext;
+import rogel.io.fopl.proof.tree.QueryLimitException;
+import rogel.io.fopl.proof.tree.QueryLimits;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+/**
+ * A Query iterates over the solutions to a goal. Solutions are computed lazily, one at a time, as
+ * they are requested: a caller that only needs the first few solutions never pays for the rest.
+ * <p>
+ * A Query may be limited to a number of solutions, and closed at any time. Once a Query is
+ * closed, or has returned its last solution, it closes and releases its solver, so that the
+ * search space it built can be garbage collected even if the Query itself is still referenced.
+ * <p>
+ * A Query may also be bounded by QueryLimits, such as a timeout or a number of inferences, and
+ * cancelled through their CancellationToken. A Query that exceeds its limits closes itself, and
+ * {@code hasNext} throws the QueryLimitException: the solutions returned before it are the
+ * partial result of the Query.
+ * <p>
+ * A Query can only be iterated over once, and is not thread-safe.
+ * <p>
+ * For example, the following prints the first three ancestors of Charles:
+ * <pre>
+ * Query query = new Query(ClauseReader.parseFormula("(ancestor charles ?Y)"), rules).limit(3);
+ * for(Substitution solution : query) {
+ *     System.out.println(solution);
+ * }
+ * </pre>
+ *
+ * @author recardona
+ */
+public class Query implements Iterator<Substitution>, Iterable<Substitution>, Closeable {
+
+    /** The root of the search space, or null once this Query is closed. */
+    private AbstractSolutionNode solver;
+
+    /** The next solution, computed by {@code hasNext}, or null. */
+    private Substitution nextSolution;
+
+    /** The number of solutions this Query may still return. */
+    private long remaining;
+
+    /** Whether {@code iterator} has been called. */
+    private boolean iterated;
+
+    /**
+     * Constructs a Query over the solutions to the goal, computed by the proof tree solver.
+     *
+     * @param goal The goal, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @throws IllegalArgumentException if the solver does not support the goal's type.
+     */
+    public Query(Formula goal, RuleSet rules) {
+        this(SolutionNodeFactory.getSolver(goal, rules, new Substitution()));
+    }
+
+    /**
+     * Constructs a Query over the solutions to the goal, computed by the proof tree solver within
+     * the given limits. The timeout of the Query starts now.
+     *
+     * @param goal The goal, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param limits The QueryLimits, or null if the Query may run until it is done.
+     * @throws IllegalArgumentException if the solver does not support the goal's type.
+     */
+    public Query(Formula goal, RuleSet rules, QueryLimits limits) {
+        this(SolutionNodeFactory.getSolver(goal, rules, new Substitution(), new ProofContext(null, null, limits)));
+    }
+
+    /**
+     * Constructs a Query over the solutions computed by a solution node, such as the root of a
+     * proof tree or a StackSolutionNode.
+     *
+     * @param solver The solution node, which has not returned any solution yet, not null.
+     */
+    public Query(AbstractSolutionNode solver) {
+        if(solver == null) {
+            throw new IllegalArgumentException("Cannot query a null solver.");
+        }
+        this.solver = solver;
+        this.nextSolution = null;
+        this.remaining = Long.MAX_VALUE;
+        this.iterated = false;
+    }
+
+    /**
+     * Limits this Query to its next {@code maxSolutions} solutions. Once it has returned them, the
+     * Query closes itself.
+     *
+     * @param maxSolutions The maximum number of solutions to return, not negative.
+     * @return this Query.
+     * @throws IllegalArgumentException if maxSolutions is negative.
+     */
+    public Query limit(long maxSolutions) {
+        if(maxSolutions < 0) {
+            throw new IllegalArgumentException("The maximum number of solutions cannot be negative: " + maxSolutions);
+        }
+
+        // A solution already computed by hasNext counts against the limit.
+        long allowed = maxSolutions - ((this.nextSolution != null) ? 1 : 0);
+        if(allowed < this.remaining) {
+            this.remaining = Math.max(0, allowed);
+        }
+        if(maxSolutions == 0) {
+            this.close();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the first solution of this Query, and closes it.
+     *
+     * @return the next solution, or null if there is none.
+     */
+    public Substitution findFirst() {
+        Substitution solution = this.hasNext() ? this.next() : null;
+        this.close();
+        return solution;
+    }
+
+    /**
+     * Returns the remaining solutions of this Query, in order. The Query is closed afterwards.
+     *
+     * @return the list of remaining solutions.
+     * @throws QueryLimitException if the Query exceeds its limits before its last solution.
+     */
+    public List<Substitution> toList() {
+        List<Substitution> solutions = new ArrayList<Substitution>();
+        while(this.hasNext()) {
+            solutions.add(this.next());
+        }
+        return solutions;
+    }
+
+    /**
+     * Returns true if this Query has been closed, or has returned its last solution.
+     *
+     * @return true if this Query will not return any more solutions.
+     */
+    public boolean isClosed() {
+        return this.solver == null && this.nextSolution == null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public Iterator<Substitution> iterator() {
+        if(this.iterated) {
+            throw new IllegalStateException("A Query can only be iterated over once.");
+        }
+        this.iterated = true;
+        return this;
+    }
+
+    /**
+     * Returns true if this Query has another solution, computing it if needed.
+     *
+     * @return true if {@code next} will return a solution.
+     * @throws QueryLimitException if the Query exceeds its limits while computing the solution.
+     *  The Query is then closed.
+     */
+    @Override
+    public boolean hasNext() {
+        if(this.nextSolution != null) {
+            return true;
+        }
+
+        if(this.solver == null) {
+            return false;
+        }
+
+        // Compute the next solution, and release the solver once there are no more.
+        if(this.remaining > 0) {
+            try {
+                this.nextSolution = this.solver.nextSolution();
+            }
+            catch(QueryLimitException e) {
+                this.close();
+                throw e;
+            }
+        }
+
+        if(this.nextSolution == null) {
+            this.close();
+            return false;
+        }
+
+        this.remaining--;
+        if(this.remaining == 0) {
+            this.releaseSolver();
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public Substitution next() {
+        if(!this.hasNext()) {
+            throw new NoSuchElementException("The Query has no more solutions.");
+        }
+
+        Substitution solution = this.nextSolution;
+        this.nextSolution = null;
+        return solution;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Solutions cannot be removed from a Query.");
+    }
+
+    /**
+     * Closes this Query, releasing its solver. A closed Query has no more solutions.
+     */
+    @Override
+    public void close() {
+        this.releaseSolver();
+        this.nextSolution = null;
+    }
+
+    /**
+     * Closes and drops the solver of this Query.
+     */
+    private void releaseSolver() {
+        if(this.solver != null) {
+            this.solver.close();
+            this.solver = null;
+        }
+    }
+}
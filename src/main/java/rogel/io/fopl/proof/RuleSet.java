@@ -1,13 +1,40 @@
 package rogel.io.fopl.proof;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AbstractOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.proof.builtins.Builtin;
+import rogel.io.fopl.proof.builtins.BuiltinRegistry;
+import rogel.io.fopl.proof.facts.FactTable;
 import rogel.io.fopl.terms.Variable;
 import rogel.io.util.VarargsUtils;
 
 /**
  * The RuleSet is the logic base, a list of HornClauses that are used for the construction of the 
  * proof tree during resolution. 
+ * <p>
+ * Ground facts may also be stored outside of the list of HornClauses, in FactTables. The solver 
+ * uses the FactTable of a goal's signature after it has tried every HornClause.
+ * <p>
+ * The RuleSet indexes its HornClauses by the signature (Symbol and arity) of their consequents, so 
+ * that the solver only considers the rules whose consequent can unify with a goal.
+ * <p>
+ * The antecedents of the HornClauses may negate goals, which the solver proves by failure. The
+ * RuleSet is stratified if no Predicate depends on its own negation, through any chain of rules;
+ * negation by failure then has a single meaning, and its strata are computed on demand.
+ * <p>
+ * Goals whose signature is registered in the RuleSet's BuiltinRegistry are built-in predicates,
+ * which the solver evaluates directly instead of looking up HornClauses and FactTables.
  * 
  * @author recardona
  */
@@ -16,6 +43,30 @@ public class RuleSet {
     /** The HornClauses that define the logic basis for theorem proving. */
     private HornClause[] rules;
     
+    /** The positions of the rules with each consequent signature, built the first time it is needed. */
+    private HashMap<Pair<Symbol, Integer>, int[]> ruleIndex;
+    
+    /** The positions returned for a signature that no rule's consequent has. */
+    private static final int[] NO_RULES = new int[0];
+    
+    /** The FactTables that store ground facts, keyed by the signature of the facts they store. */
+    private HashMap<Pair<Symbol, Integer>, FactTable> factTables;
+    
+    /** The signatures of the Predicates whose calls are tabled. */
+    private HashSet<Pair<Symbol, Integer>> tabledPredicates;
+    
+    /** The number of FactTables added and Predicates tabled. */
+    private long modificationCount;
+    
+    /** The stratum of each consequent signature, computed the first time it is needed. */
+    private HashMap<Pair<Symbol, Integer>, Integer> strata;
+    
+    /** A rule whose consequent depends on its own negation, or null if the rules are stratified. */
+    private HornClause unstratifiedRule;
+    
+    /** The built-in predicates of the logic base. */
+    private BuiltinRegistry builtins;
+    
     /**
      * Constructs a RuleSet from a list of HornClauses.
      * 
@@ -25,6 +76,148 @@ public class RuleSet {
     public RuleSet(HornClause... rules) {
         VarargsUtils.throwExceptionOnNull((Object[]) rules);
         this.rules = rules;
+        this.ruleIndex = null;
+        this.strata = null;
+        this.unstratifiedRule = null;
+        this.factTables = new HashMap<Pair<Symbol, Integer>, FactTable>();
+        this.tabledPredicates = new HashSet<Pair<Symbol, Integer>>();
+        this.builtins = BuiltinRegistry.STANDARD;
+        this.modificationCount = 0;
+    }
+    
+    /**
+     * Adds a FactTable to this RuleSet. The facts of the table become part of the logic base for
+     * goals with the same signature as the table.
+     * 
+     * @param factTable The FactTable to add, not null.
+     * @throws IllegalArgumentException if this RuleSet already has a FactTable with the same 
+     *     signature.
+     */
+    public void addFactTable(FactTable factTable) {
+        
+        if(factTable == null) {
+            throw new IllegalArgumentException("Cannot add a null FactTable.");
+        }
+        
+        if(this.factTables.containsKey(factTable.getSignature())) {
+            throw new IllegalArgumentException("RuleSet already has a FactTable for " 
+                    + factTable.getPredicateSymbol() + "/" + factTable.getArity());
+        }
+        
+        this.factTables.put(factTable.getSignature(), factTable);
+        this.modificationCount++;
+    }
+    
+    /**
+     * Returns the FactTable that stores the facts of the given Predicate Symbol and arity, if it 
+     * exists.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the FactTable for the signature, or null if this RuleSet has none.
+     */
+    public FactTable getFactTable(Symbol predicateSymbol, int arity) {
+        return this.factTables.get(Pair.of(predicateSymbol, arity));
+    }
+    
+    /**
+     * Returns the FactTables of this RuleSet.
+     * 
+     * @return the FactTables of this RuleSet.
+     */
+    public Collection<FactTable> getFactTables() {
+        return this.factTables.values();
+    }
+    
+    /**
+     * Marks the Predicates of the given Symbol and arity as tabled. The proof tree solver answers
+     * each variant of a call to a tabled Predicate from a table, filled once per query, so that
+     * left-recursive rules terminate and repeated calls are not solved again.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate, not null.
+     * @param arity The arity of the Predicate.
+     */
+    public void addTabledPredicate(Symbol predicateSymbol, int arity) {
+        
+        if(predicateSymbol == null) {
+            throw new IllegalArgumentException("Cannot table a null Predicate Symbol.");
+        }
+        
+        if(this.tabledPredicates.add(Pair.of(predicateSymbol, arity))) {
+            this.modificationCount++;
+        }
+    }
+    
+    /**
+     * Returns the version of this RuleSet, which changes whenever the logic base changes: when a
+     * FactTable is added, a Predicate is tabled, the BuiltinRegistry is set, or a fact is added to
+     * one of the FactTables. The version only grows, so that answers computed at a version hold as
+     * long as the version is the same.
+     * 
+     * @return the version of this RuleSet.
+     */
+    public long getVersion() {
+        long version = this.modificationCount;
+        for(FactTable factTable : this.factTables.values()) {
+            version += factTable.getFactCount();
+        }
+        return version;
+    }
+    
+    /**
+     * Returns the BuiltinRegistry of this RuleSet, which is {@link BuiltinRegistry#STANDARD} 
+     * unless another one has been set.
+     * 
+     * @return the built-in predicates of this RuleSet.
+     */
+    public BuiltinRegistry getBuiltins() {
+        return this.builtins;
+    }
+    
+    /**
+     * Sets the BuiltinRegistry of this RuleSet. The HornClauses and FactTables of this RuleSet take
+     * precedence over the built-in predicates with the same signature.
+     * 
+     * @param builtins The BuiltinRegistry, not null.
+     */
+    public void setBuiltins(BuiltinRegistry builtins) {
+        
+        if(builtins == null) {
+            throw new IllegalArgumentException("Cannot set a null BuiltinRegistry.");
+        }
+        
+        this.builtins = builtins;
+        this.modificationCount++;
+    }
+    
+    /**
+     * Returns the Builtin that solves the Predicates of the given Symbol and arity, if they are
+     * built in. A Predicate that the HornClauses or a FactTable of this RuleSet define is not
+     * built in, even if its signature is registered, so that a program may use the name of a
+     * built-in predicate for its own.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the Builtin for the signature, or null if the Predicate is not built in.
+     */
+    public Builtin getBuiltin(Symbol predicateSymbol, int arity) {
+        Builtin builtin = this.builtins.get(predicateSymbol, arity);
+        if(builtin != null && (this.getRuleIndices(predicateSymbol, arity).length > 0
+                || this.getFactTable(predicateSymbol, arity) != null)) {
+            return null;
+        }
+        return builtin;
+    }
+    
+    /**
+     * Returns true if the Predicates of the given Symbol and arity are tabled.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return true if calls to the Predicate are tabled.
+     */
+    public boolean isTabled(Symbol predicateSymbol, int arity) {
+        return !this.tabledPredicates.isEmpty() && this.tabledPredicates.contains(Pair.of(predicateSymbol, arity));
     }
     
     /**
@@ -45,7 +238,7 @@ public class RuleSet {
      * @return a HornClause with Variables that have been standardized apart.
      */
     public HornClause getRuleStandardizedApart(int index) {        
-        HornClause rule = (HornClause) this.rules[index];
+        HornClause rule = this.getRule(index);
         HashMap<Variable, Variable> standardizedVariables = new HashMap<Variable, Variable>();
         HornClause standardizedApartRule = (HornClause) rule.standardizeVariablesApart(standardizedVariables);
         return standardizedApartRule;
@@ -57,6 +250,194 @@ public class RuleSet {
      * @return the number of HornClause rules within this RuleSet.
      */
     public int getRuleCount() {
-        return rules.length;
+        return this.rules.length;
+    }
+    
+    /**
+     * Returns the positions, in increasing order, of the HornClause rules whose consequent has the
+     * given Predicate Symbol and arity. These are the only rules whose consequent may unify with a
+     * goal of that signature. The returned array must not be modified.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the positions of the rules with the given consequent signature.
+     */
+    public int[] getRuleIndices(Symbol predicateSymbol, int arity) {
+        int[] indices = this.getRuleIndex().get(Pair.of(predicateSymbol, arity));
+        return (indices == null) ? NO_RULES : indices;
+    }
+    
+    /**
+     * Returns true if the rules of this RuleSet are stratified: if no Predicate depends, through
+     * any chain of rules, on its own negation.
+     * 
+     * @return true if the rules are stratified.
+     */
+    public boolean isStratified() {
+        this.getStrata();
+        return this.unstratifiedRule == null;
+    }
+    
+    /**
+     * Returns the stratum of the Predicates of the given Symbol and arity: 0 if they do not depend
+     * on any negated goal, and otherwise one more than the highest stratum of a Predicate they
+     * depend on the negation of. Goals of a stratum only negate goals of lower strata, which are
+     * completely known before the stratum is solved.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the stratum of the Predicate.
+     * @throws IllegalArgumentException if the rules are not stratified.
+     */
+    public int getStratum(Symbol predicateSymbol, int arity) {
+        HashMap<Pair<Symbol, Integer>, Integer> strata = this.getStrata();
+        if(this.unstratifiedRule != null) {
+            throw new IllegalArgumentException("The rules are not stratified: "
+                    + this.unstratifiedRule + " depends on the negation of its own head.");
+        }
+        return getStratum(strata, Pair.of(predicateSymbol, arity));
+    }
+    
+    /**
+     * Returns the strata of the consequent signatures, computing them the first time they are
+     * needed. Each signature is raised to the strata of the goals its rules depend on, and above
+     * the strata of the goals they negate, until no stratum changes; a stratum above the number
+     * of signatures can only come from a cycle through a negation.
+     * 
+     * @return the stratum of each consequent signature.
+     */
+    private synchronized HashMap<Pair<Symbol, Integer>, Integer> getStrata() {
+        
+        if(this.strata == null) {
+            HashMap<Pair<Symbol, Integer>, Integer> strata = new HashMap<Pair<Symbol, Integer>, Integer>();
+            List<Predicate> positives = new ArrayList<Predicate>();
+            List<Predicate> negatives = new ArrayList<Predicate>();
+            int signatureCount = this.getRuleIndex().size();
+            
+            boolean changed = true;
+            while(changed && this.unstratifiedRule == null) {
+                changed = false;
+                for(int position = 0; position < this.getRuleCount(); position++) {
+                    HornClause rule = this.getRule(position);
+                    Pair<Symbol, Integer> signature = getConsequentSignature(rule);
+                    if(signature == null || rule.isFact()) {
+                        continue;
+                    }
+                    positives.clear();
+                    negatives.clear();
+                    collectGoals(rule.getAntecedent(), false, positives, negatives);
+                    
+                    int stratum = getStratum(strata, signature);
+                    for(Predicate goal : positives) {
+                        stratum = Math.max(stratum, getStratum(strata, Pair.of(goal.getSymbol(), goal.getArity())));
+                    }
+                    for(Predicate goal : negatives) {
+                        stratum = Math.max(stratum, getStratum(strata, Pair.of(goal.getSymbol(), goal.getArity())) + 1);
+                    }
+                    if(stratum > signatureCount) {
+                        this.unstratifiedRule = rule;
+                        break;
+                    }
+                    if(stratum != getStratum(strata, signature)) {
+                        strata.put(signature, stratum);
+                        changed = true;
+                    }
+                }
+            }
+            
+            this.strata = strata;
+        }
+        
+        return this.strata;
+    }
+    
+    /**
+     * Returns the stratum of a signature computed so far.
+     * 
+     * @param strata The strata computed so far.
+     * @param signature The signature.
+     * @return the stratum of the signature, or 0 if none has been computed.
+     */
+    private static int getStratum(HashMap<Pair<Symbol, Integer>, Integer> strata, Pair<Symbol, Integer> signature) {
+        Integer stratum = strata.get(signature);
+        return (stratum == null) ? 0 : stratum;
+    }
+    
+    /**
+     * Collects the Predicates of a Formula, sorting them by whether a negation applies to them.
+     * A Predicate under two negations is still negated, since it is proven by failure as well.
+     * 
+     * @param formula The Formula.
+     * @param negated Whether the Formula itself is negated.
+     * @param positives The list of Predicates that are not negated.
+     * @param negatives The list of Predicates that are negated.
+     */
+    private static void collectGoals(Formula formula, boolean negated, List<Predicate> positives,
+            List<Predicate> negatives) {
+        if(formula instanceof Predicate) {
+            (negated ? negatives : positives).add((Predicate) formula);
+        }
+        else if(formula instanceof AbstractOperator) {
+            AbstractOperator operator = (AbstractOperator) formula;
+            boolean operandsNegated = negated || formula instanceof NotOperator;
+            for(int index = 0; index < operator.operandCount(); index++) {
+                collectGoals(operator.getOperand(index), operandsNegated, positives, negatives);
+            }
+        }
+    }
+    
+    /**
+     * Returns the index from consequent signatures to rule positions, building it the first time 
+     * it is needed.
+     * 
+     * @return the index of this RuleSet's rules.
+     */
+    private synchronized HashMap<Pair<Symbol, Integer>, int[]> getRuleIndex() {
+        
+        if(this.ruleIndex == null) {
+            
+            // Count the rules of each signature, then fill in their positions from the last one.
+            HashMap<Pair<Symbol, Integer>, Integer> counts = new HashMap<Pair<Symbol, Integer>, Integer>();
+            for(int position = 0; position < this.getRuleCount(); position++) {
+                Pair<Symbol, Integer> signature = getConsequentSignature(this.getRule(position));
+                if(signature != null) {
+                    Integer count = counts.get(signature);
+                    counts.put(signature, (count == null) ? 1 : count + 1);
+                }
+            }
+            
+            HashMap<Pair<Symbol, Integer>, int[]> index = new HashMap<Pair<Symbol, Integer>, int[]>();
+            for(int position = this.getRuleCount() - 1; position >= 0; position--) {
+                Pair<Symbol, Integer> signature = getConsequentSignature(this.getRule(position));
+                if(signature != null) {
+                    int[] positions = index.get(signature);
+                    if(positions == null) {
+                        positions = new int[counts.get(signature)];
+                        index.put(signature, positions);
+                    }
+                    int count = counts.get(signature) - 1;
+                    positions[count] = position;
+                    counts.put(signature, count);
+                }
+            }
+            
+            this.ruleIndex = index;
+        }
+        
+        return this.ruleIndex;
+    }
+    
+    /**
+     * Returns the signature of a HornClause's consequent.
+     * 
+     * @param rule The HornClause.
+     * @return the Pair of the consequent's Symbol and arity, or null if the HornClause is a goal.
+     */
+    private static Pair<Symbol, Integer> getConsequentSignature(HornClause rule) {
+        Predicate consequent = rule.getConsequent();
+        if(consequent == null) {
+            return null;
+        }
+        return Pair.of(consequent.getSymbol(), consequent.getArity());
     }
 }
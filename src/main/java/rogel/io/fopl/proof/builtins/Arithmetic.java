@@ -0,0 +1,201 @@
+package rogel.io.fopl.proof.builtins;
+
+import java.util.List;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.terms.FloatConstant;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.NumericConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * Arithmetic evaluates the arithmetic expressions of the built-in predicates. Numbers are
+ * NumericConstants: IntegerConstants such as {@code 42} or {@code -7}, which are evaluated as
+ * longs, and FloatConstants such as {@code 2.5} or {@code 1.0E-3}, which are evaluated as doubles.
+ * An expression is a number, or one of the following Functions of expressions:
+ * <ul>
+ *     <li> {@code +(X, Y)}, {@code -(X, Y)}, {@code *(X, Y)} and {@code /(X, Y)}; the division of
+ *          two integers is truncated.
+ *     <li> {@code mod(X, Y)}, the remainder of the division of two integers, with the sign of Y.
+ *     <li> {@code min(X, Y)}, {@code max(X, Y)}, {@code -(X)} and {@code abs(X)}.
+ * </ul>
+ * An operation on two integers has an integer value; an operation with a float has a float value.
+ * 
+ * @author recardona
+ */
+public final class Arithmetic {
+
+    private Arithmetic() { /* Private constructor to avoid initialization. */ }
+
+    /**
+     * Follows the bindings of a Term to its value. A constant Function named by a numeral is taken
+     * for the number it denotes.
+     * 
+     * @param term The Term, not null.
+     * @param substitution The bindings of the Variables, not null.
+     * @return the Term itself if it is not a bound Variable, or the value of the Variable.
+     */
+    static Term deref(Term term, Substitution substitution) {
+        while(term instanceof Variable) {
+            Term value = (Term) substitution.getBinding((Variable) term);
+            if(value == null) {
+                break;
+            }
+            term = value;
+        }
+        if(term instanceof Function && ((Function) term).getNumber() != null) {
+            return ((Function) term).getNumber();
+        }
+        return term;
+    }
+
+    /**
+     * Evaluates an arithmetic expression.
+     * 
+     * @param expression The expression, not null.
+     * @param substitution The bindings of the Variables of the expression, not null.
+     * @return the value of the expression, an IntegerConstant or a FloatConstant.
+     * @throws IllegalArgumentException if the expression has an unbound Variable, or is not an
+     *     arithmetic expression.
+     * @throws ArithmeticException if an integer is divided by zero.
+     */
+    public static NumericConstant evaluate(Term expression, Substitution substitution) {
+        Term term = deref(expression, substitution);
+        if(term instanceof NumericConstant) {
+            return (NumericConstant) term;
+        }
+        if(term instanceof Variable) {
+            throw new IllegalArgumentException("Cannot evaluate the unbound Variable " + term);
+        }
+
+        Function function = (Function) term;
+        if(function.isConstant()) {
+            throw new IllegalArgumentException("Cannot evaluate " + function + ", which is not a number");
+        }
+
+        String operator = function.getSymbol().toString();
+        List<Term> arguments = function.getArguments();
+        NumericConstant left = evaluate(arguments.get(0), substitution);
+        if(function.getArity() == 1) {
+            if(operator.equals("-")) {
+                return (left instanceof IntegerConstant) ? new IntegerConstant(-longValue(left))
+                        : new FloatConstant(-doubleValue(left));
+            }
+            if(operator.equals("abs")) {
+                return (left instanceof IntegerConstant) ? new IntegerConstant(Math.abs(longValue(left)))
+                        : new FloatConstant(Math.abs(doubleValue(left)));
+            }
+        }
+        else if(function.getArity() == 2) {
+            NumericConstant right = evaluate(arguments.get(1), substitution);
+            if(left instanceof IntegerConstant && right instanceof IntegerConstant) {
+                return new IntegerConstant(evaluate(operator, longValue(left), longValue(right), function));
+            }
+            return new FloatConstant(evaluate(operator, doubleValue(left), doubleValue(right), function));
+        }
+        throw new IllegalArgumentException("Cannot evaluate " + function + ", which is not an arithmetic expression");
+    }
+
+    /**
+     * Compares the values of two numbers. Integers and floats are compared by value.
+     * 
+     * @param first The first number, not null.
+     * @param second The second number, not null.
+     * @return a negative number, zero or a positive number if the first value is less than, equal
+     *     to or greater than the second.
+     */
+    public static int compare(NumericConstant first, NumericConstant second) {
+        if(first instanceof IntegerConstant && second instanceof IntegerConstant) {
+            long left = longValue(first);
+            long right = longValue(second);
+            return (left < right) ? -1 : ((left == right) ? 0 : 1);
+        }
+        double left = doubleValue(first);
+        double right = doubleValue(second);
+        return (left < right) ? -1 : ((left == right) ? 0 : 1);
+    }
+
+    /**
+     * Returns the value of an IntegerConstant.
+     * 
+     * @param number The IntegerConstant.
+     * @return its value.
+     */
+    private static long longValue(NumericConstant number) {
+        return ((IntegerConstant) number).longValue();
+    }
+
+    /**
+     * Returns the value of a number as a double.
+     * 
+     * @param number The IntegerConstant or FloatConstant.
+     * @return its value.
+     */
+    private static double doubleValue(NumericConstant number) {
+        if(number instanceof IntegerConstant) {
+            return ((IntegerConstant) number).longValue();
+        }
+        return ((FloatConstant) number).doubleValue();
+    }
+
+    /**
+     * Applies a binary operator to two integers.
+     * 
+     * @param operator The name of the operator.
+     * @param left The value of the first operand.
+     * @param right The value of the second operand.
+     * @param function The expression, for error messages.
+     * @return the value of the expression.
+     */
+    private static long evaluate(String operator, long left, long right, Function function) {
+        switch(operator) {
+            case "+":
+                return left + right;
+            case "-":
+                return left - right;
+            case "*":
+                return left * right;
+            case "/":
+                return left / right;
+            case "mod":
+                long remainder = left % right;
+                return (remainder != 0 && (remainder ^ right) < 0) ? remainder + right : remainder;
+            case "min":
+                return Math.min(left, right);
+            case "max":
+                return Math.max(left, right);
+            default:
+                throw new IllegalArgumentException("Cannot evaluate " + function + ", which is not an arithmetic expression");
+        }
+    }
+
+    /**
+     * Applies a binary operator to two floats.
+     * 
+     * @param operator The name of the operator.
+     * @param left The value of the first operand.
+     * @param right The value of the second operand.
+     * @param function The expression, for error messages.
+     * @return the value of the expression.
+     */
+    private static double evaluate(String operator, double left, double right, Function function) {
+        switch(operator) {
+            case "+":
+                return left + right;
+            case "-":
+                return left - right;
+            case "*":
+                return left * right;
+            case "/":
+                return left / right;
+            case "min":
+                return Math.min(left, right);
+            case "max":
+                return Math.max(left, right);
+            default:
+                throw new IllegalArgumentException("Cannot evaluate " + function + ", which is not an arithmetic expression");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package rogel.io.fopl.proof.builtins;
+
+import java.util.List;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * A Builtin is a predicate that the solver evaluates directly, without looking up clauses. A call
+ * to a Builtin has at most one solution.
+ * 
+ * @author recardona
+ */
+public interface Builtin {
+
+    /**
+     * Solves a call to this Builtin.
+     * 
+     * @param arguments The Terms of the call, not null.
+     * @param substitution The bindings of the Variables of the call, not null. The Builtin must
+     *     not modify it.
+     * @return a Substitution that extends the parameter Substitution with the bindings made by the
+     *     call, or null if the call fails.
+     * @throws IllegalArgumentException if an argument that must be bound is not, or is of the
+     *     wrong type.
+     */
+    public Substitution solve(List<Term> arguments, Substitution substitution);
+}
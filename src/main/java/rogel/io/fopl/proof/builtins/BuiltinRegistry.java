@@ -0,0 +1,88 @@
+package rogel.io.fopl.proof.builtins;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import rogel.io.fopl.Symbol;
+
+/**
+ * A BuiltinRegistry maps the signatures (Symbol and arity) of built-in predicates to the Builtins
+ * that solve them. A new registry holds the StandardBuiltins, to which other Builtins may be added;
+ * the {@link #STANDARD} registry, which every RuleSet uses unless it is given another one, cannot
+ * be changed.
+ * <p>
+ * A registry may be read from several threads at once, once every Builtin has been registered.
+ * 
+ * @author recardona
+ */
+public class BuiltinRegistry {
+
+    /** The registry of the StandardBuiltins, which cannot be changed. */
+    public static final BuiltinRegistry STANDARD = new BuiltinRegistry(false);
+
+    /** The Builtins of each Symbol, indexed by arity, or null for arities that have none. */
+    private HashMap<Symbol, Builtin[]> builtins;
+
+    /** Whether Builtins may be registered. */
+    private boolean modifiable;
+
+    /**
+     * Constructs a BuiltinRegistry that holds the StandardBuiltins.
+     */
+    public BuiltinRegistry() {
+        this(true);
+    }
+
+    /**
+     * Constructs a BuiltinRegistry that holds the StandardBuiltins.
+     * 
+     * @param modifiable Whether Builtins may be registered.
+     */
+    private BuiltinRegistry(boolean modifiable) {
+        this.builtins = new HashMap<Symbol, Builtin[]>();
+        this.modifiable = true;
+        for(StandardBuiltin builtin : StandardBuiltin.values()) {
+            this.register(builtin.getSymbol(), builtin.getArity(), builtin);
+        }
+        this.modifiable = modifiable;
+    }
+
+    /**
+     * Registers a Builtin, replacing the Builtin registered with the same signature, if any.
+     * 
+     * @param symbol The Symbol of the built-in predicate, not null.
+     * @param arity The non-negative arity of the built-in predicate.
+     * @param builtin The Builtin that solves the predicate, not null.
+     * @throws UnsupportedOperationException if this is the {@link #STANDARD} registry.
+     */
+    public void register(Symbol symbol, int arity, Builtin builtin) {
+        if(!this.modifiable) {
+            throw new UnsupportedOperationException("Cannot register Builtins in the standard registry.");
+        }
+        if(symbol == null || builtin == null || arity < 0) {
+            throw new IllegalArgumentException("Cannot register a Builtin without a Symbol, an arity and a solver.");
+        }
+
+        Builtin[] byArity = this.builtins.get(symbol);
+        if(byArity == null) {
+            byArity = new Builtin[arity + 1];
+        }
+        else if(byArity.length <= arity) {
+            byArity = Arrays.copyOf(byArity, arity + 1);
+        }
+        byArity[arity] = builtin;
+        this.builtins.put(symbol, byArity);
+    }
+
+    /**
+     * Returns the Builtin registered with the given signature.
+     * 
+     * @param symbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the Builtin that solves the Predicate, or null if it is not built in.
+     */
+    public Builtin get(Symbol symbol, int arity) {
+        Builtin[] byArity = this.builtins.get(symbol);
+        return (byArity == null || byArity.length <= arity) ? null : byArity[arity];
+    }
+}
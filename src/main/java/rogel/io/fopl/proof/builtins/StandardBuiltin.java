@@ -0,0 +1,240 @@
+package rogel.io.fopl.proof.builtins;
+
+import java.util.List;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.terms.FloatConstant;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.NumericConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The StandardBuiltins are the built-in predicates every RuleSet has unless it is given other
+ * ones. The arithmetic expressions they evaluate are those of {@link Arithmetic}.
+ * <ul>
+ *     <li> {@code (is X E)} unifies X with the value of the expression E.
+ *     <li> {@code (< E1 E2)}, {@code (=< E1 E2)}, {@code (> E1 E2)}, {@code (>= E1 E2)},
+ *          {@code (=:= E1 E2)} and {@code (=\= E1 E2)} compare the values of two expressions.
+ *     <li> {@code (= T1 T2)} unifies two Terms, and {@code (\= T1 T2)} holds if they do not unify.
+ *     <li> {@code (== T1 T2)} holds if two Terms are identical under the current bindings, 
+ *          without binding their Variables, and {@code (\== T1 T2)} holds if they are not.
+ *     <li> {@code (var T)}, {@code (nonvar T)}, {@code (number T)}, {@code (integer T)}, 
+ *          {@code (float T)}, {@code (atom T)} and {@code (compound T)} test the type of a Term
+ *          under the current bindings; an atom is a constant that is not a number.
+ * </ul>
+ * 
+ * @author recardona
+ */
+public enum StandardBuiltin implements Builtin {
+
+    IS("is", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return arguments.get(0).unify(Arithmetic.evaluate(arguments.get(1), substitution), substitution);
+        }
+    },
+
+    LESS("<", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) < 0) ? substitution : null;
+        }
+    },
+
+    LESS_OR_EQUAL("=<", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) <= 0) ? substitution : null;
+        }
+    },
+
+    GREATER(">", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) > 0) ? substitution : null;
+        }
+    },
+
+    GREATER_OR_EQUAL(">=", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) >= 0) ? substitution : null;
+        }
+    },
+
+    EQUAL_VALUE("=:=", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) == 0) ? substitution : null;
+        }
+    },
+
+    NOT_EQUAL_VALUE("=\\=", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (compare(arguments, substitution) != 0) ? substitution : null;
+        }
+    },
+
+    UNIFY("=", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return arguments.get(0).unify(arguments.get(1), substitution);
+        }
+    },
+
+    NOT_UNIFY("\\=", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (arguments.get(0).unify(arguments.get(1), substitution) == null) ? substitution : null;
+        }
+    },
+
+    IDENTICAL("==", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return identical(arguments.get(0), arguments.get(1), substitution) ? substitution : null;
+        }
+    },
+
+    NOT_IDENTICAL("\\==", 2) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return identical(arguments.get(0), arguments.get(1), substitution) ? null : substitution;
+        }
+    },
+
+    VAR("var", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (Arithmetic.deref(arguments.get(0), substitution) instanceof Variable) ? substitution : null;
+        }
+    },
+
+    NONVAR("nonvar", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (Arithmetic.deref(arguments.get(0), substitution) instanceof Variable) ? null : substitution;
+        }
+    },
+
+    NUMBER("number", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (Arithmetic.deref(arguments.get(0), substitution) instanceof NumericConstant) ? substitution : null;
+        }
+    },
+
+    INTEGER("integer", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (Arithmetic.deref(arguments.get(0), substitution) instanceof IntegerConstant) ? substitution : null;
+        }
+    },
+
+    FLOAT("float", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            return (Arithmetic.deref(arguments.get(0), substitution) instanceof FloatConstant) ? substitution : null;
+        }
+    },
+
+    ATOM("atom", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            Term term = Arithmetic.deref(arguments.get(0), substitution);
+            return (term instanceof Function && term.isConstant()) ? substitution : null;
+        }
+    },
+
+    COMPOUND("compound", 1) {
+        @Override
+        public Substitution solve(List<Term> arguments, Substitution substitution) {
+            Term term = Arithmetic.deref(arguments.get(0), substitution);
+            return (term instanceof Function && !((Function) term).isConstant()) ? substitution : null;
+        }
+    };
+
+    /** The Symbol of the built-in predicate. */
+    private final Symbol symbol;
+
+    /** The arity of the built-in predicate. */
+    private final int arity;
+
+    /**
+     * Constructs a StandardBuiltin.
+     * 
+     * @param name The name of the built-in predicate.
+     * @param arity The arity of the built-in predicate.
+     */
+    private StandardBuiltin(String name, int arity) {
+        this.symbol = Symbol.get(name);
+        this.arity = arity;
+    }
+
+    /**
+     * Returns the Symbol of the built-in predicate.
+     * 
+     * @return the Symbol of the Predicates this Builtin solves.
+     */
+    public Symbol getSymbol() {
+        return this.symbol;
+    }
+
+    /**
+     * Returns the arity of the built-in predicate.
+     * 
+     * @return the arity of the Predicates this Builtin solves.
+     */
+    public int getArity() {
+        return this.arity;
+    }
+
+    /**
+     * Compares the values of the two arithmetic expressions of a call.
+     * 
+     * @param arguments The two expressions.
+     * @param substitution The bindings of their Variables.
+     * @return the comparison of their values, as by
+     *     {@link Arithmetic#compare(NumericConstant, NumericConstant)}.
+     */
+    private static int compare(List<Term> arguments, Substitution substitution) {
+        return Arithmetic.compare(Arithmetic.evaluate(arguments.get(0), substitution),
+                Arithmetic.evaluate(arguments.get(1), substitution));
+    }
+
+    /**
+     * Returns true if two Terms are identical under a Substitution: the same unbound Variable, equal
+     * numbers, or Functions with the same Symbol and identical arguments.
+     * 
+     * @param first The first Term.
+     * @param second The second Term.
+     * @param substitution The bindings of their Variables.
+     * @return true if the Terms are identical.
+     */
+    private static boolean identical(Term first, Term second, Substitution substitution) {
+        first = Arithmetic.deref(first, substitution);
+        second = Arithmetic.deref(second, substitution);
+        if(first == second) {
+            return true;
+        }
+        if(!(first instanceof Function) || !(second instanceof Function)) {
+            return first.equals(second);
+        }
+
+        Function function1 = (Function) first;
+        Function function2 = (Function) second;
+        if(!function1.getSymbol().equals(function2.getSymbol()) || function1.getArity() != function2.getArity()) {
+            return false;
+        }
+        for(int index = 0; index < function1.getArity(); index++) {
+            if(!identical(function1.getArguments().get(index), function2.getArguments().get(index), substitution)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Contains the built-in predicates: Predicates that the solver evaluates directly in Java, rather
+ * than by looking up clauses, such as arithmetic evaluation, numeric comparison, type tests and
+ * term equality.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.proof.builtins;
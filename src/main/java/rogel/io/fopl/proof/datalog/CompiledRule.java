@@ -0,0 +1,94 @@
+package rogel.io.fopl.proof.datalog;
+
+import rogel.io.fopl.proof.HornClause;
+
+/**
+ * A CompiledRule is a rule whose Predicates were compiled to Literals, with the join plans that
+ * evaluate it.
+ *
+ * @author recardona
+ */
+final class CompiledRule {
+
+    /** The rule, for error messages. */
+    final HornClause clause;
+
+    /** The head of the rule. */
+    final Literal head;
+
+    /** The positive literals of the body. */
+    final Literal[] positives;
+
+    /** The negated literals of the body. */
+    final Literal[] negatives;
+
+    /** The number of Variables of the rule. */
+    final int slotCount;
+
+    /** The plan that joins every literal with all of its rows. */
+    final JoinPlan fullPlan;
+
+    /** The plans that join a recursive literal with its delta, one per recursive literal. */
+    JoinPlan[] deltaPlans;
+
+    /**
+     * The plans that join a literal with a Relation of changed tuples, and the other literals
+     * with all of their rows, one per positive literal, built when first needed.
+     */
+    private JoinPlan[] changePlans;
+
+    /** The plan that checks which tuples of a Relation of heads the rule still derives. */
+    private JoinPlan rederivePlan;
+
+    /**
+     * Constructs a CompiledRule.
+     *
+     * @param clause The rule.
+     * @param head The head of the rule.
+     * @param positives The positive literals of the body.
+     * @param negatives The negated literals of the body.
+     * @param slotCount The number of Variables of the rule.
+     */
+    CompiledRule(HornClause clause, Literal head, Literal[] positives, Literal[] negatives, int slotCount) {
+        this.clause = clause;
+        this.head = head;
+        this.positives = positives;
+        this.negatives = negatives;
+        this.slotCount = slotCount;
+        this.fullPlan = new JoinPlan(this, positives, -1, null, -1);
+        this.deltaPlans = new JoinPlan[0];
+    }
+
+    /**
+     * Returns the plan that joins a positive literal with a Relation of changed tuples, and the
+     * other literals with all of their rows.
+     *
+     * @param position The position of the literal among the positive literals.
+     * @return the plan.
+     */
+    JoinPlan getChangePlan(int position) {
+        if(this.changePlans == null) {
+            this.changePlans = new JoinPlan[this.positives.length];
+            for(int literal = 0; literal < this.positives.length; literal++) {
+                this.changePlans[literal] = new JoinPlan(this, this.positives, literal, null, -1);
+            }
+        }
+        return this.changePlans[position];
+    }
+
+    /**
+     * Returns the plan that joins the head with a Relation of candidate tuples, and then the body
+     * with all of its rows, which derives the candidates the rule still derives.
+     *
+     * @return the plan.
+     */
+    JoinPlan getRederivePlan() {
+        if(this.rederivePlan == null) {
+            Literal[] literals = new Literal[this.positives.length + 1];
+            literals[0] = this.head;
+            System.arraycopy(this.positives, 0, literals, 1, this.positives.length);
+            this.rederivePlan = new JoinPlan(this, literals, 0, null, -1);
+        }
+        return this.rederivePlan;
+    }
+}
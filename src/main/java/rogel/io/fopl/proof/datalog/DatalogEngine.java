@@ -0,0 +1,463 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A DatalogEngine computes the least model of a function-free RuleSet bottom-up: it derives every
+ * ground fact that follows from the RuleSet's facts, FactTables and rules, instead of proving the
+ * goals of a query one at a time.
+ * <p>
+ * The rules are compiled once, when the engine is constructed. Every rule must be range
+ * restricted (each Variable of its head occurs in a positive literal of its body) and safe (each
+ * Variable of a negated literal occurs in a positive literal), and the rules must be stratified:
+ * no Predicate may depend on its own negation. The Predicates are split into strata, so that the
+ * Predicates a stratum negates are complete before it is evaluated.
+ * <p>
+ * Each stratum is evaluated semi-naively: after the first round, a rule is only joined with at
+ * least one tuple found in the previous round (its delta), so that no derivation is repeated. The
+ * joins go through hash indexes over the columns a literal shares with the literals before it.
+ *
+ * @author recardona
+ */
+public class DatalogEngine {
+
+    /** The RuleSet whose least model this engine computes. */
+    private RuleSet rules;
+
+    /** The Predicate signatures of the RuleSet, in the order they were numbered. */
+    private List<Pair<Symbol, Integer>> signatures;
+
+    /** The numbers of the Predicate signatures. */
+    private HashMap<Pair<Symbol, Integer>, Integer> predicateNumbers;
+
+    /** The ground facts of the RuleSet's clauses, as a Predicate number and its Symbol ids. */
+    private List<Pair<Integer, int[]>> facts;
+
+    /** The compiled rules of each stratum, lowest stratum first. */
+    private List<List<CompiledRule>> strata;
+
+    /** The stratum of each Predicate. */
+    private int[] predicateStrata;
+
+    /**
+     * Constructs a DatalogEngine for a RuleSet, compiling and stratifying its rules. Goal clauses
+     * derive nothing, and are left out.
+     *
+     * @param rules The RuleSet, not null.
+     * @throws IllegalArgumentException if a rule is not function-free, not range restricted, or
+     *  not safe, or if the rules are not stratified.
+     */
+    public DatalogEngine(RuleSet rules) {
+        if(rules == null) {
+            throw new IllegalArgumentException("Cannot evaluate a null RuleSet.");
+        }
+        this.rules = rules;
+        this.signatures = new ArrayList<Pair<Symbol, Integer>>();
+        this.predicateNumbers = new HashMap<Pair<Symbol, Integer>, Integer>();
+        this.facts = new ArrayList<Pair<Integer, int[]>>();
+
+        List<CompiledRule> compiledRules = new ArrayList<CompiledRule>();
+        for(int index = 0; index < rules.getRuleCount(); index++) {
+            HornClause clause = rules.getRule(index);
+            if(clause.isGoalClause()) {
+                continue; // A goal clause has no consequent, so it derives nothing.
+            }
+            if(clause.isFact() || isEmptyConjunction(clause.getAntecedent())) {
+                this.facts.add(this.compileFact(clause));
+            }
+            else {
+                compiledRules.add(this.compileRule(clause));
+            }
+        }
+        for(FactTable factTable : rules.getFactTables()) {
+            this.getPredicateNumber(factTable.getSignature());
+        }
+
+        this.stratify(compiledRules);
+    }
+
+    /**
+     * Returns the RuleSet whose least model this engine computes.
+     *
+     * @return the RuleSet of this engine.
+     */
+    public RuleSet getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Returns the number of strata the rules of the RuleSet were split into.
+     *
+     * @return the number of strata.
+     */
+    public int getStratumCount() {
+        return this.strata.size();
+    }
+
+    /**
+     * Returns the Predicate signatures of the RuleSet, in the order they were numbered.
+     *
+     * @return the Predicate signatures.
+     */
+    List<Pair<Symbol, Integer>> getSignatures() {
+        return this.signatures;
+    }
+
+    /**
+     * Returns the number of a Predicate signature.
+     *
+     * @param signature The Predicate signature.
+     * @return the number of the signature, or null if the RuleSet does not use it.
+     */
+    Integer findPredicateNumber(Pair<Symbol, Integer> signature) {
+        return this.predicateNumbers.get(signature);
+    }
+
+    /**
+     * Returns the ground facts of the RuleSet's clauses.
+     *
+     * @return the facts, as a Predicate number and its Symbol ids.
+     */
+    List<Pair<Integer, int[]>> getFacts() {
+        return this.facts;
+    }
+
+    /**
+     * Returns the compiled rules of a stratum.
+     *
+     * @param stratum The stratum.
+     * @return the compiled rules of the stratum.
+     */
+    List<CompiledRule> getStratumRules(int stratum) {
+        return this.strata.get(stratum);
+    }
+
+    /**
+     * Returns the stratum of a Predicate.
+     *
+     * @param predicate The number of the Predicate signature.
+     * @return the stratum of the Predicate.
+     */
+    int getPredicateStratum(int predicate) {
+        return this.predicateStrata[predicate];
+    }
+
+    /**
+     * Computes the least model of the RuleSet, from its current facts and FactTables.
+     *
+     * @return the least model.
+     */
+    public DatalogModel evaluate() {
+        Relation[] relations = new Relation[this.signatures.size()];
+        for(int predicate = 0; predicate < relations.length; predicate++) {
+            Pair<Symbol, Integer> signature = this.signatures.get(predicate);
+            relations[predicate] = new Relation(signature.getLeft(), signature.getRight());
+        }
+
+        for(Pair<Integer, int[]> fact : this.facts) {
+            relations[fact.getLeft()].add(fact.getRight());
+        }
+        for(FactTable factTable : this.rules.getFactTables()) {
+            Relation relation = relations[this.predicateNumbers.get(factTable.getSignature())];
+            int[] tuple = new int[factTable.getArity()];
+            for(int row = 0; row < factTable.getFactCount(); row++) {
+                for(int column = 0; column < tuple.length; column++) {
+                    tuple[column] = factTable.getSymbolId(row, column);
+                }
+                relation.add(tuple);
+            }
+        }
+
+        // Every Relation starts out as complete; those of a stratum are reopened while it is evaluated.
+        int[] oldEnds = new int[relations.length];
+        int[] newEnds = new int[relations.length];
+        for(int predicate = 0; predicate < relations.length; predicate++) {
+            oldEnds[predicate] = relations[predicate].getFactCount();
+            newEnds[predicate] = oldEnds[predicate];
+        }
+
+        int roundCount = 0;
+        for(int stratum = 0; stratum < this.strata.size(); stratum++) {
+            roundCount += this.evaluateStratum(stratum, relations, oldEnds, newEnds, 0);
+        }
+
+        HashMap<Pair<Symbol, Integer>, Relation> model = new HashMap<Pair<Symbol, Integer>, Relation>();
+        for(Relation relation : relations) {
+            model.put(relation.getSignature(), relation);
+        }
+        return new DatalogModel(model, roundCount);
+    }
+
+    /**
+     * Evaluates the rules of a stratum semi-naively, until a round finds no new tuples.
+     *
+     * @param stratum The stratum.
+     * @param relations The Relations, by Predicate number.
+     * @param oldEnds The end of the rows of each Relation found before the previous round.
+     * @param newEnds The end of the rows of each Relation found before the current round.
+     * @param skippedStates The states of the rows the joins skip, or 0 to join with every row.
+     * @return the number of rounds.
+     */
+    int evaluateStratum(int stratum, Relation[] relations, int[] oldEnds, int[] newEnds, int skippedStates) {
+        List<CompiledRule> stratumRules = this.strata.get(stratum);
+
+        // The first round joins each rule with every tuple of the stratum found so far, as its delta.
+        for(int predicate = 0; predicate < relations.length; predicate++) {
+            if(this.predicateStrata[predicate] == stratum) {
+                oldEnds[predicate] = 0;
+            }
+        }
+        for(CompiledRule rule : stratumRules) {
+            if(rule.deltaPlans.length == 0) {
+                rule.fullPlan.run(relations, null, oldEnds, newEnds, skippedStates, null);
+            }
+        }
+
+        int roundCount = 0;
+        boolean changed = true;
+        while(changed) {
+            for(CompiledRule rule : stratumRules) {
+                for(JoinPlan plan : rule.deltaPlans) {
+                    plan.run(relations, null, oldEnds, newEnds, skippedStates, null);
+                }
+            }
+            roundCount++;
+
+            changed = false;
+            for(int predicate = 0; predicate < relations.length; predicate++) {
+                if(this.predicateStrata[predicate] == stratum) {
+                    oldEnds[predicate] = newEnds[predicate];
+                    newEnds[predicate] = relations[predicate].getFactCount();
+                    changed |= oldEnds[predicate] != newEnds[predicate];
+                }
+            }
+        }
+
+        for(int predicate = 0; predicate < relations.length; predicate++) {
+            if(this.predicateStrata[predicate] == stratum) {
+                oldEnds[predicate] = newEnds[predicate];
+            }
+        }
+        return roundCount;
+    }
+
+    /**
+     * Assigns each Predicate to the lowest stratum that is above the strata of the Predicates it
+     * negates, and not below the strata of the Predicates it depends on, and groups the compiled
+     * rules by the stratum of their head. A rule's literals on Predicates of its own stratum are
+     * recursive, and get a join plan each, in which they are the delta.
+     *
+     * @param compiledRules The compiled rules.
+     * @throws IllegalArgumentException if a Predicate depends on its own negation.
+     */
+    private void stratify(List<CompiledRule> compiledRules) {
+        int predicateCount = this.signatures.size();
+        this.predicateStrata = new int[predicateCount];
+
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(CompiledRule rule : compiledRules) {
+                int stratum = this.predicateStrata[rule.head.predicate];
+                for(Literal literal : rule.positives) {
+                    stratum = Math.max(stratum, this.predicateStrata[literal.predicate]);
+                }
+                for(Literal literal : rule.negatives) {
+                    stratum = Math.max(stratum, this.predicateStrata[literal.predicate] + 1);
+                }
+                if(stratum >= predicateCount) {
+                    throw new IllegalArgumentException("The rules are not stratified: "
+                            + rule.clause + " depends on the negation of its own head.");
+                }
+                if(stratum != this.predicateStrata[rule.head.predicate]) {
+                    this.predicateStrata[rule.head.predicate] = stratum;
+                    changed = true;
+                }
+            }
+        }
+
+        int stratumCount = 0;
+        for(int stratum : this.predicateStrata) {
+            stratumCount = Math.max(stratumCount, stratum + 1);
+        }
+        this.strata = new ArrayList<List<CompiledRule>>();
+        for(int stratum = 0; stratum < stratumCount; stratum++) {
+            this.strata.add(new ArrayList<CompiledRule>());
+        }
+        for(CompiledRule rule : compiledRules) {
+            int stratum = this.predicateStrata[rule.head.predicate];
+            this.strata.get(stratum).add(rule);
+
+            List<JoinPlan> deltaPlans = new ArrayList<JoinPlan>();
+            for(int position = 0; position < rule.positives.length; position++) {
+                if(this.predicateStrata[rule.positives[position].predicate] == stratum) {
+                    deltaPlans.add(new JoinPlan(rule, rule.positives, position, this.predicateStrata, stratum));
+                }
+            }
+            rule.deltaPlans = deltaPlans.toArray(new JoinPlan[deltaPlans.size()]);
+        }
+    }
+
+    /**
+     * Compiles a fact of the RuleSet to its Predicate number and Symbol ids.
+     *
+     * @param clause The fact.
+     * @return the Predicate number and the Symbol ids of the fact.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    private Pair<Integer, int[]> compileFact(HornClause clause) {
+        Literal literal = this.compileLiteral(clause.getConsequent(), clause, new HashMap<Variable, Integer>());
+        for(int argument : literal.arguments) {
+            if(argument < 0) {
+                throw new IllegalArgumentException("Fact " + clause + " is not ground.");
+            }
+        }
+        return Pair.of(literal.predicate, literal.arguments);
+    }
+
+    /**
+     * Compiles a rule of the RuleSet.
+     *
+     * @param clause The rule.
+     * @return the compiled rule.
+     * @throws IllegalArgumentException if the rule is not function-free, not range restricted, or
+     *  not safe.
+     */
+    private CompiledRule compileRule(HornClause clause) {
+        List<Formula> positiveFormulas = new ArrayList<Formula>();
+        List<Formula> negativeFormulas = new ArrayList<Formula>();
+        flatten(clause.getAntecedent(), clause, positiveFormulas, negativeFormulas);
+
+        HashMap<Variable, Integer> slots = new HashMap<Variable, Integer>();
+        Literal[] positives = new Literal[positiveFormulas.size()];
+        for(int position = 0; position < positives.length; position++) {
+            positives[position] = this.compileLiteral((Predicate) positiveFormulas.get(position), clause, slots);
+        }
+        int boundSlotCount = slots.size();
+
+        Literal[] negatives = new Literal[negativeFormulas.size()];
+        for(int position = 0; position < negatives.length; position++) {
+            negatives[position] = this.compileLiteral((Predicate) negativeFormulas.get(position), clause, slots);
+        }
+        if(slots.size() != boundSlotCount) {
+            throw new IllegalArgumentException("Rule " + clause
+                    + " is not safe: a Variable of a negated literal occurs in no positive literal.");
+        }
+
+        Literal head = this.compileLiteral(clause.getConsequent(), clause, slots);
+        if(slots.size() != boundSlotCount) {
+            throw new IllegalArgumentException("Rule " + clause
+                    + " is not range restricted: a Variable of its head occurs in no positive literal.");
+        }
+
+        return new CompiledRule(clause, head, positives, negatives, boundSlotCount);
+    }
+
+    /**
+     * Compiles a Predicate to its Predicate number and arguments. An argument is the Symbol id of
+     * a constant, or, for a Variable, the complement of the Variable's slot.
+     *
+     * @param predicate The Predicate.
+     * @param clause The clause the Predicate occurs in.
+     * @param slots The slots of the Variables of the clause compiled so far, to which the slots of
+     *  the Variables of the Predicate are added.
+     * @return the compiled literal.
+     * @throws IllegalArgumentException if a Term of the Predicate is neither a Variable nor a
+     *  constant.
+     */
+    private Literal compileLiteral(Predicate predicate, HornClause clause, HashMap<Variable, Integer> slots) {
+        int predicateNumber = this.getPredicateNumber(Pair.of(predicate.getSymbol(), predicate.getArity()));
+        int[] arguments = new int[predicate.getArity()];
+        List<Term> terms = predicate.getTerms();
+        for(int column = 0; column < arguments.length; column++) {
+            Term term = terms.get(column);
+            if(term instanceof Variable) {
+                Integer slot = slots.get(term);
+                if(slot == null) {
+                    slot = slots.size();
+                    slots.put((Variable) term, slot);
+                }
+                arguments[column] = ~slot;
+            }
+            else if(term.isConstant()) {
+                arguments[column] = term.getSymbol().getId();
+            }
+            else {
+                throw new IllegalArgumentException("Clause " + clause + " is not function-free: " + term);
+            }
+        }
+        return new Literal(predicateNumber, arguments);
+    }
+
+    /**
+     * Returns the number of a Predicate signature, numbering it if it has none yet.
+     *
+     * @param signature The Predicate signature.
+     * @return the number of the signature.
+     */
+    private int getPredicateNumber(Pair<Symbol, Integer> signature) {
+        Integer number = this.predicateNumbers.get(signature);
+        if(number == null) {
+            if(signature.getRight() > 31) {
+                throw new IllegalArgumentException("Cannot evaluate Predicates with more than 31 terms: " + signature);
+            }
+            number = this.signatures.size();
+            this.signatures.add(signature);
+            this.predicateNumbers.put(signature, number);
+        }
+        return number;
+    }
+
+    /**
+     * Splits the body of a rule into its positive and negated Predicates.
+     *
+     * @param formula The body, or a conjunct of it.
+     * @param clause The rule.
+     * @param positives The positive Predicates found so far.
+     * @param negatives The negated Predicates found so far.
+     * @throws IllegalArgumentException if the body is not a conjunction of literals.
+     */
+    private static void flatten(Formula formula, HornClause clause, List<Formula> positives, List<Formula> negatives) {
+        if(formula instanceof Predicate) {
+            positives.add(formula);
+        }
+        else if(formula instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) formula;
+            for(int operand = 0; operand < conjunction.operandCount(); operand++) {
+                flatten(conjunction.getOperand(operand), clause, positives, negatives);
+            }
+        }
+        else if(formula instanceof NotOperator && ((NotOperator) formula).getOperand(0) instanceof Predicate) {
+            negatives.add(((NotOperator) formula).getOperand(0));
+        }
+        else {
+            throw new IllegalArgumentException("The body of rule " + clause
+                    + " is not a conjunction of literals: " + formula);
+        }
+    }
+
+    /**
+     * Returns true if a Formula is a conjunction without operands.
+     *
+     * @param formula The Formula.
+     * @return true if the Formula is an empty AndOperator.
+     */
+    private static boolean isEmptyConjunction(Formula formula) {
+        return formula instanceof AndOperator && ((AndOperator) formula).isEmpty();
+    }
+}
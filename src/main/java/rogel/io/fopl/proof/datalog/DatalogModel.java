@@ -0,0 +1,105 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * A DatalogModel is the least model of a RuleSet, as computed by a DatalogEngine: a Relation per
+ * Predicate signature of the RuleSet, holding every ground fact that follows from it.
+ *
+ * @author recardona
+ */
+public class DatalogModel {
+
+    /** The Relations of the model, keyed by their signature. */
+    private HashMap<Pair<Symbol, Integer>, Relation> relations;
+
+    /** The number of semi-naive rounds the evaluation took, over every stratum. */
+    private int roundCount;
+
+    /**
+     * Constructs a DatalogModel.
+     *
+     * @param relations The Relations of the model, keyed by their signature.
+     * @param roundCount The number of semi-naive rounds the evaluation took.
+     */
+    DatalogModel(HashMap<Pair<Symbol, Integer>, Relation> relations, int roundCount) {
+        this.relations = relations;
+        this.roundCount = roundCount;
+    }
+
+    /**
+     * Returns the Relation of a Predicate signature.
+     *
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the Relation, or null if the RuleSet has no Predicate with the signature.
+     */
+    public Relation getRelation(Symbol predicateSymbol, int arity) {
+        return this.relations.get(Pair.of(predicateSymbol, arity));
+    }
+
+    /**
+     * Returns the Relations of this model.
+     *
+     * @return the Relations, one per Predicate signature of the RuleSet.
+     */
+    public Collection<Relation> getRelations() {
+        return Collections.unmodifiableCollection(this.relations.values());
+    }
+
+    /**
+     * Returns true if this model holds a ground fact.
+     *
+     * @param fact The fact, whose Terms are all constants, not null.
+     * @return true if the fact follows from the RuleSet.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    public boolean contains(Predicate fact) {
+        Relation relation = this.getRelation(fact.getSymbol(), fact.getArity());
+        if(relation == null) {
+            return false;
+        }
+
+        int[] symbolIds = new int[fact.getArity()];
+        List<Term> terms = fact.getTerms();
+        for(int column = 0; column < symbolIds.length; column++) {
+            Term term = terms.get(column);
+            if(!term.isConstant()) {
+                throw new IllegalArgumentException("Fact " + fact + " is not ground: " + term + " is not a constant.");
+            }
+            symbolIds[column] = term.getSymbol().getId();
+        }
+        return relation.contains(symbolIds);
+    }
+
+    /**
+     * Returns the number of facts in this model.
+     *
+     * @return the number of tuples over every Relation.
+     */
+    public long getFactCount() {
+        long factCount = 0;
+        for(Relation relation : this.relations.values()) {
+            factCount += relation.getFactCount();
+        }
+        return factCount;
+    }
+
+    /**
+     * Returns the number of semi-naive rounds the evaluation took, over every stratum.
+     *
+     * @return the number of rounds.
+     */
+    public int getRoundCount() {
+        return this.roundCount;
+    }
+}
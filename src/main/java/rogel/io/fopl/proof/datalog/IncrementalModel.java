@@ -0,0 +1,582 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * An IncrementalModel keeps the least model of a RuleSet up to date as facts are asserted and
+ * retracted, instead of evaluating the RuleSet again, and keeps the answers of its StandingQueries
+ * with it, telling their listeners what each update added and removed.
+ * <p>
+ * The model starts out as the DatalogModel of the RuleSet, whose facts and FactTable rows are its
+ * asserted facts. An update changes the asserted facts of the model, not the RuleSet, and then
+ * maintains the strata of the model one after the other, with the Delete and Rederive algorithm:
+ * <ul>
+ * <li>Overdelete: every tuple with a derivation that uses a deleted tuple is deleted as well,
+ * semi-naively, unless it is asserted.</li>
+ * <li>Rederive: the deleted tuples that the rules still derive from the tuples left are put
+ * back.</li>
+ * <li>Insert: the tuples derived from the inserted and the rederived tuples are added,
+ * semi-naively.</li>
+ * </ul>
+ * Each of these joins a rule with the changed tuples of one of its literals only, through the
+ * Relations' hash indexes, so that an update costs about as much as the derivations it changes.
+ * A stratum that negates a changed Predicate is evaluated again instead, from its asserted tuples,
+ * and compared with its previous tuples.
+ * <p>
+ * Deleted rows are only marked as pending during an update, and removed from their Relation when
+ * it is complete, so the rows of the model's Relations move when facts are removed.
+ *
+ * @author recardona
+ */
+public class IncrementalModel {
+
+    /** The engine that compiled and stratified the rules. */
+    private DatalogEngine engine;
+
+    /** The least model, kept up to date. */
+    private DatalogModel model;
+
+    /** The Relations of the model, by Predicate number. */
+    private Relation[] relations;
+
+    /** The StandingQueries over each Predicate, by Predicate number. */
+    private List<List<StandingQuery>> queries;
+
+    /** The tuples deleted by the current update, by Predicate number, some of which may be put back. */
+    private Relation[] deleted;
+
+    /** The tuples added or put back by the current update, by Predicate number. */
+    private Relation[] inserted;
+
+    /** The changed tuples the next round of the current stratum joins with, by Predicate number. */
+    private Relation[] next;
+
+    /**
+     * Constructs an IncrementalModel for a RuleSet, and evaluates its least model.
+     *
+     * @param rules The RuleSet, not null.
+     * @throws IllegalArgumentException if the RuleSet cannot be evaluated by a DatalogEngine.
+     */
+    public IncrementalModel(RuleSet rules) {
+        this.engine = new DatalogEngine(rules);
+        this.model = this.engine.evaluate();
+
+        List<Pair<Symbol, Integer>> signatures = this.engine.getSignatures();
+        this.relations = new Relation[signatures.size()];
+        this.queries = new ArrayList<List<StandingQuery>>();
+        for(int predicate = 0; predicate < this.relations.length; predicate++) {
+            Pair<Symbol, Integer> signature = signatures.get(predicate);
+            this.relations[predicate] = this.model.getRelation(signature.getLeft(), signature.getRight());
+            this.queries.add(new ArrayList<StandingQuery>());
+        }
+
+        for(Pair<Integer, int[]> fact : this.engine.getFacts()) {
+            Relation relation = this.relations[fact.getLeft()];
+            relation.setState(relation.find(fact.getRight()), Relation.EXPLICIT);
+        }
+        for(FactTable factTable : rules.getFactTables()) {
+            Relation relation = this.relations[this.engine.findPredicateNumber(factTable.getSignature())];
+            int[] tuple = new int[factTable.getArity()];
+            for(int row = 0; row < factTable.getFactCount(); row++) {
+                for(int column = 0; column < tuple.length; column++) {
+                    tuple[column] = factTable.getSymbolId(row, column);
+                }
+                relation.setState(relation.find(tuple), Relation.EXPLICIT);
+            }
+        }
+    }
+
+    /**
+     * Returns the least model, as of the last update.
+     *
+     * @return the model.
+     */
+    public DatalogModel getModel() {
+        return this.model;
+    }
+
+    /**
+     * Returns true if the model holds a ground fact.
+     *
+     * @param fact The fact, whose Terms are all constants, not null.
+     * @return true if the fact follows from the asserted facts and the rules.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    public boolean contains(Predicate fact) {
+        return this.model.contains(fact);
+    }
+
+    /**
+     * Asserts a ground fact, and updates the model.
+     *
+     * @param fact The fact, not null.
+     * @throws IllegalArgumentException if the fact is not ground, or if its Predicate signature is
+     *  not one of the RuleSet's.
+     */
+    public void assertFact(Predicate fact) {
+        this.update(Collections.singletonList(fact), Collections.<Predicate>emptyList());
+    }
+
+    /**
+     * Retracts an asserted ground fact, and updates the model. The fact still holds afterwards if
+     * the rules derive it from the other facts; retracting a fact that was not asserted does
+     * nothing.
+     *
+     * @param fact The fact, not null.
+     * @throws IllegalArgumentException if the fact is not ground, or if its Predicate signature is
+     *  not one of the RuleSet's.
+     */
+    public void retractFact(Predicate fact) {
+        this.update(Collections.<Predicate>emptyList(), Collections.singletonList(fact));
+    }
+
+    /**
+     * Asserts and retracts ground facts at once, and updates the model. The retractions are
+     * applied first, so a fact in both lists stays asserted. The listeners of the StandingQueries
+     * whose answers changed are told once, when the update is complete.
+     *
+     * @param assertions The facts to assert, not null.
+     * @param retractions The facts to retract, not null.
+     * @throws IllegalArgumentException if a fact is not ground, or if its Predicate signature is
+     *  not one of the RuleSet's, in which case the model is not changed.
+     */
+    public void update(List<Predicate> assertions, List<Predicate> retractions) {
+        List<Pair<Integer, int[]>> compiledAssertions = this.compileFacts(assertions);
+        List<Pair<Integer, int[]>> compiledRetractions = this.compileFacts(retractions);
+
+        this.deleted = new Relation[this.relations.length];
+        this.inserted = new Relation[this.relations.length];
+        for(int predicate = 0; predicate < this.relations.length; predicate++) {
+            Relation relation = this.relations[predicate];
+            this.deleted[predicate] = new Relation(relation.getPredicateSymbol(), relation.getArity());
+            this.inserted[predicate] = new Relation(relation.getPredicateSymbol(), relation.getArity());
+        }
+
+        for(Pair<Integer, int[]> fact : compiledRetractions) {
+            Relation relation = this.relations[fact.getLeft()];
+            int row = relation.find(fact.getRight());
+            if(row >= 0 && (relation.getState(row) & Relation.EXPLICIT) != 0) {
+                relation.setState(row, Relation.PENDING);
+                this.deleted[fact.getLeft()].add(fact.getRight());
+            }
+        }
+        for(Pair<Integer, int[]> fact : compiledAssertions) {
+            Relation relation = this.relations[fact.getLeft()];
+            int row = relation.find(fact.getRight());
+            if(row < 0) {
+                relation.add(fact.getRight());
+                relation.setState(relation.getFactCount() - 1, Relation.EXPLICIT);
+                this.inserted[fact.getLeft()].add(fact.getRight());
+            }
+            else {
+                if((relation.getState(row) & Relation.PENDING) != 0) {
+                    this.inserted[fact.getLeft()].add(fact.getRight());
+                }
+                relation.setState(row, Relation.EXPLICIT);
+            }
+        }
+
+        for(int stratum = 0; stratum < this.engine.getStratumCount(); stratum++) {
+            if(this.negatesChangedPredicate(stratum)) {
+                this.recomputeStratum(stratum);
+            }
+            else {
+                this.overdelete(stratum);
+                this.rederive(stratum);
+                this.insert(stratum);
+            }
+        }
+
+        List<List<Predicate>> added = new ArrayList<List<Predicate>>();
+        List<List<Predicate>> removed = new ArrayList<List<Predicate>>();
+        for(int predicate = 0; predicate < this.relations.length; predicate++) {
+            added.add(this.collectAdded(predicate));
+            removed.add(this.collectRemoved(predicate));
+        }
+        this.deleted = null;
+        this.inserted = null;
+        this.next = null;
+
+        for(int predicate = 0; predicate < this.relations.length; predicate++) {
+            for(StandingQuery query : this.queries.get(predicate)) {
+                List<Predicate> queryAdded = filter(query, added.get(predicate));
+                List<Predicate> queryRemoved = filter(query, removed.get(predicate));
+                if(!queryAdded.isEmpty() || !queryRemoved.isEmpty()) {
+                    query.getListener().answersChanged(query, queryAdded, queryRemoved);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a StandingQuery over the model.
+     *
+     * @param goal The goal of the query, whose Terms are constants or Variables, not null.
+     * @param listener The listener told of the query's changes, not null.
+     * @return the query, whose current answers are available at once.
+     * @throws IllegalArgumentException if the goal has a Term that is neither a constant nor a
+     *  Variable, or if its Predicate signature is not one of the RuleSet's.
+     */
+    public StandingQuery addQuery(Predicate goal, StandingQueryListener listener) {
+        if(goal == null || listener == null) {
+            throw new IllegalArgumentException("Cannot add a StandingQuery with a null goal or listener.");
+        }
+        int predicate = this.getPredicateNumber(goal);
+        if(goal.getTerms() != null) {
+            for(Term term : goal.getTerms()) {
+                if(term instanceof Function && !((Function) term).isConstant()) {
+                    throw new IllegalArgumentException("Cannot add a StandingQuery with goal " + goal
+                            + ": " + term + " is not a constant.");
+                }
+            }
+        }
+        StandingQuery query = new StandingQuery(goal, this.relations[predicate], listener);
+        this.queries.get(predicate).add(query);
+        return query;
+    }
+
+    /**
+     * Removes a StandingQuery, whose listener is no longer told of its changes.
+     *
+     * @param query The query.
+     * @return true if the query was one of this model's.
+     */
+    public boolean removeQuery(StandingQuery query) {
+        for(List<StandingQuery> predicateQueries : this.queries) {
+            if(predicateQueries.remove(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if a rule of a stratum negates a Predicate that the current update changed.
+     *
+     * @param stratum The stratum.
+     * @return true if the stratum must be evaluated again.
+     */
+    private boolean negatesChangedPredicate(int stratum) {
+        for(CompiledRule rule : this.engine.getStratumRules(stratum)) {
+            for(Literal literal : rule.negatives) {
+                if(this.deleted[literal.predicate].getFactCount() > 0
+                        || this.inserted[literal.predicate].getFactCount() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the tuples of a stratum with a derivation that uses a deleted tuple, semi-naively.
+     * The joins see the model as it was before the update, pending rows included.
+     *
+     * @param stratum The stratum.
+     */
+    private void overdelete(int stratum) {
+        JoinPlan.Sink sink = new JoinPlan.Sink() {
+
+            /*
+             * (non-Javadoc)
+             * @see rogel.io.fopl.proof.datalog.JoinPlan.Sink#derive(int, int[])
+             */
+            @Override
+            void derive(int predicate, int[] tuple) {
+                Relation relation = IncrementalModel.this.relations[predicate];
+                int row = relation.find(tuple);
+                if(row >= 0 && relation.getState(row) == 0) {
+                    relation.setState(row, Relation.PENDING);
+                    IncrementalModel.this.deleted[predicate].add(tuple);
+                    IncrementalModel.this.next[predicate].add(tuple);
+                }
+            }
+        };
+        this.propagate(stratum, this.deleted, 0, sink);
+    }
+
+    /**
+     * Puts back the deleted tuples of a stratum that its rules still derive from the tuples that
+     * are not pending.
+     *
+     * @param stratum The stratum.
+     */
+    private void rederive(int stratum) {
+        JoinPlan.Sink sink = new JoinPlan.Sink() {
+
+            /*
+             * (non-Javadoc)
+             * @see rogel.io.fopl.proof.datalog.JoinPlan.Sink#derive(int, int[])
+             */
+            @Override
+            void derive(int predicate, int[] tuple) {
+                Relation relation = IncrementalModel.this.relations[predicate];
+                int row = relation.find(tuple);
+                if((relation.getState(row) & Relation.PENDING) != 0) {
+                    relation.setState(row, relation.getState(row) & ~Relation.PENDING);
+                    IncrementalModel.this.inserted[predicate].add(tuple);
+                }
+            }
+        };
+        for(CompiledRule rule : this.engine.getStratumRules(stratum)) {
+            if(this.deleted[rule.head.predicate].getFactCount() > 0) {
+                rule.getRederivePlan().run(this.relations, this.deleted, null, null, Relation.PENDING, sink);
+            }
+        }
+    }
+
+    /**
+     * Adds the tuples of a stratum derived from an inserted tuple, semi-naively. The joins skip
+     * the pending rows.
+     *
+     * @param stratum The stratum.
+     */
+    private void insert(int stratum) {
+        JoinPlan.Sink sink = new JoinPlan.Sink() {
+
+            /*
+             * (non-Javadoc)
+             * @see rogel.io.fopl.proof.datalog.JoinPlan.Sink#derive(int, int[])
+             */
+            @Override
+            void derive(int predicate, int[] tuple) {
+                Relation relation = IncrementalModel.this.relations[predicate];
+                int row = relation.find(tuple);
+                if(row < 0) {
+                    relation.add(tuple);
+                }
+                else if((relation.getState(row) & Relation.PENDING) != 0) {
+                    relation.setState(row, relation.getState(row) & ~Relation.PENDING);
+                }
+                else {
+                    return;
+                }
+                IncrementalModel.this.inserted[predicate].add(tuple);
+                IncrementalModel.this.next[predicate].add(tuple);
+            }
+        };
+        this.propagate(stratum, this.inserted, Relation.PENDING, sink);
+    }
+
+    /**
+     * Joins the rules of a stratum with changed tuples until no new change is found: first with
+     * the changes to every Predicate so far, then, round after round, with the changes to the
+     * stratum's Predicates the previous round found.
+     *
+     * @param stratum The stratum.
+     * @param changes The changes to every Predicate so far, by Predicate number.
+     * @param skippedStates The states of the rows the joins skip.
+     * @param sink The Sink that applies the changes the joins find, and records them in next.
+     */
+    private void propagate(int stratum, Relation[] changes, int skippedStates, JoinPlan.Sink sink) {
+        List<CompiledRule> stratumRules = this.engine.getStratumRules(stratum);
+        Relation[] delta = changes;
+        boolean changed = true;
+        while(changed) {
+            this.next = new Relation[this.relations.length];
+            for(int predicate = 0; predicate < this.relations.length; predicate++) {
+                Relation relation = this.relations[predicate];
+                this.next[predicate] = new Relation(relation.getPredicateSymbol(), relation.getArity());
+            }
+
+            for(CompiledRule rule : stratumRules) {
+                for(int position = 0; position < rule.positives.length; position++) {
+                    if(delta[rule.positives[position].predicate].getFactCount() > 0) {
+                        rule.getChangePlan(position).run(this.relations, delta, null, null, skippedStates, sink);
+                    }
+                }
+            }
+
+            changed = false;
+            for(Relation relation : this.next) {
+                changed |= relation.getFactCount() > 0;
+            }
+            delta = this.next;
+        }
+    }
+
+    /**
+     * Evaluates a stratum again from its asserted tuples, and applies the differences with its
+     * previous tuples.
+     *
+     * @param stratum The stratum.
+     */
+    private void recomputeStratum(int stratum) {
+        Relation[] fresh = this.relations.clone();
+        int[] oldEnds = new int[fresh.length];
+        int[] newEnds = new int[fresh.length];
+        for(int predicate = 0; predicate < fresh.length; predicate++) {
+            if(this.engine.getPredicateStratum(predicate) == stratum) {
+                Relation relation = this.relations[predicate];
+                fresh[predicate] = new Relation(relation.getPredicateSymbol(), relation.getArity());
+                int[] tuple = new int[relation.getArity()];
+                for(int row = 0; row < relation.getFactCount(); row++) {
+                    if(relation.getState(row) == Relation.EXPLICIT) {
+                        fresh[predicate].add(copyRow(relation, row, tuple));
+                    }
+                }
+            }
+            oldEnds[predicate] = fresh[predicate].getFactCount();
+            newEnds[predicate] = oldEnds[predicate];
+        }
+
+        this.engine.evaluateStratum(stratum, fresh, oldEnds, newEnds, Relation.PENDING);
+
+        for(int predicate = 0; predicate < fresh.length; predicate++) {
+            if(this.engine.getPredicateStratum(predicate) != stratum) {
+                continue;
+            }
+            Relation relation = this.relations[predicate];
+            int[] tuple = new int[relation.getArity()];
+            for(int row = 0; row < relation.getFactCount(); row++) {
+                if((relation.getState(row) & Relation.PENDING) == 0
+                        && !fresh[predicate].contains(copyRow(relation, row, tuple))) {
+                    relation.setState(row, relation.getState(row) | Relation.PENDING);
+                    this.deleted[predicate].add(tuple);
+                }
+            }
+            for(int row = 0; row < fresh[predicate].getFactCount(); row++) {
+                copyRow(fresh[predicate], row, tuple);
+                int previous = relation.find(tuple);
+                if(previous < 0) {
+                    relation.add(tuple);
+                }
+                else if((relation.getState(previous) & Relation.PENDING) != 0) {
+                    relation.setState(previous, relation.getState(previous) & ~Relation.PENDING);
+                }
+                else {
+                    continue;
+                }
+                this.inserted[predicate].add(tuple);
+            }
+        }
+    }
+
+    /**
+     * Lists the tuples of a Predicate the current update added, that is the inserted tuples that
+     * were not deleted first.
+     *
+     * @param predicate The number of the Predicate signature.
+     * @return the added facts.
+     */
+    private List<Predicate> collectAdded(int predicate) {
+        List<Predicate> added = new ArrayList<Predicate>();
+        Relation relation = this.inserted[predicate];
+        int[] tuple = new int[relation.getArity()];
+        for(int row = 0; row < relation.getFactCount(); row++) {
+            if(!this.deleted[predicate].contains(copyRow(relation, row, tuple))) {
+                added.add(relation.getFact(row));
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Lists the tuples of a Predicate the current update removed, that is the deleted tuples that
+     * are still pending, and removes their rows from the Predicate's Relation.
+     *
+     * @param predicate The number of the Predicate signature.
+     * @return the removed facts.
+     */
+    private List<Predicate> collectRemoved(int predicate) {
+        List<Predicate> removed = new ArrayList<Predicate>();
+        Relation relation = this.deleted[predicate];
+        int[] tuple = new int[relation.getArity()];
+        for(int row = 0; row < relation.getFactCount(); row++) {
+            int modelRow = this.relations[predicate].find(copyRow(relation, row, tuple));
+            if((this.relations[predicate].getState(modelRow) & Relation.PENDING) != 0) {
+                this.relations[predicate].remove(modelRow);
+                removed.add(relation.getFact(row));
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Compiles ground facts to their Predicate number and Symbol ids.
+     *
+     * @param facts The facts.
+     * @return the Predicate number and Symbol ids of each fact.
+     * @throws IllegalArgumentException if a fact is not ground, or if its Predicate signature is
+     *  not one of the RuleSet's.
+     */
+    private List<Pair<Integer, int[]>> compileFacts(List<Predicate> facts) {
+        List<Pair<Integer, int[]>> compiled = new ArrayList<Pair<Integer, int[]>>();
+        for(Predicate fact : facts) {
+            int predicate = this.getPredicateNumber(fact);
+            int[] symbolIds = new int[fact.getArity()];
+            for(int column = 0; column < symbolIds.length; column++) {
+                Term term = fact.getTerms().get(column);
+                if(!term.isConstant()) {
+                    throw new IllegalArgumentException("Fact " + fact + " is not ground: " + term + " is not a constant.");
+                }
+                symbolIds[column] = term.getSymbol().getId();
+            }
+            compiled.add(Pair.of(predicate, symbolIds));
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the number of the Predicate signature of a fact or goal.
+     *
+     * @param predicate The fact or goal, not null.
+     * @return the number of its Predicate signature.
+     * @throws IllegalArgumentException if the signature is not one of the RuleSet's.
+     */
+    private int getPredicateNumber(Predicate predicate) {
+        Integer number = this.engine.findPredicateNumber(Pair.of(predicate.getSymbol(), predicate.getArity()));
+        if(number == null) {
+            throw new IllegalArgumentException("The RuleSet has no Predicate " + predicate.getSymbol()
+                    + " of arity " + predicate.getArity() + ".");
+        }
+        return number;
+    }
+
+    /**
+     * Copies the Symbol ids of a row of a Relation.
+     *
+     * @param relation The Relation.
+     * @param row The row.
+     * @param tuple The array to copy them to.
+     * @return the array.
+     */
+    private static int[] copyRow(Relation relation, int row, int[] tuple) {
+        for(int column = 0; column < tuple.length; column++) {
+            tuple[column] = relation.getSymbolId(row, column);
+        }
+        return tuple;
+    }
+
+    /**
+     * Selects the facts that answer a StandingQuery.
+     *
+     * @param query The query.
+     * @param facts The facts of the query's Predicate.
+     * @return the answers among the facts.
+     */
+    private static List<Predicate> filter(StandingQuery query, List<Predicate> facts) {
+        List<Predicate> answers = new ArrayList<Predicate>();
+        for(Predicate fact : facts) {
+            int[] tuple = new int[fact.getArity()];
+            for(int column = 0; column < tuple.length; column++) {
+                tuple[column] = fact.getTerms().get(column).getSymbol().getId();
+            }
+            if(query.matches(tuple)) {
+                answers.add(fact);
+            }
+        }
+        return answers;
+    }
+}
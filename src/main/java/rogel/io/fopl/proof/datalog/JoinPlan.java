@@ -0,0 +1,379 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JoinPlan evaluates a rule by joining its positive literals one after the other, starting with
+ * its delta literal, if it has one. For each literal, the plan knows which columns are bound by
+ * the literals before it, and looks the matching rows up through the Relation's hash index over
+ * those columns. The Variables first bound by a literal are read from its rows; a Variable that
+ * occurs twice in the literal is checked instead.
+ * <p>
+ * A plan reads its delta literal either from a range of rows of the literal's Relation, when a
+ * stratum is evaluated semi-naively, or from a separate Relation of changed tuples, when an
+ * IncrementalModel is updated.
+ *
+ * @author recardona
+ */
+final class JoinPlan {
+
+    /** The rows of a Relation a literal joins with: those found before the previous round. */
+    static final int OLD = 0;
+
+    /** The rows of a Relation a literal joins with: those found in the previous round. */
+    static final int DELTA = 1;
+
+    /** The rows of a Relation a literal joins with: all of them. */
+    static final int ALL = 2;
+
+    /** The rule this plan evaluates. */
+    final CompiledRule rule;
+
+    /** The Predicate number of each step. */
+    private final int[] predicates;
+
+    /** The rows of its Relation each step joins with: OLD, DELTA or ALL. */
+    private final int[] ranges;
+
+    /** The column mask of the bound columns of each step, or 0 if it has none. */
+    private final int[] masks;
+
+    /** The arguments of the bound columns of each step, in column order. */
+    private final int[][] keyArguments;
+
+    /** The key of each step, filled in from the bound arguments. */
+    private final int[][] keys;
+
+    /** The columns of each step that bind a Variable. */
+    private final int[][] bindColumns;
+
+    /** The slot each of those columns binds. */
+    private final int[][] bindSlots;
+
+    /** The columns of each step that repeat a Variable bound earlier in the same step. */
+    private final int[][] checkColumns;
+
+    /** The slot each of those columns must equal. */
+    private final int[][] checkSlots;
+
+    /** The values of the Variables of the rule. */
+    private final int[] slots;
+
+    /** The tuple the head or a negated literal is built in. */
+    private final int[][] tuples;
+
+    /** The Relations of the current run, by Predicate number. */
+    private Relation[] relations;
+
+    /** The Relations of changed tuples of the current run, by Predicate number, or null. */
+    private Relation[] changes;
+
+    /** The end of the rows of each Relation found before the previous round, in the current run. */
+    private int[] oldEnds;
+
+    /** The end of the rows of each Relation found before the current round, in the current run. */
+    private int[] newEnds;
+
+    /** The states of the rows the current run skips. */
+    private int skippedStates;
+
+    /** The Sink of the current run. */
+    private Sink sink;
+
+    /**
+     * Constructs a JoinPlan for a rule.
+     *
+     * @param rule The rule.
+     * @param literals The positive literals to join, which are the rule's positive literals, or,
+     *  to rederive heads, its head followed by them.
+     * @param deltaPosition The position of the delta literal among the literals, or -1 to join
+     *  every literal with all of its rows.
+     * @param predicateStrata The stratum of each Predicate, or null to join the literals other
+     *  than the delta literal with all of their rows.
+     * @param stratum The stratum of the rule.
+     */
+    JoinPlan(CompiledRule rule, Literal[] literals, int deltaPosition, int[] predicateStrata, int stratum) {
+        this.rule = rule;
+        int stepCount = literals.length;
+        this.predicates = new int[stepCount];
+        this.ranges = new int[stepCount];
+        this.masks = new int[stepCount];
+        this.keyArguments = new int[stepCount][];
+        this.keys = new int[stepCount][];
+        this.bindColumns = new int[stepCount][];
+        this.bindSlots = new int[stepCount][];
+        this.checkColumns = new int[stepCount][];
+        this.checkSlots = new int[stepCount][];
+        this.slots = new int[rule.slotCount];
+        this.tuples = new int[rule.negatives.length + 1][];
+        this.tuples[0] = new int[rule.head.arguments.length];
+        for(int negative = 0; negative < rule.negatives.length; negative++) {
+            this.tuples[negative + 1] = new int[rule.negatives[negative].arguments.length];
+        }
+
+        // The delta literal goes first; the others keep their order.
+        int[] order = new int[stepCount];
+        int step = 0;
+        if(deltaPosition >= 0) {
+            order[step++] = deltaPosition;
+        }
+        for(int position = 0; position < stepCount; position++) {
+            if(position != deltaPosition) {
+                order[step++] = position;
+            }
+        }
+
+        boolean[] bound = new boolean[rule.slotCount];
+        for(step = 0; step < stepCount; step++) {
+            int position = order[step];
+            Literal literal = literals[position];
+            this.predicates[step] = literal.predicate;
+            if(position == deltaPosition) {
+                this.ranges[step] = DELTA;
+            }
+            else if(deltaPosition < 0 || predicateStrata == null || predicateStrata[literal.predicate] != stratum) {
+                this.ranges[step] = ALL;
+            }
+            else {
+                // Literals before the delta literal join with old rows only, so that a derivation
+                // using delta rows in several literals is made by one plan, not by each of them.
+                this.ranges[step] = position < deltaPosition ? OLD : ALL;
+            }
+            this.compileStep(step, literal, bound);
+        }
+    }
+
+    /**
+     * Runs this plan.
+     *
+     * @param relations The Relations, by Predicate number.
+     * @param changes The Relations of changed tuples the delta literal joins with, or null to
+     *  join it with a range of rows of its Relation.
+     * @param oldEnds The end of the rows of each Relation found before the previous round, or
+     *  null if changes is not null.
+     * @param newEnds The end of the rows of each Relation found before the current round, or null
+     *  if changes is not null.
+     * @param skippedStates The states of the rows to skip, or 0 to join with every row.
+     * @param sink The Sink of the heads the plan derives, or null to add them to their Relation.
+     */
+    void run(Relation[] relations, Relation[] changes, int[] oldEnds, int[] newEnds, int skippedStates, Sink sink) {
+        this.relations = relations;
+        this.changes = changes;
+        this.oldEnds = oldEnds;
+        this.newEnds = newEnds;
+        this.skippedStates = skippedStates;
+        this.sink = sink;
+        this.join(0);
+        this.relations = null;
+        this.changes = null;
+        this.sink = null;
+    }
+
+    /**
+     * Splits the columns of a step into those bound by the steps before it, those that bind a
+     * Variable, and those that repeat a Variable bound by the step itself.
+     *
+     * @param step The step.
+     * @param literal The literal of the step.
+     * @param bound Whether each slot is bound by the steps before, updated for this step.
+     */
+    private void compileStep(int step, Literal literal, boolean[] bound) {
+        List<Integer> keyArguments = new ArrayList<Integer>();
+        List<Integer> bindColumns = new ArrayList<Integer>();
+        List<Integer> checkColumns = new ArrayList<Integer>();
+        boolean[] boundHere = new boolean[bound.length];
+        for(int column = 0; column < literal.arguments.length; column++) {
+            int argument = literal.arguments[column];
+            if(argument >= 0 || bound[~argument]) {
+                this.masks[step] |= 1 << column;
+                keyArguments.add(argument);
+            }
+            else if(boundHere[~argument]) {
+                checkColumns.add(column);
+            }
+            else {
+                boundHere[~argument] = true;
+                bindColumns.add(column);
+            }
+        }
+        for(int slot = 0; slot < bound.length; slot++) {
+            bound[slot] |= boundHere[slot];
+        }
+
+        this.keyArguments[step] = toArray(keyArguments);
+        this.keys[step] = new int[keyArguments.size()];
+        this.bindColumns[step] = toArray(bindColumns);
+        this.bindSlots[step] = new int[bindColumns.size()];
+        for(int position = 0; position < bindColumns.size(); position++) {
+            this.bindSlots[step][position] = ~literal.arguments[bindColumns.get(position)];
+        }
+        this.checkColumns[step] = toArray(checkColumns);
+        this.checkSlots[step] = new int[checkColumns.size()];
+        for(int position = 0; position < checkColumns.size(); position++) {
+            this.checkSlots[step][position] = ~literal.arguments[checkColumns.get(position)];
+        }
+    }
+
+    /**
+     * Joins a step with the rows of its Relation that match the Variables bound so far, and
+     * recurses on the next step for each of them. After the last step, the negated literals are
+     * checked, and the head is derived.
+     *
+     * @param step The step.
+     */
+    private void join(int step) {
+        if(step == this.predicates.length) {
+            this.derive();
+            return;
+        }
+
+        int predicate = this.predicates[step];
+        Relation relation;
+        int low;
+        int high;
+        int skippedStates = this.skippedStates;
+        if(this.changes != null) {
+            relation = this.ranges[step] == DELTA ? this.changes[predicate] : this.relations[predicate];
+            low = 0;
+            high = relation.getFactCount();
+            if(this.ranges[step] == DELTA) {
+                skippedStates = 0;
+            }
+        }
+        else {
+            relation = this.relations[predicate];
+            low = this.ranges[step] == DELTA ? this.oldEnds[predicate] : 0;
+            high = this.ranges[step] == OLD ? this.oldEnds[predicate] : this.newEnds[predicate];
+        }
+        if(low >= high) {
+            return;
+        }
+
+        int arity = relation.getArity();
+        if(this.masks[step] == 0) {
+            for(int row = low; row < high; row++) {
+                if((skippedStates == 0 || (relation.getState(row) & skippedStates) == 0)
+                        && this.bind(step, relation.getData(), row * arity)) {
+                    this.join(step + 1);
+                }
+            }
+            return;
+        }
+
+        int[] key = this.keys[step];
+        int[] keyArguments = this.keyArguments[step];
+        for(int position = 0; position < key.length; position++) {
+            int argument = keyArguments[position];
+            key[position] = argument >= 0 ? argument : this.slots[~argument];
+        }
+
+        // Chains run from the newest row to the oldest, so rows at or past the range's end are
+        // skipped, and the first row before its start ends the scan.
+        TupleIndex index = relation.getIndex(this.masks[step]);
+        int[] columns = index.getColumns();
+        for(int row = index.first(key); row >= low; row = index.next(row)) {
+            if(row >= high || (skippedStates != 0 && (relation.getState(row) & skippedStates) != 0)) {
+                continue;
+            }
+            int[] data = relation.getData();
+            int offset = row * arity;
+            boolean matches = true;
+            for(int position = 0; matches && position < key.length; position++) {
+                matches = data[offset + columns[position]] == key[position];
+            }
+            if(matches && this.bind(step, data, offset)) {
+                this.join(step + 1);
+            }
+        }
+    }
+
+    /**
+     * Binds the Variables a step reads from a row, and checks its repeated Variables.
+     *
+     * @param step The step.
+     * @param data The tuples of the step's Relation.
+     * @param offset The offset of the row in the tuples.
+     * @return false if a repeated Variable does not match.
+     */
+    private boolean bind(int step, int[] data, int offset) {
+        int[] bindColumns = this.bindColumns[step];
+        int[] bindSlots = this.bindSlots[step];
+        for(int position = 0; position < bindColumns.length; position++) {
+            this.slots[bindSlots[position]] = data[offset + bindColumns[position]];
+        }
+        int[] checkColumns = this.checkColumns[step];
+        int[] checkSlots = this.checkSlots[step];
+        for(int position = 0; position < checkColumns.length; position++) {
+            if(this.slots[checkSlots[position]] != data[offset + checkColumns[position]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the negated literals of the rule against the bound Variables, and derives its head
+     * if none of them holds.
+     */
+    private void derive() {
+        Literal[] negatives = this.rule.negatives;
+        for(int negative = 0; negative < negatives.length; negative++) {
+            int[] tuple = this.fill(negatives[negative], this.tuples[negative + 1]);
+            if(this.relations[negatives[negative].predicate].contains(tuple)) {
+                return;
+            }
+        }
+        Literal head = this.rule.head;
+        int[] tuple = this.fill(head, this.tuples[0]);
+        if(this.sink == null) {
+            this.relations[head.predicate].add(tuple);
+        }
+        else {
+            this.sink.derive(head.predicate, tuple);
+        }
+    }
+
+    /**
+     * Fills in the tuple of a literal from its constants and the bound Variables.
+     *
+     * @param literal The literal.
+     * @param tuple The tuple to fill in.
+     * @return the tuple.
+     */
+    private int[] fill(Literal literal, int[] tuple) {
+        for(int column = 0; column < tuple.length; column++) {
+            int argument = literal.arguments[column];
+            tuple[column] = argument >= 0 ? argument : this.slots[~argument];
+        }
+        return tuple;
+    }
+
+    /**
+     * Copies a List of Integers to an array.
+     *
+     * @param values The values.
+     * @return the array of the values.
+     */
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for(int position = 0; position < array.length; position++) {
+            array[position] = values.get(position);
+        }
+        return array;
+    }
+
+    /**
+     * A Sink receives the heads a JoinPlan derives, instead of their Relation.
+     */
+    abstract static class Sink {
+
+        /**
+         * Receives a derived head.
+         *
+         * @param predicate The number of the Predicate signature of the head.
+         * @param tuple The Symbol ids of the head, which are overwritten by the next derivation.
+         */
+        abstract void derive(int predicate, int[] tuple);
+    }
+}
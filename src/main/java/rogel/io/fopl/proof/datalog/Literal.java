@@ -0,0 +1,27 @@
+package rogel.io.fopl.proof.datalog;
+
+/**
+ * A Literal is a compiled Predicate: its Predicate number, and an argument per column, which is
+ * the Symbol id of a constant, or the complement of a Variable's slot.
+ *
+ * @author recardona
+ */
+final class Literal {
+
+    /** The number of the Predicate's signature. */
+    final int predicate;
+
+    /** The arguments of the Predicate. */
+    final int[] arguments;
+
+    /**
+     * Constructs a Literal.
+     *
+     * @param predicate The number of the Predicate's signature.
+     * @param arguments The arguments of the Predicate.
+     */
+    Literal(int predicate, int[] arguments) {
+        this.predicate = predicate;
+        this.arguments = arguments;
+    }
+}
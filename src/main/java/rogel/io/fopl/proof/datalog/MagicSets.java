@@ -0,0 +1,444 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * MagicSets rewrites a RuleSet for a goal, so that the bottom-up evaluation of the rewritten
+ * RuleSet only derives the facts relevant to the goal, as a top-down solver would.
+ * <p>
+ * Each Predicate defined by rules is adorned with the binding pattern it is called with: a
+ * {@code b} for each bound term and an {@code f} for each free one, so that {@code (path a ?Y)}
+ * calls {@code path_bf}. The rules of an adorned Predicate only fire for the calls recorded in
+ * its magic Predicate ({@code magic_path_bf}), which holds the bound terms of each call. The
+ * calls are found as a top-down solver finds them: the goal is the first one, and each rule
+ * passes the Variables bound by its head and by the literals before a call on to it.
+ * <p>
+ * Negated literals are not rewritten: they are evaluated against the original rules of their
+ * Predicate, which are kept in the rewritten RuleSet, so that the rewriting never breaks the
+ * stratification of the rules.
+ *
+ * @author recardona
+ */
+public class MagicSets {
+
+    /** The prefix of the Symbols of magic Predicates. */
+    private static final String MAGIC_PREFIX = "magic_";
+
+    /** The RuleSet that was rewritten. */
+    private RuleSet rules;
+
+    /** The goal the RuleSet was rewritten for. */
+    private Predicate goal;
+
+    /** The goal, over its adorned Predicate. */
+    private Predicate adornedGoal;
+
+    /** The rewritten RuleSet. */
+    private RuleSet rewrittenRules;
+
+    /** The signatures of the Predicates defined by rules of the original RuleSet. */
+    private Set<Pair<Symbol, Integer>> derivedPredicates;
+
+    /**
+     * Rewrites a RuleSet for a goal.
+     *
+     * @param rules The RuleSet, not null.
+     * @param goal The goal, whose Terms are Variables or constants, not null.
+     * @throws IllegalArgumentException if a Term of the goal is neither a Variable nor a
+     *  constant.
+     */
+    public MagicSets(RuleSet rules, Predicate goal) {
+        if(rules == null || goal == null) {
+            throw new IllegalArgumentException("Cannot rewrite a null RuleSet or for a null goal.");
+        }
+        this.rules = rules;
+        this.goal = goal;
+        this.derivedPredicates = new HashSet<Pair<Symbol, Integer>>();
+        for(int index = 0; index < rules.getRuleCount(); index++) {
+            HornClause clause = rules.getRule(index);
+            if(clause.isDefiniteClause()) {
+                this.derivedPredicates.add(signature(clause.getConsequent()));
+            }
+        }
+
+        StringBuilder adornment = new StringBuilder();
+        for(Term term : terms(goal)) {
+            if(term instanceof Variable) {
+                adornment.append('f');
+            }
+            else if(term.isConstant()) {
+                adornment.append('b');
+            }
+            else {
+                throw new IllegalArgumentException("Goal " + goal + " has a Term that is neither a Variable nor a constant: " + term);
+            }
+        }
+        this.rewrite(adornment.toString());
+    }
+
+    /**
+     * Returns the RuleSet that was rewritten.
+     *
+     * @return the original RuleSet.
+     */
+    public RuleSet getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Returns the rewritten RuleSet. It shares the FactTables of the original RuleSet.
+     *
+     * @return the rewritten RuleSet.
+     */
+    public RuleSet getRewrittenRules() {
+        return this.rewrittenRules;
+    }
+
+    /**
+     * Returns the goal over its adorned Predicate, whose tuples in the model of the rewritten
+     * RuleSet include the answers to the goal.
+     *
+     * @return the adorned goal.
+     */
+    public Predicate getAdornedGoal() {
+        return this.adornedGoal;
+    }
+
+    /**
+     * Evaluates the rewritten RuleSet bottom-up, and returns the answers to the goal.
+     *
+     * @return the ground instances of the goal that follow from the original RuleSet.
+     */
+    public List<Predicate> solve() {
+        return this.getAnswers(new DatalogEngine(this.rewrittenRules).evaluate());
+    }
+
+    /**
+     * Returns the answers to the goal in the model of the rewritten RuleSet.
+     *
+     * @param model The model of the rewritten RuleSet.
+     * @return the ground instances of the goal that follow from the original RuleSet.
+     */
+    public List<Predicate> getAnswers(DatalogModel model) {
+        List<Predicate> answers = new ArrayList<Predicate>();
+        Relation relation = model.getRelation(this.adornedGoal.getSymbol(), this.adornedGoal.getArity());
+        if(relation == null) {
+            return answers;
+        }
+
+        // The adorned Relation may hold the answers to other calls as well: only those matching the
+        // goal's constants, and its repeated Variables, are answers to it.
+        List<Term> goalTerms = terms(this.goal);
+        int[] pattern = new int[goalTerms.size()];
+        for(int column = 0; column < pattern.length; column++) {
+            Term term = goalTerms.get(column);
+            pattern[column] = term instanceof Variable ? FactTable.UNBOUND : term.getSymbol().getId();
+        }
+        FactCursor cursor = relation.match(pattern);
+        for(int row = cursor.nextRow(); row != FactCursor.NO_MORE_ROWS; row = cursor.nextRow()) {
+            if(this.matchesRepeatedVariables(relation, row, goalTerms)) {
+                Term[] terms = new Term[pattern.length];
+                for(int column = 0; column < terms.length; column++) {
+                    terms[column] = Term.constant(Symbol.getById(relation.getSymbolId(row, column)));
+                }
+                answers.add(new Predicate(this.goal.getSymbol(), terms));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Builds the rewritten RuleSet: the original facts, the seed of the goal's magic Predicate,
+     * the adorned and magic rules of each call reached from the goal, and the original rules of
+     * the Predicates that negated literals depend on.
+     *
+     * @param goalAdornment The adornment of the goal.
+     */
+    private void rewrite(String goalAdornment) {
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        Set<Pair<Symbol, Integer>> negatedPredicates = new HashSet<Pair<Symbol, Integer>>();
+
+        // The goal's magic Predicate is seeded with its constants; a goal on a Predicate without
+        // rules is answered from the original facts.
+        Set<String> adorned = new HashSet<String>();
+        Deque<Pair<Pair<Symbol, Integer>, String>> pending = new ArrayDeque<Pair<Pair<Symbol, Integer>, String>>();
+        Pair<Symbol, Integer> goalSignature = signature(this.goal);
+        if(this.derivedPredicates.contains(goalSignature)) {
+            this.adornedGoal = adorn(this.goal, goalAdornment);
+            clauses.add(new HornClause(magic(this.goal, goalAdornment)));
+            adorned.add(adornedName(goalSignature.getLeft(), goalAdornment));
+            pending.add(Pair.of(goalSignature, goalAdornment));
+        }
+        else {
+            this.adornedGoal = this.goal;
+        }
+
+        while(!pending.isEmpty()) {
+            Pair<Pair<Symbol, Integer>, String> call = pending.poll();
+            for(int index = 0; index < this.rules.getRuleCount(); index++) {
+                HornClause clause = this.rules.getRule(index);
+                if(clause.isGoalClause() || !signature(clause.getConsequent()).equals(call.getLeft())) {
+                    continue;
+                }
+                if(clause.isFact()) {
+                    // A fact of a Predicate that also has rules holds for every call to it.
+                    clauses.add(new HornClause(adorn(clause.getConsequent(), call.getRight()),
+                            new AndOperator(magic(clause.getConsequent(), call.getRight()))));
+                    continue;
+                }
+                this.rewriteRule(clause, call.getRight(), clauses, negatedPredicates, adorned, pending);
+            }
+        }
+
+        // The original facts are kept, and so are the original rules that negated literals need.
+        Set<Pair<Symbol, Integer>> kept = this.dependencies(negatedPredicates);
+        for(int index = 0; index < this.rules.getRuleCount(); index++) {
+            HornClause clause = this.rules.getRule(index);
+            if(clause.isFact() || (clause.isDefiniteClause() && kept.contains(signature(clause.getConsequent())))) {
+                clauses.add(clause);
+            }
+        }
+
+        this.rewrittenRules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+        for(FactTable factTable : this.rules.getFactTables()) {
+            this.rewrittenRules.addFactTable(factTable);
+        }
+    }
+
+    /**
+     * Rewrites a rule for a call with the given adornment: the rule over the adorned Predicates,
+     * guarded by the magic Predicate of its head, and a magic rule for each call its body makes
+     * to a Predicate defined by rules. The calls not yet adorned are added to those pending.
+     *
+     * @param clause The rule.
+     * @param adornment The adornment of the call to the rule's head.
+     * @param clauses The rewritten clauses, which the rewritten rules are added to.
+     * @param negatedPredicates The signatures of negated Predicates, which those of the rule's
+     *  negated literals are added to.
+     * @param adorned The names of the adorned Predicates already pending or rewritten.
+     * @param pending The calls still to rewrite.
+     */
+    private void rewriteRule(HornClause clause, String adornment, List<HornClause> clauses,
+            Set<Pair<Symbol, Integer>> negatedPredicates, Set<String> adorned,
+            Deque<Pair<Pair<Symbol, Integer>, String>> pending) {
+        Predicate head = clause.getConsequent();
+        Set<Variable> bound = new HashSet<Variable>();
+        List<Term> headTerms = terms(head);
+        for(int column = 0; column < headTerms.size(); column++) {
+            if(adornment.charAt(column) == 'b' && headTerms.get(column) instanceof Variable) {
+                bound.add((Variable) headTerms.get(column));
+            }
+        }
+
+        List<Formula> body = new ArrayList<Formula>();
+        body.add(magic(head, adornment));
+        for(Formula literal : literals(clause.getAntecedent(), clause)) {
+            if(literal instanceof NotOperator) {
+                negatedPredicates.add(signature((Predicate) ((NotOperator) literal).getOperand(0)));
+                body.add(literal);
+                continue;
+            }
+
+            Predicate predicate = (Predicate) literal;
+            if(!this.derivedPredicates.contains(signature(predicate))) {
+                body.add(predicate);
+                bound.addAll(variables(predicate));
+                continue;
+            }
+
+            StringBuilder callAdornment = new StringBuilder();
+            for(Term term : terms(predicate)) {
+                callAdornment.append(!(term instanceof Variable) || bound.contains(term) ? 'b' : 'f');
+            }
+            String literalAdornment = callAdornment.toString();
+
+            // The call's magic rule: its bound terms are known once the literals before it hold.
+            Predicate magicHead = magic(predicate, literalAdornment);
+            // A call that repeats the head's own call adds nothing to its magic Predicate.
+            if(body.size() != 1 || !magicHead.equals(body.get(0))) {
+                clauses.add(new HornClause(magicHead, new AndOperator(body.toArray(new Formula[body.size()]))));
+            }
+
+            if(adorned.add(adornedName(predicate.getSymbol(), literalAdornment))) {
+                pending.add(Pair.of(signature(predicate), literalAdornment));
+            }
+            body.add(adorn(predicate, literalAdornment));
+            bound.addAll(variables(predicate));
+        }
+        clauses.add(new HornClause(adorn(head, adornment), new AndOperator(body.toArray(new Formula[body.size()]))));
+    }
+
+    /**
+     * Returns the signatures of the Predicates defined by rules that the given Predicates depend
+     * on, including themselves.
+     *
+     * @param predicates The Predicates.
+     * @return the signatures of the Predicates whose original rules must be kept.
+     */
+    private Set<Pair<Symbol, Integer>> dependencies(Set<Pair<Symbol, Integer>> predicates) {
+        Set<Pair<Symbol, Integer>> reached = new HashSet<Pair<Symbol, Integer>>();
+        Deque<Pair<Symbol, Integer>> pending = new ArrayDeque<Pair<Symbol, Integer>>(predicates);
+        while(!pending.isEmpty()) {
+            Pair<Symbol, Integer> signature = pending.poll();
+            if(!this.derivedPredicates.contains(signature) || !reached.add(signature)) {
+                continue;
+            }
+            for(int index = 0; index < this.rules.getRuleCount(); index++) {
+                HornClause clause = this.rules.getRule(index);
+                if(clause.isDefiniteClause() && signature(clause.getConsequent()).equals(signature)) {
+                    for(Formula literal : literals(clause.getAntecedent(), clause)) {
+                        Formula atom = literal instanceof NotOperator ? ((NotOperator) literal).getOperand(0) : literal;
+                        pending.add(signature((Predicate) atom));
+                    }
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Returns true if a row of the goal's adorned Relation binds the goal's repeated Variables to
+     * the same constant.
+     *
+     * @param relation The adorned Relation.
+     * @param row The row.
+     * @param goalTerms The Terms of the goal.
+     * @return true if the row is an instance of the goal.
+     */
+    private boolean matchesRepeatedVariables(Relation relation, int row, List<Term> goalTerms) {
+        for(int column = 0; column < goalTerms.size(); column++) {
+            for(int earlier = 0; earlier < column; earlier++) {
+                if(goalTerms.get(column) instanceof Variable && goalTerms.get(column).equals(goalTerms.get(earlier))
+                        && relation.getSymbolId(row, column) != relation.getSymbolId(row, earlier)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a Predicate over its adorned Predicate Symbol, with the same Terms.
+     *
+     * @param predicate The Predicate.
+     * @param adornment The adornment.
+     * @return the adorned Predicate.
+     */
+    private static Predicate adorn(Predicate predicate, String adornment) {
+        List<Term> terms = terms(predicate);
+        return new Predicate(Symbol.get(adornedName(predicate.getSymbol(), adornment)), terms.toArray(new Term[terms.size()]));
+    }
+
+    /**
+     * Returns the magic Predicate of a call: the Terms of its bound columns, over the Symbol of
+     * the magic Predicate of its adorned Predicate.
+     *
+     * @param predicate The call.
+     * @param adornment The adornment of the call.
+     * @return the magic Predicate.
+     */
+    private static Predicate magic(Predicate predicate, String adornment) {
+        List<Term> boundTerms = new ArrayList<Term>();
+        List<Term> terms = terms(predicate);
+        for(int column = 0; column < terms.size(); column++) {
+            if(adornment.charAt(column) == 'b') {
+                boundTerms.add(terms.get(column));
+            }
+        }
+        return new Predicate(Symbol.get(MAGIC_PREFIX + adornedName(predicate.getSymbol(), adornment)),
+                boundTerms.toArray(new Term[boundTerms.size()]));
+    }
+
+    /**
+     * Returns the name of an adorned Predicate.
+     *
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param adornment The adornment.
+     * @return the name of the adorned Predicate.
+     */
+    private static String adornedName(Symbol predicateSymbol, String adornment) {
+        return predicateSymbol + "_" + adornment;
+    }
+
+    /**
+     * Returns the literals of the body of a rule, in order.
+     *
+     * @param formula The body of the rule.
+     * @param clause The rule.
+     * @return the Predicates and NotOperators of the body.
+     * @throws IllegalArgumentException if the body is not a conjunction of literals.
+     */
+    private static List<Formula> literals(Formula formula, HornClause clause) {
+        List<Formula> literals = new ArrayList<Formula>();
+        if(formula instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) formula;
+            for(int operand = 0; operand < conjunction.operandCount(); operand++) {
+                literals.addAll(literals(conjunction.getOperand(operand), clause));
+            }
+        }
+        else if(formula instanceof Predicate
+                || (formula instanceof NotOperator && ((NotOperator) formula).getOperand(0) instanceof Predicate)) {
+            literals.add(formula);
+        }
+        else {
+            throw new IllegalArgumentException("The body of rule " + clause + " is not a conjunction of literals: " + formula);
+        }
+        return literals;
+    }
+
+    /**
+     * Returns the Variables of a Predicate.
+     *
+     * @param predicate The Predicate.
+     * @return the Variables among its Terms.
+     */
+    private static List<Variable> variables(Predicate predicate) {
+        List<Variable> variables = new ArrayList<Variable>();
+        for(Term term : terms(predicate)) {
+            if(term instanceof Variable) {
+                variables.add((Variable) term);
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Returns the Terms of a Predicate, which are null for a propositional Predicate.
+     *
+     * @param predicate The Predicate.
+     * @return the Terms of the Predicate, or an empty List.
+     */
+    private static List<Term> terms(Predicate predicate) {
+        List<Term> terms = predicate.getTerms();
+        return terms == null ? new ArrayList<Term>() : terms;
+    }
+
+    /**
+     * Returns the signature of a Predicate.
+     *
+     * @param predicate The Predicate.
+     * @return its Symbol and arity.
+     */
+    private static Pair<Symbol, Integer> signature(Predicate predicate) {
+        return Pair.of(predicate.getSymbol(), predicate.getArity());
+    }
+}
@@ -0,0 +1,321 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+
+/**
+ * A Relation is the set of tuples of a Predicate signature computed by a DatalogEngine. Its
+ * tuples are stored row after row in a single primitive array, and are only ever appended, so
+ * that the tuples found in each round of the evaluation are a range of rows. Duplicates are
+ * rejected through a hash index over every column; the hash indexes over other sets of columns
+ * are built the first time a join needs them, and kept up to date as tuples are added.
+ * <p>
+ * A Relation is a FactTable, so that the model computed by a DatalogEngine can be added to a
+ * RuleSet and queried by the top-down solvers.
+ * <p>
+ * An IncrementalModel also removes tuples from its Relations: a removed row is replaced by the
+ * last row, so that the rows stay dense, but rows are then no longer in the order they were added.
+ *
+ * @author recardona
+ */
+public class Relation extends FactTable {
+
+    /** The number of rows a new Relation has room for. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The state of a row whose tuple is being deleted by an IncrementalModel update. */
+    static final byte PENDING = 1;
+
+    /** The state of a row whose tuple was asserted, rather than only derived. */
+    static final byte EXPLICIT = 2;
+
+    /** The Symbol ids of the tuples, row after row. */
+    private int[] data;
+
+    /** The number of tuples in this Relation. */
+    private int size;
+
+    /** The state of each row: PENDING, EXPLICIT, both, or neither. */
+    private byte[] states;
+
+    /** The index over every column, which rejects duplicates. */
+    private TupleIndex uniqueIndex;
+
+    /** The indexes over other sets of columns, keyed by their column mask. */
+    private HashMap<Integer, TupleIndex> indexes;
+
+    /**
+     * Constructs an empty Relation for the tuples of the given Predicate Symbol and arity.
+     *
+     * @param predicateSymbol The Symbol of the Predicate whose tuples this Relation stores, not
+     *  null.
+     * @param arity The number of columns of the tuples, from 0 to 31.
+     */
+    public Relation(Symbol predicateSymbol, int arity) {
+        super(predicateSymbol, arity);
+        if(arity > 31) {
+            throw new IllegalArgumentException("Cannot create a Relation with more than 31 columns.");
+        }
+        this.data = new int[Math.max(1, arity) * INITIAL_CAPACITY];
+        this.size = 0;
+        this.states = new byte[INITIAL_CAPACITY];
+        this.uniqueIndex = new TupleIndex(columnsOf((1 << arity) - 1));
+        this.indexes = new HashMap<Integer, TupleIndex>();
+    }
+
+    /**
+     * Adds a tuple to this Relation, unless it is already in it.
+     *
+     * @param symbolIds The Symbol ids of the tuple, one per column, not null.
+     * @return true if the tuple is new.
+     * @throws IllegalArgumentException if the number of ids does not match this Relation's arity.
+     */
+    public boolean add(int... symbolIds) {
+        if(symbolIds.length != this.arity) {
+            throw new IllegalArgumentException("Number of arguments (" + symbolIds.length
+                    + ") does not match this Relation's arity of " + this.arity);
+        }
+        if(this.find(symbolIds) >= 0) {
+            return false;
+        }
+
+        int offset = this.size * this.arity;
+        if(offset + this.arity > this.data.length) {
+            this.data = Arrays.copyOf(this.data, Math.max(offset + this.arity, this.data.length * 2));
+        }
+        if(this.size == this.states.length) {
+            this.states = Arrays.copyOf(this.states, this.states.length * 2);
+        }
+        System.arraycopy(symbolIds, 0, this.data, offset, this.arity);
+        this.states[this.size] = 0;
+        this.size++;
+
+        this.uniqueIndex.add(this.data, this.arity);
+        for(TupleIndex index : this.indexes.values()) {
+            index.add(this.data, this.arity);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if this Relation holds the parameter tuple. A tuple being deleted by an update
+     * of an IncrementalModel is no longer held.
+     *
+     * @param symbolIds The Symbol ids of the tuple, one per column, not null.
+     * @return true if the tuple is in this Relation.
+     */
+    public boolean contains(int... symbolIds) {
+        int row = this.find(symbolIds);
+        return row >= 0 && (this.states[row] & PENDING) == 0;
+    }
+
+    /**
+     * Returns the row of a tuple.
+     *
+     * @param symbolIds The Symbol ids of the tuple, one per column.
+     * @return the row of the tuple, or -1 if it is not in this Relation.
+     */
+    int find(int[] symbolIds) {
+        for(int row = this.uniqueIndex.first(symbolIds); row >= 0; row = this.uniqueIndex.next(row)) {
+            if(this.rowEquals(row, symbolIds)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a row, moving the last row in its place.
+     *
+     * @param row The row.
+     */
+    void remove(int row) {
+        int last = this.size - 1;
+        this.uniqueIndex.unlink(row, this.data, this.arity);
+        for(TupleIndex index : this.indexes.values()) {
+            index.unlink(row, this.data, this.arity);
+        }
+        if(row != last) {
+            this.uniqueIndex.unlink(last, this.data, this.arity);
+            for(TupleIndex index : this.indexes.values()) {
+                index.unlink(last, this.data, this.arity);
+            }
+            System.arraycopy(this.data, last * this.arity, this.data, row * this.arity, this.arity);
+            this.states[row] = this.states[last];
+        }
+        this.size--;
+
+        this.uniqueIndex.remove(row, this.data, this.arity);
+        for(TupleIndex index : this.indexes.values()) {
+            index.remove(row, this.data, this.arity);
+        }
+        this.clearTrieIndexes();
+    }
+
+    /**
+     * Returns the state of a row.
+     *
+     * @param row The row.
+     * @return PENDING, EXPLICIT, both, or 0.
+     */
+    int getState(int row) {
+        return this.states[row];
+    }
+
+    /**
+     * Sets the state of a row.
+     *
+     * @param row The row.
+     * @param state PENDING, EXPLICIT, both, or 0.
+     */
+    void setState(int row, int state) {
+        this.states[row] = (byte) state;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getFactCount()
+     */
+    @Override
+    public int getFactCount() {
+        return this.size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getSymbolId(int, int)
+     */
+    @Override
+    public int getSymbolId(int row, int column) {
+        if(row >= this.size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not in Relation " + this);
+        }
+        return this.data[row * this.arity + column];
+    }
+
+    /**
+     * Returns a cursor over the rows of this Relation that match the parameter pattern, through
+     * the hash index over the pattern's bound columns.
+     *
+     * @param pattern The Symbol ids to match, one per column, not null.
+     * @return a FactCursor over the matching rows.
+     */
+    @Override
+    public FactCursor match(final int[] pattern) {
+        this.checkPattern(pattern);
+
+        int mask = 0;
+        int keyLength = 0;
+        for(int column = 0; column < this.arity; column++) {
+            if(pattern[column] != UNBOUND) {
+                mask |= 1 << column;
+                keyLength++;
+            }
+        }
+        if(mask == 0) {
+            return super.match(pattern);
+        }
+
+        final int[] key = new int[keyLength];
+        for(int column = 0, position = 0; column < this.arity; column++) {
+            if(pattern[column] != UNBOUND) {
+                key[position++] = pattern[column];
+            }
+        }
+        final TupleIndex index = this.getIndex(mask);
+        return new FactCursor() {
+
+            private int row = index.first(key);
+
+            @Override
+            public int nextRow() {
+                while(this.row >= 0) {
+                    int candidate = this.row;
+                    this.row = index.next(candidate);
+                    if(matches(candidate, pattern)) {
+                        return candidate;
+                    }
+                }
+                return NO_MORE_ROWS;
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#isIndexed(int)
+     */
+    @Override
+    public boolean isIndexed(int column) {
+        return true;
+    }
+
+    /**
+     * Returns the tuples of this Relation, row after row. The array may be longer than the
+     * tuples, and is replaced when the Relation grows.
+     *
+     * @return the Symbol ids of the tuples.
+     */
+    int[] getData() {
+        return this.data;
+    }
+
+    /**
+     * Returns the hash index over a set of columns, building it if needed.
+     *
+     * @param mask The columns of the index, one bit per column, not 0.
+     * @return the index.
+     */
+    TupleIndex getIndex(int mask) {
+        if(mask == (1 << this.arity) - 1) {
+            return this.uniqueIndex;
+        }
+
+        TupleIndex index = this.indexes.get(mask);
+        if(index == null) {
+            index = new TupleIndex(columnsOf(mask));
+            for(int row = 0; row < this.size; row++) {
+                index.add(this.data, this.arity);
+            }
+            this.indexes.put(mask, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns true if a row of this Relation holds the parameter tuple.
+     *
+     * @param row The row.
+     * @param symbolIds The Symbol ids of the tuple.
+     * @return true if the row equals the tuple.
+     */
+    private boolean rowEquals(int row, int[] symbolIds) {
+        int offset = row * this.arity;
+        for(int column = 0; column < this.arity; column++) {
+            if(this.data[offset + column] != symbolIds[column]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the columns of a column mask.
+     *
+     * @param mask The columns, one bit per column.
+     * @return the columns, in increasing order.
+     */
+    private static int[] columnsOf(int mask) {
+        int[] columns = new int[Integer.bitCount(mask)];
+        for(int column = 0, position = 0; position < columns.length; column++) {
+            if((mask & (1 << column)) != 0) {
+                columns[position++] = column;
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,142 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A StandingQuery is a goal whose answers an IncrementalModel keeps up to date: its answers are
+ * the tuples of the goal's Relation that match the goal's constants and repeated Variables, and
+ * its listener is told of the answers each update adds and removes.
+ *
+ * @author recardona
+ */
+public class StandingQuery {
+
+    /** The goal of this query. */
+    private Predicate goal;
+
+    /** The Relation of the goal's Predicate. */
+    private Relation relation;
+
+    /** The Symbol id of each constant of the goal, or FactTable.UNBOUND for a Variable. */
+    private int[] pattern;
+
+    /** The first column of each column's Variable, or the column itself. */
+    private int[] firstColumns;
+
+    /** The listener told of this query's changes. */
+    private StandingQueryListener listener;
+
+    /**
+     * Constructs a StandingQuery.
+     *
+     * @param goal The goal, whose Terms are constants or Variables.
+     * @param relation The Relation of the goal's Predicate.
+     * @param listener The listener told of the query's changes.
+     */
+    StandingQuery(Predicate goal, Relation relation, StandingQueryListener listener) {
+        this.goal = goal;
+        this.relation = relation;
+        this.listener = listener;
+        this.pattern = new int[goal.getArity()];
+        this.firstColumns = new int[goal.getArity()];
+        List<Term> terms = goal.getTerms();
+        for(int column = 0; column < this.pattern.length; column++) {
+            Term term = terms.get(column);
+            this.firstColumns[column] = column;
+            if(term instanceof Variable) {
+                this.pattern[column] = FactTable.UNBOUND;
+                this.firstColumns[column] = terms.indexOf(term);
+            }
+            else {
+                this.pattern[column] = term.getSymbol().getId();
+            }
+        }
+    }
+
+    /**
+     * Returns the goal of this query.
+     *
+     * @return the goal.
+     */
+    public Predicate getGoal() {
+        return this.goal;
+    }
+
+    /**
+     * Returns the listener told of this query's changes.
+     *
+     * @return the listener.
+     */
+    public StandingQueryListener getListener() {
+        return this.listener;
+    }
+
+    /**
+     * Returns the current answers of this query.
+     *
+     * @return the answers, as ground instances of the goal.
+     */
+    public List<Predicate> getAnswers() {
+        List<Predicate> answers = new ArrayList<Predicate>();
+        int[] tuple = new int[this.pattern.length];
+        FactCursor cursor = this.relation.match(this.pattern);
+        for(int row = cursor.nextRow(); row != FactCursor.NO_MORE_ROWS; row = cursor.nextRow()) {
+            for(int column = 0; column < tuple.length; column++) {
+                tuple[column] = this.relation.getSymbolId(row, column);
+            }
+            if(this.matches(tuple)) {
+                answers.add(this.toAnswer(tuple));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Returns true if a tuple of the goal's Relation is an answer to this query.
+     *
+     * @param tuple The Symbol ids of the tuple.
+     * @return true if the tuple matches the goal's constants and repeated Variables.
+     */
+    boolean matches(int[] tuple) {
+        for(int column = 0; column < tuple.length; column++) {
+            if(this.pattern[column] != FactTable.UNBOUND && this.pattern[column] != tuple[column]) {
+                return false;
+            }
+            if(tuple[this.firstColumns[column]] != tuple[column]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the answer of a tuple of the goal's Relation.
+     *
+     * @param tuple The Symbol ids of the tuple.
+     * @return the ground instance of the goal.
+     */
+    Predicate toAnswer(int[] tuple) {
+        Term[] terms = new Term[tuple.length];
+        for(int column = 0; column < terms.length; column++) {
+            terms[column] = Term.constant(Symbol.getById(tuple[column]));
+        }
+        return new Predicate(this.goal.getSymbol(), terms);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "StandingQuery " + this.goal;
+    }
+}
@@ -0,0 +1,25 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.List;
+
+import rogel.io.fopl.formulas.Predicate;
+
+/**
+ * A StandingQueryListener is told of the answers a StandingQuery gains and loses as the facts of
+ * its IncrementalModel are asserted and retracted.
+ *
+ * @author recardona
+ */
+public interface StandingQueryListener {
+
+    /**
+     * Called once per update of the IncrementalModel that changes the answers of the query, after
+     * the update is complete.
+     *
+     * @param query The query whose answers changed.
+     * @param added The answers the update added, as ground instances of the query's goal.
+     * @param removed The answers the update removed, as ground instances of the query's goal.
+     */
+    public void answersChanged(StandingQuery query, List<Predicate> added, List<Predicate> removed);
+
+}
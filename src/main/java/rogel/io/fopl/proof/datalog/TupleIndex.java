@@ -0,0 +1,207 @@
+package rogel.io.fopl.proof.datalog;
+
+import java.util.Arrays;
+
+/**
+ * A TupleIndex is a hash index over some of the columns of a Relation. It chains the rows whose
+ * indexed columns hash to the same bucket, newest first, in primitive arrays: the head of each
+ * bucket's chain, and the rows that follow and precede each row in its chain. Rows are added to
+ * the index as they are added to the Relation, so that the index is never rebuilt, except when it
+ * grows; a row removed from the Relation is unlinked from its chain.
+ * <p>
+ * Since a chain holds every row of a bucket, the rows it visits must still be compared with the
+ * key on the indexed columns.
+ *
+ * @author recardona
+ */
+final class TupleIndex {
+
+    /** The smallest number of buckets of an index. */
+    private static final int MINIMUM_BUCKETS = 16;
+
+    /** The indexed columns, in increasing order. */
+    private final int[] columns;
+
+    /** The first row of each bucket's chain, plus one, or 0 if the bucket is empty. */
+    private int[] buckets;
+
+    /** The row that follows each row in its bucket's chain, plus one, or 0 at the end of a chain. */
+    private int[] next;
+
+    /** The row that precedes each row in its bucket's chain, plus one, or 0 at the head of a chain. */
+    private int[] previous;
+
+    /** The number of rows indexed. */
+    private int rowCount;
+
+    /**
+     * Constructs an empty TupleIndex.
+     *
+     * @param columns The indexed columns, in increasing order.
+     */
+    TupleIndex(int[] columns) {
+        this.columns = columns;
+        this.buckets = new int[MINIMUM_BUCKETS];
+        this.next = new int[MINIMUM_BUCKETS];
+        this.previous = new int[MINIMUM_BUCKETS];
+        this.rowCount = 0;
+    }
+
+    /**
+     * Adds the next row of the Relation to this index.
+     *
+     * @param data The tuples of the Relation, row after row.
+     * @param arity The arity of the Relation.
+     */
+    void add(int[] data, int arity) {
+        int row = this.rowCount;
+        if(row == this.next.length) {
+            this.grow(data, arity);
+        }
+        this.link(row, data, arity);
+        this.rowCount++;
+    }
+
+    /**
+     * Removes a row from this index, as the Relation removes it by moving its last row in its
+     * place. The removed row and the last row must both have been unlinked, and the last row's
+     * tuple copied to the removed row, before this method is called.
+     *
+     * @param row The removed row.
+     * @param data The tuples of the Relation, row after row, after the copy.
+     * @param arity The arity of the Relation.
+     */
+    void remove(int row, int[] data, int arity) {
+        this.rowCount--;
+        if(row != this.rowCount) {
+            this.link(row, data, arity);
+        }
+    }
+
+    /**
+     * Unlinks a row from its bucket's chain.
+     *
+     * @param row The row.
+     * @param data The tuples of the Relation, row after row, which still hold the row's tuple.
+     * @param arity The arity of the Relation.
+     */
+    void unlink(int row, int[] data, int arity) {
+        int nextRow = this.next[row];
+        int previousRow = this.previous[row];
+        if(previousRow == 0) {
+            this.buckets[this.hashRow(data, arity, row) & (this.buckets.length - 1)] = nextRow;
+        }
+        else {
+            this.next[previousRow - 1] = nextRow;
+        }
+        if(nextRow != 0) {
+            this.previous[nextRow - 1] = previousRow;
+        }
+    }
+
+    /**
+     * Returns the newest row whose indexed columns may hold the parameter key.
+     *
+     * @param key The values of the indexed columns, in the order of the columns.
+     * @return the row, or -1 if there is none.
+     */
+    int first(int[] key) {
+        return this.buckets[hashKey(key) & (this.buckets.length - 1)] - 1;
+    }
+
+    /**
+     * Returns the row that follows a row in its bucket's chain, which is older than it.
+     *
+     * @param row The row.
+     * @return the next row of the chain, or -1 at the end of the chain.
+     */
+    int next(int row) {
+        return this.next[row] - 1;
+    }
+
+    /**
+     * Returns the indexed columns.
+     *
+     * @return the indexed columns, in increasing order.
+     */
+    int[] getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Doubles the room of this index, and rehashes its rows, oldest first, so that the chains
+     * stay ordered from the newest row to the oldest.
+     *
+     * @param data The tuples of the Relation, row after row.
+     * @param arity The arity of the Relation.
+     */
+    private void grow(int[] data, int arity) {
+        int capacity = this.next.length * 2;
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.previous = Arrays.copyOf(this.previous, capacity);
+        this.buckets = new int[capacity];
+        for(int row = 0; row < this.rowCount; row++) {
+            this.link(row, data, arity);
+        }
+    }
+
+    /**
+     * Links a row at the head of its bucket's chain.
+     *
+     * @param row The row.
+     * @param data The tuples of the Relation, row after row.
+     * @param arity The arity of the Relation.
+     */
+    private void link(int row, int[] data, int arity) {
+        int bucket = this.hashRow(data, arity, row) & (this.buckets.length - 1);
+        int head = this.buckets[bucket];
+        this.next[row] = head;
+        this.previous[row] = 0;
+        if(head != 0) {
+            this.previous[head - 1] = row + 1;
+        }
+        this.buckets[bucket] = row + 1;
+    }
+
+    /**
+     * Hashes the indexed columns of a row, like {@code hashKey} hashes a key.
+     *
+     * @param data The tuples of the Relation, row after row.
+     * @param arity The arity of the Relation.
+     * @param row The row.
+     * @return the hash of the row's indexed columns.
+     */
+    private int hashRow(int[] data, int arity, int row) {
+        int hash = 1;
+        int offset = row * arity;
+        for(int column : this.columns) {
+            hash = hash * 31 + data[offset + column];
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes a key.
+     *
+     * @param key The values of the indexed columns.
+     * @return the hash of the key.
+     */
+    private static int hashKey(int[] key) {
+        int hash = 1;
+        for(int value : key) {
+            hash = hash * 31 + value;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of a hash, so that its low bits select the bucket.
+     *
+     * @param hash The hash.
+     * @return the mixed hash.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Contains a bottom-up evaluator for function-free rules: it computes every fact that follows from
+ * a RuleSet at once, semi-naively, over Relations of Symbol ids joined through hash indexes, and
+ * keeps what it computed up to date as facts are asserted and retracted.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.proof.datalog;
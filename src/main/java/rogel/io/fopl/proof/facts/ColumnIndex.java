@@ -0,0 +1,88 @@
+package rogel.io.fopl.proof.facts;
+
+/**
+ * A ColumnIndex maps each Symbol id of a FactTable column to the rows that hold it. The index is
+ * built with a counting sort over the column, so it consists of two primitive arrays: the rows of
+ * the table ordered by their Symbol id, and the offset at which each Symbol id's rows begin.
+ * 
+ * @author recardona
+ */
+final class ColumnIndex {
+
+    /** The rows holding Symbol id {@code v} are {@code rows[offsets[v]]..rows[offsets[v+1]-1]}. */
+    private int[] offsets;
+    
+    /** The row indices of the table, ordered by the Symbol id in the indexed column. */
+    private int[] rows;
+    
+    /**
+     * Constructs a ColumnIndex over the first {@code rowCount} entries of the parameter column.
+     * 
+     * @param column The Symbol ids of the indexed column, not null.
+     * @param rowCount The number of rows in the column.
+     */
+    ColumnIndex(int[] column, int rowCount) {
+        
+        int maximumId = -1;
+        for(int row = 0; row < rowCount; row++) {
+            maximumId = Math.max(maximumId, column[row]);
+        }
+        
+        // Count the rows of each Symbol id, and turn the counts into offsets.
+        this.offsets = new int[maximumId + 2];
+        for(int row = 0; row < rowCount; row++) {
+            this.offsets[column[row] + 1]++;
+        }
+        for(int id = 0; id <= maximumId; id++) {
+            this.offsets[id + 1] += this.offsets[id];
+        }
+        
+        // Place each row after the rows of the same Symbol id placed before it.
+        int[] nextPosition = new int[maximumId + 1];
+        System.arraycopy(this.offsets, 0, nextPosition, 0, maximumId + 1);
+        this.rows = new int[rowCount];
+        for(int row = 0; row < rowCount; row++) {
+            this.rows[nextPosition[column[row]]++] = row;
+        }
+    }
+    
+    /**
+     * Returns the number of rows that hold the parameter Symbol id.
+     * 
+     * @param id The Symbol id to look up.
+     * @return the number of rows holding the id.
+     */
+    int getRowCount(int id) {
+        return this.getEnd(id) - this.getStart(id);
+    }
+    
+    /**
+     * Returns the position in {@code getRow(int)} of the first row that holds the parameter id.
+     * 
+     * @param id The Symbol id to look up.
+     * @return the (inclusive) start position of the id's rows.
+     */
+    int getStart(int id) {
+        return (id + 1 < this.offsets.length) ? this.offsets[id] : 0;
+    }
+    
+    /**
+     * Returns the position in {@code getRow(int)} after the last row that holds the parameter id.
+     * 
+     * @param id The Symbol id to look up.
+     * @return the (exclusive) end position of the id's rows.
+     */
+    int getEnd(int id) {
+        return (id + 1 < this.offsets.length) ? this.offsets[id + 1] : 0;
+    }
+    
+    /**
+     * Returns the row at the given position of this index.
+     * 
+     * @param position A position between {@code getStart(id)} and {@code getEnd(id)}.
+     * @return the row index at that position.
+     */
+    int getRow(int position) {
+        return this.rows[position];
+    }
+}
@@ -0,0 +1,249 @@
+package rogel.io.fopl.proof.facts;
+
+import java.util.Arrays;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * A ColumnarFactTable is an in-memory FactTable that stores its facts as columns of Symbol ids. 
+ * Each column is a single primitive array, so a fact costs {@code 4 * arity} bytes and no objects.
+ * <p>
+ * Queries with bound columns are answered through per-column indexes, which are built the first 
+ * time a column is queried and discarded whenever a fact is added.
+ * 
+ * @author recardona
+ */
+public class ColumnarFactTable extends FactTable {
+
+    /** The number of rows a new table has room for. */
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /** The Symbol ids of the facts, stored column by column. */
+    private int[][] columns;
+    
+    /** The number of facts in this table. */
+    private int factCount;
+    
+    /** The index of each column, or null if the column has not been indexed since the last add. */
+    private ColumnIndex[] indexes;
+    
+    /**
+     * Constructs an empty ColumnarFactTable for the facts of the Predicate with the given name and
+     * arity. If the name is a String that did not already exist within the domain of discourse, 
+     * then a new Symbol is created.
+     * 
+     * @param predicateName The name of the Predicate whose facts this table stores, not null.
+     * @param arity The number of arguments of the facts this table stores, not negative.
+     */
+    public ColumnarFactTable(String predicateName, int arity) {
+        this(Symbol.get(predicateName), arity);
+    }
+    
+    /**
+     * Constructs an empty ColumnarFactTable for the facts of the given Predicate Symbol and arity.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate whose facts this table stores, not null.
+     * @param arity The number of arguments of the facts this table stores, not negative.
+     */
+    public ColumnarFactTable(Symbol predicateSymbol, int arity) {
+        super(predicateSymbol, arity);
+        this.columns = new int[arity][INITIAL_CAPACITY];
+        this.factCount = 0;
+        this.indexes = new ColumnIndex[arity];
+    }
+    
+    /**
+     * Adds a fact to this table, given as the ids of its argument Symbols.
+     * 
+     * @param symbolIds The Symbol ids of the fact's arguments, one per column, not null.
+     * @throws IllegalArgumentException if the number of ids does not match this table's arity, or
+     *     if an id does not belong to a Symbol.
+     */
+    public void add(int... symbolIds) {
+        
+        if(symbolIds.length != this.arity) {
+            throw new IllegalArgumentException("Number of arguments (" + symbolIds.length 
+                    + ") does not match this FactTable's arity of " + this.arity);
+        }
+        
+        for(int id : symbolIds) {
+            if(id < 0 || id >= Symbol.getSymbolCount()) {
+                throw new IllegalArgumentException("No Symbol has the id " + id);
+            }
+        }
+        
+        this.ensureCapacity(this.factCount + 1);
+        for(int column = 0; column < this.arity; column++) {
+            this.columns[column][this.factCount] = symbolIds[column];
+        }
+        this.factCount++;
+        this.invalidateIndexes();
+    }
+    
+    /**
+     * Adds a fact to this table, given as its argument Symbols.
+     * 
+     * @param symbols The Symbols of the fact's arguments, one per column, not null.
+     * @throws IllegalArgumentException if the number of Symbols does not match this table's arity.
+     */
+    public void add(Symbol... symbols) {
+        int[] symbolIds = new int[symbols.length];
+        for(int column = 0; column < symbols.length; column++) {
+            symbolIds[column] = symbols[column].getId();
+        }
+        this.add(symbolIds);
+    }
+    
+    /**
+     * Adds a ground fact to this table. The fact's Terms must all be constants.
+     * 
+     * @param fact The fact to add, with the same signature as this table, not null.
+     * @throws IllegalArgumentException if the fact has a different signature than this table, or
+     *     if any of its Terms is not a constant.
+     */
+    public void add(Predicate fact) {
+        
+        if(!this.predicateSymbol.equals(fact.getSymbol()) || this.arity != fact.getArity()) {
+            throw new IllegalArgumentException("Fact " + fact + " does not belong in FactTable " 
+                    + this);
+        }
+        
+        int[] symbolIds = new int[this.arity];
+        List<Term> terms = fact.getTerms();
+        for(int column = 0; column < this.arity; column++) {
+            Term term = terms.get(column);
+            if(!term.isConstant()) {
+                throw new IllegalArgumentException("Fact " + fact + " is not ground: " + term 
+                        + " is not a constant.");
+            }
+            symbolIds[column] = getConstantId(term);
+        }
+        this.add(symbolIds);
+    }
+    
+    /**
+     * Trims the capacity of this table's columns to its current number of facts.
+     */
+    public void trimToSize() {
+        for(int column = 0; column < this.arity; column++) {
+            this.columns[column] = Arrays.copyOf(this.columns[column], this.factCount);
+        }
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getFactCount()
+     */
+    @Override
+    public int getFactCount() {
+        return this.factCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getSymbolId(int, int)
+     */
+    @Override
+    public int getSymbolId(int row, int column) {
+        if(row >= this.factCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not in FactTable " + this);
+        }
+        return this.columns[column][row];
+    }
+    
+    /**
+     * Returns a cursor over the rows of this table that match the parameter pattern. If the 
+     * pattern binds any column, the cursor only visits the rows of the most selective bound 
+     * column's index entry.
+     * 
+     * @param pattern The Symbol ids to match, one per column, not null.
+     * @return a FactCursor over the matching rows.
+     */
+    @Override
+    public FactCursor match(final int[] pattern) {
+        this.checkPattern(pattern);
+        
+        // Find the bound column with the fewest candidate rows.
+        ColumnIndex bestIndex = null;
+        int bestId = UNBOUND;
+        for(int column = 0; column < this.arity; column++) {
+            if(pattern[column] != UNBOUND) {
+                ColumnIndex index = this.getIndex(column);
+                if(bestIndex == null || index.getRowCount(pattern[column]) < bestIndex.getRowCount(bestId)) {
+                    bestIndex = index;
+                    bestId = pattern[column];
+                }
+            }
+        }
+        
+        // If nothing is bound, every row must be visited.
+        if(bestIndex == null) {
+            return super.match(pattern);
+        }
+        
+        final ColumnIndex index = bestIndex;
+        final int end = index.getEnd(bestId);
+        final int start = index.getStart(bestId);
+        return new FactCursor() {
+            
+            private int position = start;
+            
+            @Override
+            public int nextRow() {
+                while(this.position < end) {
+                    int candidate = index.getRow(this.position++);
+                    if(matches(candidate, pattern)) {
+                        return candidate;
+                    }
+                }
+                return NO_MORE_ROWS;
+            }
+        };
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#isIndexed(int)
+     */
+    @Override
+    public boolean isIndexed(int column) {
+        return true;
+    }
+    
+    /**
+     * Returns the index of the given column, building it if needed.
+     * 
+     * @param column The non-negative index of the column.
+     * @return the column's index.
+     */
+    private synchronized ColumnIndex getIndex(int column) {
+        if(this.indexes[column] == null) {
+            this.indexes[column] = new ColumnIndex(this.columns[column], this.factCount);
+        }
+        return this.indexes[column];
+    }
+    
+    /**
+     * Discards the indexes of every column, so they are rebuilt on the next query.
+     */
+    private synchronized void invalidateIndexes() {
+        Arrays.fill(this.indexes, null);
+    }
+    
+    /**
+     * Grows the columns of this table so they have room for at least the given number of facts.
+     * 
+     * @param capacity The minimum number of facts the columns must hold.
+     */
+    private void ensureCapacity(int capacity) {
+        if(this.arity > 0 && this.columns[0].length < capacity) {
+            int newCapacity = Math.max(capacity, this.columns[0].length * 2);
+            for(int column = 0; column < this.arity; column++) {
+                this.columns[column] = Arrays.copyOf(this.columns[column], newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package rogel.io.fopl.proof.facts;
+
+/**
+ * A FactCursor enumerates the rows of a FactTable that match some pattern. Cursors are consumed
+ * once, in a forward-only fashion, and do not allocate objects per row.
+ * 
+ * @author recardona
+ */
+public interface FactCursor {
+    
+    /** The value returned by {@link FactCursor#nextRow()} when there are no more matching rows. */
+    public static final int NO_MORE_ROWS = -1;
+    
+    /**
+     * Advances this cursor to the next matching row of the FactTable.
+     * 
+     * @return the index of the next matching row, or {@code NO_MORE_ROWS} if the cursor is 
+     *     exhausted.
+     */
+    public int nextRow();
+    
+}
@@ -0,0 +1,318 @@
+package rogel.io.fopl.proof.facts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A FactTable stores the ground facts of a single Predicate signature, i.e. the pair 
+ * (Symbol, arity). Each fact is a row, and each argument of the fact is a column holding the id of
+ * the constant's Symbol (see {@link Symbol#getId()}); a number is stored as the Symbol of its
+ * numeral, and read back as a NumericConstant, even if it was written as a constant Function
+ * named by the numeral (see {@link Function#getNumber()}). Facts are materialized as Predicate
+ * objects only when they are requested.
+ * <p>
+ * Queries against a FactTable are expressed as patterns: arrays of Symbol ids, one per column, 
+ * where {@code FactTable.UNBOUND} matches any value.
+ * 
+ * @author recardona
+ */
+public abstract class FactTable {
+    
+    /** The pattern value of a column that matches any Symbol. */
+    public static final int UNBOUND = -1;
+    
+    /** The Symbol of the Predicate whose facts this table stores. */
+    protected Symbol predicateSymbol;
+    
+    /** The number of columns (arguments) of the facts this table stores. */
+    protected int arity;
+    
+    /** The signature of the facts this table stores, defined as the pair: (Symbol, arity). */
+    private Pair<Symbol, Integer> signature;
+    
+    /** The TrieIndexes built over this table, keyed by their column order, or null. */
+    private HashMap<String, TrieIndex> trieIndexes;
+    
+    /**
+     * Constructs a FactTable for the facts of the given Predicate Symbol and arity.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate whose facts this table stores, not null.
+     * @param arity The number of arguments of the facts this table stores, not negative.
+     */
+    protected FactTable(Symbol predicateSymbol, int arity) {
+        
+        if(predicateSymbol == null) {
+            throw new IllegalArgumentException("Cannot create a FactTable without a Predicate Symbol.");
+        }
+        
+        if(arity < 0) {
+            throw new IllegalArgumentException("Cannot create a FactTable with negative arity.");
+        }
+        
+        this.predicateSymbol = predicateSymbol;
+        this.arity = arity;
+        this.signature = Pair.of(predicateSymbol, arity);
+    }
+    
+    /**
+     * Returns the number of facts (rows) stored in this table.
+     * 
+     * @return the number of facts in this table.
+     */
+    public abstract int getFactCount();
+    
+    /**
+     * Returns the Symbol id stored at the given row and column of this table.
+     * 
+     * @param row The non-negative index of the fact.
+     * @param column The non-negative index of the fact's argument.
+     * @return the id of the Symbol at the given row and column.
+     */
+    public abstract int getSymbolId(int row, int column);
+    
+    /**
+     * Returns a cursor over the rows of this table that match the parameter pattern. A row 
+     * matches if, for every column, the pattern is {@code UNBOUND} or equal to the row's Symbol id.
+     * <p>
+     * This implementation scans every row of the table. Subclasses that maintain indexes should 
+     * override it.
+     * 
+     * @param pattern The Symbol ids to match, one per column, not null.
+     * @return a FactCursor over the matching rows.
+     */
+    public FactCursor match(final int[] pattern) {
+        this.checkPattern(pattern);
+        return new FactCursor() {
+            
+            private int row = 0;
+
+            @Override
+            public int nextRow() {
+                while(this.row < getFactCount()) {
+                    int candidate = this.row++;
+                    if(matches(candidate, pattern)) {
+                        return candidate;
+                    }
+                }
+                return NO_MORE_ROWS;
+            }
+        };
+    }
+    
+    /**
+     * Returns true if {@link #match(int[])} looks the rows up through an index when the pattern
+     * binds the given column, rather than scanning every row.
+     * <p>
+     * This implementation has no indexes, and returns false.
+     * 
+     * @param column The non-negative index of the column.
+     * @return true if the column is indexed.
+     */
+    public boolean isIndexed(int column) {
+        return false;
+    }
+    
+    /**
+     * Returns true if the row at the given index matches the parameter pattern.
+     * 
+     * @param row The non-negative index of the fact.
+     * @param pattern The Symbol ids to match, one per column, not null.
+     * @return true if every bound column of the pattern equals the row's Symbol id.
+     */
+    public boolean matches(int row, int[] pattern) {
+        for(int column = 0; column < this.arity; column++) {
+            if(pattern[column] != UNBOUND && pattern[column] != this.getSymbolId(row, column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Computes the pattern that corresponds to the parameter goal, given an existing set of 
+     * Substitutions. Columns whose Term is (or is bound to) a constant are bound to that 
+     * constant's Symbol id, and columns whose Term is an unbound Variable are {@code UNBOUND}. 
+     * <p>
+     * If the goal cannot match any fact in this table (for instance, because it has a different 
+     * signature, or one of its Terms is a non-constant Function), this method returns null.
+     * 
+     * @param goal The Predicate to match against this table's facts, not null.
+     * @param substitution The existing set of Substitutions to work with, not null.
+     * @return the pattern for the goal, or null if the goal cannot match any fact in this table.
+     */
+    public int[] getPattern(Predicate goal, Substitution substitution) {
+        
+        if(!this.predicateSymbol.equals(goal.getSymbol()) || this.arity != goal.getArity()) {
+            return null;
+        }
+        
+        int[] pattern = new int[this.arity];
+        for(int column = 0; column < this.arity; column++) {
+            Term term = (Term) goal.getTerms().get(column).replaceVariables(substitution);
+            
+            if(term instanceof Variable) {
+                pattern[column] = UNBOUND;
+            }
+            
+            else if(term.isConstant()) {
+                pattern[column] = getConstantId(term);
+            }
+            
+            else {
+                return null; // Facts only ever hold constants.
+            }
+        }
+        
+        return pattern;
+    }
+    
+    /**
+     * Returns the Symbol id a constant is stored as in a FactTable: the id of its Symbol, which
+     * for a number, or a constant Function named by a numeral, is its canonical numeral.
+     * 
+     * @param constant The constant, not null.
+     * @return the Symbol id of the constant.
+     */
+    public static int getConstantId(Term constant) {
+        return constant.getSymbol().getId();
+    }
+    
+    /**
+     * Attempts to find the Substitution that unifies the parameter goal with the fact at the given
+     * row, given an existing set of Substitutions. If no such Substitution exists, this method 
+     * returns null.
+     * 
+     * @param goal The Predicate to unify, with the same signature as this table, not null.
+     * @param row The non-negative index of the fact.
+     * @param substitution The existing set of Substitutions to work with, not null.
+     * @return a Substitution that unifies the goal with the fact, or null if no Substitution 
+     *     exists.
+     */
+    public Substitution unify(Predicate goal, int row, Substitution substitution) {
+        
+        Substitution theta = substitution;
+        List<Term> terms = goal.getTerms();
+        
+        for(int column = 0; column < this.arity && theta != null; column++) {
+            int symbolId = this.getSymbolId(row, column);
+            Term term = (Term) terms.get(column).replaceVariables(theta);
+            
+            // Constants are compared as they are stored, so that a numeral matches its number.
+            if(term.isConstant()) {
+                if(getConstantId(term) != symbolId) {
+                    return null;
+                }
+            }
+            else {
+                theta = term.unify(Term.constant(Symbol.getById(symbolId)), theta);
+            }
+        }
+        
+        return theta;
+    }
+    
+    /**
+     * Materializes the fact at the given row as a Predicate over constants.
+     * 
+     * @param row The non-negative index of the fact.
+     * @return the fact at the given row.
+     */
+    public Predicate getFact(int row) {
+        Term[] terms = new Term[this.arity];
+        for(int column = 0; column < this.arity; column++) {
+            terms[column] = Term.constant(Symbol.getById(this.getSymbolId(row, column)));
+        }
+        return new Predicate(this.predicateSymbol, terms);
+    }
+    
+    /**
+     * Gets the Symbol of the Predicate whose facts this table stores.
+     * 
+     * @return the Predicate Symbol.
+     */
+    public final Symbol getPredicateSymbol() {
+        return this.predicateSymbol;
+    }
+    
+    /**
+     * Returns the number of arguments of the facts this table stores.
+     * 
+     * @return this table's arity.
+     */
+    public final int getArity() {
+        return this.arity;
+    }
+    
+    /**
+     * Returns the signature of the facts this table stores, defined as a Pair: (Symbol, arity).
+     * 
+     * @return this table's signature.
+     */
+    public final Pair<Symbol, Integer> getSignature() {
+        return this.signature;
+    }
+    
+    /**
+     * Returns a TrieIndex over the facts of this table, sorted on its columns in the given order.
+     * The index is built on the first call for the order, and kept until the number of facts of
+     * the table changes, or a subclass that removes facts calls {@link #clearTrieIndexes()}.
+     * 
+     * @param columnOrder The columns to sort on, first to last, each once, not null.
+     * @return the TrieIndex.
+     * @throws IllegalArgumentException if the column order is not a permutation of the columns.
+     */
+    public synchronized TrieIndex getTrieIndex(int[] columnOrder) {
+        if(this.trieIndexes == null) {
+            this.trieIndexes = new HashMap<String, TrieIndex>();
+        }
+        String key = Arrays.toString(columnOrder);
+        TrieIndex index = this.trieIndexes.get(key);
+        if(index == null || index.getFactCount() != this.getFactCount()) {
+            index = new TrieIndex(this, columnOrder);
+            this.trieIndexes.put(key, index);
+        }
+        return index;
+    }
+    
+    /**
+     * Discards the TrieIndexes built over this table. Subclasses that remove or replace facts call
+     * this method, since the number of facts alone does not tell the indexes are out of date.
+     */
+    protected synchronized void clearTrieIndexes() {
+        this.trieIndexes = null;
+    }
+    
+    /**
+     * Throws an IllegalArgumentException if the parameter pattern does not have one entry per 
+     * column of this table.
+     * 
+     * @param pattern The pattern to check.
+     */
+    protected final void checkPattern(int[] pattern) {
+        if(pattern == null || pattern.length != this.arity) {
+            throw new IllegalArgumentException("Pattern does not match this FactTable's arity of "
+                    + this.arity);
+        }
+    }
+    
+    /**
+     * Returns a String representation of this FactTable, of the form 
+     * {@code predicate_symbol/arity[fact_count]}.
+     * 
+     * @return a String representation of this object.
+     */
+    @Override
+    public String toString() {
+        return this.predicateSymbol + "/" + this.arity + "[" + this.getFactCount() + "]";
+    }
+}
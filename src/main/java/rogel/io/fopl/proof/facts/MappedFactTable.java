@@ -0,0 +1,371 @@
+package rogel.io.fopl.proof.facts;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.util.MappedFile;
+
+/**
+ * A MappedFactTable is a FactTable whose facts are stored off-heap, in a file that is mapped into
+ * memory. Neither the facts nor their indexes are read into the Java heap, so a MappedFactTable 
+ * may hold many more facts than fit in memory. Opening a table only reads the file's header, so
+ * previously written tables are available immediately. Files are written by a 
+ * MappedFactTableWriter.
+ * <p>
+ * The file stores its own dictionary of constant names, sorted by their UTF-8 bytes, and its rows
+ * and indexes refer to constants by their position in that dictionary (their <i>local id</i>). 
+ * Local ids are translated into Symbol ids only as facts are read, and constants in a query are 
+ * translated into local ids through a binary search of the dictionary.
+ * <p>
+ * The file is laid out as follows, with all numbers big-endian:
+ * <ol>
+ *     <li> a header of {@code HEADER_SIZE} bytes: magic number, version, arity, fact count, 
+ *          dictionary size, and the positions of the sections that follow.
+ *     <li> the rows, as {@code factCount * arity} local ids in row-major order.
+ *     <li> one index per column: {@code dictionarySize + 1} offsets followed by the 
+ *          {@code factCount} row numbers ordered by the column's local id.
+ *     <li> the dictionary: {@code dictionarySize + 1} long offsets followed by the UTF-8 bytes of
+ *          the constant names, in order.
+ *     <li> the UTF-8 bytes of the Predicate's name.
+ * </ol>
+ * 
+ * @author recardona
+ * @see MappedFactTableWriter
+ */
+public class MappedFactTable extends FactTable implements Closeable {
+    
+    /** The first four bytes of every MappedFactTable file: "FOPF". */
+    static final int MAGIC = 0x464F5046;
+    
+    /** The version of the file layout described by this class. */
+    static final int VERSION = 1;
+    
+    /** The size of the file header, in bytes. */
+    static final int HEADER_SIZE = 64;
+    
+    /** The character set of the names stored in the file. */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    /** A cursor over no rows. */
+    private static final FactCursor EMPTY_CURSOR = new FactCursor() {
+        
+        @Override
+        public int nextRow() {
+            return NO_MORE_ROWS;
+        }
+    };
+    
+    /** The mapped contents of the file. */
+    private MappedFile file;
+    
+    /** The number of facts stored in the file. */
+    private int factCount;
+    
+    /** The number of constants in the file's dictionary. */
+    private int dictionarySize;
+    
+    /** The position of the first row. */
+    private long rowsOffset;
+    
+    /** The position of the first column's index. */
+    private long indexOffset;
+    
+    /** The position of the dictionary's offsets. */
+    private long dictionaryOffset;
+    
+    /** 
+     * The Symbol id of each local id, plus one, or 0 if the local id has not been translated yet. 
+     * The array is allocated the first time a fact is read.
+     */
+    private int[] symbolIds;
+    
+    /**
+     * Opens the MappedFactTable stored in the given file.
+     * 
+     * @param file The file written by a MappedFactTableWriter, not null.
+     * @return the MappedFactTable stored in the file.
+     * @throws IOException if the file cannot be read, or is not a MappedFactTable file.
+     */
+    public static MappedFactTable open(File file) throws IOException {
+        
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        MappedFile mappedFile;
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if(channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a MappedFactTable file.");
+            }
+            mappedFile = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+        }
+        finally {
+            randomAccessFile.close(); // The mapping stays valid after the channel is closed.
+        }
+        
+        if(mappedFile.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a MappedFactTable file.");
+        }
+        
+        if(mappedFile.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + mappedFile.getInt(4));
+        }
+        
+        // Read the Predicate's name.
+        long nameOffset = mappedFile.getLong(48);
+        byte[] name = new byte[mappedFile.getInt(56)];
+        for(int index = 0; index < name.length; index++) {
+            name[index] = mappedFile.getByte(nameOffset + index);
+        }
+        
+        return new MappedFactTable(Symbol.get(new String(name, UTF8)), mappedFile);
+    }
+    
+    /**
+     * Constructs a MappedFactTable over the contents of a mapped file.
+     * 
+     * @param predicateSymbol The Symbol of the Predicate whose facts the file stores.
+     * @param file The mapped file.
+     */
+    private MappedFactTable(Symbol predicateSymbol, MappedFile file) {
+        super(predicateSymbol, file.getInt(8));
+        this.file = file;
+        this.factCount = file.getInt(12);
+        this.dictionarySize = file.getInt(16);
+        this.rowsOffset = file.getLong(24);
+        this.indexOffset = file.getLong(32);
+        this.dictionaryOffset = file.getLong(40);
+        this.symbolIds = null;
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getFactCount()
+     */
+    @Override
+    public int getFactCount() {
+        return this.factCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#getSymbolId(int, int)
+     */
+    @Override
+    public int getSymbolId(int row, int column) {
+        return this.toSymbolId(this.getLocalId(row, column));
+    }
+    
+    /**
+     * Returns a cursor over the rows of this table that match the parameter pattern. If the 
+     * pattern binds any column, the cursor only visits the rows of the most selective bound 
+     * column's index entry. Rows are compared by their local ids, without translating them into
+     * Symbols.
+     * 
+     * @param pattern The Symbol ids to match, one per column, not null.
+     * @return a FactCursor over the matching rows.
+     */
+    @Override
+    public FactCursor match(int[] pattern) {
+        this.checkPattern(pattern);
+        
+        // Translate the pattern into local ids, and find the most selective bound column.
+        final int[] localPattern = new int[this.arity];
+        int bestColumn = -1;
+        int bestRowCount = this.factCount;
+        for(int column = 0; column < this.arity; column++) {
+            localPattern[column] = UNBOUND;
+            
+            if(pattern[column] != UNBOUND) {
+                localPattern[column] = this.toLocalId(Symbol.getById(pattern[column]));
+                
+                if(localPattern[column] == UNBOUND) {
+                    return EMPTY_CURSOR; // The constant does not appear in the file.
+                }
+                
+                int rowCount = this.getIndexEnd(column, localPattern[column]) 
+                        - this.getIndexStart(column, localPattern[column]);
+                if(bestColumn == -1 || rowCount < bestRowCount) {
+                    bestColumn = column;
+                    bestRowCount = rowCount;
+                }
+            }
+        }
+        
+        // If nothing is bound, every row must be visited.
+        if(bestColumn == -1) {
+            return new FactCursor() {
+                
+                private int row = 0;
+                
+                @Override
+                public int nextRow() {
+                    return (this.row < factCount) ? this.row++ : NO_MORE_ROWS;
+                }
+            };
+        }
+        
+        final long rows = this.getIndexRowsOffset(bestColumn);
+        final int end = this.getIndexEnd(bestColumn, localPattern[bestColumn]);
+        final int start = this.getIndexStart(bestColumn, localPattern[bestColumn]);
+        return new FactCursor() {
+            
+            private int position = start;
+            
+            @Override
+            public int nextRow() {
+                while(this.position < end) {
+                    int candidate = file.getInt(rows + 4L * this.position++);
+                    if(matchesLocal(candidate, localPattern)) {
+                        return candidate;
+                    }
+                }
+                return NO_MORE_ROWS;
+            }
+        };
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.facts.FactTable#isIndexed(int)
+     */
+    @Override
+    public boolean isIndexed(int column) {
+        return true;
+    }
+    
+    /**
+     * Releases this table's reference to the mapped file. The memory is unmapped once the table 
+     * is garbage collected.
+     */
+    @Override
+    public void close() {
+        this.file = null;
+        this.symbolIds = null;
+    }
+    
+    /**
+     * Returns true if the row at the given index matches the parameter pattern of local ids.
+     * 
+     * @param row The non-negative index of the fact.
+     * @param localPattern The local ids to match, one per column.
+     * @return true if every bound column of the pattern equals the row's local id.
+     */
+    private boolean matchesLocal(int row, int[] localPattern) {
+        for(int column = 0; column < this.arity; column++) {
+            if(localPattern[column] != UNBOUND && localPattern[column] != this.getLocalId(row, column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the local id stored at the given row and column of the file.
+     * 
+     * @param row The non-negative index of the fact.
+     * @param column The non-negative index of the fact's argument.
+     * @return the local id at the given row and column.
+     */
+    private int getLocalId(int row, int column) {
+        if(row >= this.factCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " is not in FactTable " + this);
+        }
+        return this.file.getInt(this.rowsOffset + 4L * ((long) row * this.arity + column));
+    }
+    
+    /**
+     * Translates a local id into the id of the Symbol with the same name, creating the Symbol if
+     * it is not yet part of the domain of discourse.
+     * 
+     * @param localId The local id to translate.
+     * @return the Symbol id of the constant.
+     */
+    private synchronized int toSymbolId(int localId) {
+        if(this.symbolIds == null) {
+            this.symbolIds = new int[this.dictionarySize];
+        }
+        
+        if(this.symbolIds[localId] == 0) {
+            long start = this.file.getLong(this.dictionaryOffset + 8L * localId);
+            long end = this.file.getLong(this.dictionaryOffset + 8L * (localId + 1));
+            byte[] name = new byte[(int) (end - start)];
+            long bytesOffset = this.getDictionaryBytesOffset();
+            for(int index = 0; index < name.length; index++) {
+                name[index] = this.file.getByte(bytesOffset + start + index);
+            }
+            this.symbolIds[localId] = Symbol.get(new String(name, UTF8)).getId() + 1;
+        }
+        
+        return this.symbolIds[localId] - 1;
+    }
+    
+    /**
+     * Finds the local id of the parameter Symbol, through a binary search of the dictionary.
+     * 
+     * @param symbol The Symbol to look up.
+     * @return the local id of the Symbol, or {@code UNBOUND} if it is not in the dictionary.
+     */
+    private int toLocalId(Symbol symbol) {
+        byte[] name = symbol.toString().getBytes(UTF8);
+        long bytesOffset = this.getDictionaryBytesOffset();
+        int low = 0;
+        int high = this.dictionarySize - 1;
+        
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            long start = this.file.getLong(this.dictionaryOffset + 8L * middle);
+            long end = this.file.getLong(this.dictionaryOffset + 8L * (middle + 1));
+            
+            // Compare the entry's bytes with the name's bytes, as unsigned values.
+            int comparison = 0;
+            long length = end - start;
+            for(int index = 0; comparison == 0 && index < Math.min(length, name.length); index++) {
+                comparison = (this.file.getByte(bytesOffset + start + index) & 0xFF) - (name[index] & 0xFF);
+            }
+            if(comparison == 0) {
+                comparison = Long.compare(length, name.length);
+            }
+            
+            if(comparison < 0) {
+                low = middle + 1;
+            }
+            else if(comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        
+        return UNBOUND;
+    }
+    
+    /** Returns the position of the first byte of the dictionary's names. */
+    private long getDictionaryBytesOffset() {
+        return this.dictionaryOffset + 8L * (this.dictionarySize + 1);
+    }
+    
+    /** Returns the position of the offsets of the given column's index. */
+    private long getIndexOffsetsOffset(int column) {
+        return this.indexOffset + 4L * column * ((long) this.dictionarySize + 1 + this.factCount);
+    }
+    
+    /** Returns the position of the ordered row numbers of the given column's index. */
+    private long getIndexRowsOffset(int column) {
+        return this.getIndexOffsetsOffset(column) + 4L * (this.dictionarySize + 1);
+    }
+    
+    /** Returns the position of the first row holding the local id in the column's index. */
+    private int getIndexStart(int column, int localId) {
+        return this.file.getInt(this.getIndexOffsetsOffset(column) + 4L * localId);
+    }
+    
+    /** Returns the position after the last row holding the local id in the column's index. */
+    private int getIndexEnd(int column, int localId) {
+        return this.file.getInt(this.getIndexOffsetsOffset(column) + 4L * (localId + 1));
+    }
+}
@@ -0,0 +1,285 @@
+package rogel.io.fopl.proof.facts;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.terms.Term;
+import rogel.io.util.MappedFile;
+
+/**
+ * A MappedFactTableWriter writes the ground facts of a single Predicate signature into a file that
+ * can be opened as a MappedFactTable. Facts are streamed to the file as they are added, so only 
+ * the dictionary of distinct constants is kept in memory. Closing the writer sorts the dictionary
+ * and builds the index of every column in place, through a memory mapping of the file.
+ * 
+ * @author recardona
+ * @see MappedFactTable
+ */
+public class MappedFactTableWriter implements Closeable {
+
+    /** The file being written. */
+    private File file;
+    
+    /** The Symbol of the Predicate whose facts are being written. */
+    private Symbol predicateSymbol;
+    
+    /** The number of arguments of the facts being written. */
+    private int arity;
+    
+    /** The stream the rows are written to, in insertion-order local ids. */
+    private DataOutputStream rows;
+    
+    /** The number of facts written. */
+    private int factCount;
+    
+    /** The insertion-order local id of each constant written so far. */
+    private HashMap<Symbol, Integer> localIds;
+    
+    /** The constants written so far, in insertion order. */
+    private List<Symbol> dictionary;
+    
+    /**
+     * Constructs a MappedFactTableWriter that writes the facts of the given Predicate Symbol and 
+     * arity to the given file. Any existing file is overwritten.
+     * 
+     * @param file The file to write, not null.
+     * @param predicateSymbol The Symbol of the Predicate whose facts are written, not null.
+     * @param arity The number of arguments of the facts written, not negative.
+     * @throws IOException if the file cannot be written.
+     */
+    public MappedFactTableWriter(File file, Symbol predicateSymbol, int arity) throws IOException {
+        
+        if(predicateSymbol == null || arity < 0) {
+            throw new IllegalArgumentException("Cannot write facts without a Predicate Symbol and "
+                    + "a non-negative arity.");
+        }
+        
+        this.file = file;
+        this.predicateSymbol = predicateSymbol;
+        this.arity = arity;
+        this.rows = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        this.rows.write(new byte[MappedFactTable.HEADER_SIZE]); // Written for real on close.
+        this.factCount = 0;
+        this.localIds = new HashMap<Symbol, Integer>();
+        this.dictionary = new ArrayList<Symbol>();
+    }
+    
+    /**
+     * Writes a fact, given as its argument Symbols.
+     * 
+     * @param symbols The Symbols of the fact's arguments, one per column, not null.
+     * @throws IOException if the fact cannot be written.
+     * @throws IllegalArgumentException if the number of Symbols does not match the arity.
+     */
+    public void add(Symbol... symbols) throws IOException {
+        
+        if(symbols.length != this.arity) {
+            throw new IllegalArgumentException("Number of arguments (" + symbols.length 
+                    + ") does not match this writer's arity of " + this.arity);
+        }
+        
+        if(this.factCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("A MappedFactTable cannot hold more than " 
+                    + Integer.MAX_VALUE + " facts.");
+        }
+        
+        for(Symbol symbol : symbols) {
+            Integer localId = this.localIds.get(symbol);
+            
+            if(localId == null) {
+                localId = this.dictionary.size();
+                this.localIds.put(symbol, localId);
+                this.dictionary.add(symbol);
+            }
+            
+            this.rows.writeInt(localId);
+        }
+        
+        this.factCount++;
+    }
+    
+    /**
+     * Writes a ground fact. The fact's Terms must all be constants.
+     * 
+     * @param fact The fact to write, with the signature of this writer, not null.
+     * @throws IOException if the fact cannot be written.
+     * @throws IllegalArgumentException if the fact has a different signature than this writer, or
+     *     if any of its Terms is not a constant.
+     */
+    public void add(Predicate fact) throws IOException {
+        
+        if(!this.predicateSymbol.equals(fact.getSymbol()) || this.arity != fact.getArity()) {
+            throw new IllegalArgumentException("Fact " + fact + " does not belong in " 
+                    + this.predicateSymbol + "/" + this.arity);
+        }
+        
+        Symbol[] symbols = new Symbol[this.arity];
+        for(int column = 0; column < this.arity; column++) {
+            Term term = fact.getTerms().get(column);
+            if(!term.isConstant()) {
+                throw new IllegalArgumentException("Fact " + fact + " is not ground: " + term 
+                        + " is not a constant.");
+            }
+            symbols[column] = Symbol.getById(FactTable.getConstantId(term));
+        }
+        this.add(symbols);
+    }
+    
+    /**
+     * Returns the number of facts written so far.
+     * 
+     * @return the number of facts written.
+     */
+    public int getFactCount() {
+        return this.factCount;
+    }
+    
+    /**
+     * Finishes the file: sorts the dictionary, translates the rows into sorted local ids, builds 
+     * the index of every column, and writes the dictionary and the header.
+     * 
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        
+        if(this.rows == null) {
+            return; // Already closed.
+        }
+        
+        this.rows.close();
+        this.rows = null;
+        
+        // Sort the dictionary by the UTF-8 bytes of the names.
+        int dictionarySize = this.dictionary.size();
+        final byte[][] names = new byte[dictionarySize][];
+        Integer[] sortedOrder = new Integer[dictionarySize];
+        long nameBytes = 0;
+        for(int localId = 0; localId < dictionarySize; localId++) {
+            names[localId] = this.dictionary.get(localId).toString().getBytes(MappedFactTable.UTF8);
+            sortedOrder[localId] = localId;
+            nameBytes += names[localId].length;
+        }
+        Arrays.sort(sortedOrder, new Comparator<Integer>() {
+            
+            @Override
+            public int compare(Integer first, Integer second) {
+                return compareBytes(names[first], names[second]);
+            }
+        });
+        int[] sortedIds = new int[dictionarySize];
+        for(int position = 0; position < dictionarySize; position++) {
+            sortedIds[sortedOrder[position]] = position;
+        }
+        
+        // Compute the layout of the file.
+        byte[] predicateName = this.predicateSymbol.toString().getBytes(MappedFactTable.UTF8);
+        long rowsOffset = MappedFactTable.HEADER_SIZE;
+        long indexOffset = rowsOffset + 4L * this.factCount * this.arity;
+        long indexSize = 4L * this.arity * ((long) dictionarySize + 1 + this.factCount);
+        long dictionaryOffset = (indexOffset + indexSize + 7) & ~7L;    // 8-byte aligned.
+        long nameOffset = dictionaryOffset + 8L * (dictionarySize + 1) + nameBytes;
+        long length = nameOffset + predicateName.length;
+        
+        RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedFile mapped = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, length);
+            
+            // Translate the rows into sorted local ids.
+            long cellCount = (long) this.factCount * this.arity;
+            for(long cell = 0; cell < cellCount; cell++) {
+                long position = rowsOffset + 4L * cell;
+                mapped.putInt(position, sortedIds[mapped.getInt(position)]);
+            }
+            
+            // Build the index of each column with a counting sort of its rows.
+            for(int column = 0; column < this.arity; column++) {
+                long offsetsOffset = indexOffset + 4L * column * ((long) dictionarySize + 1 + this.factCount);
+                long indexRowsOffset = offsetsOffset + 4L * (dictionarySize + 1);
+                
+                int[] nextPosition = new int[dictionarySize + 1];
+                for(int row = 0; row < this.factCount; row++) {
+                    nextPosition[mapped.getInt(rowsOffset + 4L * ((long) row * this.arity + column)) + 1]++;
+                }
+                for(int localId = 0; localId < dictionarySize; localId++) {
+                    nextPosition[localId + 1] += nextPosition[localId];
+                }
+                for(int localId = 0; localId <= dictionarySize; localId++) {
+                    mapped.putInt(offsetsOffset + 4L * localId, nextPosition[localId]);
+                }
+                for(int row = 0; row < this.factCount; row++) {
+                    int localId = mapped.getInt(rowsOffset + 4L * ((long) row * this.arity + column));
+                    mapped.putInt(indexRowsOffset + 4L * nextPosition[localId]++, row);
+                }
+            }
+            
+            // Write the dictionary, in sorted order.
+            long bytesOffset = dictionaryOffset + 8L * (dictionarySize + 1);
+            long nameStart = 0;
+            for(int position = 0; position < dictionarySize; position++) {
+                byte[] name = names[sortedOrder[position]];
+                mapped.putLong(dictionaryOffset + 8L * position, nameStart);
+                for(int index = 0; index < name.length; index++) {
+                    mapped.putByte(bytesOffset + nameStart + index, name[index]);
+                }
+                nameStart += name.length;
+            }
+            mapped.putLong(dictionaryOffset + 8L * dictionarySize, nameStart);
+            for(int index = 0; index < predicateName.length; index++) {
+                mapped.putByte(nameOffset + index, predicateName[index]);
+            }
+            
+            // Write the header.
+            mapped.putInt(0, MappedFactTable.MAGIC);
+            mapped.putInt(4, MappedFactTable.VERSION);
+            mapped.putInt(8, this.arity);
+            mapped.putInt(12, this.factCount);
+            mapped.putInt(16, dictionarySize);
+            mapped.putLong(24, rowsOffset);
+            mapped.putLong(32, indexOffset);
+            mapped.putLong(40, dictionaryOffset);
+            mapped.putLong(48, nameOffset);
+            mapped.putInt(56, predicateName.length);
+            mapped.force();
+        }
+        finally {
+            randomAccessFile.close();
+        }
+        
+        this.localIds = null;
+        this.dictionary = null;
+    }
+    
+    /**
+     * Compares two byte arrays lexicographically, treating bytes as unsigned values.
+     * 
+     * @param first The first array.
+     * @param second The second array.
+     * @return a negative number, zero, or a positive number as the first array is less than, equal
+     *     to, or greater than the second.
+     */
+    private static int compareBytes(byte[] first, byte[] second) {
+        for(int index = 0; index < Math.min(first.length, second.length); index++) {
+            int comparison = (first[index] & 0xFF) - (second[index] & 0xFF);
+            if(comparison != 0) {
+                return comparison;
+            }
+        }
+        return first.length - second.length;
+    }
+}
@@ -0,0 +1,127 @@
+package rogel.io.fopl.proof.facts;
+
+import java.util.Arrays;
+
+/**
+ * A TrieIndex holds the facts of a FactTable sorted on its columns, in a given order: first on
+ * one column, then, among the facts with the same Symbol id in it, on the next, and so on. The
+ * sorted facts are a trie, whose nodes at each level are the runs of facts that agree on the
+ * columns before it, and a TrieIterator walks it, finding a Symbol id in a node by binary search.
+ * <p>
+ * The facts are sorted with a radix sort, two passes of 16 bits per column, from the last column
+ * of the order to the first, so the index is built in time linear in the number of facts.
+ * 
+ * @author recardona
+ */
+public final class TrieIndex {
+    
+    /** The number of values of a radix sort digit. */
+    private static final int RADIX = 1 << 16;
+    
+    /** The columns of the FactTable, in the order they are sorted on. */
+    private int[] columnOrder;
+    
+    /** The Symbol ids of each column of the order, for the sorted facts. */
+    private int[][] levels;
+    
+    /** The number of facts of the index. */
+    private int factCount;
+    
+    /**
+     * Constructs a TrieIndex over the current facts of a FactTable.
+     * 
+     * @param factTable The FactTable, not null.
+     * @param columnOrder The columns of the FactTable to sort on, first to last, each once.
+     * @throws IllegalArgumentException if the column order is not a permutation of the columns.
+     */
+    public TrieIndex(FactTable factTable, int[] columnOrder) {
+        
+        int arity = factTable.getArity();
+        boolean[] seen = new boolean[arity];
+        if(columnOrder.length != arity) {
+            throw new IllegalArgumentException("Column order has " + columnOrder.length 
+                    + " columns, but FactTable " + factTable + " has " + arity);
+        }
+        for(int column : columnOrder) {
+            if(column < 0 || column >= arity || seen[column]) {
+                throw new IllegalArgumentException("Column order does not list each column of " 
+                        + factTable + " once.");
+            }
+            seen[column] = true;
+        }
+        
+        this.columnOrder = columnOrder.clone();
+        this.factCount = factTable.getFactCount();
+        
+        // Sort the rows on the last column of the order first: each pass is stable, so the 
+        // passes over the earlier columns keep the order of the later ones among equal ids.
+        int[] rows = new int[this.factCount];
+        for(int row = 0; row < this.factCount; row++) {
+            rows[row] = row;
+        }
+        int[] buffer = new int[this.factCount];
+        int[] values = new int[this.factCount];
+        int[] valueBuffer = new int[this.factCount];
+        int[] counts = new int[RADIX + 1];
+        for(int level = arity - 1; level >= 0; level--) {
+            for(int position = 0; position < this.factCount; position++) {
+                values[position] = factTable.getSymbolId(rows[position], this.columnOrder[level]);
+            }
+            for(int shift = 0; shift < 32; shift += 16) {
+                Arrays.fill(counts, 0);
+                for(int position = 0; position < this.factCount; position++) {
+                    counts[((values[position] >>> shift) & (RADIX - 1)) + 1]++;
+                }
+                for(int digit = 0; digit < RADIX; digit++) {
+                    counts[digit + 1] += counts[digit];
+                }
+                for(int position = 0; position < this.factCount; position++) {
+                    int target = counts[(values[position] >>> shift) & (RADIX - 1)]++;
+                    buffer[target] = rows[position];
+                    valueBuffer[target] = values[position];
+                }
+                int[] swap = rows;
+                rows = buffer;
+                buffer = swap;
+                swap = values;
+                values = valueBuffer;
+                valueBuffer = swap;
+            }
+        }
+        
+        this.levels = new int[arity][this.factCount];
+        for(int level = 0; level < arity; level++) {
+            for(int position = 0; position < this.factCount; position++) {
+                this.levels[level][position] = factTable.getSymbolId(rows[position], this.columnOrder[level]);
+            }
+        }
+    }
+    
+    /**
+     * Returns the columns of the FactTable, in the order the facts are sorted on.
+     * 
+     * @return the column order.
+     */
+    public int[] getColumnOrder() {
+        return this.columnOrder.clone();
+    }
+    
+    /**
+     * Returns the number of facts of the index, which is the number of facts of the FactTable when
+     * the index was built.
+     * 
+     * @return the number of facts.
+     */
+    public int getFactCount() {
+        return this.factCount;
+    }
+    
+    /**
+     * Returns a new TrieIterator over this index, at its root.
+     * 
+     * @return the TrieIterator.
+     */
+    public TrieIterator iterator() {
+        return new TrieIterator(this.levels, this.factCount);
+    }
+}
@@ -0,0 +1,156 @@
+package rogel.io.fopl.proof.facts;
+
+/**
+ * A TrieIterator walks the trie of a TrieIndex, one level at a time. At each level, it is at one
+ * of the Symbol ids of the current node, which are in increasing order: {@link #next()} moves to
+ * the next of them, {@link #seek(int)} to the first that is at least a given id, and 
+ * {@link #open()} goes down to the node of the facts that hold the current id. These are the
+ * operations of a leapfrog triejoin.
+ * <p>
+ * An iterator starts at the root, above the first level, where only {@link #open()} may be called.
+ * Moves within a level gallop: they look ahead one fact, then two, then four, before they search
+ * the range found, so that a move costs the logarithm of the distance moved rather than of the
+ * size of the node.
+ * 
+ * @author recardona
+ */
+public final class TrieIterator {
+    
+    /** The Symbol ids of each level, for the sorted facts. */
+    private final int[][] levels;
+    
+    /** The number of sorted facts. */
+    private final int factCount;
+    
+    /** The current level, or -1 at the root. */
+    private int level;
+    
+    /** The position of the current fact at each level down to the current one. */
+    private final int[] positions;
+    
+    /** The end of the node at each level down to the current one. */
+    private final int[] ends;
+    
+    /**
+     * Constructs a TrieIterator at the root of a trie.
+     * 
+     * @param levels The Symbol ids of each level, for the sorted facts.
+     * @param factCount The number of sorted facts.
+     */
+    TrieIterator(int[][] levels, int factCount) {
+        this.levels = levels;
+        this.factCount = factCount;
+        this.level = -1;
+        this.positions = new int[levels.length];
+        this.ends = new int[levels.length];
+    }
+    
+    /**
+     * Returns the current level.
+     * 
+     * @return the current level, or -1 at the root.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+    
+    /**
+     * Goes down to the first Symbol id of the node below the current one: the node of the facts
+     * that hold the current Symbol id, or the first level, from the root. The iterator must not be
+     * at the end of its level, nor at the last level.
+     */
+    public void open() {
+        int start;
+        int end;
+        if(this.level < 0) {
+            start = 0;
+            end = this.factCount;
+        }
+        else {
+            start = this.positions[this.level];
+            end = this.search(this.levels[this.level][start], start, true);
+        }
+        this.level++;
+        this.positions[this.level] = start;
+        this.ends[this.level] = end;
+    }
+    
+    /**
+     * Goes back up to the Symbol id of the node above, where the iterator was when it was opened.
+     */
+    public void up() {
+        this.level--;
+    }
+    
+    /**
+     * Returns true if the iterator is past the last Symbol id of its node.
+     * 
+     * @return true if the iterator is at the end of its node.
+     */
+    public boolean atEnd() {
+        return this.positions[this.level] >= this.ends[this.level];
+    }
+    
+    /**
+     * Returns the current Symbol id. The iterator must not be at the end of its node.
+     * 
+     * @return the current Symbol id.
+     */
+    public int key() {
+        return this.levels[this.level][this.positions[this.level]];
+    }
+    
+    /**
+     * Moves to the next Symbol id of the node, or to its end. The iterator must not be at the end
+     * of its node.
+     */
+    public void next() {
+        int position = this.positions[this.level];
+        this.positions[this.level] = this.search(this.levels[this.level][position], position, true);
+    }
+    
+    /**
+     * Moves to the first Symbol id of the node that is at least the given id, or to its end, if
+     * the current Symbol id is less than it.
+     * 
+     * @param id The Symbol id to seek.
+     */
+    public void seek(int id) {
+        this.positions[this.level] = this.search(id, this.positions[this.level], false);
+    }
+    
+    /**
+     * Finds the first fact of the current node, from a position on, whose Symbol id at the
+     * current level is greater than, or at least, a given id.
+     * 
+     * @param id The Symbol id.
+     * @param from The position to search from.
+     * @param strict true to find the first greater id, false to find the first id at least as great.
+     * @return the position found, or the end of the node.
+     */
+    private int search(int id, int from, boolean strict) {
+        int[] values = this.levels[this.level];
+        int end = this.ends[this.level];
+        
+        // Gallop to a range that holds the position, then search it.
+        int low = from;
+        int step = 1;
+        int high = from;
+        while(high < end && (strict ? values[high] <= id : values[high] < id)) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, end);
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(strict ? values[middle] <= id : values[middle] < id) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Contains classes that store ground facts compactly, outside of the HornClause object graph. 
+ * Facts in these tables are rows of Symbol ids, and are used by the solver as an additional source
+ * of clauses for the Predicate signature they store.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.proof.facts;
@@ -0,0 +1,139 @@
+package rogel.io.fopl.proof.rete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An AlphaMemory holds the Facts that pass the tests of a condition that involve the condition
+ * alone: its Predicate signature, its constants, and the columns that repeat a Variable. The
+ * Predicate and constant tests are made by the hash tables that route each Fact to its
+ * AlphaMemories; the AlphaMemory itself only checks the repeated Variables. AlphaMemories are
+ * shared by the conditions with the same tests, and pass the Facts that match them on to the join
+ * nodes of those conditions.
+ * <p>
+ * The Facts are kept in hash tables keyed by the columns the join nodes join on, one per set of
+ * columns, so that the join nodes that join on the same columns share one table.
+ *
+ * @author recardona
+ */
+final class AlphaMemory {
+
+    /** The number of this AlphaMemory in its network. */
+    final int id;
+
+    /** The columns that repeat a Variable of an earlier column. */
+    private final int[] repeatedColumns;
+
+    /** The earlier column each of those columns must equal. */
+    private final int[] firstColumns;
+
+    /** The join nodes of the conditions that use this AlphaMemory, newest first. */
+    private final List<JoinNode> successors;
+
+    /** The Facts of this AlphaMemory, by the values of some columns, keyed by the columns. */
+    private final HashMap<String, Index> indexes;
+
+    /**
+     * Constructs an AlphaMemory.
+     *
+     * @param id The number of the AlphaMemory in its network.
+     * @param repeatedColumns The columns that repeat a Variable of an earlier column.
+     * @param firstColumns The earlier column each of those columns must equal.
+     */
+    AlphaMemory(int id, int[] repeatedColumns, int[] firstColumns) {
+        this.id = id;
+        this.repeatedColumns = repeatedColumns;
+        this.firstColumns = firstColumns;
+        this.successors = new ArrayList<JoinNode>();
+        this.indexes = new HashMap<String, Index>();
+    }
+
+    /**
+     * Adds a join node to the successors of this AlphaMemory. The newest join nodes are activated
+     * first, so that a join node is activated before the join nodes of the conditions before it:
+     * when a Fact matches two conditions of a rule, the Token it forms for the first condition
+     * then reaches the second after the Fact itself did, and the Fact is joined with itself once.
+     *
+     * @param successor The join node.
+     */
+    void addSuccessor(JoinNode successor) {
+        this.successors.add(0, successor);
+    }
+
+    /**
+     * Returns the hash table of the Facts of this AlphaMemory by the values of some columns,
+     * creating it if there is none. Hash tables must be created before any Fact reaches the
+     * AlphaMemory.
+     *
+     * @param columns The columns.
+     * @return the hash table.
+     */
+    HashMap<Key, List<Fact>> getIndex(int[] columns) {
+        String key = Arrays.toString(columns);
+        Index index = this.indexes.get(key);
+        if(index == null) {
+            index = new Index(columns);
+            this.indexes.put(key, index);
+        }
+        return index.facts;
+    }
+
+    /**
+     * Returns true if a Fact, which passed the Predicate and constant tests of this AlphaMemory,
+     * has the same Symbol in the columns that repeat a Variable.
+     *
+     * @param fact The Fact.
+     * @return true if the Fact belongs in this AlphaMemory.
+     */
+    boolean matches(Fact fact) {
+        for(int test = 0; test < this.repeatedColumns.length; test++) {
+            if(fact.symbolIds[this.repeatedColumns[test]] != fact.symbolIds[this.firstColumns[test]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes a Fact that was added to or removed from this AlphaMemory on to its join nodes.
+     *
+     * @param fact The Fact.
+     * @param add Whether the Fact was added.
+     */
+    void activate(Fact fact, boolean add) {
+        for(Index index : this.indexes.values()) {
+            int[] values = new int[index.columns.length];
+            for(int position = 0; position < values.length; position++) {
+                values[position] = fact.symbolIds[index.columns[position]];
+            }
+            JoinNode.update(index.facts, new Key(values), fact, add);
+        }
+        for(JoinNode successor : this.successors) {
+            successor.rightActivate(fact, add);
+        }
+    }
+
+    /**
+     * An Index is a hash table of the Facts of an AlphaMemory by the values of some columns.
+     */
+    private static final class Index {
+
+        /** The columns of the key. */
+        final int[] columns;
+
+        /** The Facts, by the values of the columns. */
+        final HashMap<Key, List<Fact>> facts;
+
+        /**
+         * Constructs an empty Index.
+         *
+         * @param columns The columns of the key.
+         */
+        Index(int[] columns) {
+            this.columns = columns;
+            this.facts = new HashMap<Key, List<Fact>>();
+        }
+    }
+}
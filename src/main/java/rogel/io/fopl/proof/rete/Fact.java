@@ -0,0 +1,81 @@
+package rogel.io.fopl.proof.rete;
+
+import java.util.Arrays;
+
+/**
+ * A Fact is a ground fact held by a Rete network: the number of its Predicate signature and the
+ * Symbol ids of its terms. A Fact holds while it is asserted, or while some match of a rule body
+ * derives it and it is not overdeleted by a retraction; the network keeps one Fact per distinct
+ * fact, so that Facts are compared by identity once they are in the network.
+ *
+ * @author recardona
+ */
+final class Fact {
+
+    /** The number of the Predicate signature of this Fact. */
+    final int predicate;
+
+    /** The Symbol ids of the terms of this Fact. */
+    final int[] symbolIds;
+
+    /** Whether this Fact was asserted. */
+    boolean asserted;
+
+    /** The number of matches of rule bodies that derive this Fact. */
+    int support;
+
+    /** Whether this Fact was propagated through the network, and not retracted since. */
+    boolean propagated;
+
+    /**
+     * Whether this Fact lost a match during the current retraction, and is held back until the
+     * retraction checks whether it is still derived.
+     */
+    boolean overdeleted;
+
+    /**
+     * Constructs a Fact that is neither asserted nor derived.
+     *
+     * @param predicate The number of the Predicate signature of the Fact.
+     * @param symbolIds The Symbol ids of the terms of the Fact.
+     */
+    Fact(int predicate, int[] symbolIds) {
+        this.predicate = predicate;
+        this.symbolIds = symbolIds;
+    }
+
+    /**
+     * Returns true if this Fact holds: if it is asserted, or derived by a rule and not
+     * overdeleted.
+     *
+     * @return true if this Fact holds.
+     */
+    boolean holds() {
+        return this.asserted || (this.support > 0 && !this.overdeleted);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.predicate + Arrays.hashCode(this.symbolIds);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof Fact)) {
+            return false;
+        }
+        Fact other = (Fact) obj;
+        return this.predicate == other.predicate && Arrays.equals(this.symbolIds, other.symbolIds);
+    }
+}
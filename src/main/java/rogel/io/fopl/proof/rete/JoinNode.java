@@ -0,0 +1,175 @@
+package rogel.io.fopl.proof.rete;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A JoinNode matches one condition of a rule body: it joins the Tokens of the conditions before
+ * it (its left input, from its parent) with the Facts of the condition's AlphaMemory (its right
+ * input) on the Variables they share, and passes each Token it forms on to the nodes after it.
+ * <p>
+ * Both inputs are kept in hash tables keyed by the values of the shared Variables, so that an
+ * activation only visits the Tokens or Facts it joins with: the Tokens by the JoinNode, and the
+ * Facts by the AlphaMemory, for every JoinNode that joins on the same columns. A JoinNode for a
+ * first condition has no parent: each Fact forms a Token on its own. JoinNodes are shared by the
+ * rules whose bodies begin with the same conditions.
+ *
+ * @author recardona
+ */
+final class JoinNode {
+
+    /** The number of this JoinNode in its network. */
+    final int id;
+
+    /** The node of the conditions before this one, or null for a first condition. */
+    private final JoinNode parent;
+
+    /** The conditions before this one that bind the shared Variables. */
+    private final int[] leftConditions;
+
+    /** The columns of those conditions that bind the shared Variables. */
+    private final int[] leftColumns;
+
+    /** The columns of this condition that hold the shared Variables. */
+    private final int[] rightColumns;
+
+    /** The Tokens of the conditions before this one, by the values of the shared Variables. */
+    private final HashMap<Key, List<Token>> leftIndex;
+
+    /**
+     * The Facts of this condition's AlphaMemory, by the values of the shared Variables, kept by
+     * the AlphaMemory, or null for a first condition.
+     */
+    private final HashMap<Key, List<Fact>> rightIndex;
+
+    /** The nodes of the conditions after this one. */
+    final List<JoinNode> children;
+
+    /** The nodes of the rules whose body ends with this condition. */
+    final List<ProductionNode> productions;
+
+    /**
+     * Constructs a JoinNode.
+     *
+     * @param id The number of the JoinNode in its network.
+     * @param parent The node of the conditions before this one, or null for a first condition.
+     * @param leftConditions The conditions before this one that bind the shared Variables.
+     * @param leftColumns The columns of those conditions that bind the shared Variables.
+     * @param rightColumns The columns of this condition that hold the shared Variables.
+     * @param alphaMemory The AlphaMemory of this condition, which this node becomes a successor of.
+     */
+    JoinNode(int id, JoinNode parent, int[] leftConditions, int[] leftColumns, int[] rightColumns,
+            AlphaMemory alphaMemory) {
+        this.id = id;
+        this.parent = parent;
+        this.leftConditions = leftConditions;
+        this.leftColumns = leftColumns;
+        this.rightColumns = rightColumns;
+        this.leftIndex = new HashMap<Key, List<Token>>();
+        this.rightIndex = parent == null ? null : alphaMemory.getIndex(rightColumns);
+        this.children = new ArrayList<JoinNode>();
+        this.productions = new ArrayList<ProductionNode>();
+        if(parent != null) {
+            parent.children.add(this);
+        }
+        alphaMemory.addSuccessor(this);
+    }
+
+    /**
+     * Joins a Fact added to or removed from this condition's AlphaMemory, which already updated
+     * its hash tables, with the Tokens of the conditions before it.
+     *
+     * @param fact The Fact.
+     * @param add Whether the Fact was added.
+     */
+    void rightActivate(Fact fact, boolean add) {
+        if(this.parent == null) {
+            this.propagate(new Token(null, fact), add);
+            return;
+        }
+        if(this.leftIndex.isEmpty()) {
+            return;
+        }
+
+        int[] values = new int[this.rightColumns.length];
+        for(int position = 0; position < values.length; position++) {
+            values[position] = fact.symbolIds[this.rightColumns[position]];
+        }
+        for(Token token : get(this.leftIndex, new Key(values))) {
+            this.propagate(new Token(token, fact), add);
+        }
+    }
+
+    /**
+     * Joins a Token added to or removed from the conditions before this one with the Facts of
+     * this condition's AlphaMemory.
+     *
+     * @param token The Token.
+     * @param add Whether the Token was added.
+     */
+    void leftActivate(Token token, boolean add) {
+        int[] values = new int[this.leftColumns.length];
+        for(int position = 0; position < values.length; position++) {
+            values[position] = token.getFact(this.leftConditions[position]).symbolIds[this.leftColumns[position]];
+        }
+        Key key = new Key(values);
+        update(this.leftIndex, key, token, add);
+        for(Fact fact : get(this.rightIndex, key)) {
+            this.propagate(new Token(token, fact), add);
+        }
+    }
+
+    /**
+     * Passes a Token formed or undone by this node on to the nodes after it.
+     *
+     * @param token The Token.
+     * @param add Whether the Token was formed.
+     */
+    private void propagate(Token token, boolean add) {
+        for(JoinNode child : this.children) {
+            child.leftActivate(token, add);
+        }
+        for(ProductionNode production : this.productions) {
+            production.activate(token, add);
+        }
+    }
+
+    /**
+     * Adds a value to, or removes it from, the List of a key in a hash table.
+     *
+     * @param index The hash table.
+     * @param key The key.
+     * @param value The value.
+     * @param add Whether to add the value.
+     */
+    static <T> void update(HashMap<Key, List<T>> index, Key key, T value, boolean add) {
+        List<T> values = index.get(key);
+        if(add) {
+            if(values == null) {
+                values = new ArrayList<T>(2);
+                index.put(key, values);
+            }
+            values.add(value);
+        }
+        else if(values != null) {
+            values.remove(value);
+            if(values.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the List of a key in a hash table.
+     *
+     * @param index The hash table.
+     * @param key The key.
+     * @return the List of the key, or an empty List.
+     */
+    private static <T> List<T> get(HashMap<Key, List<T>> index, Key key) {
+        List<T> values = index.get(key);
+        return values == null ? Collections.<T>emptyList() : values;
+    }
+}
@@ -0,0 +1,53 @@
+package rogel.io.fopl.proof.rete;
+
+import java.util.Arrays;
+
+/**
+ * A Key is a tuple of Symbol ids, compared by value, used to look up the facts and tokens of a
+ * Rete network in hash tables.
+ *
+ * @author recardona
+ */
+final class Key {
+
+    /** The Symbol ids of this Key. */
+    private final int[] values;
+
+    /** The hash of the Symbol ids. */
+    private final int hash;
+
+    /**
+     * Constructs a Key.
+     *
+     * @param values The Symbol ids of the Key, which the Key takes ownership of.
+     */
+    Key(int[] values) {
+        this.values = values;
+        this.hash = Arrays.hashCode(values);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof Key)) {
+            return false;
+        }
+        Key other = (Key) obj;
+        return this.hash == other.hash && Arrays.equals(this.values, other.values);
+    }
+}
@@ -0,0 +1,65 @@
+package rogel.io.fopl.proof.rete;
+
+import rogel.io.fopl.proof.HornClause;
+
+/**
+ * A ProductionNode ends the join nodes of a rule body: each Token that reaches it is a match of
+ * the body, which derives an instance of the rule's head. The network counts the matches that
+ * derive each fact, so that a fact is retracted once its last match is undone.
+ *
+ * @author recardona
+ */
+final class ProductionNode {
+
+    /** The network this node belongs to. */
+    private final ReteNetwork network;
+
+    /** The rule of this node. */
+    final HornClause rule;
+
+    /** The number of the Predicate signature of the rule's head. */
+    private final int headPredicate;
+
+    /**
+     * The arguments of the rule's head: the Symbol id of a constant, or, for a Variable, the
+     * complement of the condition that binds it times 32, plus the column.
+     */
+    private final int[] headArguments;
+
+    /**
+     * Constructs a ProductionNode.
+     *
+     * @param network The network the node belongs to.
+     * @param rule The rule of the node.
+     * @param headPredicate The number of the Predicate signature of the rule's head.
+     * @param headArguments The arguments of the rule's head.
+     */
+    ProductionNode(ReteNetwork network, HornClause rule, int headPredicate, int[] headArguments) {
+        this.network = network;
+        this.rule = rule;
+        this.headPredicate = headPredicate;
+        this.headArguments = headArguments;
+    }
+
+    /**
+     * Adds or removes the support of a match of the rule body for the instance of the head it
+     * derives.
+     *
+     * @param token The match.
+     * @param add Whether the match was formed.
+     */
+    void activate(Token token, boolean add) {
+        int[] symbolIds = new int[this.headArguments.length];
+        for(int column = 0; column < symbolIds.length; column++) {
+            int argument = this.headArguments[column];
+            if(argument >= 0) {
+                symbolIds[column] = argument;
+            }
+            else {
+                int location = ~argument;
+                symbolIds[column] = token.getFact(location / 32).symbolIds[location % 32];
+            }
+        }
+        this.network.changeSupport(this.headPredicate, symbolIds, add ? 1 : -1);
+    }
+}
@@ -0,0 +1,699 @@
+package rogel.io.fopl.proof.rete;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A ReteNetwork forward chains the rules of a RuleSet as facts are asserted and retracted. The
+ * rule bodies are compiled into a network of nodes that remembers their partial matches, so that
+ * a change only joins the facts it affects, and the conclusions it leads to are known at once.
+ * <p>
+ * Each condition of a rule body goes through an AlphaMemory, which Facts reach through hash
+ * tables keyed by the condition's Predicate signature and constants, and a JoinNode, which joins
+ * it with the conditions before it through hash tables keyed by the Variables they share. Rules
+ * whose conditions have the same tests share their AlphaMemories, and rules whose bodies begin
+ * with the same conditions share their JoinNodes.
+ * <p>
+ * A fact holds while it is asserted, or while some match of a rule body derives it. Retracting a
+ * fact undoes the matches it took part in, and retracts the facts left without a match. The
+ * matches are counted, which is exact for facts of Predicates that do not depend on themselves,
+ * but not for facts of recursive Predicates, which may derive each other through a cycle once
+ * the facts the cycle started from are gone. A retraction thus first overdeletes every fact of a
+ * recursive Predicate that loses a match, along with the facts that depend on it, and then
+ * rederives the overdeleted facts that some match of the facts left still derives (the DRed
+ * algorithm).
+ * <p>
+ * The rules must be function-free, with conjunctions of Predicates as bodies, and range
+ * restricted: each Variable of a rule's head must occur in its body.
+ *
+ * @author recardona
+ */
+public class ReteNetwork {
+
+    /** The Predicate signatures of the network, in the order they were numbered. */
+    private List<Pair<Symbol, Integer>> signatures;
+
+    /** The numbers of the Predicate signatures. */
+    private HashMap<Pair<Symbol, Integer>, Integer> predicateNumbers;
+
+    /** The hash tables that route the Facts of each Predicate to its AlphaMemories. */
+    private List<List<ConstantTest>> constantTests;
+
+    /** The AlphaMemories, keyed by a description of their tests. */
+    private HashMap<String, AlphaMemory> alphaMemories;
+
+    /** The JoinNodes, keyed by their parent, their AlphaMemory and their join tests. */
+    private HashMap<String, JoinNode> joinNodes;
+
+    /** The number of rules compiled into the network. */
+    private int ruleCount;
+
+    /** The Facts that hold, or that are being retracted, keyed by themselves. */
+    private HashMap<Fact, Fact> facts;
+
+    /** The Facts whose assertion or support changed, and that remain to be propagated. */
+    private ArrayDeque<Fact> pending;
+
+    /** The facts that started or stopped holding during the current assertion or retraction. */
+    private List<Predicate> changes;
+
+    /** The numbers of the Predicate signatures that depend on themselves through the rules. */
+    private Set<Integer> recursivePredicates;
+
+    /** The Facts overdeleted by the current retraction, or null outside of a retraction. */
+    private List<Fact> overdeleted;
+
+    /**
+     * Constructs a ReteNetwork for the rules of a RuleSet, and asserts its facts and the rows of
+     * its FactTables. Goal clauses derive nothing, and are left out.
+     *
+     * @param rules The RuleSet, not null.
+     * @throws IllegalArgumentException if a rule is not function-free, has a body that is not a
+     *  conjunction of Predicates, or is not range restricted, or if a fact is not ground.
+     */
+    public ReteNetwork(RuleSet rules) {
+        if(rules == null) {
+            throw new IllegalArgumentException("Cannot compile a null RuleSet.");
+        }
+        this.signatures = new ArrayList<Pair<Symbol, Integer>>();
+        this.predicateNumbers = new HashMap<Pair<Symbol, Integer>, Integer>();
+        this.constantTests = new ArrayList<List<ConstantTest>>();
+        this.alphaMemories = new HashMap<String, AlphaMemory>();
+        this.joinNodes = new HashMap<String, JoinNode>();
+        this.ruleCount = 0;
+        this.facts = new HashMap<Fact, Fact>();
+        this.pending = new ArrayDeque<Fact>();
+
+        List<Predicate> initialFacts = new ArrayList<Predicate>();
+        HashMap<Integer, Set<Integer>> dependencies = new HashMap<Integer, Set<Integer>>();
+        for(int index = 0; index < rules.getRuleCount(); index++) {
+            HornClause clause = rules.getRule(index);
+            if(clause.isGoalClause()) {
+                continue; // A goal clause has no consequent, so it derives nothing.
+            }
+            List<Predicate> body = clause.isFact() ? new ArrayList<Predicate>() : conditions(clause.getAntecedent(), clause);
+            if(body.isEmpty()) {
+                initialFacts.add(clause.getConsequent());
+            }
+            else {
+                this.compile(clause, body, dependencies);
+            }
+        }
+        this.recursivePredicates = recursivePredicates(dependencies);
+
+        for(Predicate fact : initialFacts) {
+            this.assertFact(fact);
+        }
+        for(FactTable factTable : rules.getFactTables()) {
+            int predicate = this.getPredicateNumber(factTable.getSignature());
+            for(int row = 0; row < factTable.getFactCount(); row++) {
+                int[] symbolIds = new int[factTable.getArity()];
+                for(int column = 0; column < symbolIds.length; column++) {
+                    symbolIds[column] = factTable.getSymbolId(row, column);
+                }
+                this.assertFact(predicate, symbolIds);
+            }
+        }
+    }
+
+    /**
+     * Asserts a ground fact, and derives the facts it leads to.
+     *
+     * @param fact The fact, whose Terms are constants, not null.
+     * @return the facts that hold because of the assertion, other than the fact itself, in the
+     *  order they were derived.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    public List<Predicate> assertFact(Predicate fact) {
+        return this.assertFact(this.getPredicateNumber(signature(fact)), symbolIds(fact));
+    }
+
+    /**
+     * Retracts an asserted fact, and the derived facts that no longer hold without it. A fact that
+     * is also derived by a rule, other than through the fact itself, still holds once it is
+     * retracted.
+     *
+     * @param fact The fact, whose Terms are constants, not null.
+     * @return the facts that no longer hold because of the retraction, other than the fact
+     *  itself, in the order they were retracted.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    public List<Predicate> retractFact(Predicate fact) {
+        this.changes = new ArrayList<Predicate>();
+        Integer predicate = this.predicateNumbers.get(signature(fact));
+        Fact retracted = predicate == null ? null : this.facts.get(new Fact(predicate, symbolIds(fact)));
+        if(retracted == null || !retracted.asserted) {
+            return this.changes;
+        }
+
+        // Overdelete: the facts of recursive Predicates stop holding as soon as they lose a match.
+        this.overdeleted = new ArrayList<Fact>();
+        retracted.asserted = false;
+        if(this.recursivePredicates.contains(retracted.predicate)) {
+            retracted.overdeleted = true;
+            this.overdeleted.add(retracted);
+        }
+        this.pending.add(retracted);
+        this.settle(retracted);
+
+        // Rederive: the overdeleted facts that the facts left still derive hold again, and derive
+        // the facts they lead to as an assertion would.
+        List<Fact> overdeleted = this.overdeleted;
+        this.overdeleted = null;
+        for(Fact overdeletedFact : overdeleted) {
+            overdeletedFact.overdeleted = false;
+            if(overdeletedFact.support > 0) {
+                this.pending.add(overdeletedFact);
+            }
+        }
+        this.settle(retracted);
+
+        // A fact overdeleted and rederived was reported twice, and still holds.
+        List<Predicate> changes = new ArrayList<Predicate>();
+        Set<Predicate> reported = new HashSet<Predicate>();
+        for(Predicate change : this.changes) {
+            if(!this.contains(change) && reported.add(change)) {
+                changes.add(change);
+            }
+        }
+        this.changes = changes;
+        return this.changes;
+    }
+
+    /**
+     * Returns true if a ground fact holds: if it is asserted, or derived by a rule.
+     *
+     * @param fact The fact, whose Terms are constants, not null.
+     * @return true if the fact holds.
+     * @throws IllegalArgumentException if the fact is not ground.
+     */
+    public boolean contains(Predicate fact) {
+        Integer predicate = this.predicateNumbers.get(signature(fact));
+        return predicate != null && this.facts.containsKey(new Fact(predicate, symbolIds(fact)));
+    }
+
+    /**
+     * Returns the facts of a Predicate signature that hold.
+     *
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the asserted and derived facts of the Predicate.
+     */
+    public List<Predicate> getFacts(Symbol predicateSymbol, int arity) {
+        List<Predicate> facts = new ArrayList<Predicate>();
+        Integer predicate = this.predicateNumbers.get(Pair.of(predicateSymbol, arity));
+        if(predicate != null) {
+            for(Fact fact : this.facts.keySet()) {
+                if(fact.predicate == predicate) {
+                    facts.add(this.toPredicate(fact));
+                }
+            }
+        }
+        return facts;
+    }
+
+    /**
+     * Returns the number of facts that hold, asserted or derived.
+     *
+     * @return the number of facts.
+     */
+    public int getFactCount() {
+        return this.facts.size();
+    }
+
+    /**
+     * Returns the number of rules compiled into this network.
+     *
+     * @return the number of rules.
+     */
+    public int getRuleCount() {
+        return this.ruleCount;
+    }
+
+    /**
+     * Returns the number of AlphaMemories of this network, after sharing.
+     *
+     * @return the number of AlphaMemories.
+     */
+    public int getAlphaMemoryCount() {
+        return this.alphaMemories.size();
+    }
+
+    /**
+     * Returns the number of JoinNodes of this network, after sharing.
+     *
+     * @return the number of JoinNodes.
+     */
+    public int getJoinNodeCount() {
+        return this.joinNodes.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ReteNetwork[rules=%d, alphaMemories=%d, joinNodes=%d, facts=%d]",
+                this.ruleCount, this.alphaMemories.size(), this.joinNodes.size(), this.facts.size());
+    }
+
+    /**
+     * Adds to or removes from the number of matches that derive a fact.
+     *
+     * @param predicate The number of the Predicate signature of the fact.
+     * @param symbolIds The Symbol ids of the terms of the fact.
+     * @param delta 1 if a match was formed, -1 if one was undone.
+     */
+    void changeSupport(int predicate, int[] symbolIds, int delta) {
+        Fact fact = this.getFact(predicate, symbolIds);
+        fact.support += delta;
+        if(delta < 0 && this.overdeleted != null && !fact.overdeleted && this.recursivePredicates.contains(predicate)) {
+            fact.overdeleted = true;
+            this.overdeleted.add(fact);
+        }
+        this.pending.add(fact);
+    }
+
+    /**
+     * Asserts a ground fact, and derives the facts it leads to.
+     *
+     * @param predicate The number of the Predicate signature of the fact.
+     * @param symbolIds The Symbol ids of the terms of the fact.
+     * @return the facts that hold because of the assertion, other than the fact itself.
+     */
+    private List<Predicate> assertFact(int predicate, int[] symbolIds) {
+        this.changes = new ArrayList<Predicate>();
+        Fact fact = this.getFact(predicate, symbolIds);
+        if(!fact.asserted) {
+            fact.asserted = true;
+            this.pending.add(fact);
+            this.settle(fact);
+        }
+        return this.changes;
+    }
+
+    /**
+     * Propagates the pending Facts whose holding changed through the network, until none remain.
+     * The facts a propagation derives or retracts are pending in turn, so that the network is
+     * never activated while it is being activated.
+     *
+     * @param origin The Fact asserted or retracted, which is not reported as a change.
+     */
+    private void settle(Fact origin) {
+        while(!this.pending.isEmpty()) {
+            Fact fact = this.pending.poll();
+            boolean holds = fact.holds();
+            if(holds != fact.propagated) {
+                fact.propagated = holds;
+                if(fact != origin) {
+                    this.changes.add(this.toPredicate(fact));
+                }
+                for(ConstantTest constantTest : this.constantTests.get(fact.predicate)) {
+                    List<AlphaMemory> memories = constantTest.memories.get(constantTest.key(fact));
+                    if(memories != null) {
+                        for(AlphaMemory memory : memories) {
+                            if(memory.matches(fact)) {
+                                memory.activate(fact, holds);
+                            }
+                        }
+                    }
+                }
+            }
+
+            // A Fact may be pending more than once, after it was replaced by an equal one. An
+            // overdeleted Fact that a match still derives is kept, to be rederived.
+            if(!holds && fact.support == 0 && this.facts.get(fact) == fact) {
+                this.facts.remove(fact);
+            }
+        }
+    }
+
+    /**
+     * Compiles a rule into the network: an AlphaMemory and a JoinNode per condition of its body,
+     * shared with the rules that have the same ones, and a ProductionNode for its head.
+     *
+     * @param clause The rule.
+     * @param body The conditions of the rule's body.
+     * @param dependencies The numbers of the Predicate signatures each rule head depends on, which
+     *  the rule's are added to.
+     * @throws IllegalArgumentException if the rule is not function-free or not range restricted.
+     */
+    private void compile(HornClause clause, List<Predicate> body, HashMap<Integer, Set<Integer>> dependencies) {
+        // Where each Variable is first bound: the condition times 32, plus the column.
+        HashMap<Variable, Integer> bindings = new HashMap<Variable, Integer>();
+        JoinNode parent = null;
+        for(int condition = 0; condition < body.size(); condition++) {
+            Predicate predicate = body.get(condition);
+            int predicateNumber = this.getPredicateNumber(signature(predicate));
+            List<Term> terms = terms(predicate);
+
+            List<Integer> constantColumns = new ArrayList<Integer>();
+            List<Integer> constants = new ArrayList<Integer>();
+            List<Integer> repeatedColumns = new ArrayList<Integer>();
+            List<Integer> firstColumns = new ArrayList<Integer>();
+            List<Integer> leftLocations = new ArrayList<Integer>();
+            List<Integer> rightColumns = new ArrayList<Integer>();
+            for(int column = 0; column < terms.size(); column++) {
+                Term term = terms.get(column);
+                if(!(term instanceof Variable)) {
+                    constantColumns.add(column);
+                    constants.add(constantId(term, clause));
+                    continue;
+                }
+                Integer location = bindings.get(term);
+                if(location == null) {
+                    bindings.put((Variable) term, condition * 32 + column);
+                }
+                else if(location / 32 == condition) {
+                    repeatedColumns.add(column);
+                    firstColumns.add(location % 32);
+                }
+                else {
+                    leftLocations.add(location);
+                    rightColumns.add(column);
+                }
+            }
+
+            AlphaMemory memory = this.getAlphaMemory(predicateNumber, toArray(constantColumns), toArray(constants),
+                    toArray(repeatedColumns), toArray(firstColumns));
+            String key = (parent == null ? -1 : parent.id) + "/" + memory.id + "/" + leftLocations + "/" + rightColumns;
+            JoinNode joinNode = this.joinNodes.get(key);
+            if(joinNode == null) {
+                int[] leftConditions = new int[leftLocations.size()];
+                int[] leftColumns = new int[leftLocations.size()];
+                for(int position = 0; position < leftConditions.length; position++) {
+                    leftConditions[position] = leftLocations.get(position) / 32;
+                    leftColumns[position] = leftLocations.get(position) % 32;
+                }
+                joinNode = new JoinNode(this.joinNodes.size(), parent, leftConditions, leftColumns, toArray(rightColumns),
+                        memory);
+                this.joinNodes.put(key, joinNode);
+            }
+            parent = joinNode;
+        }
+
+        Predicate head = clause.getConsequent();
+        List<Term> headTerms = terms(head);
+        int[] headArguments = new int[headTerms.size()];
+        for(int column = 0; column < headArguments.length; column++) {
+            Term term = headTerms.get(column);
+            if(term instanceof Variable) {
+                Integer location = bindings.get(term);
+                if(location == null) {
+                    throw new IllegalArgumentException("Rule " + clause + " is not range restricted: "
+                            + term + " occurs in its head only.");
+                }
+                headArguments[column] = ~location;
+            }
+            else {
+                headArguments[column] = constantId(term, clause);
+            }
+        }
+        int headPredicate = this.getPredicateNumber(signature(head));
+        Set<Integer> bodyPredicates = dependencies.get(headPredicate);
+        if(bodyPredicates == null) {
+            bodyPredicates = new HashSet<Integer>();
+            dependencies.put(headPredicate, bodyPredicates);
+        }
+        for(Predicate condition : body) {
+            bodyPredicates.add(this.getPredicateNumber(signature(condition)));
+        }
+        parent.productions.add(new ProductionNode(this, clause, headPredicate, headArguments));
+        this.ruleCount++;
+    }
+
+    /**
+     * Returns the AlphaMemory with the given tests, creating it, and routing the Facts of its
+     * Predicate to it, if there is none.
+     *
+     * @param predicate The number of the Predicate signature of the condition.
+     * @param constantColumns The columns of the condition that hold constants.
+     * @param constants The Symbol ids of those constants.
+     * @param repeatedColumns The columns that repeat a Variable of an earlier column.
+     * @param firstColumns The earlier column each of those columns must equal.
+     * @return the AlphaMemory.
+     */
+    private AlphaMemory getAlphaMemory(int predicate, int[] constantColumns, int[] constants, int[] repeatedColumns,
+            int[] firstColumns) {
+        StringBuilder description = new StringBuilder().append(predicate);
+        for(int position = 0; position < constantColumns.length; position++) {
+            description.append(' ').append(constantColumns[position]).append('=').append(constants[position]);
+        }
+        for(int position = 0; position < repeatedColumns.length; position++) {
+            description.append(' ').append(repeatedColumns[position]).append("=#").append(firstColumns[position]);
+        }
+
+        AlphaMemory memory = this.alphaMemories.get(description.toString());
+        if(memory == null) {
+            memory = new AlphaMemory(this.alphaMemories.size(), repeatedColumns, firstColumns);
+            this.alphaMemories.put(description.toString(), memory);
+
+            ConstantTest constantTest = null;
+            for(ConstantTest candidate : this.constantTests.get(predicate)) {
+                if(Arrays.equals(candidate.columns, constantColumns)) {
+                    constantTest = candidate;
+                }
+            }
+            if(constantTest == null) {
+                constantTest = new ConstantTest(constantColumns);
+                this.constantTests.get(predicate).add(constantTest);
+            }
+            Key key = new Key(constants);
+            List<AlphaMemory> memories = constantTest.memories.get(key);
+            if(memories == null) {
+                memories = new ArrayList<AlphaMemory>(1);
+                constantTest.memories.put(key, memories);
+            }
+            memories.add(memory);
+        }
+        return memory;
+    }
+
+    /**
+     * Returns the Fact held by the network with the given Predicate and Symbol ids, creating it
+     * if there is none.
+     *
+     * @param predicate The number of the Predicate signature of the Fact.
+     * @param symbolIds The Symbol ids of the terms of the Fact.
+     * @return the Fact.
+     */
+    private Fact getFact(int predicate, int[] symbolIds) {
+        Fact probe = new Fact(predicate, symbolIds);
+        Fact fact = this.facts.get(probe);
+        if(fact == null) {
+            fact = probe;
+            this.facts.put(fact, fact);
+        }
+        return fact;
+    }
+
+    /**
+     * Returns the number of a Predicate signature, numbering it if it has none yet.
+     *
+     * @param signature The Predicate signature.
+     * @return the number of the signature.
+     * @throws IllegalArgumentException if the Predicate has more than 31 terms.
+     */
+    private int getPredicateNumber(Pair<Symbol, Integer> signature) {
+        Integer number = this.predicateNumbers.get(signature);
+        if(number == null) {
+            if(signature.getRight() > 31) {
+                throw new IllegalArgumentException("Cannot match Predicates with more than 31 terms: " + signature);
+            }
+            number = this.signatures.size();
+            this.signatures.add(signature);
+            this.predicateNumbers.put(signature, number);
+            this.constantTests.add(new ArrayList<ConstantTest>());
+        }
+        return number;
+    }
+
+    /**
+     * Returns the Predicate of a Fact.
+     *
+     * @param fact The Fact.
+     * @return the ground Predicate.
+     */
+    private Predicate toPredicate(Fact fact) {
+        Term[] terms = new Term[fact.symbolIds.length];
+        for(int column = 0; column < terms.length; column++) {
+            terms[column] = Term.constant(Symbol.getById(fact.symbolIds[column]));
+        }
+        return new Predicate(this.signatures.get(fact.predicate).getLeft(), terms);
+    }
+
+    /**
+     * Returns the conditions of a rule body.
+     *
+     * @param formula The body, or a conjunct of it.
+     * @param clause The rule.
+     * @return the Predicates of the body, in order.
+     * @throws IllegalArgumentException if the body is not a conjunction of Predicates.
+     */
+    private static List<Predicate> conditions(Formula formula, HornClause clause) {
+        List<Predicate> conditions = new ArrayList<Predicate>();
+        if(formula instanceof Predicate) {
+            conditions.add((Predicate) formula);
+        }
+        else if(formula instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) formula;
+            for(int operand = 0; operand < conjunction.operandCount(); operand++) {
+                conditions.addAll(conditions(conjunction.getOperand(operand), clause));
+            }
+        }
+        else {
+            throw new IllegalArgumentException("The body of rule " + clause + " is not a conjunction of Predicates: " + formula);
+        }
+        return conditions;
+    }
+
+    /**
+     * Returns the Symbol id of a constant Term.
+     *
+     * @param term The Term.
+     * @param clause The clause the Term occurs in.
+     * @return the Symbol id of the constant.
+     * @throws IllegalArgumentException if the Term is not a constant.
+     */
+    private static int constantId(Term term, HornClause clause) {
+        if(!term.isConstant()) {
+            throw new IllegalArgumentException("Rule " + clause + " is not function-free: " + term);
+        }
+        return term.getSymbol().getId();
+    }
+
+    /**
+     * Returns the Predicates that depend on themselves: the rule heads that reach themselves
+     * through the Predicates of the rule bodies.
+     *
+     * @param dependencies The numbers of the Predicate signatures each rule head depends on.
+     * @return the numbers of the recursive Predicate signatures.
+     */
+    private static Set<Integer> recursivePredicates(HashMap<Integer, Set<Integer>> dependencies) {
+        Set<Integer> recursive = new HashSet<Integer>();
+        for(Integer head : dependencies.keySet()) {
+            Set<Integer> reached = new HashSet<Integer>();
+            ArrayDeque<Integer> frontier = new ArrayDeque<Integer>(dependencies.get(head));
+            while(!frontier.isEmpty()) {
+                Integer predicate = frontier.poll();
+                if(reached.add(predicate) && dependencies.containsKey(predicate)) {
+                    frontier.addAll(dependencies.get(predicate));
+                }
+            }
+            if(reached.contains(head)) {
+                recursive.add(head);
+            }
+        }
+        return recursive;
+    }
+
+    /**
+     * Returns the Symbol ids of the Terms of a ground fact.
+     *
+     * @param fact The fact.
+     * @return the Symbol ids.
+     * @throws IllegalArgumentException if a Term is not a constant.
+     */
+    private static int[] symbolIds(Predicate fact) {
+        List<Term> terms = terms(fact);
+        int[] symbolIds = new int[terms.size()];
+        for(int column = 0; column < symbolIds.length; column++) {
+            Term term = terms.get(column);
+            if(!term.isConstant()) {
+                throw new IllegalArgumentException("Fact " + fact + " is not ground: " + term + " is not a constant.");
+            }
+            symbolIds[column] = term.getSymbol().getId();
+        }
+        return symbolIds;
+    }
+
+    /**
+     * Returns the Terms of a Predicate, which are null for a propositional Predicate.
+     *
+     * @param predicate The Predicate.
+     * @return the Terms of the Predicate, or an empty List.
+     */
+    private static List<Term> terms(Predicate predicate) {
+        List<Term> terms = predicate.getTerms();
+        return terms == null ? new ArrayList<Term>() : terms;
+    }
+
+    /**
+     * Returns the signature of a Predicate.
+     *
+     * @param predicate The Predicate.
+     * @return its Symbol and arity.
+     */
+    private static Pair<Symbol, Integer> signature(Predicate predicate) {
+        return Pair.of(predicate.getSymbol(), predicate.getArity());
+    }
+
+    /**
+     * Copies a List of Integers to an array.
+     *
+     * @param values The values.
+     * @return the array of the values.
+     */
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for(int position = 0; position < array.length; position++) {
+            array[position] = values.get(position);
+        }
+        return array;
+    }
+
+    /**
+     * A ConstantTest routes the Facts of a Predicate to the AlphaMemories of the conditions with
+     * constants in the same columns, through a hash table keyed by the constants.
+     */
+    private static final class ConstantTest {
+
+        /** The columns that hold constants. */
+        final int[] columns;
+
+        /** The AlphaMemories of the conditions, keyed by their constants. */
+        final HashMap<Key, List<AlphaMemory>> memories;
+
+        /**
+         * Constructs an empty ConstantTest.
+         *
+         * @param columns The columns that hold constants.
+         */
+        ConstantTest(int[] columns) {
+            this.columns = columns;
+            this.memories = new HashMap<Key, List<AlphaMemory>>();
+        }
+
+        /**
+         * Returns the key of a Fact: its Symbol ids in the columns of this test.
+         *
+         * @param fact The Fact.
+         * @return the key of the Fact.
+         */
+        Key key(Fact fact) {
+            int[] values = new int[this.columns.length];
+            for(int position = 0; position < values.length; position++) {
+                values[position] = fact.symbolIds[this.columns[position]];
+            }
+            return new Key(values);
+        }
+    }
+}
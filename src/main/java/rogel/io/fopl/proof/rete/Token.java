@@ -0,0 +1,85 @@
+package rogel.io.fopl.proof.rete;
+
+/**
+ * A Token is a partial match of a rule body: the Facts matched by its first conditions, as a
+ * list linked from the last Fact back to the first. Tokens are compared by the Facts they hold.
+ *
+ * @author recardona
+ */
+final class Token {
+
+    /** The Token of the conditions before the last one, or null if this Token has one Fact. */
+    final Token parent;
+
+    /** The Fact matched by the last condition. */
+    final Fact fact;
+
+    /** The number of Facts of this Token. */
+    final int length;
+
+    /**
+     * Constructs a Token that extends another with a Fact.
+     *
+     * @param parent The Token of the conditions before, or null for the first condition.
+     * @param fact The Fact matched by the next condition.
+     */
+    Token(Token parent, Fact fact) {
+        this.parent = parent;
+        this.fact = fact;
+        this.length = parent == null ? 1 : parent.length + 1;
+    }
+
+    /**
+     * Returns the Fact matched by a condition.
+     *
+     * @param condition The index of the condition, less than the length of this Token.
+     * @return the Fact the condition matched.
+     */
+    Fact getFact(int condition) {
+        Token token = this;
+        for(int steps = this.length - 1 - condition; steps > 0; steps--) {
+            token = token.parent;
+        }
+        return token.fact;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for(Token token = this; token != null; token = token.parent) {
+            hash = 31 * hash + System.identityHashCode(token.fact);
+        }
+        return hash;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof Token)) {
+            return false;
+        }
+        Token token = this;
+        Token other = (Token) obj;
+        if(token.length != other.length) {
+            return false;
+        }
+        while(token != null) {
+            if(token == other) {
+                return true;
+            }
+            if(token.fact != other.fact) {
+                return false;
+            }
+            token = token.parent;
+            other = other.parent;
+        }
+        return true;
+    }
+}
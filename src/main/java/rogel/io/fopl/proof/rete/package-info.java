@@ -0,0 +1,8 @@
+/**
+ * Contains a Rete network, which forward chains the rules of a RuleSet incrementally: as facts are
+ * asserted and retracted, it keeps the partial matches of every rule body, so that each change
+ * only joins the facts it affects.
+ * 
+ * @author recardona
+ */
+package rogel.io.fopl.proof.rete;
@@ -0,0 +1,513 @@
+package rogel.io.fopl.proof.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AbstractOperator;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.FloatConstant;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+import rogel.io.util.MappedFile;
+
+/**
+ * The RuleSetSnapshot saves a RuleSet into a compact binary file, and loads it back. Loading a
+ * snapshot maps the file into memory and reads only its rule index, symbol table and FactTables;
+ * each HornClause is decoded from the file the first time the solver asks for it. A large RuleSet
+ * is therefore available in a fraction of the time it takes to parse it again.
+ * <p>
+ * Symbols are stored once, in a table of UTF-8 names, and the rest of the file refers to them by
+ * their position in that table (their <i>local id</i>). A HornClause is stored as a prefix-order
+ * sequence of ints: its Variable count, whether it has a consequent and an antecedent, and then
+ * each Formula and Term as a tag followed by its local Symbol id and its operands or arguments.
+ * Numbers are stored by value, as a tag followed by the two halves of a long, high half first.
+ * Variables are numbered within their HornClause, so that every occurrence of a Variable decodes
+ * to the same Variable.
+ * <p>
+ * The file is laid out as follows, with all numbers big-endian:
+ * <ol>
+ *     <li> a header of {@code HEADER_SIZE} bytes: magic number, version, the number of symbols,
+ *          clauses, rule index entries and FactTables, and the positions of the sections that
+ *          follow.
+ *     <li> the encoded HornClauses, in the order of the RuleSet.
+ *     <li> {@code clauseCount + 1} long offsets of the encoded HornClauses.
+ *     <li> the rule index: for each consequent signature, the local id of its Symbol, its arity,
+ *          the number of rules with that signature, and their positions.
+ *     <li> the FactTables: for each table, the local id of its Predicate Symbol, its arity, its
+ *          fact count, and its rows of local ids in row-major order.
+ *     <li> the symbol table: {@code symbolCount + 1} long offsets followed by the UTF-8 bytes of
+ *          the Symbol names, in order.
+ * </ol>
+ * Every FactTable is loaded back as a ColumnarFactTable on the Java heap. Tables that do not fit
+ * in memory are better kept in their own MappedFactTable files, and added to the loaded RuleSet.
+ *
+ * @author recardona
+ */
+public final class RuleSetSnapshot {
+
+    /** The first four bytes of every snapshot file: "FOPS". */
+    static final int MAGIC = 0x464F5053;
+
+    /** The version of the file layout described by this class. */
+    static final int VERSION = 2;
+
+    /** The size of the file header, in bytes. */
+    static final int HEADER_SIZE = 64;
+
+    /** The character set of the names stored in the file. */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The flag of an encoded HornClause that has a consequent. */
+    static final int HAS_CONSEQUENT = 1;
+
+    /** The flag of an encoded HornClause that has an antecedent. */
+    static final int HAS_ANTECEDENT = 2;
+
+    /** The tag of an encoded Predicate, followed by its Symbol, arity and Terms. */
+    static final int PREDICATE = 0;
+
+    /** The tag of an encoded AndOperator, followed by its operand count and operands. */
+    static final int AND = 1;
+
+    /** The tag of an encoded OrOperator, followed by its operand count and operands. */
+    static final int OR = 2;
+
+    /** The tag of an encoded NotOperator, followed by its operand. */
+    static final int NOT = 3;
+
+    /** The tag of an encoded Variable, followed by its number within the clause and its Symbol. */
+    static final int VARIABLE = 4;
+
+    /** The tag of an encoded constant, followed by its Symbol. */
+    static final int CONSTANT = 5;
+
+    /** The tag of an encoded Function, followed by its Symbol, arity and argument Terms. */
+    static final int FUNCTION = 6;
+
+    /** The tag of an encoded OnceOperator, followed by its operand. */
+    static final int ONCE = 7;
+
+    /** The tag of an encoded IntegerConstant, followed by its value. */
+    static final int INTEGER = 8;
+
+    /** The tag of an encoded FloatConstant, followed by the bits of its value. */
+    static final int FLOAT = 9;
+
+    /** The stream the file is written to. */
+    private DataOutputStream output;
+
+    /** The number of bytes written to the file so far. */
+    private long position;
+
+    /** The local id of each Symbol written so far. */
+    private HashMap<Symbol, Integer> localIds;
+
+    /** The Symbols written so far, in the order of their local ids. */
+    private ArrayList<Symbol> symbols;
+
+    /** The number of each Variable of the HornClause being written. */
+    private HashMap<Variable, Integer> variableNumbers;
+
+    /**
+     * Constructs a RuleSetSnapshot that writes to the given stream.
+     *
+     * @param output The stream of the snapshot file.
+     */
+    private RuleSetSnapshot(DataOutputStream output) {
+        this.output = output;
+        this.position = 0;
+        this.localIds = new HashMap<Symbol, Integer>();
+        this.symbols = new ArrayList<Symbol>();
+        this.variableNumbers = new HashMap<Variable, Integer>();
+    }
+
+    /**
+     * Writes a snapshot of the parameter RuleSet to the given file, replacing its contents. Every
+     * HornClause of the RuleSet must be built from Predicates, AndOperators, OrOperators,
+     * NotOperators and OnceOperators.
+     *
+     * @param rules The RuleSet to save, not null.
+     * @param file The file to write, not null.
+     * @throws IOException if the file cannot be written.
+     * @throws IllegalArgumentException if a HornClause contains a Formula that cannot be saved.
+     */
+    public static void write(RuleSet rules, File file) throws IOException {
+
+        if(rules == null) {
+            throw new IllegalArgumentException("Cannot write a null RuleSet.");
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        long[] header = new long[8];
+        try {
+            RuleSetSnapshot snapshot = new RuleSetSnapshot(output);
+            snapshot.writeInts(new int[HEADER_SIZE / 4]); // Filled in once the file is complete.
+
+            // Write the HornClauses, remembering where each one starts.
+            long[] clauseOffsets = new long[rules.getRuleCount() + 1];
+            for(int index = 0; index < rules.getRuleCount(); index++) {
+                clauseOffsets[index] = snapshot.position;
+                snapshot.writeClause(rules.getRule(index));
+            }
+            clauseOffsets[rules.getRuleCount()] = snapshot.position;
+
+            snapshot.align();
+            long clauseOffsetsOffset = snapshot.position;
+            for(long offset : clauseOffsets) {
+                snapshot.writeLong(offset);
+            }
+
+            // Write the rule index, one entry per consequent signature.
+            long indexOffset = snapshot.position;
+            int signatureCount = 0;
+            HashSet<Pair<Symbol, Integer>> writtenSignatures = new HashSet<Pair<Symbol, Integer>>();
+            for(int index = 0; index < rules.getRuleCount(); index++) {
+                Predicate consequent = rules.getRule(index).getConsequent();
+                if(consequent != null) {
+                    if(writtenSignatures.add(Pair.of(consequent.getSymbol(), consequent.getArity()))) {
+                        int[] positions = rules.getRuleIndices(consequent.getSymbol(), consequent.getArity());
+                        snapshot.writeInt(snapshot.getLocalId(consequent.getSymbol()));
+                        snapshot.writeInt(consequent.getArity());
+                        snapshot.writeInt(positions.length);
+                        snapshot.writeInts(positions);
+                        signatureCount++;
+                    }
+                }
+            }
+
+            // Write the FactTables.
+            long factTablesOffset = snapshot.position;
+            for(FactTable factTable : rules.getFactTables()) {
+                snapshot.writeFactTable(factTable);
+            }
+
+            // Write the symbol table last, since it is only complete once everything else is.
+            snapshot.align();
+            long symbolsOffset = snapshot.position;
+            byte[][] names = new byte[snapshot.symbols.size()][];
+            long nameOffset = symbolsOffset + 8L * (names.length + 1);
+            for(int localId = 0; localId < names.length; localId++) {
+                names[localId] = snapshot.symbols.get(localId).toString().getBytes(UTF8);
+                snapshot.writeLong(nameOffset);
+                nameOffset += names[localId].length;
+            }
+            snapshot.writeLong(nameOffset);
+            for(byte[] name : names) {
+                output.write(name);
+            }
+
+            header[0] = names.length;
+            header[1] = rules.getRuleCount();
+            header[2] = signatureCount;
+            header[3] = rules.getFactTables().size();
+            header[4] = clauseOffsetsOffset;
+            header[5] = indexOffset;
+            header[6] = factTablesOffset;
+            header[7] = symbolsOffset;
+        }
+        finally {
+            output.close();
+        }
+
+        // Fill in the header.
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.writeInt(MAGIC);
+            randomAccessFile.writeInt(VERSION);
+            for(int index = 0; index < 4; index++) {
+                randomAccessFile.writeInt((int) header[index]);
+            }
+            for(int index = 4; index < 8; index++) {
+                randomAccessFile.writeLong(header[index]);
+            }
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Loads the RuleSet saved in the given snapshot file. The HornClauses of the RuleSet are
+     * decoded from the file as they are first used.
+     *
+     * @param file The file written by {@code write}, not null.
+     * @return the RuleSet saved in the file.
+     * @throws IOException if the file cannot be read, or is not a snapshot file.
+     */
+    public static RuleSet load(File file) throws IOException {
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        MappedFile mappedFile;
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if(channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a RuleSet snapshot file.");
+            }
+            mappedFile = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+        }
+        finally {
+            randomAccessFile.close(); // The mapping stays valid after the channel is closed.
+        }
+
+        if(mappedFile.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a RuleSet snapshot file.");
+        }
+
+        if(mappedFile.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + mappedFile.getInt(4));
+        }
+
+        return new SnapshotRuleSet(mappedFile);
+    }
+
+    /**
+     * Writes an encoded HornClause.
+     *
+     * @param rule The HornClause to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeClause(HornClause rule) throws IOException {
+
+        // Number the Variables of the clause first, since the count comes before the Formulas.
+        this.variableNumbers.clear();
+        if(rule.getConsequent() != null) {
+            this.numberVariables(rule.getConsequent());
+        }
+        if(rule.getAntecedent() != null) {
+            this.numberVariables(rule.getAntecedent());
+        }
+
+        this.writeInt(this.variableNumbers.size());
+        this.writeInt((rule.getConsequent() != null ? HAS_CONSEQUENT : 0)
+                | (rule.getAntecedent() != null ? HAS_ANTECEDENT : 0));
+        if(rule.getConsequent() != null) {
+            this.writeFormula(rule.getConsequent());
+        }
+        if(rule.getAntecedent() != null) {
+            this.writeFormula(rule.getAntecedent());
+        }
+    }
+
+    /**
+     * Numbers the Variables of a Formula that have not been numbered yet, in order of appearance.
+     *
+     * @param formula The Formula.
+     */
+    private void numberVariables(Formula formula) {
+        if(formula instanceof Predicate) {
+            if(((Predicate) formula).isPropositional()) {
+                return;
+            }
+            for(Term term : ((Predicate) formula).getTerms()) {
+                this.numberVariables(term);
+            }
+        }
+
+        else if(formula instanceof AbstractOperator) {
+            AbstractOperator operator = (AbstractOperator) formula;
+            for(int index = 0; index < operator.operandCount(); index++) {
+                this.numberVariables(operator.getOperand(index));
+            }
+        }
+    }
+
+    /**
+     * Numbers the Variables of a Term that have not been numbered yet, in order of appearance.
+     *
+     * @param term The Term.
+     */
+    private void numberVariables(Term term) {
+        if(term instanceof Variable) {
+            if(!this.variableNumbers.containsKey(term)) {
+                this.variableNumbers.put((Variable) term, this.variableNumbers.size());
+            }
+        }
+
+        else if(!term.isConstant()) {
+            for(Term argument : ((Function) term).getArguments()) {
+                this.numberVariables(argument);
+            }
+        }
+    }
+
+    /**
+     * Writes an encoded Formula.
+     *
+     * @param formula The Formula to write.
+     * @throws IOException if the file cannot be written.
+     * @throws IllegalArgumentException if the Formula is of a kind that cannot be saved.
+     */
+    private void writeFormula(Formula formula) throws IOException {
+
+        if(formula instanceof Predicate) {
+            Predicate predicate = (Predicate) formula;
+            this.writeInt(PREDICATE);
+            this.writeInt(this.getLocalId(predicate.getSymbol()));
+            this.writeInt(predicate.getArity());
+            for(int index = 0; index < predicate.getArity(); index++) {
+                this.writeTerm(predicate.getTerms().get(index));
+            }
+            return;
+        }
+
+        if(formula instanceof NotOperator || formula instanceof OnceOperator) {
+            this.writeInt((formula instanceof NotOperator) ? NOT : ONCE);
+            this.writeFormula(((AbstractOperator) formula).getOperand(0));
+            return;
+        }
+
+        if(formula instanceof AndOperator || formula instanceof OrOperator) {
+            AbstractOperator operator = (AbstractOperator) formula;
+            this.writeInt((formula instanceof AndOperator) ? AND : OR);
+            this.writeInt(operator.operandCount());
+            for(int index = 0; index < operator.operandCount(); index++) {
+                this.writeFormula(operator.getOperand(index));
+            }
+            return;
+        }
+
+        throw new IllegalArgumentException("Cannot write Formula " + formula
+                + " of type " + formula.getClass().getName());
+    }
+
+    /**
+     * Writes an encoded Term.
+     *
+     * @param term The Term to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeTerm(Term term) throws IOException {
+
+        if(term instanceof Variable) {
+            this.writeInt(VARIABLE);
+            this.writeInt(this.variableNumbers.get(term));
+            this.writeInt(this.getLocalId(term.getSymbol()));
+            return;
+        }
+
+        if(term instanceof IntegerConstant || term instanceof FloatConstant) {
+            this.writeInt((term instanceof IntegerConstant) ? INTEGER : FLOAT);
+            long bits = (term instanceof IntegerConstant) ? ((IntegerConstant) term).longValue()
+                    : Double.doubleToLongBits(((FloatConstant) term).doubleValue());
+            this.writeInt((int) (bits >>> 32));
+            this.writeInt((int) bits);
+            return;
+        }
+
+        Function function = (Function) term;
+        if(function.isConstant()) {
+            this.writeInt(CONSTANT);
+            this.writeInt(this.getLocalId(function.getSymbol()));
+            return;
+        }
+
+        this.writeInt(FUNCTION);
+        this.writeInt(this.getLocalId(function.getSymbol()));
+        this.writeInt(function.getArity());
+        for(Term argument : function.getArguments()) {
+            this.writeTerm(argument);
+        }
+    }
+
+    /**
+     * Writes a FactTable's signature and rows.
+     *
+     * @param factTable The FactTable to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeFactTable(FactTable factTable) throws IOException {
+        this.writeInt(this.getLocalId(factTable.getPredicateSymbol()));
+        this.writeInt(factTable.getArity());
+        this.writeInt(factTable.getFactCount());
+        for(int row = 0; row < factTable.getFactCount(); row++) {
+            for(int column = 0; column < factTable.getArity(); column++) {
+                this.writeInt(this.getLocalId(Symbol.getById(factTable.getSymbolId(row, column))));
+            }
+        }
+    }
+
+    /**
+     * Returns the local id of a Symbol, assigning it the next local id if it has none yet.
+     *
+     * @param symbol The Symbol.
+     * @return the local id of the Symbol.
+     */
+    private int getLocalId(Symbol symbol) {
+        Integer localId = this.localIds.get(symbol);
+        if(localId == null) {
+            localId = this.symbols.size();
+            this.localIds.put(symbol, localId);
+            this.symbols.add(symbol);
+        }
+        return localId;
+    }
+
+    /**
+     * Writes an int to the file.
+     *
+     * @param value The int to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeInt(int value) throws IOException {
+        this.output.writeInt(value);
+        this.position += 4;
+    }
+
+    /**
+     * Writes an array of ints to the file.
+     *
+     * @param values The ints to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeInts(int[] values) throws IOException {
+        for(int value : values) {
+            this.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes a long to the file.
+     *
+     * @param value The long to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeLong(long value) throws IOException {
+        this.output.writeLong(value);
+        this.position += 8;
+    }
+
+    /**
+     * Pads the file with zeros up to the next position that is a multiple of 8, so that the longs
+     * written next can be read from the mapped file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void align() throws IOException {
+        while(this.position % 8 != 0) {
+            this.writeInt(0);
+        }
+    }
+}
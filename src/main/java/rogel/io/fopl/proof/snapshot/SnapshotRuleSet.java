@@ -0,0 +1,300 @@
+package rogel.io.fopl.proof.snapshot;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.FloatConstant;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+import rogel.io.util.MappedFile;
+
+/**
+ * A SnapshotRuleSet is a RuleSet whose HornClauses are stored in a mapped snapshot file. Each
+ * HornClause is decoded the first time it is requested, and kept for later requests. Symbols are
+ * looked up in the domain of discourse as they are first decoded.
+ *
+ * @author recardona
+ * @see RuleSetSnapshot
+ */
+final class SnapshotRuleSet extends RuleSet {
+
+    /** The positions returned for a signature that no rule's consequent has. */
+    private static final int[] NO_RULES = new int[0];
+
+    /** The mapped contents of the snapshot file. */
+    private MappedFile file;
+
+    /** The number of HornClauses in the file. */
+    private int clauseCount;
+
+    /** The position of the HornClauses' offsets. */
+    private long clauseOffsetsOffset;
+
+    /** The position of the symbol table's offsets. */
+    private long symbolsOffset;
+
+    /** The HornClauses decoded so far, by position. */
+    private AtomicReferenceArray<HornClause> decodedRules;
+
+    /** The Symbol of each local id, or null if it has not been decoded yet. */
+    private Symbol[] symbols;
+
+    /** The constant Function of each local id, or null if it has not been decoded yet. */
+    private Function[] constants;
+
+    /** The positions of the rules with each consequent signature, read from the file. */
+    private HashMap<Pair<Symbol, Integer>, int[]> ruleIndex;
+
+    /**
+     * Constructs a SnapshotRuleSet over a mapped snapshot file, reading its rule index and
+     * FactTables.
+     *
+     * @param file The mapped snapshot file, with a valid header.
+     */
+    SnapshotRuleSet(MappedFile file) {
+        this.file = file;
+        this.clauseCount = file.getInt(12);
+        this.clauseOffsetsOffset = file.getLong(24);
+        this.symbolsOffset = file.getLong(48);
+        this.decodedRules = new AtomicReferenceArray<HornClause>(this.clauseCount);
+        this.symbols = new Symbol[file.getInt(8)];
+        this.constants = new Function[this.symbols.length];
+
+        // Read the rule index.
+        int signatureCount = file.getInt(16);
+        this.ruleIndex = new HashMap<Pair<Symbol, Integer>, int[]>(2 * signatureCount);
+        long position = file.getLong(32);
+        for(int signature = 0; signature < signatureCount; signature++) {
+            Symbol symbol = this.getSymbol(file.getInt(position));
+            int arity = file.getInt(position + 4);
+            int[] positions = new int[file.getInt(position + 8)];
+            position += 12;
+            for(int index = 0; index < positions.length; index++) {
+                positions[index] = file.getInt(position);
+                position += 4;
+            }
+            this.ruleIndex.put(Pair.of(symbol, arity), positions);
+        }
+
+        // Read the FactTables.
+        int factTableCount = file.getInt(20);
+        position = file.getLong(40);
+        for(int table = 0; table < factTableCount; table++) {
+            Symbol predicateSymbol = this.getSymbol(file.getInt(position));
+            int arity = file.getInt(position + 4);
+            int factCount = file.getInt(position + 8);
+            position += 12;
+
+            ColumnarFactTable factTable = new ColumnarFactTable(predicateSymbol, arity);
+            int[] row = new int[arity];
+            for(int fact = 0; fact < factCount; fact++) {
+                for(int column = 0; column < arity; column++) {
+                    row[column] = this.getSymbol(file.getInt(position)).getId();
+                    position += 4;
+                }
+                factTable.add(row);
+            }
+            factTable.trimToSize();
+            this.addFactTable(factTable);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.RuleSet#getRule(int)
+     */
+    @Override
+    public HornClause getRule(int index) {
+        HornClause rule = this.decodedRules.get(index);
+        if(rule == null) {
+            rule = this.decodeClause(this.file.getLong(this.clauseOffsetsOffset + 8L * index));
+
+            // If another thread decoded the rule first, use its copy.
+            if(!this.decodedRules.compareAndSet(index, null, rule)) {
+                rule = this.decodedRules.get(index);
+            }
+        }
+        return rule;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.RuleSet#getRuleCount()
+     */
+    @Override
+    public int getRuleCount() {
+        return this.clauseCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.RuleSet#getRuleIndices(rogel.io.fopl.Symbol, int)
+     */
+    @Override
+    public int[] getRuleIndices(Symbol predicateSymbol, int arity) {
+        int[] indices = this.ruleIndex.get(Pair.of(predicateSymbol, arity));
+        return (indices == null) ? NO_RULES : indices;
+    }
+
+    /**
+     * Decodes the HornClause stored at the given position of the file. Decoding is synchronized,
+     * since it fills in the shared Symbol and constant caches.
+     *
+     * @param offset The position of the encoded HornClause.
+     * @return the decoded HornClause.
+     */
+    private synchronized HornClause decodeClause(long offset) {
+        long[] position = {offset};
+        Variable[] variables = new Variable[this.readInt(position)];
+        int flags = this.readInt(position);
+
+        Predicate consequent = null;
+        if((flags & RuleSetSnapshot.HAS_CONSEQUENT) != 0) {
+            consequent = (Predicate) this.decodeFormula(position, variables);
+        }
+
+        Formula antecedent = null;
+        if((flags & RuleSetSnapshot.HAS_ANTECEDENT) != 0) {
+            antecedent = this.decodeFormula(position, variables);
+        }
+
+        return new HornClause(consequent, antecedent);
+    }
+
+    /**
+     * Decodes the Formula stored at the given position of the file.
+     *
+     * @param position A one-element array holding the position of the encoded Formula, which is
+     *     advanced past it.
+     * @param variables The Variables of the clause decoded so far, by number.
+     * @return the decoded Formula.
+     */
+    private Formula decodeFormula(long[] position, Variable[] variables) {
+        int tag = this.readInt(position);
+
+        if(tag == RuleSetSnapshot.PREDICATE) {
+            Symbol symbol = this.getSymbol(this.readInt(position));
+            Term[] terms = new Term[this.readInt(position)];
+            for(int index = 0; index < terms.length; index++) {
+                terms[index] = this.decodeTerm(position, variables);
+            }
+            return new Predicate(symbol, terms);
+        }
+
+        if(tag == RuleSetSnapshot.NOT) {
+            return new NotOperator(this.decodeFormula(position, variables));
+        }
+
+        if(tag == RuleSetSnapshot.ONCE) {
+            return new OnceOperator(this.decodeFormula(position, variables));
+        }
+
+        Formula[] operands = new Formula[this.readInt(position)];
+        for(int index = 0; index < operands.length; index++) {
+            operands[index] = this.decodeFormula(position, variables);
+        }
+
+        if(tag == RuleSetSnapshot.AND) {
+            return new AndOperator(operands);
+        }
+        return new OrOperator(operands);
+    }
+
+    /**
+     * Decodes the Term stored at the given position of the file.
+     *
+     * @param position A one-element array holding the position of the encoded Term, which is
+     *     advanced past it.
+     * @param variables The Variables of the clause decoded so far, by number.
+     * @return the decoded Term.
+     */
+    private Term decodeTerm(long[] position, Variable[] variables) {
+        int tag = this.readInt(position);
+
+        if(tag == RuleSetSnapshot.VARIABLE) {
+            int number = this.readInt(position);
+            int localId = this.readInt(position);
+            if(variables[number] == null) {
+                variables[number] = new Variable(this.getSymbol(localId));
+            }
+            return variables[number];
+        }
+
+        if(tag == RuleSetSnapshot.CONSTANT) {
+            return this.getConstant(this.readInt(position));
+        }
+
+        if(tag == RuleSetSnapshot.INTEGER || tag == RuleSetSnapshot.FLOAT) {
+            long bits = ((long) this.readInt(position) << 32) | (this.readInt(position) & 0xFFFFFFFFL);
+            return (tag == RuleSetSnapshot.INTEGER) ? new IntegerConstant(bits)
+                    : new FloatConstant(Double.longBitsToDouble(bits));
+        }
+
+        Symbol symbol = this.getSymbol(this.readInt(position));
+        Term[] arguments = new Term[this.readInt(position)];
+        for(int index = 0; index < arguments.length; index++) {
+            arguments[index] = this.decodeTerm(position, variables);
+        }
+        return new Function(symbol, arguments);
+    }
+
+    /**
+     * Reads the int at the given position of the file.
+     *
+     * @param position A one-element array holding the position of the int, which is advanced
+     *     past it.
+     * @return the int at the position.
+     */
+    private int readInt(long[] position) {
+        int value = this.file.getInt(position[0]);
+        position[0] += 4;
+        return value;
+    }
+
+    /**
+     * Returns the Symbol of a local id, reading its name from the symbol table the first time.
+     *
+     * @param localId The local id of the Symbol.
+     * @return the Symbol with the local id.
+     */
+    private Symbol getSymbol(int localId) {
+        if(this.symbols[localId] == null) {
+            long start = this.file.getLong(this.symbolsOffset + 8L * localId);
+            long end = this.file.getLong(this.symbolsOffset + 8L * (localId + 1));
+            byte[] name = new byte[(int) (end - start)];
+            for(int index = 0; index < name.length; index++) {
+                name[index] = this.file.getByte(start + index);
+            }
+            this.symbols[localId] = Symbol.get(new String(name, RuleSetSnapshot.UTF8));
+        }
+        return this.symbols[localId];
+    }
+
+    /**
+     * Returns the constant Function of a local id, which is shared by every decoded occurrence of
+     * the constant.
+     *
+     * @param localId The local id of the constant's Symbol.
+     * @return the constant (0-ary) Function of the Symbol.
+     */
+    private Function getConstant(int localId) {
+        if(this.constants[localId] == null) {
+            this.constants[localId] = new Function(this.getSymbol(localId));
+        }
+        return this.constants[localId];
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Contains classes that save a RuleSet, with its symbols, HornClauses, rule index and FactTables,
+ * into a compact binary file, and load it back without parsing the clauses again.
+ *
+ * @author recardona
+ */
+package rogel.io.fopl.proof.snapshot;
@@ -22,6 +22,9 @@ public abstract class AbstractSolutionNode {
     /** The index of the current rule under consideration for solving the goal. */
     private int ruleNumber;
     
+    /** The positions of the rules this node may use, or null if it may use every rule. */
+    private int[] candidateRules;
+    
     /** The HornClauses used by all nodes in the proof tree. */
     protected RuleSet rules;
 
@@ -31,6 +34,9 @@ public abstract class AbstractSolutionNode {
     /** The current rule under consideration for the proof. */
     private HornClause currentRule;
     
+    /** The state shared by every node of the proof tree, such as the answer tables. */
+    protected ProofContext context;
+    
     /**
      * Constructs an AbstractSolutionNode.
      * 
@@ -39,10 +45,42 @@ public abstract class AbstractSolutionNode {
      *  node, not null.
      */
     protected AbstractSolutionNode(RuleSet rules, Substitution parentSolution) {
+        this(rules, parentSolution, null);
+    }
+    
+    /**
+     * Constructs an AbstractSolutionNode that only considers the rules at the given positions of 
+     * the RuleSet.
+     * 
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param candidateRules The positions of the rules to consider, in order, or null to consider
+     *  every rule.
+     */
+    protected AbstractSolutionNode(RuleSet rules, Substitution parentSolution, int[] candidateRules) {
+        this(rules, parentSolution, candidateRules, new ProofContext());
+    }
+    
+    /**
+     * Constructs an AbstractSolutionNode that only considers the rules at the given positions of 
+     * the RuleSet, as part of the proof tree of a query.
+     * 
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param candidateRules The positions of the rules to consider, in order, or null to consider
+     *  every rule.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    protected AbstractSolutionNode(RuleSet rules, Substitution parentSolution, int[] candidateRules,
+            ProofContext context) {
         this.ruleNumber = 0;
+        this.candidateRules = candidateRules;
         this.rules = rules;
         this.parentSolution = parentSolution;
         this.currentRule = null;
+        this.context = context;
     }
     
     /**
@@ -52,6 +90,15 @@ public abstract class AbstractSolutionNode {
      */
     public abstract Substitution nextSolution();
     
+    /**
+     * Releases the resources held by this node, such as the threads of a parallel search. A 
+     * closed node must not be asked for more solutions. By default, nodes hold no such resources,
+     * and this method does nothing.
+     */
+    public void close() {
+        // Nothing to release.
+    }
+    
     /**
      * Gets the next rule in the RuleSet, with variables standardized apart.
      * 
@@ -59,7 +106,8 @@ public abstract class AbstractSolutionNode {
      */
     public HornClause nextRule() {
         if(this.hasNextRule()) {
-            this.currentRule = this.rules.getRuleStandardizedApart(this.ruleNumber);
+            int position = (this.candidateRules == null) ? this.ruleNumber : this.candidateRules[this.ruleNumber];
+            this.currentRule = this.rules.getRuleStandardizedApart(position);
             this.ruleNumber++;
         }
         
@@ -88,6 +136,15 @@ public abstract class AbstractSolutionNode {
         return this.parentSolution;
     }
     
+    /**
+     * Gets the ProofContext shared by the nodes of this node's proof tree.
+     * 
+     * @return the ProofContext of this node.
+     */
+    public ProofContext getContext() {
+        return this.context;
+    }
+    
     /**
      * Gets the HornClause that is currently being used as the goal for resolution at this node.
      * 
@@ -110,12 +167,15 @@ public abstract class AbstractSolutionNode {
     
     /**
      * Returns true if and only if the current index of the RuleSet HornClause rule is less than
-     * the total number of rules in the RuleSet. 
+     * the total number of rules this node may use. 
      * 
-     * @return true if the current HornClause index is less than the total number of rules in the 
-     *     RuleSet.
+     * @return true if the current HornClause index is less than the total number of rules this
+     *     node may use.
      */
     protected boolean hasNextRule() {
+        if(this.candidateRules != null) {
+            return (this.ruleNumber < this.candidateRules.length);
+        }
         return (this.ruleNumber < this.rules.getRuleCount());
     }
     
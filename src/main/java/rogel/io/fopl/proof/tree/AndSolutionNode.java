@@ -1,42 +1,87 @@
 package rogel.io.fopl.proof.tree;
 
+import java.util.Arrays;
+
 import rogel.io.fopl.Substitution;
-import rogel.io.fopl.formulas.operators.AbstractOperator;
 import rogel.io.fopl.formulas.operators.AndOperator;
 import rogel.io.fopl.proof.RuleSet;
 
 /**
  * The AndSolutionNode is an AbstractSolutionNode for AndOperators. Because in our implementation,
  * AndOperators are n-ary, this class must handle resolution for each of the individual arguments.
- * This class is implemented recursively, getting the head of the n-ary arguments, and requesting
- * solutions for the tail until the operands are exhausted.
+ * This class keeps a solution node for each operand it has reached, in an array indexed like the
+ * operands: the node for an operand is created from a solution to the operands before it, and
+ * when it runs out of solutions, the search backs up to the previous operand.
+ * <p>
+ * If the query's ProofContext has a GoalPlanner, and the operands are all Predicates, the operands
+ * are not solved in written order: each time the search moves on to a new operand, the planner
+ * chooses the cheapest of those left, under the bindings found so far.
+ * <p>
+ * Once a cut among the operands holds, the search can no longer back up past it, so the nodes of
+ * the operands before it are dropped, and the memory they hold released.
  * 
  * @author recardona
  */
 public class AndSolutionNode extends AbstractSolutionNode {
 
-    /** The solution node for the first argument of the AndOperator this node represents. */
-    private AbstractSolutionNode headSolutionNode = null;
+    /** The AndOperator this node represents, whose operands are solved in order. */
+    private AndOperator goal;
+    
+    /** The solution node of each operand reached by the search, in the order solved, or null. */
+    private AbstractSolutionNode[] operandSolutionNodes;
+    
+    /** The index of the operand whose node the search resumes from, in the order solved. */
+    private int operandIndex;
     
-    /** The tail arguments of the AndOperator this node represents.*/
-    private AbstractOperator operatorTail = null;
+    /** The GoalPlanner that chooses the order of the operands, or null to solve them in order. */
+    private GoalPlanner planner;
     
-    /** The solution node for the tail arguments of the AndOperator this node represents. */
-    private AbstractSolutionNode tailSolutionNode = null;
+    /** The index in the goal of each operand reached by the search, in the order solved. */
+    private int[] order;
+    
+    /** Whether each operand of the goal has a node in the search, if the planner is used. */
+    private boolean[] solved;
     
     /**
-     * Constructor for the AndSolutionNode.
+     * Constructor for the AndSolutionNode, whose search has a ProofContext of its own.
      * 
      * @param goal The goal for this node, not null.
      * @param rules The RuleSet that defines the logical basis used for resolution, not null.
      * @param parentSolution The Substitution solution that exists prior to the creation of this
      *  node, not null.
+     * @deprecated Use {@link #AndSolutionNode(AndOperator, RuleSet, Substitution, ProofContext)},
+     *     so that the node shares the ProofContext of the query's proof tree.
      */
+    @Deprecated
     protected AndSolutionNode(AndOperator goal, RuleSet rules, Substitution parentSolution) {
-        super(rules, parentSolution);
-        this.headSolutionNode = SolutionNodeFactory.getSolver(goal.getOperatorHead(), rules, parentSolution);
-        this.operatorTail = goal.getOperatorTail(); // store the operator tail to create the tailSolutionNode lazily.
-        this.tailSolutionNode = null;
+        this(goal, rules, parentSolution, new ProofContext());
+    }
+    
+    /**
+     * Constructor for the AndSolutionNode.
+     * 
+     * @param goal The goal for this node, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    protected AndSolutionNode(AndOperator goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.operandSolutionNodes = new AbstractSolutionNode[goal.operandCount()];
+        this.order = new int[goal.operandCount()];
+        this.planner = context.getPlanner();
+        if(this.planner != null && (this.planner.getRules() != rules || !this.planner.isReorderable(goal))) {
+            this.planner = null;
+        }
+        if(this.planner != null) {
+            this.solved = new boolean[goal.operandCount()];
+        }
+        this.operandIndex = 0;
+        if(!goal.isEmpty()) {
+            this.operandSolutionNodes[0] = this.getOperandSolver(parentSolution);
+        }
     }
 
     /**
@@ -46,18 +91,37 @@ public class AndSolutionNode extends AbstractSolutionNode {
      * @return the AbstractSolutionNode for the Formula at the head of this node's goal AndOperator.
      */
     public AbstractSolutionNode getHeadSolutionNode() {
-        return this.headSolutionNode;
+        return this.getOperandSolutionNode(0);
     }
 
     /**
-     * Gets this AndSolutionNode's tail solution node; i.e. the solution node for the Formula at 
-     * the tail of this node's goal AndOperator.
+     * Gets this AndSolutionNode's tail solution node. This node no longer solves the tail of its
+     * goal AndOperator as a conjunction of its own, so the node returned is that of the operand
+     * solved after the head, if the search has reached it.
      * 
-     * @return the tailSolutionNode the AbstractSolutionNode for the Formula at the tail of this
-     *     node's goal AndOperator.
+     * @return the AbstractSolutionNode for the second operand in the order solved, or null if the
+     *     search has not reached it.
+     * @deprecated Use {@link #getOperandSolutionNode(int)}, which reaches the node of any operand.
      */
+    @Deprecated
     public AbstractSolutionNode getTailSolutionNode() {
-        return this.tailSolutionNode;
+        return (this.operandIndex >= 1) ? this.operandSolutionNodes[1] : null;
+    }
+
+    /**
+     * Gets the solution node for the operand at the given index of this node's goal AndOperator,
+     * if the search has reached it.
+     * 
+     * @param index The non-negative index of the operand.
+     * @return the AbstractSolutionNode for the operand, or null if the search has not reached it.
+     */
+    public AbstractSolutionNode getOperandSolutionNode(int index) {
+        for(int position = 0; position <= this.operandIndex && position < this.order.length; position++) {
+            if(this.order[position] == index) {
+                return this.operandSolutionNodes[position];
+            }
+        }
+        return null;
     }
 
     /*
@@ -67,43 +131,63 @@ public class AndSolutionNode extends AbstractSolutionNode {
     @Override
     public Substitution nextSolution() {
         
-        Substitution solution;
+        // An empty conjunction has a single solution: the parent solution.
+        if(this.goal.isEmpty()) {
+            Substitution solution = (this.operandIndex == 0) ? super.parentSolution : null;
+            this.operandIndex = -1;
+            return solution;
+        }
         
-        // First check if the child is not null (which could
-        // be the case if we are resuming a previous search).
-        if(this.tailSolutionNode != null) {
+        // Resume from the node of the operand that gave the last solution, or from the
+        // first node if the search has not started.
+        while(this.operandIndex >= 0) {
             
-            // See if there are any more solutions
-            // in this branch of the search space.
-            solution = this.tailSolutionNode.nextSolution();
+            Substitution solution = this.operandSolutionNodes[this.operandIndex].nextSolution();
             
-            // If the solution in this branch is not null, 
-            // return it.
-            if(solution != null) {
-                return solution;
+            // Backtracking into a cut prunes past the operands before it.
+            if(solution != null && this.operandSolutionNodes[this.operandIndex] instanceof CutSolutionNode) {
+                Arrays.fill(this.operandSolutionNodes, 0, this.operandIndex, null);
             }
-        }
-        
-        // We must test for further solutions to the head goal.
-        while( (solution = this.headSolutionNode.nextSolution()) != null) {
             
-            // If there isn't a tail to the head, we can return the solution we find.
-            if(this.operatorTail == null || this.operatorTail.isEmpty()) {
+            // If the operand has no more solutions, back up to the previous one.
+            if(solution == null) {
+                this.operandSolutionNodes[this.operandIndex] = null;
+                if(this.planner != null) {
+                    this.solved[this.order[this.operandIndex]] = false;
+                }
+                this.operandIndex--;
+            }
+            
+            // If the last operand has a solution, so does the conjunction.
+            else if(this.operandIndex == this.operandSolutionNodes.length - 1) {
                 return solution;
             }
             
-            // Otherwise, we need to find the solution to the tail as well.
+            // Otherwise, we need to find a solution to the next operand as well.
             else {
-                this.tailSolutionNode = SolutionNodeFactory.getSolver(this.operatorTail, rules, solution);
-                Substitution tailSolution = this.tailSolutionNode.nextSolution();
-                
-                if(tailSolution != null) {
-                    return tailSolution;
-                }
+                this.operandIndex++;
+                this.operandSolutionNodes[this.operandIndex] = this.getOperandSolver(solution);
             }
         }
         
         return null; // There is no next solution for the resolution problem!
     }
+    
+    /**
+     * Chooses the operand to solve at the current position of the search, and creates its node:
+     * the operand at that position, or the cheapest of the operands left, if the planner is used.
+     * 
+     * @param solution The Substitution found for the operands before it.
+     * @return the solution node of the operand.
+     */
+    private AbstractSolutionNode getOperandSolver(Substitution solution) {
+        int index = this.operandIndex;
+        if(this.planner != null) {
+            index = this.planner.selectNext(this.goal, this.solved, solution);
+            this.solved[index] = true;
+        }
+        this.order[this.operandIndex] = index;
+        return SolutionNodeFactory.getSolver(this.goal.getOperand(index), super.rules, solution, super.context);
+    }
 
 }
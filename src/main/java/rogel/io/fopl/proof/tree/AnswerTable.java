@@ -0,0 +1,226 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import rogel.io.fopl.Unifiable;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.terms.FloatConstant;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * An AnswerTable holds the answers found so far to a call of a tabled Predicate, that is, the
+ * instances of the call that were proven, without duplicates. A call and its answers are
+ * identified by their variant key, which is the same for Predicates equal up to the renaming of
+ * their Variables.
+ * <p>
+ * A table is complete once every answer to its call has been found. Until then, it records where
+ * its evaluation stands for the ProofContext that evaluates it. A complete table may be kept
+ * across queries by a SubgoalCache.
+ *
+ * @author recardona
+ */
+class AnswerTable {
+
+    /** The variant key of the call. */
+    private final String key;
+
+    /** The call whose answers this table holds. */
+    private final Predicate call;
+
+    /** The answers, in the order in which they were found. */
+    private final List<Predicate> answers;
+
+    /** Whether each answer has Variables, by index. */
+    private final List<Boolean> nonGround;
+
+    /** The variant keys of the answers, or null once the table is complete. */
+    private HashSet<String> answerKeys;
+
+    /** Whether every answer to the call has been found. */
+    private boolean complete;
+
+    /** The position of this table on the ProofContext's stack while it is evaluated, or -1. */
+    int depth;
+
+    /** The lowest position on the stack of a table this table's answers depend on. */
+    int leader;
+
+    /** Whether the current evaluation pass of this table read an incomplete table. */
+    boolean readIncomplete;
+
+    /** The number of evaluation passes this table started, while it was its own leader. */
+    int passes;
+
+    /** The leader whose pass this table was last evaluated in, if it was not its own leader. */
+    AnswerTable evaluatedBy;
+
+    /** The pass of {@code evaluatedBy} in which this table was last evaluated. */
+    int evaluatedInPass;
+
+    /**
+     * Constructs an empty, incomplete AnswerTable.
+     *
+     * @param key The variant key of the call.
+     * @param call The call whose answers the table holds.
+     */
+    AnswerTable(String key, Predicate call) {
+        this.key = key;
+        this.call = call;
+        this.answers = new ArrayList<Predicate>();
+        this.nonGround = new ArrayList<Boolean>();
+        this.answerKeys = new HashSet<String>();
+        this.complete = false;
+        this.depth = -1;
+        this.leader = -1;
+        this.readIncomplete = false;
+        this.passes = 0;
+        this.evaluatedBy = null;
+        this.evaluatedInPass = 0;
+    }
+
+    /**
+     * Returns the variant key of the call whose answers this table holds.
+     *
+     * @return the variant key of the call.
+     */
+    String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the call whose answers this table holds.
+     *
+     * @return the call.
+     */
+    Predicate getCall() {
+        return this.call;
+    }
+
+    /**
+     * Adds an answer to this table, unless it holds a variant of it already.
+     *
+     * @param answer The answer, an instance of the call.
+     * @return true if the answer is new.
+     */
+    boolean addAnswer(Predicate answer) {
+        String key = variantKey(answer);
+        if(!this.answerKeys.add(key)) {
+            return false;
+        }
+        this.answers.add(answer);
+        this.nonGround.add(key.indexOf('?') >= 0);
+        return true;
+    }
+
+    /**
+     * Returns the number of answers found so far.
+     *
+     * @return the number of answers.
+     */
+    int getAnswerCount() {
+        return this.answers.size();
+    }
+
+    /**
+     * Returns an answer, with its Variables renamed apart from those of every other Expression.
+     *
+     * @param index The index of the answer, in the order in which they were found.
+     * @return the answer.
+     */
+    Predicate getAnswer(int index) {
+        Predicate answer = this.answers.get(index);
+        return this.nonGround.get(index) ? (Predicate) answer.standardizeVariablesApart(new HashMap<Variable, Variable>())
+                : answer;
+    }
+
+    /**
+     * Returns true if every answer to the call has been found.
+     *
+     * @return true if this table is complete.
+     */
+    boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * Marks this table as complete: it holds every answer to its call. A complete table is not
+     * modified anymore, so that it may be read by several queries at once.
+     */
+    void complete() {
+        this.complete = true;
+        this.answerKeys = null;
+        this.depth = -1;
+        this.evaluatedBy = null;
+    }
+
+    /**
+     * Returns true if this table is on the stack of the ProofContext, being evaluated.
+     *
+     * @return true if this table is being evaluated.
+     */
+    boolean isEvaluating() {
+        return this.depth >= 0;
+    }
+
+    /**
+     * Returns a key that is the same for two Predicates if and only if they are variants, that is,
+     * equal up to the renaming of their Variables. The Variables of the Predicate are numbered in
+     * the order in which they first appear.
+     *
+     * @param predicate The Predicate, whose Variables are all unbound.
+     * @return the variant key of the Predicate.
+     */
+    static String variantKey(Predicate predicate) {
+        StringBuilder key = new StringBuilder();
+        key.append(predicate.getSymbol().getId()).append('/').append(predicate.getArity());
+
+        List<Term> terms = predicate.getTerms();
+        if(terms == null) {
+            return key.toString();
+        }
+
+        HashMap<Variable, Integer> numbers = new HashMap<Variable, Integer>();
+        ArrayList<Unifiable> pending = new ArrayList<Unifiable>();
+        for(int index = terms.size() - 1; index >= 0; index--) {
+            pending.add(terms.get(index));
+        }
+
+        // Walk the terms depth first, left to right; a Function's arity closes its arguments.
+        while(!pending.isEmpty()) {
+            Unifiable next = pending.remove(pending.size() - 1);
+            key.append(' ');
+            if(next instanceof Variable) {
+                Integer number = numbers.get(next);
+                if(number == null) {
+                    number = numbers.size();
+                    numbers.put((Variable) next, number);
+                }
+                key.append('?').append(number);
+            }
+            else if(next instanceof IntegerConstant) {
+                key.append('i').append(((IntegerConstant) next).longValue());
+            }
+            else if(next instanceof FloatConstant) {
+                key.append('f').append(((FloatConstant) next).doubleValue());
+            }
+            else {
+                Function function = (Function) next;
+                key.append(function.getSymbol().getId());
+                if(!function.isConstant()) {
+                    List<Term> arguments = function.getArguments();
+                    key.append('/').append(arguments.size());
+                    for(int index = arguments.size() - 1; index >= 0; index--) {
+                        pending.add(arguments.get(index));
+                    }
+                }
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package rogel.io.fopl.proof.tree;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.builtins.Builtin;
+
+/**
+ * The BuiltinSolutionNode is an AbstractSolutionNode for Predicates that are built in to the
+ * RuleSet. It evaluates its goal with the goal's Builtin, without looking up rules or facts, and
+ * so has at most one solution. The evaluation counts as an inference of the node's ProofContext.
+ *
+ * @author recardona
+ */
+public class BuiltinSolutionNode extends AbstractSolutionNode {
+
+    /** The goal being solved at this node. */
+    private Predicate goal;
+
+    /** The Builtin that solves the goal. */
+    private Builtin builtin;
+
+    /** Whether the goal has been evaluated. */
+    private boolean evaluated;
+
+    /**
+     * Constructor for the BuiltinSolutionNode.
+     *
+     * @param goal The Predicate resolution goal for this node, not null.
+     * @param builtin The Builtin that solves the goal, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    public BuiltinSolutionNode(Predicate goal, Builtin builtin, RuleSet rules, Substitution parentSolution,
+            ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.builtin = builtin;
+        this.evaluated = false;
+    }
+
+    /**
+     * The Predicate that represents the resolution goal for this node.
+     *
+     * @return the goal for this node.
+     */
+    public Predicate getGoal() {
+        return this.goal;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.evaluated) {
+            return null; // A built-in predicate holds at most once.
+        }
+        this.evaluated = true;
+        super.context.countInference();
+        return this.builtin.solve(this.goal.getTerms(), super.parentSolution);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.evaluated = false;
+    }
+}
@@ -0,0 +1,39 @@
+package rogel.io.fopl.proof.tree;
+
+/**
+ * A CancellationToken lets one thread stop the queries that another thread is solving. A query
+ * checks the token of its QueryLimits as it checks its other limits, and stops with a
+ * QueryLimitException once the token is cancelled. A token may be shared by several queries, and
+ * cannot be reset once cancelled.
+ *
+ * @author recardona
+ */
+public final class CancellationToken {
+
+    /** Whether the token is cancelled. */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a CancellationToken that is not cancelled.
+     */
+    public CancellationToken() {
+        this.cancelled = false;
+    }
+
+    /**
+     * Cancels the queries that check this token. The method returns at once; the queries stop
+     * the next time they check their limits.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Returns true if this token is cancelled.
+     *
+     * @return true if {@link #cancel()} has been called.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+}
@@ -0,0 +1,36 @@
+package rogel.io.fopl.proof.tree;
+
+/**
+ * A CutException is thrown by a CutSolutionNode when the search backtracks into it: it unwinds
+ * the nodes solved since the cut, up to the node the cut prunes back to, which catches it and has
+ * no more solutions. Nodes that catch a CutException for another node rethrow it. The exception
+ * carries no stack trace, since it is part of the normal course of a search.
+ *
+ * @author recardona
+ */
+final class CutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The node the cut prunes back to. */
+    private final transient AbstractSolutionNode scope;
+
+    /**
+     * Constructs a CutException.
+     *
+     * @param scope The node the cut prunes back to, not null.
+     */
+    CutException(AbstractSolutionNode scope) {
+        super(null, null, false, false);
+        this.scope = scope;
+    }
+
+    /**
+     * Returns the node the cut prunes back to.
+     *
+     * @return the node that must catch this exception.
+     */
+    AbstractSolutionNode getScope() {
+        return this.scope;
+    }
+}
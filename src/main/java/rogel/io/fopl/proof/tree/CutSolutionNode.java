@@ -0,0 +1,109 @@
+package rogel.io.fopl.proof.tree;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AbstractOperator;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * The CutSolutionNode solves the cut, the propositional Predicate {@code (!)}. The cut holds once,
+ * under the parent solution; when the search backtracks into it, it discards every alternative
+ * left since the node it prunes back to was entered: the goals solved before the cut in the same
+ * body, and the rules and facts that node has not tried yet. The node a cut prunes back to is the
+ * node of the rule in whose body it appears or, if it appears inside a {@code once} or a
+ * negation, the node of the innermost of them.
+ * <p>
+ * An AndSolutionNode drops the nodes of the operands before a cut as soon as the cut holds, so
+ * that the memory they hold is released while the rest of the body is solved.
+ *
+ * @author recardona
+ */
+public class CutSolutionNode extends AbstractSolutionNode {
+
+    /** The Symbol of the cut. */
+    public static final Symbol CUT = Symbol.get("!");
+
+    /** The node the cut prunes back to. */
+    private AbstractSolutionNode scope;
+
+    /** Whether the cut has held. */
+    private boolean passed;
+
+    /**
+     * Constructor for the CutSolutionNode.
+     *
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     * @throws IllegalArgumentException if the cut is outside of any rule, {@code once} or
+     *     negation.
+     */
+    public CutSolutionNode(RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.scope = context.getCutScope();
+        if(this.scope == null) {
+            throw new IllegalArgumentException("A cut must be in the body of a rule, or inside a once or a negation.");
+        }
+        this.passed = false;
+    }
+
+    /**
+     * Returns true if a Formula is the cut.
+     *
+     * @param formula The Formula, not null.
+     * @return true if the Formula is the propositional Predicate {@code (!)}.
+     */
+    public static boolean isCut(Formula formula) {
+        return formula instanceof Predicate && ((Predicate) formula).getArity() == 0
+                && ((Predicate) formula).getSymbol().equals(CUT);
+    }
+
+    /**
+     * Returns true if a Formula is a cut, or a conjunction or disjunction with a cut among its
+     * operands, at any depth. A cut inside a {@code once} or a negation does not count, since it
+     * does not prune past them.
+     *
+     * @param formula The Formula, not null.
+     * @return true if solving the Formula may cut back past it.
+     */
+    public static boolean containsCut(Formula formula) {
+        if(formula instanceof AndOperator || formula instanceof OrOperator) {
+            AbstractOperator operator = (AbstractOperator) formula;
+            for(int index = 0; index < operator.operandCount(); index++) {
+                if(containsCut(operator.getOperand(index))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return isCut(formula);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.passed) {
+            throw new CutException(this.scope); // Discard the alternatives left since the scope.
+        }
+        this.passed = true;
+        return super.parentSolution;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.passed = false;
+    }
+}
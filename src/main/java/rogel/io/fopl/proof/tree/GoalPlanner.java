@@ -0,0 +1,259 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AbstractOperator;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A GoalPlanner chooses the order in which an AndSolutionNode solves the operands of a
+ * conjunction. Instead of the written order, the node solves next, each time it moves on to a new
+ * operand, the operand the planner estimates to be the cheapest under the bindings found so far:
+ * usually a selective filter, or an operand whose bound arguments are indexed, before a scan of a
+ * large FactTable.
+ * <p>
+ * The estimates come from PredicateStatistics, computed once per signature and again when its
+ * FactTable changes: the number of ground facts, the number of distinct constants in each column,
+ * which columns are indexed, and the number of rules. The facts of a goal are estimated to match in
+ * proportion to the distinct constants of its bound columns, as if the columns were independent;
+ * the answers of its rules, which cannot be estimated without solving them, are assumed to be
+ * {@code RULE_ANSWERS} per rule, and fewer by {@code BOUND_SELECTIVITY} for each bound argument.
+ * <p>
+ * Only a conjunction of pure Predicates is reordered: Predicates that are not built in, and whose
+ * rules reach no negation, {@code once}, cut or built-in predicate, any of which may depend on the
+ * bindings made by the operands written before it. A conjunction with any other operand is solved
+ * in written order. A planner is used by the queries whose ProofContext was constructed with it,
+ * and may be shared by queries against its RuleSet, on any thread.
+ *
+ * @author recardona
+ */
+public class GoalPlanner {
+
+    /** The estimated number of answers of a rule, when none of its goal's arguments is bound. */
+    private static final double RULE_ANSWERS = 100;
+
+    /** The factor by which each bound argument of a goal divides the estimated answers of a rule. */
+    private static final double BOUND_SELECTIVITY = 10;
+
+    /** The RuleSet whose goals this planner orders. */
+    private RuleSet rules;
+
+    /** The statistics of each signature estimated so far. */
+    private HashMap<Pair<Symbol, Integer>, PredicateStatistics> statistics;
+
+    /** Whether each signature checked so far is pure. */
+    private HashMap<Pair<Symbol, Integer>, Boolean> pureSignatures;
+
+    /** The version of the RuleSet at which the pure signatures were checked. */
+    private long pureSignaturesVersion;
+
+    /**
+     * Constructs a GoalPlanner for the goals of a RuleSet.
+     *
+     * @param rules The RuleSet, not null.
+     */
+    public GoalPlanner(RuleSet rules) {
+        if(rules == null) {
+            throw new IllegalArgumentException("Cannot plan the goals of a null RuleSet.");
+        }
+        this.rules = rules;
+        this.statistics = new HashMap<Pair<Symbol, Integer>, PredicateStatistics>();
+        this.pureSignatures = new HashMap<Pair<Symbol, Integer>, Boolean>();
+        this.pureSignaturesVersion = rules.getVersion();
+    }
+
+    /**
+     * Returns the RuleSet whose goals this planner orders.
+     *
+     * @return the RuleSet of this planner.
+     */
+    public RuleSet getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Returns true if the operands of a conjunction may be solved in any order: that is, if they
+     * are all Predicates, and the signature of each is pure. A signature is pure if it is not built
+     * in, and the bodies of its rules are conjunctions and disjunctions of Predicates with pure
+     * signatures, with no negation, {@code once} or cut.
+     *
+     * @param goal The conjunction, not null.
+     * @return true if the conjunction may be reordered.
+     */
+    public boolean isReorderable(AndOperator goal) {
+        for(int index = 0; index < goal.operandCount(); index++) {
+            Formula operand = goal.getOperand(index);
+            if(!(operand instanceof Predicate) || CutSolutionNode.isCut(operand)) {
+                return false;
+            }
+            if(!this.isPure(Pair.of(((Predicate) operand).getSymbol(), ((Predicate) operand).getArity()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the cost of solving a goal under a Substitution: the rows its FactTable visits and
+     * the clauses it tries, plus the solutions it is expected to have.
+     *
+     * @param goal The goal, not null.
+     * @param substitution The bindings of the goal's Variables, not null.
+     * @return the estimated cost of the goal.
+     */
+    public double estimateCost(Predicate goal, Substitution substitution) {
+        PredicateStatistics statistics = this.getStatistics(goal.getSymbol(), goal.getArity());
+
+        double factAnswers = statistics.getFactCount();
+        double tableScan = statistics.tableFactCount;
+        double ruleAnswers = statistics.ruleCount * RULE_ANSWERS;
+        List<Term> terms = goal.getTerms();
+        for(int column = 0; column < goal.getArity(); column++) {
+            if(!(terms.get(column).replaceVariables(substitution) instanceof Variable)) {
+                factAnswers /= statistics.distinctCounts[column];
+                ruleAnswers /= BOUND_SELECTIVITY;
+                if(statistics.indexed[column]) {
+                    tableScan = Math.min(tableScan, (double) statistics.tableFactCount / statistics.distinctCounts[column]);
+                }
+            }
+        }
+        return tableScan + statistics.clauseFactCount + statistics.ruleCount + factAnswers + ruleAnswers;
+    }
+
+    /**
+     * Chooses the operand of a conjunction to solve next: the unsolved operand with the lowest
+     * estimated cost under the bindings found so far, or the first of them if several tie.
+     *
+     * @param goal The conjunction, whose operands are all Predicates, not null.
+     * @param solved Whether each operand is already solved, not null.
+     * @param substitution The bindings found so far, not null.
+     * @return the index of the operand to solve next, or -1 if every operand is solved.
+     */
+    public int selectNext(AndOperator goal, boolean[] solved, Substitution substitution) {
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for(int index = 0; index < solved.length; index++) {
+            if(!solved[index]) {
+                double cost = this.estimateCost((Predicate) goal.getOperand(index), substitution);
+                if(best == -1 || cost < bestCost) {
+                    best = index;
+                    bestCost = cost;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the statistics of a signature, computing them if they are missing or out of date.
+     *
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the statistics.
+     */
+    private synchronized PredicateStatistics getStatistics(Symbol predicateSymbol, int arity) {
+        Pair<Symbol, Integer> signature = Pair.of(predicateSymbol, arity);
+        PredicateStatistics predicateStatistics = this.statistics.get(signature);
+        if(predicateStatistics == null || !predicateStatistics.isCurrent(this.rules, predicateSymbol, arity)) {
+            predicateStatistics = new PredicateStatistics(this.rules, predicateSymbol, arity);
+            this.statistics.put(signature, predicateStatistics);
+        }
+        return predicateStatistics;
+    }
+
+    /**
+     * Returns true if a signature is pure: if neither it nor any signature its rules reach, through
+     * any chain of rules, is built in or has a rule whose body is not a conjunction or disjunction
+     * of Predicates other than the cut. The answers are kept until the RuleSet changes.
+     *
+     * @param signature The signature.
+     * @return true if the signature is pure.
+     */
+    private synchronized boolean isPure(Pair<Symbol, Integer> signature) {
+        long version = this.rules.getVersion();
+        if(version != this.pureSignaturesVersion) {
+            this.pureSignatures.clear();
+            this.pureSignaturesVersion = version;
+        }
+        Boolean pure = this.pureSignatures.get(signature);
+        if(pure == null) {
+            pure = true;
+            HashSet<Pair<Symbol, Integer>> reached = new HashSet<Pair<Symbol, Integer>>();
+            ArrayDeque<Pair<Symbol, Integer>> pending = new ArrayDeque<Pair<Symbol, Integer>>();
+            List<Predicate> goals = new ArrayList<Predicate>();
+            reached.add(signature);
+            pending.add(signature);
+            while(pure && !pending.isEmpty()) {
+                Pair<Symbol, Integer> next = pending.poll();
+                if(this.rules.getBuiltin(next.getLeft(), next.getRight()) != null) {
+                    pure = false;
+                    break;
+                }
+                for(int index : this.rules.getRuleIndices(next.getLeft(), next.getRight())) {
+                    HornClause rule = this.rules.getRule(index);
+                    goals.clear();
+                    if(!rule.isFact() && !collectGoals(rule.getAntecedent(), goals)) {
+                        pure = false;
+                        break;
+                    }
+                    for(Predicate goal : goals) {
+                        Pair<Symbol, Integer> goalSignature = Pair.of(goal.getSymbol(), goal.getArity());
+                        if(reached.add(goalSignature)) {
+                            pending.add(goalSignature);
+                        }
+                    }
+                }
+            }
+            this.pureSignatures.put(signature, pure);
+        }
+        return pure;
+    }
+
+    /**
+     * Collects the Predicates of a rule body that is a conjunction or disjunction of Predicates.
+     *
+     * @param formula The body, or an operand of it.
+     * @param goals The Predicates collected so far, which those of the Formula are added to.
+     * @return false if the Formula has a negation, a {@code once} or a cut.
+     */
+    private static boolean collectGoals(Formula formula, List<Predicate> goals) {
+        if(formula instanceof Predicate) {
+            goals.add((Predicate) formula);
+            return !CutSolutionNode.isCut(formula);
+        }
+        if(!(formula instanceof AndOperator) && !(formula instanceof OrOperator)) {
+            return false;
+        }
+        AbstractOperator operator = (AbstractOperator) formula;
+        for(int index = 0; index < operator.operandCount(); index++) {
+            if(!collectGoals(operator.getOperand(index), goals)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "GoalPlanner for " + this.rules.getRuleCount() + " rules";
+    }
+}
@@ -0,0 +1,530 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Unifiable;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AbstractOperator;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The IndependentAndSolutionNode solves an AndOperator whose operands fall into independent
+ * groups: operands that share no unbound Variable, under the parent solution, are in different
+ * groups. The solutions to the conjunction are the cross product of the solutions to its groups,
+ * so each group is solved once, rather than once per solution to the groups before it, as an
+ * AndSolutionNode would. The solutions to the first group are computed as the search needs them;
+ * those to the other groups are kept once computed, and replayed for every solution to the first.
+ * <p>
+ * Given a ForkJoinPool, the node solves every group after the first on the pool's threads, while
+ * the caller solves the first: those groups must then have a finite number of solutions. Without a
+ * pool, every group is solved by the caller, as the search needs its solutions.
+ * <p>
+ * The solutions are those of an AndSolutionNode for the same goal, but when the operands of
+ * groups are interleaved, in a different order.
+ *
+ * @author recardona
+ */
+public class IndependentAndSolutionNode extends AbstractSolutionNode {
+
+    /** The goal of each group of operands. */
+    private Formula[] groupGoals;
+
+    /** The Variables of each group, unbound under the parent solution. */
+    private Variable[][] groupVariables;
+
+    /** The pool that solves the groups after the first, or null. */
+    private ForkJoinPool pool;
+
+    /** The solution node of the first group, or null once it has no more solutions. */
+    private AbstractSolutionNode firstGroupNode;
+
+    /** The values of the first group's Variables in its current solution. */
+    private Unifiable[] firstGroupAnswer;
+
+    /** The solutions to each group after the first, by group index; the first entry is null. */
+    private GroupAnswers[] groupAnswers;
+
+    /** The index of the current solution to each group after the first. */
+    private int[] positions;
+
+    /** Whether the search has been started. */
+    private boolean started;
+
+    /** Whether the node has been closed, which stops the groups being solved on the pool. */
+    private volatile boolean closed;
+
+    /**
+     * Constructor for the IndependentAndSolutionNode.
+     *
+     * @param groups The groups of operands of the goal, as computed by
+     *  {@link #partition(AndOperator, Substitution)}, with at least one group.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param pool The ForkJoinPool that solves the groups after the first, or null to solve every
+     *  group on the caller's thread.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null. The
+     *  groups solved on the pool have a ProofContext of their own.
+     */
+    IndependentAndSolutionNode(List<List<Formula>> groups, RuleSet rules, Substitution parentSolution,
+            ForkJoinPool pool, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.groupGoals = new Formula[groups.size()];
+        this.groupVariables = new Variable[groups.size()][];
+        for(int group = 0; group < groups.size(); group++) {
+            List<Formula> operands = groups.get(group);
+            this.groupGoals[group] = (operands.size() == 1) ? operands.get(0)
+                    : new AndOperator(operands.toArray(new Formula[operands.size()]));
+
+            HashSet<Variable> variables = new HashSet<Variable>();
+            for(Formula operand : operands) {
+                collectUnboundVariables(operand, parentSolution, variables);
+            }
+            this.groupVariables[group] = variables.toArray(new Variable[variables.size()]);
+        }
+        this.pool = pool;
+        this.firstGroupNode = null;
+        this.firstGroupAnswer = null;
+        this.groupAnswers = new GroupAnswers[groups.size()];
+        this.positions = new int[groups.size()];
+        this.started = false;
+        this.closed = false;
+    }
+
+    /**
+     * Returns the number of independent groups of operands this node solves.
+     *
+     * @return the number of groups.
+     */
+    public int getGroupCount() {
+        return this.groupGoals.length;
+    }
+
+    /**
+     * Returns the goal of a group of operands: the operand itself, if the group has one, or the
+     * AndOperator of the group's operands, in their order in the conjunction.
+     *
+     * @param index The index of the group, from 0 to {@code getGroupCount() - 1}.
+     * @return the goal of the group.
+     */
+    public Formula getGroupGoal(int index) {
+        return this.groupGoals[index];
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.closed) {
+            return null;
+        }
+
+        if(!this.started) {
+            this.started = true;
+            this.start();
+
+            // Every group needs a solution for the conjunction to have one.
+            if(!this.nextFirstGroupAnswer()) {
+                return this.finish();
+            }
+            for(int group = 1; group < this.groupGoals.length; group++) {
+                if(!this.groupAnswers[group].hasAnswer(0)) {
+                    return this.finish();
+                }
+            }
+            return this.combine();
+        }
+
+        // Advance the last group whose solutions are not exhausted, and rewind the ones after it.
+        for(int group = this.groupGoals.length - 1; group > 0; group--) {
+            this.positions[group]++;
+            if(this.groupAnswers[group].hasAnswer(this.positions[group])) {
+                return this.combine();
+            }
+            this.positions[group] = 0;
+        }
+
+        // Every combination was returned for the current solution to the first group.
+        if(this.nextFirstGroupAnswer()) {
+            return this.combine();
+        }
+        return this.finish();
+    }
+
+    /**
+     * Stops the search, including the groups being solved on the pool.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if(this.firstGroupNode != null) {
+            this.firstGroupNode.close();
+            this.firstGroupNode = null;
+        }
+        for(int group = 1; group < this.groupAnswers.length; group++) {
+            if(this.groupAnswers[group] != null) {
+                this.groupAnswers[group].release();
+            }
+        }
+    }
+
+    /**
+     * Creates the solution node of the first group, and the solutions of the other groups, which
+     * are submitted to the pool if there is one.
+     */
+    private void start() {
+        this.firstGroupNode = this.getGroupSolver(0, super.context);
+        for(int group = 1; group < this.groupGoals.length; group++) {
+            this.groupAnswers[group] = new GroupAnswers(group);
+        }
+    }
+
+    /**
+     * Closes the node once the search is over.
+     *
+     * @return null, as there are no more solutions.
+     */
+    private Substitution finish() {
+        this.close();
+        return null;
+    }
+
+    /**
+     * Moves on to the next solution to the first group.
+     *
+     * @return true if the first group has another solution.
+     */
+    private boolean nextFirstGroupAnswer() {
+        Substitution solution = this.firstGroupNode.nextSolution();
+        if(solution == null) {
+            return false;
+        }
+        this.firstGroupAnswer = this.project(0, solution);
+        return true;
+    }
+
+    /**
+     * Combines the current solution to every group into a solution to the conjunction.
+     *
+     * @return the parent solution, extended with the bindings of every group's current solution.
+     */
+    private Substitution combine() {
+        Substitution solution = new Substitution(super.parentSolution);
+        this.bind(solution, 0, this.firstGroupAnswer);
+        for(int group = 1; group < this.groupGoals.length; group++) {
+            this.bind(solution, group, this.groupAnswers[group].getAnswer(this.positions[group]));
+        }
+        return solution;
+    }
+
+    /**
+     * Binds the Variables of a group to their values in one of its solutions.
+     *
+     * @param solution The Substitution to add the bindings to.
+     * @param group The index of the group.
+     * @param answer The values of the group's Variables.
+     */
+    private void bind(Substitution solution, int group, Unifiable[] answer) {
+        Variable[] variables = this.groupVariables[group];
+        for(int index = 0; index < variables.length; index++) {
+            if(answer[index] != variables[index]) {
+                solution.add(variables[index], answer[index]);
+            }
+        }
+    }
+
+    /**
+     * Keeps the values of a group's Variables in one of its solutions, so that the solution's
+     * other bindings, to the Variables of the rules used to find it, can be garbage collected.
+     *
+     * @param group The index of the group.
+     * @param solution The solution to the group.
+     * @return the values of the group's Variables, by index.
+     */
+    private Unifiable[] project(int group, Substitution solution) {
+        Variable[] variables = this.groupVariables[group];
+        Unifiable[] answer = new Unifiable[variables.length];
+        for(int index = 0; index < variables.length; index++) {
+            answer[index] = (Unifiable) variables[index].replaceVariables(solution);
+        }
+        return answer;
+    }
+
+    /**
+     * Returns a new solution node for the goal of a group.
+     *
+     * @param group The index of the group.
+     * @param groupContext The ProofContext of the group's proof tree.
+     * @return the solution node.
+     */
+    private AbstractSolutionNode getGroupSolver(int group, ProofContext groupContext) {
+        Formula groupGoal = this.groupGoals[group];
+        if(groupGoal instanceof AndOperator) {
+            // The operands of a group are connected, so there is nothing to partition.
+            return new AndSolutionNode((AndOperator) groupGoal, super.rules, super.parentSolution, groupContext);
+        }
+        return SolutionNodeFactory.getSolver(groupGoal, super.rules, super.parentSolution, groupContext);
+    }
+
+    /**
+     * Partitions the operands of an AndOperator into groups that share no unbound Variable under
+     * the parameter Substitution. Operands with no unbound Variable are all in the same group,
+     * since they are usually tests, which are cheaper to solve in a single conjunction. The groups
+     * are ordered by their first operand, and the operands of a group keep their order in the
+     * AndOperator.
+     *
+     * @param goal The AndOperator, not null.
+     * @param substitution The Substitution under which the operands are solved, not null.
+     * @return the groups of operands; a single group if the operands are all connected.
+     */
+    static List<List<Formula>> partition(AndOperator goal, Substitution substitution) {
+        int operandCount = goal.operandCount();
+
+        // Union the operands that share a Variable, each Variable being owned by the first
+        // operand in which it appears. The ground operands are owned by the first of them.
+        int[] parents = new int[operandCount];
+        HashMap<Variable, Integer> owners = new HashMap<Variable, Integer>();
+        int firstGround = -1;
+        for(int operand = 0; operand < operandCount; operand++) {
+            parents[operand] = operand;
+            HashSet<Variable> variables = new HashSet<Variable>();
+            collectUnboundVariables(goal.getOperand(operand), substitution, variables);
+            if(variables.isEmpty()) {
+                if(firstGround < 0) {
+                    firstGround = operand;
+                }
+                else {
+                    union(parents, firstGround, operand);
+                }
+            }
+            for(Variable variable : variables) {
+                Integer owner = owners.get(variable);
+                if(owner == null) {
+                    owners.put(variable, operand);
+                }
+                else {
+                    union(parents, owner, operand);
+                }
+            }
+        }
+
+        List<List<Formula>> groups = new ArrayList<List<Formula>>();
+        int[] groupIndices = new int[operandCount];
+        for(int operand = 0; operand < operandCount; operand++) {
+            int root = find(parents, operand);
+            if(root == operand) {
+                groupIndices[operand] = groups.size();
+                groups.add(new ArrayList<Formula>());
+            }
+            groups.get(groupIndices[root]).add(goal.getOperand(operand));
+        }
+        return groups;
+    }
+
+    /**
+     * Merges the groups of two operands in the union-find forest of {@code partition}. The root
+     * with the smaller index stays, so that each group's root is its first operand.
+     *
+     * @param parents The parent of each operand.
+     * @param operand The first operand.
+     * @param otherOperand The second operand.
+     */
+    private static void union(int[] parents, int operand, int otherOperand) {
+        int root = find(parents, operand);
+        int otherRoot = find(parents, otherOperand);
+        parents[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+    }
+
+    /**
+     * Finds the root of an operand in the union-find forest of {@code partition}, halving the
+     * path to it.
+     *
+     * @param parents The parent of each operand.
+     * @param operand The operand.
+     * @return the root of the operand's group.
+     */
+    private static int find(int[] parents, int operand) {
+        int root = operand;
+        while(parents[root] != root) {
+            parents[root] = parents[parents[root]];
+            root = parents[root];
+        }
+        return root;
+    }
+
+    /**
+     * Collects the Variables of a Formula that are unbound under a Substitution, following the
+     * bindings of the bound ones.
+     *
+     * @param formula The Formula.
+     * @param substitution The Substitution.
+     * @param variables The set to which the unbound Variables are added.
+     */
+    static void collectUnboundVariables(Formula formula, Substitution substitution,
+            HashSet<Variable> variables) {
+        if(formula instanceof AbstractOperator) {
+            AbstractOperator operator = (AbstractOperator) formula;
+            for(int index = 0; index < operator.operandCount(); index++) {
+                collectUnboundVariables(operator.getOperand(index), substitution, variables);
+            }
+            return;
+        }
+
+        List<Term> terms = (formula instanceof Predicate) ? ((Predicate) formula).getTerms() : null;
+        if(terms == null) {
+            return; // A propositional Predicate has no Variables.
+        }
+
+        ArrayList<Unifiable> pending = new ArrayList<Unifiable>(terms);
+        while(!pending.isEmpty()) {
+            Unifiable next = pending.remove(pending.size() - 1);
+            if(next instanceof Variable) {
+                Unifiable binding = substitution.getBinding((Variable) next);
+                if(binding != null) {
+                    pending.add(binding);
+                }
+                else {
+                    variables.add((Variable) next);
+                }
+            }
+            else if(next instanceof Function && !((Function) next).isConstant()) {
+                pending.addAll(((Function) next).getArguments());
+            }
+        }
+    }
+
+    /**
+     * The GroupAnswers keeps the solutions to a group after the first, computed either as they
+     * are asked for, or all at once on the pool.
+     */
+    private final class GroupAnswers {
+
+        /** The index of the group. */
+        private final int group;
+
+        /** The solutions computed so far. */
+        private List<Unifiable[]> answers;
+
+        /** The solution node of the group, or null once its solutions are all computed. */
+        private AbstractSolutionNode node;
+
+        /** The task computing the solutions on the pool, or null. */
+        private ForkJoinTask<List<Unifiable[]>> task;
+
+        /**
+         * Constructs the GroupAnswers of a group, submitting the task that solves it to the
+         * pool, if there is one.
+         *
+         * @param group The index of the group.
+         */
+        private GroupAnswers(int group) {
+            this.group = group;
+            this.answers = new ArrayList<Unifiable[]>();
+            if(pool == null) {
+                this.node = getGroupSolver(group, context);
+                this.task = null;
+            }
+            else {
+                this.node = null;
+                this.task = pool.submit(new SolveTask(group));
+            }
+        }
+
+        /**
+         * Returns true if the group has a solution with the parameter index, computing the
+         * solutions up to it if needed.
+         *
+         * @param index The index of the solution.
+         * @return true if the group has at least {@code index + 1} solutions.
+         */
+        private boolean hasAnswer(int index) {
+            if(this.task != null) {
+                this.answers = this.task.join();
+                this.task = null;
+            }
+            while(this.answers.size() <= index && this.node != null) {
+                Substitution solution = this.node.nextSolution();
+                if(solution == null) {
+                    this.node = null;
+                }
+                else {
+                    this.answers.add(project(this.group, solution));
+                }
+            }
+            return index < this.answers.size();
+        }
+
+        /**
+         * Returns a solution already computed by {@code hasAnswer}.
+         *
+         * @param index The index of the solution.
+         * @return the values of the group's Variables in the solution.
+         */
+        private Unifiable[] getAnswer(int index) {
+            return this.answers.get(index);
+        }
+
+        /**
+         * Stops computing the solutions of the group.
+         */
+        private void release() {
+            if(this.node != null) {
+                this.node.close();
+                this.node = null;
+            }
+            if(this.task != null) {
+                this.task.cancel(false);
+                this.task = null;
+            }
+        }
+    }
+
+    /**
+     * The SolveTask computes every solution to a group on the pool.
+     */
+    private final class SolveTask extends RecursiveTask<List<Unifiable[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The index of the group. */
+        private final int group;
+
+        /**
+         * Constructs a SolveTask.
+         *
+         * @param group The index of the group.
+         */
+        private SolveTask(int group) {
+            this.group = group;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.RecursiveTask#compute()
+         */
+        @Override
+        protected List<Unifiable[]> compute() {
+            List<Unifiable[]> answers = new ArrayList<Unifiable[]>();
+            AbstractSolutionNode node = getGroupSolver(this.group, context.newTaskContext());
+            for(Substitution solution = node.nextSolution(); solution != null && !closed; solution = node.nextSolution()) {
+                answers.add(project(this.group, solution));
+            }
+            node.close();
+            return answers;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.proof.facts.TrieIndex;
+import rogel.io.fopl.proof.facts.TrieIterator;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The LeapfrogJoinSolutionNode is an AbstractSolutionNode for AndOperators whose operands are all
+ * facts of FactTables. Instead of solving the operands one after the other, it binds the Variables
+ * of the conjunction one after the other, with a leapfrog triejoin: for each Variable, it
+ * intersects the Symbol ids the operands that hold it allow, given the Variables bound before it,
+ * by moving the TrieIterators of the operands past one another, each to the first id at least as
+ * great as the greatest of the others, until they agree. For cyclic conjunctions, such as
+ * triangles, this takes time bounded by the largest number of solutions the conjunction could have
+ * over facts of its size, where solving the operands in any order may not.
+ * <p>
+ * The operands are looked up through TrieIndexes of their FactTables, whose columns are sorted
+ * with the constants of the operand first, then its Variables in the order they are bound, which
+ * puts the Variables in most operands first. The solutions are found in increasing order of the
+ * Symbol ids of the Variables, and facts that are in a FactTable more than once give one solution.
+ *
+ * @author recardona
+ */
+public class LeapfrogJoinSolutionNode extends AbstractSolutionNode {
+
+    /** The Variables of the conjunction, in the order they are bound. */
+    private Variable[] variables;
+
+    /** The TrieIterators of the operands that hold each Variable. */
+    private TrieIterator[][] iterators;
+
+    /** The Symbol id bound to each Variable so far. */
+    private int[] keys;
+
+    /** The position of the iterator each Variable's intersection moves next. */
+    private int[] pointers;
+
+    /** Whether each Variable's intersection is exhausted. */
+    private boolean[] exhausted;
+
+    /** The Variable the search resumes from. */
+    private int depth;
+
+    /** Whether the search has started. */
+    private boolean started;
+
+    /** Whether the search is over, or was known to have no solution from the start. */
+    private boolean finished;
+
+    /**
+     * Constructor for the LeapfrogJoinSolutionNode.
+     *
+     * @param goal The goal for this node, for which {@link #isApplicable} holds, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     * @throws IllegalArgumentException if the goal is not a conjunction of facts of FactTables.
+     */
+    protected LeapfrogJoinSolutionNode(AndOperator goal, RuleSet rules, Substitution parentSolution,
+            ProofContext context) {
+        super(rules, parentSolution, null, context);
+        if(!isApplicable(goal, rules, parentSolution)) {
+            throw new IllegalArgumentException("Goal " + goal + " is not a conjunction of facts of FactTables.");
+        }
+
+        // Bind the Variables held by the most operands first.
+        List<Term[]> operands = new ArrayList<Term[]>();
+        List<Variable> variables = new ArrayList<Variable>();
+        List<Integer> occurrences = new ArrayList<Integer>();
+        for(int index = 0; index < goal.operandCount(); index++) {
+            Predicate operand = (Predicate) goal.getOperand(index);
+            Term[] terms = new Term[operand.getArity()];
+            for(int column = 0; column < terms.length; column++) {
+                terms[column] = (Term) operand.getTerms().get(column).replaceVariables(parentSolution);
+                if(terms[column] instanceof Variable) {
+                    int position = variables.indexOf(terms[column]);
+                    if(position < 0) {
+                        variables.add((Variable) terms[column]);
+                        occurrences.add(1);
+                    }
+                    else {
+                        occurrences.set(position, occurrences.get(position) + 1);
+                    }
+                }
+            }
+            operands.add(terms);
+        }
+        this.variables = new Variable[variables.size()];
+        for(int depth = 0; depth < this.variables.length; depth++) {
+            int best = -1;
+            for(int position = 0; position < variables.size(); position++) {
+                if(variables.get(position) != null
+                        && (best < 0 || occurrences.get(position) > occurrences.get(best))) {
+                    best = position;
+                }
+            }
+            this.variables[depth] = variables.get(best);
+            variables.set(best, null);
+        }
+
+        List<List<TrieIterator>> iterators = new ArrayList<List<TrieIterator>>();
+        for(int depth = 0; depth < this.variables.length; depth++) {
+            iterators.add(new ArrayList<TrieIterator>());
+        }
+        for(int index = 0; index < operands.size() && !this.finished; index++) {
+            Predicate operand = (Predicate) goal.getOperand(index);
+            FactTable factTable = rules.getFactTable(operand.getSymbol(), operand.getArity());
+            this.addOperand(factTable, operands.get(index), iterators);
+        }
+
+        this.iterators = new TrieIterator[this.variables.length][];
+        for(int depth = 0; depth < this.variables.length; depth++) {
+            List<TrieIterator> depthIterators = iterators.get(depth);
+            this.iterators[depth] = depthIterators.toArray(new TrieIterator[depthIterators.size()]);
+        }
+        this.keys = new int[this.variables.length];
+        this.pointers = new int[this.variables.length];
+        this.exhausted = new boolean[this.variables.length];
+        this.depth = 0;
+        this.started = false;
+    }
+
+    /**
+     * Returns true if a goal is a conjunction that this node can solve: one of at least two
+     * operands, all of which are Predicates with a FactTable and no rule, whose Terms are, under
+     * the parent solution, constants or Variables that the Predicate does not repeat.
+     *
+     * @param goal The goal, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of the
+     *  node, not null.
+     * @return true if the goal can be solved by a LeapfrogJoinSolutionNode.
+     */
+    public static boolean isApplicable(AndOperator goal, RuleSet rules, Substitution parentSolution) {
+        if(goal.operandCount() < 2) {
+            return false;
+        }
+        for(int index = 0; index < goal.operandCount(); index++) {
+            Formula operand = goal.getOperand(index);
+            if(!(operand instanceof Predicate)) {
+                return false;
+            }
+            Predicate predicate = (Predicate) operand;
+            if(rules.getFactTable(predicate.getSymbol(), predicate.getArity()) == null
+                    || rules.getRuleIndices(predicate.getSymbol(), predicate.getArity()).length > 0) {
+                return false;
+            }
+            List<Term> terms = predicate.getTerms();
+            for(int column = 0; column < predicate.getArity(); column++) {
+                Term term = (Term) terms.get(column).replaceVariables(parentSolution);
+                if(!(term instanceof Variable) && !term.isConstant()) {
+                    return false;
+                }
+                for(int other = 0; other < column && term instanceof Variable; other++) {
+                    if(term.equals(terms.get(other).replaceVariables(parentSolution))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.finished) {
+            return null;
+        }
+
+        // A conjunction of ground facts that all hold has a single solution: the parent solution.
+        if(this.variables.length == 0) {
+            this.finished = true;
+            return super.parentSolution;
+        }
+
+        // Start with the first Variable, or resume from the last one, which gave the last solution.
+        int last = this.variables.length - 1;
+        if(!this.started) {
+            this.started = true;
+            this.open(0);
+        }
+        else {
+            this.leapfrogNext(last);
+        }
+
+        while(true) {
+            super.context.countInference();
+
+            // If the Variable has no more Symbol ids, back up to the previous one.
+            if(this.exhausted[this.depth]) {
+                for(TrieIterator iterator : this.iterators[this.depth]) {
+                    iterator.up();
+                }
+                this.depth--;
+                if(this.depth < 0) {
+                    this.finished = true;
+                    return null; // There is no next solution for the resolution problem!
+                }
+                this.leapfrogNext(this.depth);
+            }
+
+            // If the last Variable is bound, so are all of them.
+            else if(this.depth == last) {
+                Substitution solution = new Substitution(super.parentSolution);
+                for(int depth = 0; depth < this.variables.length; depth++) {
+                    solution.add(this.variables[depth], Term.constant(Symbol.getById(this.keys[depth])));
+                }
+                return solution;
+            }
+
+            // Otherwise, bind the next Variable as well.
+            else {
+                this.depth++;
+                this.open(this.depth);
+            }
+        }
+    }
+
+    /**
+     * Positions the TrieIterator of an operand past its constants, and adds it to the iterators of
+     * the Variables it holds. If the operand's FactTable has no fact with its constants, the search
+     * is over before it starts.
+     *
+     * @param factTable The FactTable of the operand.
+     * @param terms The Terms of the operand, under the parent solution.
+     * @param iterators The iterators of each Variable.
+     */
+    private void addOperand(FactTable factTable, Term[] terms, List<List<TrieIterator>> iterators) {
+        if(factTable.getFactCount() == 0) {
+            this.finished = true;
+            return;
+        }
+
+        int[] columnOrder = new int[terms.length];
+        int level = 0;
+        for(int column = 0; column < terms.length; column++) {
+            if(!(terms[column] instanceof Variable)) {
+                columnOrder[level++] = column;
+            }
+        }
+        int constantCount = level;
+        for(Variable variable : this.variables) {
+            for(int column = 0; column < terms.length; column++) {
+                if(variable.equals(terms[column])) {
+                    columnOrder[level++] = column;
+                }
+            }
+        }
+        if(terms.length == 0) {
+            return; // A proposition that holds.
+        }
+
+        TrieIndex index = factTable.getTrieIndex(columnOrder);
+        TrieIterator iterator = index.iterator();
+        for(level = 0; level < constantCount; level++) {
+            int id = terms[columnOrder[level]].getSymbol().getId();
+            iterator.open();
+            iterator.seek(id);
+            if(iterator.atEnd() || iterator.key() != id) {
+                this.finished = true;
+                return;
+            }
+        }
+        for(int depth = 0; depth < this.variables.length; depth++) {
+            for(int column = constantCount; column < terms.length; column++) {
+                if(this.variables[depth].equals(terms[columnOrder[column]])) {
+                    iterators.get(depth).add(iterator);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the iterators of a Variable, below the Symbol ids bound to the Variables before it, and
+     * finds the first Symbol id they all hold.
+     *
+     * @param depth The position of the Variable in the binding order.
+     */
+    private void open(int depth) {
+        TrieIterator[] iterators = this.iterators[depth];
+        for(TrieIterator iterator : iterators) {
+            iterator.open();
+        }
+
+        // Sort the iterators by their first Symbol id, so that each one leaps over the previous.
+        for(int index = 1; index < iterators.length; index++) {
+            TrieIterator iterator = iterators[index];
+            int other = index - 1;
+            while(other >= 0 && iterators[other].key() > iterator.key()) {
+                iterators[other + 1] = iterators[other];
+                other--;
+            }
+            iterators[other + 1] = iterator;
+        }
+        this.pointers[depth] = 0;
+        this.exhausted[depth] = false;
+        this.leapfrogSearch(depth);
+    }
+
+    /**
+     * Moves the iterators of a Variable past one another until they are all at the same Symbol id,
+     * which is bound to the Variable, or one of them reaches its end.
+     *
+     * @param depth The position of the Variable in the binding order.
+     */
+    private void leapfrogSearch(int depth) {
+        TrieIterator[] iterators = this.iterators[depth];
+        int pointer = this.pointers[depth];
+        int maximum = iterators[(pointer + iterators.length - 1) % iterators.length].key();
+        while(true) {
+            TrieIterator iterator = iterators[pointer];
+            int key = iterator.key();
+            if(key == maximum) {
+                this.keys[depth] = key;
+                this.pointers[depth] = pointer;
+                return;
+            }
+            iterator.seek(maximum);
+            if(iterator.atEnd()) {
+                this.exhausted[depth] = true;
+                return;
+            }
+            maximum = iterator.key();
+            pointer = (pointer + 1) % iterators.length;
+        }
+    }
+
+    /**
+     * Moves the iterators of a Variable to the next Symbol id they all hold.
+     *
+     * @param depth The position of the Variable in the binding order.
+     */
+    private void leapfrogNext(int depth) {
+        TrieIterator[] iterators = this.iterators[depth];
+        TrieIterator iterator = iterators[this.pointers[depth]];
+        iterator.next();
+        if(iterator.atEnd()) {
+            this.exhausted[depth] = true;
+            return;
+        }
+        this.pointers[depth] = (this.pointers[depth] + 1) % iterators.length;
+        this.leapfrogSearch(depth);
+    }
+}
@@ -0,0 +1,78 @@
+package rogel.io.fopl.proof.tree;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * The NotSolutionNode is an AbstractSolutionNode for NotOperator Formulas, which it solves by
+ * negation as failure: the negation holds if its operand cannot be proven. The node asks a solver
+ * for its operand for one solution only, and closes it as soon as it has its answer, so that no
+ * other proof of the operand is searched for.
+ * <p>
+ * The negation has at most one solution, the parent solution, and binds no Variable. Variables
+ * of the operand that are unbound under the parent solution are read inside the negation: the
+ * negation holds if no binding of them proves the operand. Negation as failure has a single
+ * meaning when the RuleSet is stratified; see {@link RuleSet#isStratified()}. A cut inside the
+ * operand prunes back to this node.
+ *
+ * @author recardona
+ */
+public class NotSolutionNode extends AbstractSolutionNode {
+
+    /** The goal being solved at this node. */
+    private NotOperator goal;
+
+    /** Whether the operand has been tried. */
+    private boolean tried;
+
+    /**
+     * Constructor for the NotSolutionNode.
+     *
+     * @param goal The NotOperator resolution goal for this node, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    public NotSolutionNode(NotOperator goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.tried = false;
+    }
+
+    /**
+     * The NotOperator that represents the resolution goal for this node.
+     *
+     * @return the goal for this node.
+     */
+    public NotOperator getGoal() {
+        return this.goal;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.tried) {
+            return null; // A negation holds at most once.
+        }
+        this.tried = true;
+
+        // Stop at the first proof of the operand, if there is one.
+        Substitution proof = OnceSolutionNode.solveOnce(this, this.goal.getOperand(0));
+        return (proof == null) ? super.parentSolution : null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.tried = false;
+    }
+}
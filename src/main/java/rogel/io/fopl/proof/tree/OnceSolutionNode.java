@@ -0,0 +1,103 @@
+package rogel.io.fopl.proof.tree;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * The OnceSolutionNode is an AbstractSolutionNode for OnceOperator Formulas. It returns the first
+ * solution of its operand, and then closes and drops the solver of the operand, so that the
+ * alternatives left in the operand's proof are discarded, and the memory they hold released,
+ * while the goals after it are solved.
+ * <p>
+ * A cut inside the operand prunes back to this node: if the search backtracks into it, the
+ * operand has no solution.
+ *
+ * @author recardona
+ */
+public class OnceSolutionNode extends AbstractSolutionNode {
+
+    /** The goal being solved at this node. */
+    private OnceOperator goal;
+
+    /** Whether the operand has been tried. */
+    private boolean tried;
+
+    /**
+     * Constructor for the OnceSolutionNode.
+     *
+     * @param goal The OnceOperator resolution goal for this node, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    public OnceSolutionNode(OnceOperator goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.tried = false;
+    }
+
+    /**
+     * The OnceOperator that represents the resolution goal for this node.
+     *
+     * @return the goal for this node.
+     */
+    public OnceOperator getGoal() {
+        return this.goal;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.tried) {
+            return null; // The operand is only proven once.
+        }
+        this.tried = true;
+        return solveOnce(this, this.goal.getOperand(0));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.tried = false;
+    }
+
+    /**
+     * Finds the first solution of an operand, under the parent solution of a node that a cut in
+     * the operand prunes back to, and closes the solver of the operand.
+     *
+     * @param node The node that proves the operand.
+     * @param operand The operand.
+     * @return the first solution of the operand, or null if it has none.
+     */
+    static Substitution solveOnce(AbstractSolutionNode node, Formula operand) {
+        ProofContext context = node.getContext();
+        AbstractSolutionNode operandSolver = null;
+        context.enterCutScope(node);
+        try {
+            operandSolver = SolutionNodeFactory.getSolver(operand, node.getRules(), node.getParentSolution(), context);
+            return operandSolver.nextSolution();
+        }
+        catch(CutException e) {
+            if(e.getScope() != node) {
+                throw e;
+            }
+            return null; // The operand was cut back to this node.
+        }
+        finally {
+            context.exitCutScope();
+            if(operandSolver != null) {
+                operandSolver.close();
+            }
+        }
+    }
+}
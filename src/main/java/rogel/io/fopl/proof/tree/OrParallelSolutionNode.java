@@ -0,0 +1,402 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.builtins.Builtin;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+
+/**
+ * The OrParallelSolutionNode explores the alternative rules and facts of its goals in parallel,
+ * on the threads of a ForkJoinPool. Each alternative that unifies with a goal becomes a branch,
+ * with its own Substitution, that proves the rest of the goals. A branch is forked as a task while
+ * the pool's threads lack work, and is explored by the thread that found it otherwise, so that
+ * idle threads steal branches from busy ones without flooding the pool with small tasks.
+ * <p>
+ * Solutions are handed to the caller of {@code nextSolution} as they are found, through a bounded
+ * queue: the search runs ahead of the caller by at most {@value #QUEUE_CAPACITY} solutions. The
+ * solutions are those of the proof tree solver, in no particular order. Goals must be Predicates
+ * or AndOperators of Predicates; other Formulas, and the goals of tabled Predicates, are solved by
+ * the proof tree solver, whose table ends left recursion. Since every alternative is explored, a
+ * cut is only allowed inside a {@code once} or a negation.
+ * <p>
+ * The search starts on the first call to {@code nextSolution}, and stops once every branch is
+ * explored, once the node is closed, or once a branch throws an exception, which the next call
+ * to {@code nextSolution} then throws. A caller that stops asking for solutions before the last
+ * one must close the node, or the pool's threads stay blocked on the full queue.
+ *
+ * @author recardona
+ */
+public class OrParallelSolutionNode extends AbstractSolutionNode {
+
+    /** The number of solutions the search may find ahead of the caller. */
+    public static final int QUEUE_CAPACITY = 1024;
+
+    /** The number of queued tasks a thread may have before it stops forking branches. */
+    private static final int SURPLUS_TASKS = 2;
+
+    /** The time, in milliseconds, a branch waits for room in the queue before checking if it should stop. */
+    private static final long OFFER_TIMEOUT = 10;
+
+    /** The marker put in the queue once the search is over. */
+    private static final Substitution END = new Substitution();
+
+    /** The goal being solved at this node. */
+    private Formula goal;
+
+    /** The pool whose threads explore the branches. */
+    private ForkJoinPool pool;
+
+    /** The solutions found and not yet returned, followed by END once the search is over. */
+    private BlockingQueue<Substitution> solutions;
+
+    /** Whether the search has been started. */
+    private boolean started;
+
+    /** Whether END has been taken from the queue. */
+    private boolean finished;
+
+    /** Whether the node has been closed, which stops the search. */
+    private volatile boolean closed;
+
+    /** The exception thrown by a branch, if any. */
+    private volatile Throwable failure;
+
+    /**
+     * Constructor for the OrParallelSolutionNode.
+     *
+     * @param goal The goal for this node, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param pool The ForkJoinPool whose threads explore the branches, not null. Its parallelism
+     *  bounds the number of branches explored at once.
+     */
+    public OrParallelSolutionNode(Formula goal, RuleSet rules, Substitution parentSolution, ForkJoinPool pool) {
+        super(rules, parentSolution);
+        if(pool == null) {
+            throw new IllegalArgumentException("Cannot search with a null ForkJoinPool.");
+        }
+        this.goal = goal;
+        this.pool = pool;
+        this.solutions = new LinkedBlockingQueue<Substitution>(QUEUE_CAPACITY);
+        this.started = false;
+        this.finished = false;
+        this.closed = false;
+        this.failure = null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.finished) {
+            return null;
+        }
+
+        // A failed search is closed, but its failure must still be reported.
+        if(this.failure != null) {
+            this.finished = true;
+            this.throwFailure();
+        }
+        if(this.closed) {
+            return null;
+        }
+
+        if(!this.started) {
+            this.started = true;
+            this.pool.execute(new SearchTask());
+        }
+
+        Substitution solution;
+        try {
+            solution = this.solutions.take();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.close();
+            return null;
+        }
+
+        if(solution != END) {
+            return solution;
+        }
+
+        // The search is over: report its failure, if any.
+        this.finished = true;
+        if(this.failure != null) {
+            this.throwFailure();
+        }
+        return null;
+    }
+
+    /**
+     * Throws the exception thrown by a branch, wrapped in an IllegalStateException if it is
+     * checked.
+     *
+     * @throws IllegalStateException if the exception is checked.
+     */
+    private void throwFailure() {
+        Throwable cause = this.failure;
+        if(cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException("The parallel search failed.", cause);
+    }
+
+    /**
+     * Stops the search, and discards the solutions found but not returned.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.solutions.clear();
+    }
+
+    /**
+     * Puts a solution, or END, in the queue, waiting for room unless the node is closed.
+     *
+     * @param solution The solution.
+     */
+    private void emit(Substitution solution) {
+        try {
+            while(!this.closed && !this.solutions.offer(solution, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                // Wait for the caller to take a solution.
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.closed = true;
+        }
+    }
+
+    /**
+     * Prepends a goal to a list of goals, splitting AndOperators into their operands.
+     *
+     * @param goal The goal.
+     * @param continuation The goals to prove after it.
+     * @return the goal's conjuncts, followed by the continuation.
+     * @throws IllegalArgumentException if a conjunct is a cut, which cannot prune branches that
+     *     are explored in parallel.
+     */
+    private static Goal prepend(Formula goal, Goal continuation) {
+        if(CutSolutionNode.isCut(goal)) {
+            throw new IllegalArgumentException("The or-parallel search cannot solve a cut outside of a once or a negation.");
+        }
+        if(goal instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) goal;
+            Goal goals = continuation;
+            for(int index = conjunction.operandCount() - 1; index >= 0; index--) {
+                goals = prepend(conjunction.getOperand(index), goals);
+            }
+            return goals;
+        }
+        return new Goal(goal, continuation);
+    }
+
+    /**
+     * A Goal is a link in the list of goals a branch has left to prove.
+     */
+    private static final class Goal {
+
+        /** The goal to prove. */
+        private final Formula formula;
+
+        /** The goals to prove after it, or null. */
+        private final Goal next;
+
+        /**
+         * Constructs a Goal.
+         *
+         * @param formula The goal to prove.
+         * @param next The goals to prove after it, or null.
+         */
+        private Goal(Formula formula, Goal next) {
+            this.formula = formula;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The SearchTask explores the root branch, and puts END in the queue once every branch is
+     * explored.
+     */
+    private final class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            try {
+                new BranchTask(prepend(goal, null), parentSolution).compute();
+            }
+            catch(Throwable e) {
+                failure = e;
+                closed = true;
+                solutions.clear();
+                solutions.offer(END);
+                return;
+            }
+            emit(END);
+        }
+    }
+
+    /**
+     * The BranchTask proves a list of goals from a Substitution, forking a task for each branch
+     * while the pool lacks work.
+     */
+    private final class BranchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The goals left to prove. */
+        private final Goal goals;
+
+        /** The Substitution of the branch. */
+        private final Substitution substitution;
+
+        /** The branches forked by this task, which it joins once it is done. */
+        private List<BranchTask> forked;
+
+        /**
+         * Constructs a BranchTask.
+         *
+         * @param goals The goals left to prove, or null if the branch is a solution.
+         * @param substitution The Substitution of the branch.
+         */
+        private BranchTask(Goal goals, Substitution substitution) {
+            this.goals = goals;
+            this.substitution = substitution;
+            this.forked = null;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if(closed) {
+                return;
+            }
+
+            if(this.goals == null) {
+                emit(this.substitution);
+                return;
+            }
+
+            if(!(this.goals.formula instanceof Predicate)) {
+                this.solveSequentially();
+                return;
+            }
+
+            // Tabled predicates are left to the proof tree solver, which tables them.
+            Predicate predicate = (Predicate) this.goals.formula;
+            if(rules.isTabled(predicate.getSymbol(), predicate.getArity())) {
+                this.solveSequentially();
+                return;
+            }
+
+            // Built-in predicates have no alternatives to branch on.
+            Builtin builtin = rules.getBuiltin(predicate.getSymbol(), predicate.getArity());
+            if(builtin != null) {
+                Substitution solution = builtin.solve(predicate.getTerms(), this.substitution);
+                if(solution != null) {
+                    new BranchTask(this.goals.next, solution).compute();
+                }
+                return;
+            }
+
+            // Branch on every rule whose consequent unifies with the goal.
+            for(int index : rules.getRuleIndices(predicate.getSymbol(), predicate.getArity())) {
+                if(closed) {
+                    break;
+                }
+
+                HornClause rule = rules.getRuleStandardizedApart(index);
+                Substitution solution = predicate.unify(rule.getConsequent(), this.substitution);
+                if(solution != null) {
+                    Goal next = rule.isFact() ? this.goals.next : prepend(rule.getAntecedent(), this.goals.next);
+                    this.branch(new BranchTask(next, solution));
+                }
+            }
+
+            // Then on every fact of the goal's FactTable that unifies with it.
+            FactTable factTable = rules.getFactTable(predicate.getSymbol(), predicate.getArity());
+            int[] pattern = (factTable == null) ? null : factTable.getPattern(predicate, this.substitution);
+            if(pattern != null) {
+                FactCursor cursor = factTable.match(pattern);
+                for(int row = cursor.nextRow(); row != FactCursor.NO_MORE_ROWS && !closed; row = cursor.nextRow()) {
+                    Substitution solution = factTable.unify(predicate, row, this.substitution);
+                    if(solution != null) {
+                        this.branch(new BranchTask(this.goals.next, solution));
+                    }
+                }
+            }
+
+            // Wait for the forked branches, newest first.
+            if(this.forked != null) {
+                for(int index = this.forked.size() - 1; index >= 0; index--) {
+                    this.forked.get(index).join();
+                }
+            }
+        }
+
+        /**
+         * Forks a branch if the pool lacks work, or explores it on this thread otherwise.
+         *
+         * @param branch The branch.
+         */
+        private void branch(BranchTask branch) {
+            if(ForkJoinTask.getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+                branch.fork();
+                if(this.forked == null) {
+                    this.forked = new ArrayList<BranchTask>();
+                }
+                this.forked.add(branch);
+            }
+            else {
+                branch.compute();
+            }
+        }
+
+        /**
+         * Proves the goals of this branch with the proof tree solver.
+         */
+        private void solveSequentially() {
+            List<Formula> conjuncts = new ArrayList<Formula>();
+            for(Goal next = this.goals; next != null; next = next.next) {
+                conjuncts.add(next.formula);
+            }
+
+            Formula conjunction = (conjuncts.size() == 1) ? conjuncts.get(0)
+                    : new AndOperator(conjuncts.toArray(new Formula[conjuncts.size()]));
+            AbstractSolutionNode node = SolutionNodeFactory.getSolver(conjunction, rules, this.substitution);
+            for(Substitution solution = node.nextSolution(); solution != null && !closed; solution = node.nextSolution()) {
+                emit(solution);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Unifiable;
+import rogel.io.fopl.formulas.operators.OrOperator;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The OrSolutionNode is an AbstractSolutionNode for OrOperator Formulas. It returns the solutions
+ * of each operand in turn, in order, under the parent solution: the goals solved before the
+ * disjunction are solved once for every operand, as they would not be if the disjunction were
+ * split into one rule per operand. The solver of an operand is only created once the operands
+ * before it have no more solutions.
+ * <p>
+ * If the ProofContext of the query asks for distinct disjunctions, the node skips the solutions
+ * that bind the disjunction's Variables as an earlier solution did, whichever operand they come
+ * from; it then keeps the bindings of every solution it has returned.
+ *
+ * @author recardona
+ */
+public class OrSolutionNode extends AbstractSolutionNode {
+
+    /** The goal being solved at this node. */
+    private OrOperator goal;
+
+    /** The index of the operand being solved. */
+    private int operandIndex;
+
+    /** The solution node of the operand being solved, or null if it has not been created. */
+    private AbstractSolutionNode operandNode;
+
+    /** The Variables of the goal that are unbound under the parent solution, if solutions are distinct. */
+    private Variable[] variables;
+
+    /** The bindings of the Variables in each solution returned so far, or null if solutions may repeat. */
+    private HashSet<List<Unifiable>> answers;
+
+    /**
+     * Constructor for the OrSolutionNode.
+     *
+     * @param goal The OrOperator resolution goal for this node, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    public OrSolutionNode(OrOperator goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.operandIndex = 0;
+        this.operandNode = null;
+        if(context.isDistinctDisjunctions()) {
+            HashSet<Variable> variables = new HashSet<Variable>();
+            IndependentAndSolutionNode.collectUnboundVariables(goal, parentSolution, variables);
+            this.variables = variables.toArray(new Variable[variables.size()]);
+            this.answers = new HashSet<List<Unifiable>>();
+        }
+    }
+
+    /**
+     * The OrOperator that represents the resolution goal for this node.
+     *
+     * @return the goal for this node.
+     */
+    public OrOperator getGoal() {
+        return this.goal;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        while(this.operandIndex < this.goal.operandCount()) {
+            if(this.operandNode == null) {
+                this.operandNode = SolutionNodeFactory.getSolver(this.goal.getOperand(this.operandIndex),
+                        super.rules, super.parentSolution, super.context);
+            }
+
+            Substitution solution = this.operandNode.nextSolution();
+            if(solution == null) {
+                // Move on to the next operand.
+                this.operandNode.close();
+                this.operandNode = null;
+                this.operandIndex++;
+            }
+            else if(this.answers == null || this.answers.add(this.project(solution))) {
+                return solution;
+            }
+        }
+
+        return null; // There is no next solution for the resolution problem!
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#close()
+     */
+    @Override
+    public void close() {
+        if(this.operandNode != null) {
+            this.operandNode.close();
+            this.operandNode = null;
+        }
+        this.operandIndex = this.goal.operandCount();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.close();
+        this.operandIndex = 0;
+        if(this.answers != null) {
+            HashSet<Variable> variables = new HashSet<Variable>();
+            IndependentAndSolutionNode.collectUnboundVariables(this.goal, newParentSubstitution, variables);
+            this.variables = variables.toArray(new Variable[variables.size()]);
+            this.answers.clear();
+        }
+    }
+
+    /**
+     * Returns the bindings of the disjunction's Variables in a solution.
+     *
+     * @param solution The solution.
+     * @return the values of the Variables, in order.
+     */
+    private List<Unifiable> project(Substitution solution) {
+        Unifiable[] values = new Unifiable[this.variables.length];
+        for(int index = 0; index < values.length; index++) {
+            values[index] = (Unifiable) this.variables[index].replaceVariables(solution);
+        }
+        return Arrays.asList(values);
+    }
+}
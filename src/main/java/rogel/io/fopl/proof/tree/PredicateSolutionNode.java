@@ -5,9 +5,21 @@ import rogel.io.fopl.formulas.Formula;
 import rogel.io.fopl.formulas.Predicate;
 import rogel.io.fopl.proof.HornClause;
 import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
 
 /**
- * The PredicateSolutionNode is an AbstractSolutionNode for Predicate Formulas.
+ * The PredicateSolutionNode is an AbstractSolutionNode for Predicate Formulas. The node only tries
+ * the rules whose consequent has the signature of its goal. Once every such rule has been tried, 
+ * the node enumerates the matching rows of the RuleSet's FactTable for the goal's signature, if 
+ * there is one.
+ * <p>
+ * Each rule and fact tried counts as an inference of the node's ProofContext, and each rule
+ * whose body is being solved nests the proof one level deeper, so that a query with QueryLimits
+ * is stopped here however its rules recurse.
+ * <p>
+ * A cut in the body of a rule prunes back to the node: once the search backtracks into the cut,
+ * the node drops its child, and tries no other rule or fact.
  * 
  * @author recardona
  */
@@ -18,6 +30,15 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
     
     /** The next node (subgoal) in this proof tree search space. */
     private AbstractSolutionNode child;
+    
+    /** The FactTable that stores the facts for this node's goal, or null if there is none. */
+    private FactTable factTable;
+    
+    /** The cursor over the FactTable rows that match this node's goal, once the rules are tried. */
+    private FactCursor factCursor;
+    
+    /** Whether a cut in the body of a rule has discarded the alternatives left to this node. */
+    private boolean cut;
         
     /**
      * Constructor for the PredicateSolutionNode.
@@ -28,9 +49,25 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
      *  node, not null.
      */
     public PredicateSolutionNode(Predicate goal, RuleSet rules, Substitution parentSolution) {
-        super(rules, parentSolution);
+        this(goal, rules, parentSolution, new ProofContext());
+    }
+    
+    /**
+     * Constructor for the PredicateSolutionNode, as part of the proof tree of a query.
+     * 
+     * @param goal The Predicate resolution goal for this node.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext shared by the nodes of the query's proof tree, not null.
+     */
+    public PredicateSolutionNode(Predicate goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, rules.getRuleIndices(goal.getSymbol(), goal.getArity()), context);
         this.goal = goal;
         this.child = null;
+        this.factTable = null;
+        this.factCursor = null;
+        this.cut = false;
     }
     
     /**
@@ -66,13 +103,17 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
             
             // See if there are any more solutions  
             // in this branch of the search space.
-            solution = this.child.nextSolution();
+            solution = this.nextChildSolution(null, null);
             
             if(solution != null) {
                 return solution;
             }
         }
         
+        if(this.cut) {
+            return null; // A cut has discarded the other rules and facts.
+        }
+        
         // If no solution has not been found yet, 
         // we begin trying each rule in the RuleSet. 
         this.child = null;
@@ -82,6 +123,7 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
             
             // Get the next rule to try.
             rule = this.nextRule();
+            super.context.countInference();
             
             // Get the rule's head (consequent).
             Predicate head = rule.getConsequent();
@@ -92,6 +134,7 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
             
             // If there is a solution,
             if(solution != null) {
+                super.context.checkBindings(solution.getBindings().size());
                 
                 // Now we need to check whether we need to continue solving for a 
                 // rule tail, which is only the case if the HornClause is not a fact.
@@ -100,13 +143,16 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
                     // We need to continue solving recursively for the child, whose Substitution 
                     // solution must be consistent with what we have thus far.    
                     Formula tail = rule.getAntecedent();
-                    this.child = SolutionNodeFactory.getSolver(tail, super.rules, solution);
-                    Substitution childSolution = this.child.nextSolution();
+                    Substitution childSolution = this.nextChildSolution(tail, solution);
                     
                     // If the child's solution is not null, return it.
                     if(childSolution != null) {
                         return childSolution;
                     }
+                    
+                    if(this.cut) {
+                        return null; // A cut has discarded the other rules and facts.
+                    }
                 }
                 
                 else {
@@ -116,6 +162,90 @@ public class PredicateSolutionNode extends AbstractSolutionNode {
             }
         }
         
+        // Once the rules are exhausted, try the facts in the goal's FactTable.
+        return this.nextFactSolution();
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#reset(rogel.io.fopl.Substitution)
+     */
+    @Override
+    protected void reset(Substitution newParentSubstitution) {
+        super.reset(newParentSubstitution);
+        this.child = null;
+        this.factTable = null;
+        this.factCursor = null;
+        this.cut = false;
+    }
+    
+    /**
+     * Computes the next solution to the body of the rule being tried, one rule deeper in the
+     * proof. The child that solves the body is created first if the body is given, so that a cut
+     * in the body prunes back to this node. If the search backtracks into such a cut, the child is
+     * dropped.
+     * 
+     * @param body The body of the rule, to solve under the parameter solution, or null to resume
+     *     the search of the child.
+     * @param solution The Substitution that unifies the goal with the head of the rule, or null.
+     * @return the next solution of the child, or null if it has none.
+     */
+    private Substitution nextChildSolution(Formula body, Substitution solution) {
+        super.context.enterRule(this);
+        try {
+            if(body != null) {
+                this.child = SolutionNodeFactory.getSolver(body, super.rules, solution, super.context);
+            }
+            return this.child.nextSolution();
+        }
+        catch(CutException e) {
+            if(e.getScope() != this) {
+                throw e;
+            }
+            this.child = null;
+            this.cut = true;
+            return null;
+        }
+        finally {
+            super.context.exitRule();
+        }
+    }
+    
+    /**
+     * Computes the next solution to this node's goal from the rows of the RuleSet's FactTable for 
+     * the goal's signature. The cursor over the matching rows is opened on the first call.
+     * 
+     * @return the Substitution that unifies the goal with the next matching fact, or null if 
+     *     there are no more matching facts.
+     */
+    private Substitution nextFactSolution() {
+        
+        if(this.factCursor == null) {
+            this.factTable = super.rules.getFactTable(this.goal.getSymbol(), this.goal.getArity());
+            
+            if(this.factTable == null) {
+                return null; // There are no facts stored outside of the rules.
+            }
+            
+            int[] pattern = this.factTable.getPattern(this.goal, super.parentSolution);
+            
+            if(pattern == null) {
+                return null; // The goal cannot match any fact.
+            }
+            
+            this.factCursor = this.factTable.match(pattern);
+        }
+        
+        int row;
+        while( (row = this.factCursor.nextRow()) != FactCursor.NO_MORE_ROWS) {
+            super.context.countInference();
+            Substitution solution = this.factTable.unify(this.goal, row, super.parentSolution);
+            
+            if(solution != null) {
+                return solution;
+            }
+        }
+        
         return null; // There is no next solution for the resolution problem!
     }
 }
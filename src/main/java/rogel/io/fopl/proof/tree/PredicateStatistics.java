@@ -0,0 +1,145 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.Arrays;
+import java.util.List;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Term;
+
+/**
+ * PredicateStatistics summarize how a RuleSet defines the Predicates of one signature, for the
+ * GoalPlanner to estimate the cost of solving them: the number of ground facts, in the signature's
+ * FactTable and among its clauses, the number of distinct constants in each column of those facts,
+ * which columns the FactTable indexes, and the number of other rules.
+ *
+ * @author recardona
+ */
+final class PredicateStatistics {
+
+    /** The FactTable the statistics were computed from, or null if there is none. */
+    final FactTable factTable;
+
+    /** The number of rows of the FactTable when the statistics were computed. */
+    final int tableFactCount;
+
+    /** The number of ground facts among the clauses of the signature. */
+    final int clauseFactCount;
+
+    /** The number of clauses of the signature that are not ground facts. */
+    final int ruleCount;
+
+    /** The number of distinct constants in each column of the ground facts, at least 1. */
+    final int[] distinctCounts;
+
+    /** Whether the FactTable indexes each column. */
+    final boolean[] indexed;
+
+    /**
+     * Computes the statistics of a signature.
+     *
+     * @param rules The RuleSet.
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     */
+    PredicateStatistics(RuleSet rules, Symbol predicateSymbol, int arity) {
+        this.factTable = rules.getFactTable(predicateSymbol, arity);
+        this.tableFactCount = (this.factTable == null) ? 0 : this.factTable.getFactCount();
+        this.distinctCounts = new int[arity];
+        this.indexed = new boolean[arity];
+
+        int clauseFactCount = 0;
+        int ruleCount = 0;
+        int[] ruleIndices = rules.getRuleIndices(predicateSymbol, arity);
+        int[][] clauseFacts = new int[ruleIndices.length][];
+        for(int ruleIndex : ruleIndices) {
+            int[] symbolIds = groundFact(rules.getRule(ruleIndex), arity);
+            if(symbolIds == null) {
+                ruleCount++;
+            }
+            else {
+                clauseFacts[clauseFactCount++] = symbolIds;
+            }
+        }
+        this.clauseFactCount = clauseFactCount;
+        this.ruleCount = ruleCount;
+
+        int factCount = this.tableFactCount + clauseFactCount;
+        int[] values = new int[factCount];
+        for(int column = 0; column < arity; column++) {
+            for(int row = 0; row < this.tableFactCount; row++) {
+                values[row] = this.factTable.getSymbolId(row, column);
+            }
+            for(int fact = 0; fact < clauseFactCount; fact++) {
+                values[this.tableFactCount + fact] = clauseFacts[fact][column];
+            }
+            this.distinctCounts[column] = Math.max(1, countDistinct(values));
+            this.indexed[column] = this.factTable != null && this.factTable.isIndexed(column);
+        }
+    }
+
+    /**
+     * Returns the number of ground facts of the signature.
+     *
+     * @return the number of facts in the FactTable and among the clauses.
+     */
+    int getFactCount() {
+        return this.tableFactCount + this.clauseFactCount;
+    }
+
+    /**
+     * Returns true if these statistics still describe the RuleSet: its FactTable for the
+     * signature is the same, with the same number of rows. The clauses of a RuleSet never change.
+     *
+     * @param rules The RuleSet the statistics were computed from.
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return true if the statistics are current.
+     */
+    boolean isCurrent(RuleSet rules, Symbol predicateSymbol, int arity) {
+        FactTable current = rules.getFactTable(predicateSymbol, arity);
+        return current == this.factTable && (current == null || current.getFactCount() == this.tableFactCount);
+    }
+
+    /**
+     * Returns the Symbol ids of a clause that is a ground fact.
+     *
+     * @param clause The clause.
+     * @param arity The arity of its consequent.
+     * @return the Symbol ids of its consequent, or null if the clause is a rule, or not ground.
+     */
+    private static int[] groundFact(HornClause clause, int arity) {
+        if(!clause.isFact()) {
+            return null;
+        }
+        int[] symbolIds = new int[arity];
+        List<Term> terms = clause.getConsequent().getTerms();
+        for(int column = 0; column < arity; column++) {
+            Term term = terms.get(column);
+            if(!term.isConstant()) {
+                return null;
+            }
+            symbolIds[column] = term.getSymbol().getId();
+        }
+        return symbolIds;
+    }
+
+    /**
+     * Counts the distinct values of an array, which it sorts.
+     *
+     * @param values The values.
+     * @return the number of distinct values.
+     */
+    private static int countDistinct(int[] values) {
+        Arrays.sort(values);
+        int distinct = 0;
+        for(int index = 0; index < values.length; index++) {
+            if(index == 0 || values[index] != values[index - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+}
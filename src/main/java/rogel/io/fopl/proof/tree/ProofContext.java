@@ -0,0 +1,523 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * A ProofContext holds the state shared by every node of a proof tree, for the duration of one
+ * query: the answer tables of the tabled Predicates. A new ProofContext is created by
+ * {@link SolutionNodeFactory#getSolver(rogel.io.fopl.formulas.Formula, RuleSet, Substitution)} for
+ * the root of each proof tree, and handed down to every node of the tree.
+ * <p>
+ * The answer tables are evaluated by linear tabling: the first call to a variant of a tabled
+ * Predicate evaluates the Predicate's rules, adding the instances of the call they prove to the
+ * call's table, and evaluates them again, until no new answer is found. Calls to a variant whose
+ * table is being evaluated do not evaluate the rules again, but read the answers found so far.
+ * Tables that read one another are completed together, by the first of them to be called, once
+ * an evaluation of it finds no new answer in any of them.
+ * <p>
+ * A ProofContext may share the complete answer tables with later queries through a SubgoalCache,
+ * and may hold a GoalPlanner, which orders the operands of the query's conjunctions, and
+ * QueryLimits, which stop the query with a QueryLimitException once it has done too much work or
+ * is cancelled. The nodes of the tree report each inference they make, and each rule they nest,
+ * to the context, which counts them whether the query has limits or not. The context also keeps
+ * the nodes a cut may prune back to, the innermost last: the node of each rule whose body is being
+ * solved, and each {@code once} or negation being proven.
+ * <p>
+ * A ProofContext is not thread-safe: nodes solved on other threads need a ProofContext of their
+ * own.
+ *
+ * @author recardona
+ */
+public class ProofContext {
+
+    /** The answer tables, keyed by the variant key of their call, or null until one is needed. */
+    private HashMap<String, AnswerTable> tables;
+
+    /** The tables being evaluated, the most recent last. */
+    private ArrayList<AnswerTable> stack;
+
+    /** The incomplete tables, in the order in which they were created. */
+    private ArrayList<AnswerTable> incomplete;
+
+    /** The number of answers added to any table. */
+    private long answerCount;
+
+    /** The cache of complete tables shared with other queries, or null. */
+    private SubgoalCache cache;
+
+    /** The version of the RuleSet when the query first called a tabled Predicate. */
+    private long rulesVersion;
+
+    /** The GoalPlanner that orders the operands of conjunctions, or null to keep their order. */
+    private GoalPlanner planner;
+
+    /** The limits of the query, or null if it has none. */
+    private QueryLimits limits;
+
+    /** The value of {@code System.nanoTime()} past which the query times out, if it has a timeout. */
+    private long deadline;
+
+    /** The number of inferences made by the query. */
+    private long inferenceCount;
+
+    /** The number of inferences at which the limits are checked next. */
+    private long nextCheck;
+
+    /** The number of inferences the query may make, or Long.MAX_VALUE. */
+    private long maxInferences;
+
+    /** The number of rules being nested by the proof being searched. */
+    private long depth;
+
+    /** The number of rules a proof may nest, or Long.MAX_VALUE. */
+    private long maxDepth;
+
+    /** The number of Variables a solution may bind, or Long.MAX_VALUE. */
+    private long maxBindings;
+
+    /** Whether disjunctions skip the answers they have already returned. */
+    private boolean distinctDisjunctions;
+
+    /** Whether conjunctions solve their independent groups of operands once each. */
+    private boolean independentConjunctions;
+
+    /** Whether conjunctions of facts of FactTables are solved by leapfrog triejoins. */
+    private boolean leapfrogJoins;
+
+    /** The nodes a cut may prune back to, the innermost last. */
+    private ArrayList<AbstractSolutionNode> cutScopes;
+
+    /**
+     * Constructs an empty ProofContext, for a new query.
+     */
+    public ProofContext() {
+        this(null);
+    }
+
+    /**
+     * Constructs an empty ProofContext, for a new query that shares the complete answer tables of
+     * its RuleSet with other queries, through a SubgoalCache. The cache is only used if the query
+     * is against the cache's RuleSet.
+     *
+     * @param cache The SubgoalCache, or null to keep the answer tables to this query.
+     */
+    public ProofContext(SubgoalCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * Constructs an empty ProofContext, for a new query whose conjunctions are ordered by a
+     * GoalPlanner, and that shares the complete answer tables of its RuleSet with other queries
+     * through a SubgoalCache. The planner is only used if the query is against the planner's
+     * RuleSet.
+     *
+     * @param cache The SubgoalCache, or null to keep the answer tables to this query.
+     * @param planner The GoalPlanner, or null to solve the operands of conjunctions in order.
+     */
+    public ProofContext(SubgoalCache cache, GoalPlanner planner) {
+        this(cache, planner, null);
+    }
+
+    /**
+     * Constructs an empty ProofContext, for a new query bounded by QueryLimits, whose conjunctions
+     * are ordered by a GoalPlanner, and that shares the complete answer tables of its RuleSet with
+     * other queries through a SubgoalCache. The timeout of the query starts now.
+     *
+     * @param cache The SubgoalCache, or null to keep the answer tables to this query.
+     * @param planner The GoalPlanner, or null to solve the operands of conjunctions in order.
+     * @param limits The QueryLimits, or null if the query may run until it is done.
+     */
+    public ProofContext(SubgoalCache cache, GoalPlanner planner, QueryLimits limits) {
+        this.tables = null;
+        this.stack = null;
+        this.incomplete = null;
+        this.answerCount = 0;
+        this.cache = cache;
+        this.rulesVersion = 0;
+        this.planner = planner;
+        this.limits = limits;
+        this.distinctDisjunctions = false;
+        this.cutScopes = new ArrayList<AbstractSolutionNode>();
+        this.inferenceCount = 0;
+        this.depth = 0;
+        this.maxInferences = Long.MAX_VALUE;
+        this.maxDepth = Long.MAX_VALUE;
+        this.maxBindings = Long.MAX_VALUE;
+        this.nextCheck = Long.MAX_VALUE;
+        if(limits != null) {
+            if(limits.getMaxInferences() != QueryLimits.UNLIMITED) {
+                this.maxInferences = limits.getMaxInferences();
+            }
+            if(limits.getMaxDepth() != QueryLimits.UNLIMITED) {
+                this.maxDepth = limits.getMaxDepth();
+            }
+            if(limits.getMaxBindings() != QueryLimits.UNLIMITED) {
+                this.maxBindings = limits.getMaxBindings();
+            }
+            this.deadline = System.nanoTime() + limits.getTimeoutMillis() * 1000000L;
+            this.nextCheck = Math.min(QueryLimits.CHECK_INTERVAL, this.maxInferences);
+        }
+    }
+
+    /**
+     * Constructs a ProofContext for the part of this context's query solved on another thread. It
+     * has the planner and limits of this context, and the same deadline, but answer tables and
+     * counts of its own: the inference and depth limits bound each thread's share of the proof.
+     *
+     * @return a new ProofContext for a task of the query.
+     */
+    ProofContext newTaskContext() {
+        ProofContext taskContext = new ProofContext(null, this.planner, this.limits);
+        taskContext.deadline = this.deadline;
+        taskContext.distinctDisjunctions = this.distinctDisjunctions;
+        return taskContext;
+    }
+
+    /**
+     * Returns the GoalPlanner that orders the operands of the query's conjunctions.
+     *
+     * @return the GoalPlanner, or null if the operands are solved in order.
+     */
+    public GoalPlanner getPlanner() {
+        return this.planner;
+    }
+
+    /**
+     * Returns true if the disjunctions of the query return each answer once: an answer of an
+     * operand that binds the disjunction's Variables as an earlier answer did is skipped.
+     *
+     * @return true if disjunctions skip repeated answers.
+     */
+    public boolean isDistinctDisjunctions() {
+        return this.distinctDisjunctions;
+    }
+
+    /**
+     * Sets whether the disjunctions of the query return each answer once. It must be set before
+     * the query's proof tree is built. By default, a disjunction returns every answer of each of
+     * its operands, as the rules it replaces would.
+     *
+     * @param distinctDisjunctions true if disjunctions should skip repeated answers.
+     */
+    public void setDistinctDisjunctions(boolean distinctDisjunctions) {
+        this.distinctDisjunctions = distinctDisjunctions;
+    }
+
+    /**
+     * Returns true if the conjunctions of the query whose operands fall into independent groups
+     * are solved by an IndependentAndSolutionNode, which solves each group once.
+     *
+     * @return true if independent groups of operands are solved once each.
+     */
+    public boolean isIndependentConjunctions() {
+        return this.independentConjunctions;
+    }
+
+    /**
+     * Sets whether the conjunctions of the query solve their independent groups of operands once
+     * each. It must be set before the query's proof tree is built. By default, the operands of a
+     * conjunction are solved in order by an AndSolutionNode, which returns its solutions in the
+     * order of the operands; an IndependentAndSolutionNode returns the same solutions, in a
+     * different order when the operands of its groups are interleaved, and keeps the solutions of
+     * every group but the first in memory.
+     *
+     * @param independentConjunctions true if independent groups of operands should be solved once
+     *     each.
+     */
+    public void setIndependentConjunctions(boolean independentConjunctions) {
+        this.independentConjunctions = independentConjunctions;
+    }
+
+    /**
+     * Returns true if the conjunctions of the query whose operands are all facts of FactTables
+     * are solved by a LeapfrogJoinSolutionNode.
+     *
+     * @return true if conjunctions of facts are solved by leapfrog triejoins.
+     */
+    public boolean isLeapfrogJoins() {
+        return this.leapfrogJoins;
+    }
+
+    /**
+     * Sets whether the conjunctions of the query whose operands are all facts of FactTables are
+     * solved by leapfrog triejoins. It must be set before the query's proof tree is built. By
+     * default, such a conjunction is solved in order by an AndSolutionNode; a
+     * LeapfrogJoinSolutionNode returns its solutions in increasing order of the Symbol ids of its
+     * Variables, and returns a solution once even if its facts are in a FactTable more than once.
+     *
+     * @param leapfrogJoins true if conjunctions of facts should be solved by leapfrog triejoins.
+     */
+    public void setLeapfrogJoins(boolean leapfrogJoins) {
+        this.leapfrogJoins = leapfrogJoins;
+    }
+
+    /**
+     * Returns the QueryLimits of the query.
+     *
+     * @return the QueryLimits, or null if the query has none.
+     */
+    public QueryLimits getLimits() {
+        return this.limits;
+    }
+
+    /**
+     * Returns the number of inferences made by the query so far: the rules and facts its nodes
+     * have tried to resolve goals with.
+     *
+     * @return the number of inferences.
+     */
+    public long getInferenceCount() {
+        return this.inferenceCount;
+    }
+
+    /**
+     * Counts an inference, and checks the limits of the query if it is their turn.
+     *
+     * @throws QueryLimitException if the query has exceeded a limit, or is cancelled.
+     */
+    void countInference() {
+        if(++this.inferenceCount >= this.nextCheck) {
+            this.checkLimits();
+        }
+    }
+
+    /**
+     * Records that the proof being searched nests one more rule, whose body is solved by a child
+     * of the parameter node: a cut in the body prunes back to the node.
+     *
+     * @param scope The node of the rule.
+     * @throws QueryLimitException if the proof nests more rules than allowed.
+     */
+    void enterRule(AbstractSolutionNode scope) {
+        if(++this.depth > this.maxDepth) {
+            this.depth--;
+            throw new QueryLimitException(QueryLimitException.Reason.DEPTH, this.inferenceCount);
+        }
+        this.cutScopes.add(scope);
+    }
+
+    /**
+     * Records that the proof being searched nests one rule less.
+     */
+    void exitRule() {
+        this.depth--;
+        this.cutScopes.remove(this.cutScopes.size() - 1);
+    }
+
+    /**
+     * Records that the nodes solved until the matching call to {@link #exitCutScope()} are
+     * proving the operand of the parameter node: a cut in the operand prunes back to the node.
+     *
+     * @param scope The node.
+     */
+    void enterCutScope(AbstractSolutionNode scope) {
+        this.cutScopes.add(scope);
+    }
+
+    /**
+     * Records that the innermost node a cut may prune back to has stopped solving its operand.
+     */
+    void exitCutScope() {
+        this.cutScopes.remove(this.cutScopes.size() - 1);
+    }
+
+    /**
+     * Returns the node a cut solved now would prune back to.
+     *
+     * @return the innermost node a cut may prune back to, or null if a cut would be outside of
+     *     any rule, {@code once} or negation.
+     */
+    AbstractSolutionNode getCutScope() {
+        return this.cutScopes.isEmpty() ? null : this.cutScopes.get(this.cutScopes.size() - 1);
+    }
+
+    /**
+     * Checks the number of Variables bound by a solution against the limits of the query.
+     *
+     * @param bindingCount The number of Variables bound.
+     * @throws QueryLimitException if the solution binds more Variables than allowed.
+     */
+    void checkBindings(int bindingCount) {
+        if(bindingCount > this.maxBindings) {
+            throw new QueryLimitException(QueryLimitException.Reason.BINDINGS, this.inferenceCount);
+        }
+    }
+
+    /**
+     * Checks every limit of the query, and schedules the next check.
+     *
+     * @throws QueryLimitException if the query has exceeded a limit, or is cancelled.
+     */
+    private void checkLimits() {
+        if(this.inferenceCount > this.maxInferences) {
+            throw new QueryLimitException(QueryLimitException.Reason.INFERENCES, this.inferenceCount);
+        }
+        CancellationToken token = this.limits.getToken();
+        if(token != null && token.isCancelled()) {
+            throw new QueryLimitException(QueryLimitException.Reason.CANCELLED, this.inferenceCount);
+        }
+        if(Thread.currentThread().isInterrupted()) {
+            throw new QueryLimitException(QueryLimitException.Reason.INTERRUPTED, this.inferenceCount);
+        }
+        if(this.limits.getTimeoutMillis() != QueryLimits.UNLIMITED && System.nanoTime() - this.deadline > 0) {
+            throw new QueryLimitException(QueryLimitException.Reason.TIMEOUT, this.inferenceCount);
+        }
+        this.nextCheck = Math.min(this.inferenceCount + QueryLimits.CHECK_INTERVAL, this.maxInferences);
+    }
+
+    /**
+     * Returns the number of answer tables created by the query, one per variant of a tabled
+     * Predicate called.
+     *
+     * @return the number of answer tables.
+     */
+    public int getTableCount() {
+        return (this.tables == null) ? 0 : this.tables.size();
+    }
+
+    /**
+     * Returns the total number of answers in the answer tables of the query.
+     *
+     * @return the number of tabled answers.
+     */
+    public long getAnswerCount() {
+        return this.answerCount;
+    }
+
+    /**
+     * Returns the answer table of a call to a tabled Predicate, evaluating it if needed. The table
+     * returned is complete, unless the call is part of the evaluation of another table that reads
+     * it: its answers are then those found so far, and more may be added to it as the evaluation
+     * proceeds.
+     *
+     * @param call The call, with the bindings of its caller applied.
+     * @param rules The RuleSet that defines the logical basis used for resolution.
+     * @return the answer table of the call.
+     */
+    AnswerTable getAnswerTable(Predicate call, RuleSet rules) {
+        if(this.tables == null) {
+            this.tables = new HashMap<String, AnswerTable>();
+            this.stack = new ArrayList<AnswerTable>();
+            this.incomplete = new ArrayList<AnswerTable>();
+            if(this.cache != null && this.cache.getRules() != rules) {
+                this.cache = null;
+            }
+            this.rulesVersion = rules.getVersion();
+        }
+
+        String key = AnswerTable.variantKey(call);
+        AnswerTable table = this.tables.get(key);
+        if(table == null && this.cache != null) {
+            table = this.cache.get(key);
+            if(table != null) {
+                this.tables.put(key, table);
+                return table;
+            }
+        }
+
+        if(table == null) {
+            table = new AnswerTable(key, call);
+            this.tables.put(key, table);
+            this.incomplete.add(table);
+            this.evaluate(table, rules);
+        }
+        else if(table.isEvaluating()) {
+            // A recursive call: it reads the answers found so far.
+            this.dependOn(table.depth);
+        }
+        else if(!table.isComplete()) {
+            // A table evaluated earlier in the current pass of its leader is read as it is;
+            // otherwise, it is evaluated again, since the tables it reads may have grown.
+            AnswerTable leader = table.evaluatedBy;
+            if(leader != null && leader.isEvaluating() && leader.passes == table.evaluatedInPass) {
+                this.dependOn(leader.depth);
+            }
+            else {
+                this.evaluate(table, rules);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Evaluates the rules of a table's call, until a pass over them finds no new answer. If the
+     * table does not depend on a table being evaluated before it, it is completed, along with the
+     * tables that depend on it.
+     *
+     * @param table The table to evaluate.
+     * @param rules The RuleSet that defines the logical basis used for resolution.
+     */
+    private void evaluate(AnswerTable table, RuleSet rules) {
+        int depth = this.stack.size();
+        table.depth = depth;
+        table.leader = depth;
+        this.stack.add(table);
+
+        long answersBefore;
+        do {
+            answersBefore = this.answerCount;
+            table.readIncomplete = false;
+            table.passes++;
+
+            AbstractSolutionNode node = new PredicateSolutionNode(table.getCall(), rules, new Substitution(), this);
+            for(Substitution solution = node.nextSolution(); solution != null; solution = node.nextSolution()) {
+                if(table.addAnswer((Predicate) table.getCall().replaceVariables(solution))) {
+                    this.answerCount++;
+                }
+            }
+        } while(table.readIncomplete && this.answerCount != answersBefore);
+
+        this.stack.remove(depth);
+        table.depth = -1;
+
+        if(table.leader == depth) {
+            // No table below this one was read: this table is done, and so are the tables last
+            // evaluated under it, directly or through one another.
+            HashSet<AnswerTable> completed = new HashSet<AnswerTable>();
+            completed.add(table);
+            ArrayList<AnswerTable> stillIncomplete = new ArrayList<AnswerTable>();
+            for(AnswerTable other : this.incomplete) {
+                if(other == table || completed.contains(other.evaluatedBy)) {
+                    completed.add(other);
+                }
+                else {
+                    stillIncomplete.add(other);
+                }
+            }
+            for(AnswerTable other : completed) {
+                other.complete();
+                if(this.cache != null) {
+                    this.cache.put(other, this.rulesVersion);
+                }
+            }
+            this.incomplete = stillIncomplete;
+        }
+        else {
+            AnswerTable leader = this.stack.get(table.leader);
+            table.evaluatedBy = leader;
+            table.evaluatedInPass = leader.passes;
+        }
+    }
+
+    /**
+     * Records that the answers of the tables above a position of the stack depend on an incomplete
+     * table, so that they are evaluated until the table at that position is complete.
+     *
+     * @param depth The position on the stack of the incomplete table, or of its leader.
+     */
+    private void dependOn(int depth) {
+        for(int index = depth; index < this.stack.size(); index++) {
+            AnswerTable table = this.stack.get(index);
+            table.readIncomplete = true;
+            if(table.leader > depth) {
+                table.leader = depth;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package rogel.io.fopl.proof.tree;
+
+/**
+ * A QueryLimitException is thrown by {@link AbstractSolutionNode#nextSolution()} when the query
+ * exceeds one of the QueryLimits of its ProofContext, or is cancelled. The solutions returned
+ * before the exception are correct, but may not be all the solutions of the query, and the proof
+ * tree must not be asked for more.
+ *
+ * @author recardona
+ */
+public class QueryLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reasons a query may be stopped.
+     */
+    public enum Reason {
+        /** The query ran past its deadline. */
+        TIMEOUT,
+        /** The query tried more rules and facts than allowed. */
+        INFERENCES,
+        /** A proof nested more rules than allowed. */
+        DEPTH,
+        /** A solution bound more Variables than allowed. */
+        BINDINGS,
+        /** The query's CancellationToken was cancelled. */
+        CANCELLED,
+        /** The thread solving the query was interrupted. */
+        INTERRUPTED
+    }
+
+    /** The reason the query was stopped. */
+    private final Reason reason;
+
+    /** The number of rules and facts the query had tried when it was stopped. */
+    private final long inferenceCount;
+
+    /**
+     * Constructs a QueryLimitException.
+     *
+     * @param reason The reason the query was stopped, not null.
+     * @param inferenceCount The number of rules and facts the query had tried.
+     */
+    public QueryLimitException(Reason reason, long inferenceCount) {
+        super("Query stopped (" + reason + ") after " + inferenceCount + " inferences.");
+        this.reason = reason;
+        this.inferenceCount = inferenceCount;
+    }
+
+    /**
+     * Returns the reason the query was stopped.
+     *
+     * @return the reason.
+     */
+    public Reason getReason() {
+        return this.reason;
+    }
+
+    /**
+     * Returns the number of rules and facts the query had tried when it was stopped.
+     *
+     * @return the number of inferences.
+     */
+    public long getInferenceCount() {
+        return this.inferenceCount;
+    }
+}
@@ -0,0 +1,120 @@
+package rogel.io.fopl.proof.tree;
+
+/**
+ * QueryLimits bound the work a query may do before it is stopped with a QueryLimitException: a
+ * timeout, a number of inferences (rules and facts tried), a depth of nested rules, and a number
+ * of Variables bound by a solution, which estimates the memory the query holds on to. A query with
+ * limits also stops when its CancellationToken is cancelled, or when the thread solving it is
+ * interrupted; the interrupt status of the thread is left set.
+ * <p>
+ * The limits are checked by the ProofContext of the query. The number of inferences, the depth
+ * and the bindings are checked on every inference, as a counter and a comparison; the clock, the
+ * token and the interrupt status only every {@code CHECK_INTERVAL} inferences, so that a
+ * cancelled query may run for that many more inferences.
+ * <p>
+ * QueryLimits are immutable, and may be shared by any number of queries. The timeout of each query
+ * starts when its ProofContext is constructed.
+ *
+ * @author recardona
+ */
+public final class QueryLimits {
+
+    /** The value of a limit that does not bound the query. */
+    public static final long UNLIMITED = 0;
+
+    /** The number of inferences between two checks of the clock, token and interrupt status. */
+    public static final int CHECK_INTERVAL = 1024;
+
+    /** The time a query may run, in milliseconds, or UNLIMITED. */
+    private final long timeoutMillis;
+
+    /** The number of inferences a query may make, or UNLIMITED. */
+    private final long maxInferences;
+
+    /** The number of rules a proof may nest, or UNLIMITED. */
+    private final long maxDepth;
+
+    /** The number of Variables a solution may bind, or UNLIMITED. */
+    private final long maxBindings;
+
+    /** The token that cancels the query, or null. */
+    private final CancellationToken token;
+
+    /**
+     * Constructs QueryLimits. A limit of {@link #UNLIMITED} does not bound the query.
+     *
+     * @param timeoutMillis The time a query may run, in milliseconds, not negative.
+     * @param maxInferences The number of rules and facts a query may try, not negative.
+     * @param maxDepth The number of rules a proof may nest, not negative.
+     * @param maxBindings The number of Variables a solution may bind, not negative.
+     * @param token The token that cancels the query, or null if it cannot be cancelled but by an
+     *  interrupt.
+     * @throws IllegalArgumentException if a limit is negative.
+     */
+    public QueryLimits(long timeoutMillis, long maxInferences, long maxDepth, long maxBindings,
+            CancellationToken token) {
+        if(timeoutMillis < 0 || maxInferences < 0 || maxDepth < 0 || maxBindings < 0) {
+            throw new IllegalArgumentException("Query limits cannot be negative.");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.maxInferences = maxInferences;
+        this.maxDepth = maxDepth;
+        this.maxBindings = maxBindings;
+        this.token = token;
+    }
+
+    /**
+     * Returns the time a query may run.
+     *
+     * @return the timeout, in milliseconds, or UNLIMITED.
+     */
+    public long getTimeoutMillis() {
+        return this.timeoutMillis;
+    }
+
+    /**
+     * Returns the number of rules and facts a query may try.
+     *
+     * @return the maximum number of inferences, or UNLIMITED.
+     */
+    public long getMaxInferences() {
+        return this.maxInferences;
+    }
+
+    /**
+     * Returns the number of rules a proof may nest.
+     *
+     * @return the maximum depth, or UNLIMITED.
+     */
+    public long getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Returns the number of Variables a solution may bind.
+     *
+     * @return the maximum number of bindings, or UNLIMITED.
+     */
+    public long getMaxBindings() {
+        return this.maxBindings;
+    }
+
+    /**
+     * Returns the token that cancels the query.
+     *
+     * @return the CancellationToken, or null.
+     */
+    public CancellationToken getToken() {
+        return this.token;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "QueryLimits [timeoutMillis=" + this.timeoutMillis + ", maxInferences=" + this.maxInferences
+                + ", maxDepth=" + this.maxDepth + ", maxBindings=" + this.maxBindings + "]";
+    }
+}
@@ -1,10 +1,17 @@
 package rogel.io.fopl.proof.tree;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import rogel.io.fopl.Substitution;
 import rogel.io.fopl.formulas.Formula;
 import rogel.io.fopl.formulas.Predicate;
 import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.NotOperator;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.formulas.operators.OrOperator;
 import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.builtins.Builtin;
 
 /**
  * The SolutionNodeFactory provides instances of AbstractSolutionNodes as needed for proof tree
@@ -16,40 +23,185 @@ public class SolutionNodeFactory {
 
     private SolutionNodeFactory() { /* Private constructor to avoid initialization. */ }
     
+    /**
+     * This method generates the root node of a new proof tree for the parameter goal Formula, 
+     * with a new ProofContext. See {@link #getSolver(Formula, RuleSet, Substitution, ProofContext)}.
+     * 
+     * @param goal The Formula for which a solution node is desired, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @return an AbstractSolutionNode appropriate for the type of the parameter goal Formula.
+     */
+    public static AbstractSolutionNode getSolver(Formula goal, RuleSet rules, Substitution parentSolution) {
+        return getSolver(goal, rules, parentSolution, new ProofContext());
+    }
+    
     /**
      * This method generates a new child goal node appropriate for the parameter goal Formula:
      * <ul>
-     *     <li> If the Formula is a Predicate, this method returns a PredicateSolutionNode.
-     *     <li> If the Formula is an AndOperator, this method returns an AndSolutionNode.
+     *     <li> If the Formula is the cut {@code (!)}, this method returns a CutSolutionNode.
+     *     <li> If the Formula is a Predicate built in to the RuleSet, this method returns a 
+     *          BuiltinSolutionNode.
+     *     <li> If the Formula is a Predicate the RuleSet marks as tabled, this method returns a
+     *          TabledSolutionNode.
+     *     <li> If the Formula is any other Predicate, this method returns a PredicateSolutionNode.
+     *     <li> If the Formula is an AndOperator whose operands are all Predicates with a FactTable
+     *          and no rules, and the ProofContext solves leapfrog joins, this method returns a
+     *          LeapfrogJoinSolutionNode, which binds one Variable at a time across every operand.
+     *     <li> If the Formula is an AndOperator whose operands fall into independent groups, that
+     *          share no unbound Variable under the parent solution, and no cut, and the ProofContext
+     *          solves independent conjunctions, this method returns an IndependentAndSolutionNode,
+     *          which solves each group once.
+     *     <li> If the Formula is any other AndOperator, this method returns an AndSolutionNode.
+     *     <li> If the Formula is a NotOperator, this method returns a NotSolutionNode, which 
+     *          proves the negation by failure.
+     *     <li> If the Formula is an OrOperator, this method returns an OrSolutionNode, which 
+     *          solves each operand in turn.
+     *     <li> If the Formula is a OnceOperator, this method returns a OnceSolutionNode, which 
+     *          returns the first solution of its operand only.
      * </ul>
      * 
      * @param goal The Formula for which a solution node is desired, not null.
      * @param rules The RuleSet that defines the logical basis used for resolution, not null.
      * @param parentSolution The Substitution solution that exists prior to the creation of this
      *  node, not null.
+     * @param context The ProofContext shared by the nodes of the proof tree, not null.
      * @return an AbstractSolutionNode appropriate for the type of the parameter goal Formula.
+     * @throws IllegalArgumentException if the goal is a cut outside of any rule, {@code once} or
+     *     negation.
      */
-    public static AbstractSolutionNode getSolver(Formula goal, RuleSet rules, Substitution parentSolution) {
+    public static AbstractSolutionNode getSolver(Formula goal, RuleSet rules, Substitution parentSolution,
+            ProofContext context) {
         
         if(goal instanceof Predicate) {
-            return new PredicateSolutionNode((Predicate) goal, rules, parentSolution); 
+            Predicate predicate = (Predicate) goal;
+            if(CutSolutionNode.isCut(predicate)) {
+                return new CutSolutionNode(rules, parentSolution, context);
+            }
+            Builtin builtin = rules.getBuiltin(predicate.getSymbol(), predicate.getArity());
+            if(builtin != null) {
+                return new BuiltinSolutionNode(predicate, builtin, rules, parentSolution, context);
+            }
+            if(rules.isTabled(predicate.getSymbol(), predicate.getArity())) {
+                return new TabledSolutionNode(predicate, rules, parentSolution, context);
+            }
+            return new PredicateSolutionNode(predicate, rules, parentSolution, context); 
         }
         
         if(goal instanceof AndOperator) {
-            return new AndSolutionNode((AndOperator) goal, rules, parentSolution);
+            return getAndSolver((AndOperator) goal, rules, parentSolution, null, context);
         }
         
-        // TODO:
-//        if(goal instanceof OrOperator) {
-//             return new OrSolutionNode((OrOperator) goal, rules, parentSolution);
-//        }
-//        
-//        if(goal instanceof NotOperator) {
-//             return new NotSolutionNode((NotOperator) goal, rules, parentSolution);
-//        }
+        if(goal instanceof NotOperator) {
+            return new NotSolutionNode((NotOperator) goal, rules, parentSolution, context);
+        }
+        
+        if(goal instanceof OrOperator) {
+            return new OrSolutionNode((OrOperator) goal, rules, parentSolution, context);
+        }
+        
+        if(goal instanceof OnceOperator) {
+            return new OnceSolutionNode((OnceOperator) goal, rules, parentSolution, context);
+        }
         
         // ERROR:
         throw new IllegalArgumentException("Goal " +goal.toString()+ " is of unrecognized type for the solver.");        
     }
     
+    /**
+     * This method generates a StackSolutionNode for the parameter goal Formula. Unlike the nodes
+     * returned by {@link #getSolver(Formula, RuleSet, Substitution)}, a StackSolutionNode does not
+     * recurse into child nodes, so that proofs of any depth can be found without overflowing the
+     * Java stack.
+     * 
+     * @param goal The Predicate or AndOperator for which a solution node is desired, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @return a StackSolutionNode for the parameter goal Formula.
+     * @throws IllegalArgumentException if the goal is not a Predicate or an AndOperator, or has a
+     *     tabled Predicate.
+     */
+    public static AbstractSolutionNode getStackSolver(Formula goal, RuleSet rules, Substitution parentSolution) {
+        return new StackSolutionNode(goal, rules, parentSolution);
+    }
+    
+    /**
+     * This method generates an OrParallelSolutionNode for the parameter goal Formula, which 
+     * explores the alternative rules and facts of its goals on the threads of the parameter pool.
+     * Its solutions are those of the node returned by 
+     * {@link #getSolver(Formula, RuleSet, Substitution)}, in no particular order.
+     * 
+     * @param goal The Formula for which a solution node is desired, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param pool The ForkJoinPool that runs the search, not null.
+     * @return an OrParallelSolutionNode for the parameter goal Formula.
+     */
+    public static AbstractSolutionNode getOrParallelSolver(Formula goal, RuleSet rules, Substitution parentSolution,
+            ForkJoinPool pool) {
+        return new OrParallelSolutionNode(goal, rules, parentSolution, pool);
+    }
+    
+    /**
+     * This method generates a solution node for the parameter goal Formula that solves the
+     * independent groups of operands of an AndOperator concurrently, on the threads of the
+     * parameter pool: every group but the first is solved on the pool, once, while the caller
+     * solves the first. The groups solved on the pool must have a finite number of solutions. If
+     * the goal is not an AndOperator, or its operands are all connected, this method returns the
+     * node returned by {@link #getSolver(Formula, RuleSet, Substitution)}.
+     * 
+     * @param goal The Formula for which a solution node is desired, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param pool The ForkJoinPool that solves the independent groups, not null.
+     * @return an AbstractSolutionNode for the parameter goal Formula.
+     */
+    public static AbstractSolutionNode getAndParallelSolver(Formula goal, RuleSet rules, Substitution parentSolution,
+            ForkJoinPool pool) {
+        if(pool == null) {
+            throw new IllegalArgumentException("Cannot solve with a null ForkJoinPool.");
+        }
+        
+        if(goal instanceof AndOperator) {
+            return getAndSolver((AndOperator) goal, rules, parentSolution, pool, new ProofContext());
+        }
+        return getSolver(goal, rules, parentSolution);
+    }
+    
+    /**
+     * This method generates a LeapfrogJoinSolutionNode for the parameter AndOperator if it is a
+     * conjunction of facts of FactTables solved on the caller's thread and the ProofContext solves
+     * leapfrog joins, an IndependentAndSolutionNode if its operands fall into more than one
+     * independent group and either a pool is given or the ProofContext solves independent
+     * conjunctions, and an AndSolutionNode otherwise.
+     * 
+     * @param goal The AndOperator for which a solution node is desired, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param pool The ForkJoinPool that solves the independent groups, or null to solve them on
+     *  the caller's thread.
+     * @param context The ProofContext shared by the nodes of the proof tree, not null.
+     * @return an AbstractSolutionNode for the parameter AndOperator.
+     */
+    private static AbstractSolutionNode getAndSolver(AndOperator goal, RuleSet rules, Substitution parentSolution,
+            ForkJoinPool pool, ProofContext context) {
+        if(pool == null && context.isLeapfrogJoins()
+                && LeapfrogJoinSolutionNode.isApplicable(goal, rules, parentSolution)) {
+            return new LeapfrogJoinSolutionNode(goal, rules, parentSolution, context);
+        }
+        boolean independent = (pool != null) || context.isIndependentConjunctions();
+        if(independent && goal.operandCount() > 1 && !CutSolutionNode.containsCut(goal)) {
+            List<List<Formula>> groups = IndependentAndSolutionNode.partition(goal, parentSolution);
+            if(groups.size() > 1) {
+                return new IndependentAndSolutionNode(groups, rules, parentSolution, pool, context);
+            }
+        }
+        return new AndSolutionNode(goal, rules, parentSolution, context);
+    }
+    
 }
@@ -0,0 +1,959 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.Unifiable;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.builtins.Builtin;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.NumericConstant;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The StackSolutionNode solves a Predicate, or a conjunction of Predicates, without building a
+ * proof tree. Rules may also use the cut {@code (!)} and {@code once} in their bodies. Where the
+ * other nodes recurse into their children, this node keeps the goals left to prove in a linked
+ * list, and its choice points in a stack on the heap, so that the depth of a proof is not limited
+ * by the Java stack. It finds the same solutions as the other nodes, in the same order, for the
+ * goals it supports: it does not table, and rejects goals whose Predicates are tabled in the
+ * RuleSet.
+ * <p>
+ * Resolving a goal with a rule replaces the goal by the rule's body, so that a rule's last goal
+ * does not keep its caller alive (last-call optimization). The rule's Variables are bound in a
+ * frame that only lives during the unification, and are copied into the body, so that only the
+ * bindings of goal Variables are kept. A choice point is dropped before its last alternative is
+ * tried, and bindings are only trailed while a choice point remains. Deterministic recursion thus
+ * keeps no choice points and no trail, and does not overflow the Java stack however deep it goes.
+ * It does not run in bounded memory, however: the binding of every goal Variable is kept until
+ * backtracking undoes it, so the memory a proof holds still grows with its depth, up to the
+ * bindings limit of the context's QueryLimits.
+ * <p>
+ * A cut pops every choice point pushed since the rule in whose body it appears was tried,
+ * including the one for the rule's own alternatives. A {@code once} pushes a barrier, a choice
+ * point with no alternative, before its operand, and pops every choice point down to and
+ * including the barrier once the operand is proven; a cut inside a {@code once} pops the choice
+ * points down to its barrier. Recursion that is only deterministic through cuts thus also keeps
+ * no choice points.
+ * <p>
+ * Goals built in to the RuleSet are evaluated in place, and push no choice point.
+ * <p>
+ * The solutions returned by this node bind the Variables of its goal to their values, on top of
+ * the bindings of the parent Substitution; they do not hold the bindings of the Variables of the
+ * rules used along the way.
+ * <p>
+ * Each rule and fact tried counts as an inference of the node's ProofContext, and the bindings it
+ * holds are checked against the context's QueryLimits. The depth limit does not apply, since the
+ * node does not nest the rules it resolves with.
+ *
+ * @author recardona
+ */
+public class StackSolutionNode extends AbstractSolutionNode {
+
+    /** The rule positions of a barrier. */
+    private static final int[] NO_RULES = new int[0];
+
+    /** The Substitution Builtins are solved under, since the Terms they are given are resolved. */
+    private static final Substitution NO_BINDINGS = new Substitution();
+
+    /** The Variables of the goal being solved at this node. */
+    private Variable[] goalVariables;
+
+    /** The goals left to prove. */
+    private Goal goals;
+
+    /** The newest choice point, or null if there are no alternatives left. */
+    private ChoicePoint choicePoint;
+
+    /** The value of each bound Variable. */
+    private HashMap<Variable, Term> bindings;
+
+    /** The Variables bound since the oldest choice point, in the order they were bound. */
+    private ArrayList<Variable> trail;
+
+    /** Whether the first solution has been searched for. */
+    private boolean started;
+
+    /** Whether every solution has been found. */
+    private boolean exhausted;
+
+    /**
+     * Constructor for the StackSolutionNode.
+     *
+     * @param goal The goal for this node, a Predicate or an AndOperator of Predicates, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @throws IllegalArgumentException if the goal is not a Predicate, an AndOperator or a
+     *     OnceOperator, has a cut outside of a {@code once}, or has a tabled Predicate.
+     */
+    public StackSolutionNode(Formula goal, RuleSet rules, Substitution parentSolution) {
+        this(goal, rules, parentSolution, new ProofContext());
+    }
+
+    /**
+     * Constructor for the StackSolutionNode, whose search is bounded by the QueryLimits of a
+     * ProofContext.
+     *
+     * @param goal The goal for this node, a Predicate or an AndOperator of Predicates, not null.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext that counts the inferences of the search, not null.
+     * @throws IllegalArgumentException if the goal is not a Predicate, an AndOperator or a
+     *     OnceOperator, has a cut outside of a {@code once}, or has a tabled Predicate.
+     */
+    public StackSolutionNode(Formula goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goals = prepend(goal, null, false);
+
+        HashSet<Variable> variables = new HashSet<Variable>();
+        for(Goal next = this.goals; next != null; next = next.next) {
+            if(next.predicate != null) {
+                checkNotTabled(next.predicate, rules);
+            }
+            if(next.predicate != null && !next.predicate.isPropositional()) {
+                for(Term term : next.predicate.getTerms()) {
+                    collectVariables(term, variables);
+                }
+            }
+        }
+        this.goalVariables = variables.toArray(new Variable[variables.size()]);
+
+        this.bindings = new HashMap<Variable, Term>();
+        for(Map.Entry<Variable, Unifiable> binding : parentSolution.getBindings().entrySet()) {
+            if(binding.getValue() instanceof Term) {
+                this.bindings.put(binding.getKey(), (Term) binding.getValue());
+            }
+        }
+        this.trail = new ArrayList<Variable>();
+        this.choicePoint = null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.exhausted) {
+            return null;
+        }
+
+        // Resume the search from the newest choice point.
+        if(this.started && !this.backtrack()) {
+            this.exhausted = true;
+            return null;
+        }
+
+        this.started = true;
+        while(this.goals != null) {
+            Goal goal = this.goals;
+            if(goal.predicate == null) {
+                this.control(goal);
+                this.goals = goal.next;
+                continue;
+            }
+
+            Builtin builtin = super.rules.getBuiltin(goal.predicate.getSymbol(), goal.predicate.getArity());
+            if(builtin != null) {
+                super.context.countInference();
+                if(this.solveBuiltin(builtin, goal.predicate)) {
+                    this.goals = goal.next;
+                }
+                else if(!this.backtrack()) {
+                    this.exhausted = true;
+                    return null;
+                }
+                continue;
+            }
+            this.pushChoicePoint(goal.predicate, goal.next);
+
+            if(!this.retry() && !this.backtrack()) {
+                this.exhausted = true;
+                return null;
+            }
+        }
+
+        return this.getSolution();
+    }
+
+    /**
+     * Tries the alternatives of the newest choice point in turn, until one unifies with its goal.
+     * The goals left to prove then become the alternative's body, followed by the choice point's
+     * continuation.
+     *
+     * @return true if an alternative unified with the goal.
+     */
+    private boolean retry() {
+        ChoicePoint point = this.choicePoint;
+
+        // Try the rules for the goal's signature.
+        while(point.nextRule < point.ruleIndices.length) {
+            HornClause rule = super.rules.getRule(point.ruleIndices[point.nextRule++]);
+            super.context.countInference();
+            boolean last = !point.hasAlternatives();
+            if(last) {
+                this.popChoicePoint();
+            }
+
+            HashMap<Variable, Term> frame = new HashMap<Variable, Term>();
+            if(this.unifyHead(point.goal, rule.getConsequent(), frame)) {
+                this.goals = rule.isFact() ? point.continuation
+                        : prependBody(rule.getAntecedent(), frame, point.continuation, point.previous, false);
+                return true;
+            }
+
+            if(last) {
+                return false;
+            }
+            this.undo(point.trailSize);
+        }
+
+        // Then try the rows of its FactTable.
+        if(point.factTable != null) {
+            if(point.factCursor == null) {
+                int[] pattern = this.getPattern(point.goal);
+                if(pattern == null) {
+                    this.popChoicePoint();
+                    return false; // The goal cannot match any fact.
+                }
+                point.factCursor = point.factTable.match(pattern);
+                point.nextRow = point.factCursor.nextRow();
+            }
+
+            while(point.nextRow != FactCursor.NO_MORE_ROWS) {
+                int row = point.nextRow;
+                point.nextRow = point.factCursor.nextRow();
+                super.context.countInference();
+                boolean last = !point.hasAlternatives();
+                if(last) {
+                    this.popChoicePoint();
+                }
+
+                if(this.unifyRow(point.goal, point.factTable, row)) {
+                    this.goals = point.continuation;
+                    return true;
+                }
+
+                if(last) {
+                    return false;
+                }
+                this.undo(point.trailSize);
+            }
+        }
+
+        this.popChoicePoint();
+        return false;
+    }
+
+    /**
+     * Resumes the search from the newest choice point that has an alternative left.
+     *
+     * @return true if an alternative unified with its goal, false if the search is over.
+     */
+    private boolean backtrack() {
+        while(this.choicePoint != null) {
+            this.undo(this.choicePoint.trailSize);
+            if(this.retry()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pushes a choice point over the rules and facts of a goal.
+     *
+     * @param goal The goal.
+     * @param continuation The goals to prove after it.
+     * @throws IllegalArgumentException if the goal's Predicate is tabled.
+     */
+    private void pushChoicePoint(Predicate goal, Goal continuation) {
+        checkNotTabled(goal, super.rules);
+        ChoicePoint point = new ChoicePoint();
+        point.goal = goal;
+        point.continuation = continuation;
+        point.ruleIndices = super.rules.getRuleIndices(goal.getSymbol(), goal.getArity());
+        point.factTable = super.rules.getFactTable(goal.getSymbol(), goal.getArity());
+        point.trailSize = this.trail.size();
+        point.previous = this.choicePoint;
+        this.choicePoint = point;
+    }
+
+    /**
+     * Checks that a goal's Predicate is not tabled in the RuleSet, since this node does not table.
+     *
+     * @param goal The goal.
+     * @param rules The RuleSet.
+     * @throws IllegalArgumentException if the goal's Predicate is tabled.
+     */
+    private static void checkNotTabled(Predicate goal, RuleSet rules) {
+        if(rules.isTabled(goal.getSymbol(), goal.getArity())) {
+            throw new IllegalArgumentException("Goal " +goal.toString()+ " is tabled, which the solver does not support.");
+        }
+    }
+
+    /**
+     * Solves a goal that is built in to the RuleSet. The Builtin is given the goal's Terms with
+     * their bound Variables replaced by their values, and the bindings of its solution are then
+     * made in this node's bindings.
+     *
+     * @param builtin The Builtin of the goal.
+     * @param goal The goal.
+     * @return true if the goal holds.
+     */
+    private boolean solveBuiltin(Builtin builtin, Predicate goal) {
+        List<Term> terms = goal.getTerms();
+        Term[] arguments = new Term[terms.size()];
+        for(int index = 0; index < arguments.length; index++) {
+            arguments[index] = this.resolve(terms.get(index));
+        }
+
+        Substitution solution = builtin.solve(Arrays.asList(arguments), NO_BINDINGS);
+        if(solution == null) {
+            return false;
+        }
+        for(Map.Entry<Variable, Unifiable> binding : solution.getBindings().entrySet()) {
+            if(!this.unify(binding.getKey(), (Term) binding.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves a cut, or the start or end of a {@code once}.
+     *
+     * @param goal The Goal of the control construct.
+     */
+    private void control(Goal goal) {
+        if(goal.kind == Goal.ONCE) {
+            ChoicePoint barrier = new ChoicePoint();
+            barrier.ruleIndices = NO_RULES;
+            barrier.barrier = true;
+            barrier.trailSize = this.trail.size();
+            barrier.previous = this.choicePoint;
+            this.choicePoint = barrier;
+            return;
+        }
+
+        if(goal.kind == Goal.CUT) {
+            this.cutTo(goal.barrier);
+            return;
+        }
+
+        // Find the barrier of the innermost once.
+        ChoicePoint barrier = this.choicePoint;
+        while(!barrier.barrier) {
+            barrier = barrier.previous;
+        }
+        this.cutTo((goal.kind == Goal.END_ONCE) ? barrier.previous : barrier);
+    }
+
+    /**
+     * Pops the choice points newer than the given one.
+     *
+     * @param point The choice point to keep as the newest, or null to pop every choice point.
+     */
+    private void cutTo(ChoicePoint point) {
+        this.choicePoint = point;
+        if(point == null) {
+            this.trail.clear();
+        }
+    }
+
+    /**
+     * Pops the newest choice point. Once no choice point is left, no binding can be undone, and
+     * the trail is emptied.
+     */
+    private void popChoicePoint() {
+        this.choicePoint = this.choicePoint.previous;
+        if(this.choicePoint == null) {
+            this.trail.clear();
+        }
+    }
+
+    /**
+     * Removes the bindings made since the trail had the given size.
+     *
+     * @param trailSize The size of the trail to go back to.
+     */
+    private void undo(int trailSize) {
+        for(int index = this.trail.size() - 1; index >= trailSize; index--) {
+            this.bindings.remove(this.trail.remove(index));
+        }
+    }
+
+    /**
+     * Binds a Variable, trailing it if a choice point may undo the binding.
+     *
+     * @param variable The unbound Variable.
+     * @param term The Term to bind it to.
+     */
+    private void bind(Variable variable, Term term) {
+        this.bindings.put(variable, term);
+        super.context.checkBindings(this.bindings.size());
+        if(this.choicePoint != null) {
+            this.trail.add(variable);
+        }
+    }
+
+    /**
+     * Follows the bindings of a Term to its value.
+     *
+     * @param term The Term.
+     * @return the Term itself if it is not a bound Variable, or the value of the Variable.
+     */
+    private Term deref(Term term) {
+        while(term instanceof Variable) {
+            Term value = this.bindings.get(term);
+            if(value == null) {
+                break;
+            }
+            term = value;
+        }
+        return term;
+    }
+
+    /**
+     * Returns the number a Term denotes, if it is a numeral Function (see
+     * {@link Function#getNumber()}), so that it compares equal to the NumericConstant.
+     *
+     * @param term The Term.
+     * @return the number the Term denotes, or the Term itself if it is not a numeral Function.
+     */
+    private static Term number(Term term) {
+        if(term instanceof Function && ((Function) term).getNumber() != null) {
+            return ((Function) term).getNumber();
+        }
+        return term;
+    }
+
+    /**
+     * Unifies a goal with the head of a rule. The Variables of the rule are bound in the frame,
+     * and never appear in the goals; a rule Variable that must appear in them is replaced by a new
+     * Variable.
+     *
+     * @param goal The goal.
+     * @param head The head of the rule, with the signature of the goal.
+     * @param frame The bindings of the rule's Variables.
+     * @return true if the goal and the head unify.
+     */
+    private boolean unifyHead(Predicate goal, Predicate head, HashMap<Variable, Term> frame) {
+        if(goal.isPropositional()) {
+            return true;
+        }
+
+        List<Term> goalTerms = goal.getTerms();
+        List<Term> headTerms = head.getTerms();
+        for(int index = 0; index < goalTerms.size(); index++) {
+            if(!this.unifyHead(goalTerms.get(index), headTerms.get(index), frame)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unifies a Term of a goal with a Term of the head of a rule.
+     *
+     * @param goalTerm The Term of the goal.
+     * @param ruleTerm The Term of the rule.
+     * @param frame The bindings of the rule's Variables.
+     * @return true if the Terms unify.
+     */
+    private boolean unifyHead(Term goalTerm, Term ruleTerm, HashMap<Variable, Term> frame) {
+        if(ruleTerm instanceof Variable) {
+            Term value = frame.get(ruleTerm);
+            if(value == null) {
+                frame.put((Variable) ruleTerm, goalTerm);
+                return true;
+            }
+            return this.unify(value, goalTerm);
+        }
+
+        Term term = this.deref(goalTerm);
+        if(ruleTerm instanceof NumericConstant) {
+            if(term instanceof Variable) {
+                this.bind((Variable) term, ruleTerm);
+                return true;
+            }
+            return ruleTerm.equals(number(term));
+        }
+
+        Function ruleFunction = (Function) ruleTerm;
+        if(term instanceof Variable) {
+            return this.bindChecked((Variable) term, instantiate(ruleFunction, frame));
+        }
+        if(term instanceof NumericConstant) {
+            return term.equals(number(ruleFunction)); // A number only unifies with the same number.
+        }
+
+        Function function = (Function) term;
+        if(!function.getSymbol().equals(ruleFunction.getSymbol()) || function.getArity() != ruleFunction.getArity()) {
+            return false;
+        }
+
+        for(int index = 0; index < function.getArity(); index++) {
+            if(!this.unifyHead(function.getArguments().get(index), ruleFunction.getArguments().get(index), frame)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unifies two Terms of the goals, binding their Variables as needed.
+     *
+     * @param first The first Term.
+     * @param second The second Term.
+     * @return true if the Terms unify.
+     */
+    private boolean unify(Term first, Term second) {
+        ArrayList<Term> pairs = new ArrayList<Term>();
+        pairs.add(first);
+        pairs.add(second);
+
+        while(!pairs.isEmpty()) {
+            Term term1 = this.deref(pairs.remove(pairs.size() - 1));
+            Term term2 = this.deref(pairs.remove(pairs.size() - 1));
+            if(term1 == term2) {
+                continue;
+            }
+
+            if(term1 instanceof Variable) {
+                if(!this.bindChecked((Variable) term1, term2)) {
+                    return false;
+                }
+            }
+
+            else if(term2 instanceof Variable) {
+                if(!this.bindChecked((Variable) term2, term1)) {
+                    return false;
+                }
+            }
+
+            else if(term1 instanceof NumericConstant || term2 instanceof NumericConstant) {
+                if(!number(term1).equals(number(term2))) {
+                    return false;
+                }
+            }
+
+            else {
+                Function function1 = (Function) term1;
+                Function function2 = (Function) term2;
+                if(!function1.getSymbol().equals(function2.getSymbol()) || function1.getArity() != function2.getArity()) {
+                    return false;
+                }
+
+                for(int index = 0; index < function1.getArity(); index++) {
+                    pairs.add(function1.getArguments().get(index));
+                    pairs.add(function2.getArguments().get(index));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binds a Variable to a Term, unless the Term contains the Variable (the "occurs" check).
+     *
+     * @param variable The unbound Variable.
+     * @param term The dereferenced Term to bind it to.
+     * @return true if the Variable was bound.
+     */
+    private boolean bindChecked(Variable variable, Term term) {
+        if(term instanceof Function && !((Function) term).isConstant()) {
+            ArrayList<Term> pending = new ArrayList<Term>();
+            pending.add(term);
+            while(!pending.isEmpty()) {
+                Term next = this.deref(pending.remove(pending.size() - 1));
+                if(next == variable) {
+                    return false;
+                }
+                if(next instanceof Function && !((Function) next).isConstant()) {
+                    pending.addAll(((Function) next).getArguments());
+                }
+            }
+        }
+
+        this.bind(variable, term);
+        return true;
+    }
+
+    /**
+     * Computes the FactTable pattern of a goal.
+     *
+     * @param goal The goal.
+     * @return the pattern of the goal, or null if one of its Terms is a structure.
+     */
+    private int[] getPattern(Predicate goal) {
+        int[] pattern = new int[goal.getArity()];
+        for(int column = 0; column < pattern.length; column++) {
+            Term term = this.deref(goal.getTerms().get(column));
+            if(term instanceof Variable) {
+                pattern[column] = FactTable.UNBOUND;
+            }
+            else if(term.isConstant()) {
+                pattern[column] = FactTable.getConstantId(term);
+            }
+            else {
+                return null; // Facts only ever hold constants.
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * Unifies a goal with a row of a FactTable.
+     *
+     * @param goal The goal.
+     * @param factTable The FactTable.
+     * @param row The row.
+     * @return true if the goal and the row unify.
+     */
+    private boolean unifyRow(Predicate goal, FactTable factTable, int row) {
+        for(int column = 0; column < goal.getArity(); column++) {
+            Term term = this.deref(goal.getTerms().get(column));
+            int symbolId = factTable.getSymbolId(row, column);
+            if(term instanceof Variable) {
+                this.bind((Variable) term, Term.constant(Symbol.getById(symbolId)));
+            }
+            else if(FactTable.getConstantId(term) != symbolId) {
+                return false; // A Variable repeated in the goal may not match the row.
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the Substitution of the current solution, which binds each Variable of the goal to
+     * its value.
+     *
+     * @return the Substitution of the current solution.
+     */
+    private Substitution getSolution() {
+        Substitution solution = new Substitution(super.parentSolution);
+        for(Variable variable : this.goalVariables) {
+            Term value = this.resolve(variable);
+            if(value != variable) {
+                solution.add(variable, value);
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Replaces the bound Variables of a Term with their values, without recursion, so that
+     * Terms of any depth can be resolved.
+     *
+     * @param term The Term.
+     * @return the Term with every bound Variable replaced by its value.
+     */
+    private Term resolve(Term term) {
+        Term root = this.deref(term);
+        if(!(root instanceof Function) || ((Function) root).isConstant()) {
+            return root; // An unbound Variable or a constant has nothing to resolve.
+        }
+
+        // The work list holds Terms to resolve, and the Functions whose resolved arguments are
+        // on top of the results, wrapped in a one-element array.
+        ArrayList<Object> work = new ArrayList<Object>();
+        ArrayList<Term> results = new ArrayList<Term>();
+        work.add(term);
+
+        while(!work.isEmpty()) {
+            Object next = work.remove(work.size() - 1);
+            if(next instanceof Function[]) {
+                Function function = ((Function[]) next)[0];
+                Term[] arguments = new Term[function.getArity()];
+                for(int index = arguments.length - 1; index >= 0; index--) {
+                    arguments[index] = results.remove(results.size() - 1);
+                }
+                results.add(new Function(function.getSymbol(), arguments));
+                continue;
+            }
+
+            Term value = this.deref((Term) next);
+            if(value instanceof Function && !((Function) value).isConstant()) {
+                Function function = (Function) value;
+                work.add(new Function[] {function});
+                for(int index = function.getArity() - 1; index >= 0; index--) {
+                    work.add(function.getArguments().get(index));
+                }
+            }
+            else {
+                results.add(value);
+            }
+        }
+        return results.get(0);
+    }
+
+    /**
+     * Prepends the Predicates of a rule's body to a list of goals, replacing the rule's Variables
+     * with their bindings in the frame.
+     *
+     * @param body The body of the rule.
+     * @param frame The bindings of the rule's Variables.
+     * @param continuation The goals to prove after the body.
+     * @param barrier The newest choice point when the rule was tried, which a cut in the body
+     *     keeps, or null.
+     * @param inOnce Whether the body is inside a once, to whose barrier a cut pops.
+     * @return the goals of the body, followed by the continuation.
+     * @throws IllegalArgumentException if the body is not a Predicate, an AndOperator or a
+     *     OnceOperator.
+     */
+    private static Goal prependBody(Formula body, HashMap<Variable, Term> frame, Goal continuation,
+            ChoicePoint barrier, boolean inOnce) {
+        if(CutSolutionNode.isCut(body)) {
+            return inOnce ? new Goal(Goal.CUT_ONCE, null, continuation) : new Goal(Goal.CUT, barrier, continuation);
+        }
+
+        if(body instanceof Predicate) {
+            return new Goal(instantiate((Predicate) body, frame), continuation);
+        }
+
+        if(body instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) body;
+            Goal goals = continuation;
+            for(int index = conjunction.operandCount() - 1; index >= 0; index--) {
+                goals = prependBody(conjunction.getOperand(index), frame, goals, barrier, inOnce);
+            }
+            return goals;
+        }
+
+        if(body instanceof OnceOperator) {
+            Goal end = new Goal(Goal.END_ONCE, null, continuation);
+            Goal operand = prependBody(((OnceOperator) body).getOperand(0), frame, end, barrier, true);
+            return new Goal(Goal.ONCE, null, operand);
+        }
+
+        throw new IllegalArgumentException("Goal " +body.toString()+ " is of unrecognized type for the solver.");
+    }
+
+    /**
+     * Prepends the Predicates of a goal to a list of goals.
+     *
+     * @param goal The goal.
+     * @param continuation The goals to prove after it.
+     * @param inOnce Whether the goal is inside a once, to whose barrier a cut pops.
+     * @return the Predicates of the goal, followed by the continuation.
+     * @throws IllegalArgumentException if the goal is not a Predicate, an AndOperator or a
+     *     OnceOperator, or is a cut outside of a once.
+     */
+    private static Goal prepend(Formula goal, Goal continuation, boolean inOnce) {
+        if(CutSolutionNode.isCut(goal)) {
+            if(!inOnce) {
+                throw new IllegalArgumentException("A cut must be in the body of a rule, or inside a once.");
+            }
+            return new Goal(Goal.CUT_ONCE, null, continuation);
+        }
+
+        if(goal instanceof Predicate) {
+            return new Goal((Predicate) goal, continuation);
+        }
+
+        if(goal instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) goal;
+            Goal goals = continuation;
+            for(int index = conjunction.operandCount() - 1; index >= 0; index--) {
+                goals = prepend(conjunction.getOperand(index), goals, inOnce);
+            }
+            return goals;
+        }
+
+        if(goal instanceof OnceOperator) {
+            Goal end = new Goal(Goal.END_ONCE, null, continuation);
+            return new Goal(Goal.ONCE, null, prepend(((OnceOperator) goal).getOperand(0), end, true));
+        }
+
+        throw new IllegalArgumentException("Goal " +goal.toString()+ " is of unrecognized type for the solver.");
+    }
+
+    /**
+     * Copies a Predicate of a rule, replacing the rule's Variables with their bindings in the
+     * frame. Unbound rule Variables are bound to new Variables.
+     *
+     * @param predicate The Predicate of the rule.
+     * @param frame The bindings of the rule's Variables.
+     * @return the copied Predicate.
+     */
+    private static Predicate instantiate(Predicate predicate, HashMap<Variable, Term> frame) {
+        if(predicate.isPropositional()) {
+            return predicate;
+        }
+
+        List<Term> terms = predicate.getTerms();
+        Term[] instances = new Term[terms.size()];
+        for(int index = 0; index < instances.length; index++) {
+            instances[index] = instantiate(terms.get(index), frame);
+        }
+        return new Predicate(predicate.getSymbol(), instances);
+    }
+
+    /**
+     * Copies a Term of a rule, replacing the rule's Variables with their bindings in the frame.
+     * Unbound rule Variables are bound to new Variables.
+     *
+     * @param term The Term of the rule.
+     * @param frame The bindings of the rule's Variables.
+     * @return the copied Term.
+     */
+    private static Term instantiate(Term term, HashMap<Variable, Term> frame) {
+        if(term instanceof Variable) {
+            Term value = frame.get(term);
+            if(value == null) {
+                value = new Variable(term.getSymbol());
+                frame.put((Variable) term, value);
+            }
+            return value;
+        }
+
+        if(term.isConstant()) {
+            return term;
+        }
+
+        Function function = (Function) term;
+        Term[] arguments = new Term[function.getArity()];
+        for(int index = 0; index < arguments.length; index++) {
+            arguments[index] = instantiate(function.getArguments().get(index), frame);
+        }
+        return new Function(function.getSymbol(), arguments);
+    }
+
+    /**
+     * Adds the Variables of a Term to a set, without recursion.
+     *
+     * @param term The Term.
+     * @param variables The set of Variables.
+     */
+    private static void collectVariables(Term term, HashSet<Variable> variables) {
+        ArrayList<Term> pending = new ArrayList<Term>();
+        pending.add(term);
+        while(!pending.isEmpty()) {
+            Term next = pending.remove(pending.size() - 1);
+            if(next instanceof Variable) {
+                variables.add((Variable) next);
+            }
+            else if(!next.isConstant()) {
+                pending.addAll(((Function) next).getArguments());
+            }
+        }
+    }
+
+    /**
+     * A Goal is a link in the list of goals left to prove: a Predicate, or a control construct.
+     */
+    private static final class Goal {
+
+        // The kinds of Goals.
+        private static final int PREDICATE = 0;
+        private static final int CUT = 1;
+        private static final int CUT_ONCE = 2;
+        private static final int ONCE = 3;
+        private static final int END_ONCE = 4;
+
+        /** The kind of the Goal. */
+        private final int kind;
+
+        /** The goal to prove, or null if the Goal is a control construct. */
+        private final Predicate predicate;
+
+        /** The choice point a cut in a rule's body keeps as the newest, or null. */
+        private final ChoicePoint barrier;
+
+        /** The goals to prove after it, or null. */
+        private final Goal next;
+
+        /**
+         * Constructs a Goal that proves a Predicate.
+         *
+         * @param predicate The goal to prove.
+         * @param next The goals to prove after it, or null.
+         */
+        private Goal(Predicate predicate, Goal next) {
+            this.kind = PREDICATE;
+            this.predicate = predicate;
+            this.barrier = null;
+            this.next = next;
+        }
+
+        /**
+         * Constructs a Goal for a control construct.
+         *
+         * @param kind The kind of the construct.
+         * @param barrier The choice point a cut in a rule's body keeps as the newest, or null.
+         * @param next The goals to prove after it, or null.
+         */
+        private Goal(int kind, ChoicePoint barrier, Goal next) {
+            this.kind = kind;
+            this.predicate = null;
+            this.barrier = barrier;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A ChoicePoint records the alternatives left to prove a goal, and the state to go back to
+     * before trying each of them.
+     */
+    private static final class ChoicePoint {
+
+        /** The goal. */
+        private Predicate goal;
+
+        /** The goals to prove after it. */
+        private Goal continuation;
+
+        /** The positions of the rules for the goal's signature. */
+        private int[] ruleIndices;
+
+        /** The index of the next rule to try in {@code ruleIndices}. */
+        private int nextRule;
+
+        /** The FactTable for the goal's signature, or null. */
+        private FactTable factTable;
+
+        /** The cursor over the matching rows of the FactTable, once the rules are tried. */
+        private FactCursor factCursor;
+
+        /** The next matching row of the FactTable. */
+        private int nextRow;
+
+        /** The size of the trail when the choice point was pushed. */
+        private int trailSize;
+
+        /** The previous choice point, or null. */
+        private ChoicePoint previous;
+
+        /** Whether the choice point is the barrier of a once, with no alternative. */
+        private boolean barrier;
+
+        /**
+         * Returns true if this choice point has an alternative left to try.
+         *
+         * @return true if a rule or a row is left to try.
+         */
+        private boolean hasAlternatives() {
+            if(this.nextRule < this.ruleIndices.length) {
+                return true;
+            }
+            return this.factTable != null && (this.factCursor == null || this.nextRow != FactCursor.NO_MORE_ROWS);
+        }
+    }
+}
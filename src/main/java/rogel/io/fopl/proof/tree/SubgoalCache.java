@@ -0,0 +1,233 @@
+package rogel.io.fopl.proof.tree;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * A SubgoalCache keeps the complete answer tables of tabled Predicates across queries against a
+ * RuleSet, so that a query that calls a variant of a subgoal already solved by an earlier query
+ * reads its answers instead of solving it again. A query uses the cache if its ProofContext was
+ * constructed with it; see {@link ProofContext#ProofContext(SubgoalCache)}.
+ * <p>
+ * The cache holds at most a given number of answers. Once it is full, the tables used least
+ * recently are evicted first. The cache is emptied whenever the version of its RuleSet changes,
+ * since the answers it holds may no longer be all the answers to their subgoals.
+ * <p>
+ * A SubgoalCache is thread-safe: it may be shared by queries solved on different threads.
+ *
+ * @author recardona
+ */
+public class SubgoalCache {
+
+    /** The RuleSet whose subgoals this cache holds the answers of. */
+    private final RuleSet rules;
+
+    /** The maximum number of answers this cache holds. */
+    private final long maxAnswers;
+
+    /** The cached tables, keyed by the variant key of their call, least recently used first. */
+    private final LinkedHashMap<String, AnswerTable> tables;
+
+    /** The version of the RuleSet the cached tables were computed at. */
+    private long version;
+
+    /** The number of answers of the cached tables. */
+    private long answerCount;
+
+    /** The number of lookups that found a table. */
+    private long hitCount;
+
+    /** The number of lookups that found no table. */
+    private long missCount;
+
+    /** The number of tables evicted to make room for others. */
+    private long evictionCount;
+
+    /** The number of times the cache was emptied because the RuleSet changed. */
+    private long invalidationCount;
+
+    /**
+     * Constructs an empty SubgoalCache.
+     *
+     * @param rules The RuleSet whose subgoals the cache holds the answers of, not null.
+     * @param maxAnswers The maximum number of answers the cache holds, positive. A table counts
+     *  as one answer more than it has, so that tables without answers are bounded as well.
+     */
+    public SubgoalCache(RuleSet rules, long maxAnswers) {
+        if(rules == null) {
+            throw new IllegalArgumentException("Cannot cache the subgoals of a null RuleSet.");
+        }
+        if(maxAnswers <= 0) {
+            throw new IllegalArgumentException("The maximum number of answers must be positive: " + maxAnswers);
+        }
+        this.rules = rules;
+        this.maxAnswers = maxAnswers;
+        this.tables = new LinkedHashMap<String, AnswerTable>(16, 0.75f, true);
+        this.version = rules.getVersion();
+        this.answerCount = 0;
+        this.hitCount = 0;
+        this.missCount = 0;
+        this.evictionCount = 0;
+        this.invalidationCount = 0;
+    }
+
+    /**
+     * Returns the RuleSet whose subgoals this cache holds the answers of.
+     *
+     * @return the RuleSet of this cache.
+     */
+    public RuleSet getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Returns the complete answer table of a subgoal, if it is cached.
+     *
+     * @param key The variant key of the subgoal.
+     * @return the answer table, or null if the subgoal is not cached.
+     */
+    synchronized AnswerTable get(String key) {
+        this.validate();
+        AnswerTable table = this.tables.get(key);
+        if(table == null) {
+            this.missCount++;
+        }
+        else {
+            this.hitCount++;
+        }
+        return table;
+    }
+
+    /**
+     * Caches a complete answer table, evicting the tables used least recently if the cache is
+     * full. The table is not cached if its answers were computed at another version of the
+     * RuleSet, or if it has more answers than the cache can hold.
+     *
+     * @param table The complete answer table.
+     * @param version The version of the RuleSet at which the table's answers were computed.
+     */
+    synchronized void put(AnswerTable table, long version) {
+        this.validate();
+        long weight = weight(table);
+        if(version != this.version || weight > this.maxAnswers) {
+            return;
+        }
+
+        AnswerTable previous = this.tables.put(table.getKey(), table);
+        if(previous != null) {
+            this.answerCount -= weight(previous);
+        }
+        this.answerCount += weight;
+
+        Iterator<AnswerTable> leastRecentlyUsed = this.tables.values().iterator();
+        while(this.answerCount > this.maxAnswers) {
+            AnswerTable evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            this.answerCount -= weight(evicted);
+            this.evictionCount++;
+        }
+    }
+
+    /**
+     * Empties this cache. The counts of hits, misses, evictions and invalidations are kept.
+     */
+    public synchronized void clear() {
+        this.tables.clear();
+        this.answerCount = 0;
+    }
+
+    /**
+     * Returns the number of subgoals whose answers are cached.
+     *
+     * @return the number of cached tables.
+     */
+    public synchronized int getSize() {
+        this.validate();
+        return this.tables.size();
+    }
+
+    /**
+     * Returns the number of answers held by this cache, counting one more per table.
+     *
+     * @return the number of cached answers.
+     */
+    public synchronized long getAnswerCount() {
+        this.validate();
+        return this.answerCount;
+    }
+
+    /**
+     * Returns the number of calls to tabled Predicates that were answered from this cache.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of calls to tabled Predicates that this cache could not answer.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of tables evicted to keep this cache within its maximum size.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Returns the number of times this cache was emptied because its RuleSet changed.
+     *
+     * @return the number of invalidations.
+     */
+    public synchronized long getInvalidationCount() {
+        return this.invalidationCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("SubgoalCache[size=%d, answers=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d]",
+                this.tables.size(), this.answerCount, this.maxAnswers, this.hitCount, this.missCount,
+                this.evictionCount, this.invalidationCount);
+    }
+
+    /**
+     * Empties this cache if the version of its RuleSet changed since the cached tables were
+     * computed.
+     */
+    private void validate() {
+        long currentVersion = this.rules.getVersion();
+        if(currentVersion != this.version) {
+            if(!this.tables.isEmpty()) {
+                this.invalidationCount++;
+            }
+            this.clear();
+            this.version = currentVersion;
+        }
+    }
+
+    /**
+     * Returns the room a table takes in the cache: one more than its number of answers.
+     *
+     * @param table The table.
+     * @return the weight of the table.
+     */
+    private static long weight(AnswerTable table) {
+        return table.getAnswerCount() + 1;
+    }
+
+}
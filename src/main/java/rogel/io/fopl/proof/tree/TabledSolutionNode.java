@@ -0,0 +1,77 @@
+package rogel.io.fopl.proof.tree;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+
+/**
+ * The TabledSolutionNode is an AbstractSolutionNode for Predicates that the RuleSet marks as
+ * tabled. Rather than resolving its goal against the rules, the node reads the answers of its
+ * goal's variant from the answer table of its ProofContext, which evaluates the table on the
+ * first call. Calls to a tabled Predicate are therefore solved once per query, and left-recursive
+ * rules, such as {@code (path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))}, terminate, even over
+ * cyclic data.
+ * <p>
+ * A tabled goal has each of its distinct answers once, in the order in which the table found them,
+ * rather than once per proof.
+ *
+ * @author recardona
+ */
+public class TabledSolutionNode extends AbstractSolutionNode {
+
+    /** The goal being solved at this node. */
+    private Predicate goal;
+
+    /** The answer table of the goal, once the search has started. */
+    private AnswerTable table;
+
+    /** The index of the next answer to try. */
+    private int answerIndex;
+
+    /**
+     * Constructor for the TabledSolutionNode.
+     *
+     * @param goal The Predicate resolution goal for this node.
+     * @param rules The RuleSet that defines the logical basis used for resolution, not null.
+     * @param parentSolution The Substitution solution that exists prior to the creation of this
+     *  node, not null.
+     * @param context The ProofContext that holds the answer tables of the query, not null.
+     */
+    public TabledSolutionNode(Predicate goal, RuleSet rules, Substitution parentSolution, ProofContext context) {
+        super(rules, parentSolution, null, context);
+        this.goal = goal;
+        this.table = null;
+        this.answerIndex = 0;
+    }
+
+    /**
+     * The Predicate that represents the resolution goal for this node.
+     *
+     * @return the goal for this node.
+     */
+    public Predicate getGoal() {
+        return this.goal;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.proof.tree.AbstractSolutionNode#nextSolution()
+     */
+    @Override
+    public Substitution nextSolution() {
+        if(this.table == null) {
+            Predicate call = (Predicate) this.goal.replaceVariables(super.parentSolution);
+            this.table = super.context.getAnswerTable(call, super.rules);
+        }
+
+        // The table may grow while it is read, if it is still being evaluated.
+        while(this.answerIndex < this.table.getAnswerCount()) {
+            Predicate answer = this.table.getAnswer(this.answerIndex++);
+            Substitution solution = this.goal.unify(answer, super.parentSolution);
+            if(solution != null) {
+                return solution;
+            }
+        }
+        return null;
+    }
+}
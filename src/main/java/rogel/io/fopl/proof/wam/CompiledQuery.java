@@ -0,0 +1,34 @@
+package rogel.io.fopl.proof.wam;
+
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A CompiledQuery is the code of a query, compiled to follow the code of a WamProgram, together
+ * with the Variables of the query in the order of their permanent registers.
+ *
+ * @author recardona
+ */
+final class CompiledQuery {
+
+    /** The code of the query, whose first int is at the address just after the program's code. */
+    final int[] code;
+
+    /** The Variables of the query; the Variable at index i lives in permanent register i. */
+    final Variable[] variables;
+
+    /** The number of X registers the query needs. */
+    final int registerCount;
+
+    /**
+     * Constructs a CompiledQuery.
+     *
+     * @param code The code of the query.
+     * @param variables The Variables of the query, by permanent register.
+     * @param registerCount The number of X registers the query needs.
+     */
+    CompiledQuery(int[] code, Variable[] variables, int registerCount) {
+        this.code = code;
+        this.variables = variables;
+        this.registerCount = registerCount;
+    }
+}
@@ -0,0 +1,110 @@
+package rogel.io.fopl.proof.wam;
+
+/**
+ * Defines the opcodes of the abstract machine, with their names and the number of operands that
+ * follow them in the code. Register operands are X registers when they are non-negative, and Y
+ * (permanent) registers {@code -r - 1} when they are negative. Argument registers are the first
+ * X registers. Constant operands are Symbol ids, and functor operands are a Symbol id followed by
+ * an arity.
+ *
+ * @author recardona
+ */
+final class Instruction {
+
+    private Instruction() { /* Private constructor for no initialization. */ }
+
+    /** Fails, so that the machine backtracks. Called for Predicates that have no clauses. */
+    static final int FAIL = 0;
+
+    /** {@code put_variable r, a}: creates an unbound Variable in r and argument a. */
+    static final int PUT_VARIABLE = 1;
+
+    /** {@code put_value r, a}: copies r into argument a. */
+    static final int PUT_VALUE = 2;
+
+    /** {@code put_constant c, a}: puts the constant c into argument a. */
+    static final int PUT_CONSTANT = 3;
+
+    /** {@code put_structure f, n, r}: starts building the structure f/n on the heap, in r. */
+    static final int PUT_STRUCTURE = 4;
+
+    /** {@code set_variable r}: adds an unbound Variable to the structure being built, in r. */
+    static final int SET_VARIABLE = 5;
+
+    /** {@code set_value r}: adds r to the structure being built. */
+    static final int SET_VALUE = 6;
+
+    /** {@code set_constant c}: adds the constant c to the structure being built. */
+    static final int SET_CONSTANT = 7;
+
+    /** {@code get_variable r, a}: copies argument a into r. */
+    static final int GET_VARIABLE = 8;
+
+    /** {@code get_value r, a}: unifies r with argument a. */
+    static final int GET_VALUE = 9;
+
+    /** {@code get_constant c, a}: unifies argument a with the constant c. */
+    static final int GET_CONSTANT = 10;
+
+    /**
+     * {@code get_structure f, n, r}: unifies r with the structure f/n, reading its arguments if r
+     * is a structure, or building them if r is unbound.
+     */
+    static final int GET_STRUCTURE = 11;
+
+    /** {@code unify_variable r}: reads the next argument of a structure into r, or builds one. */
+    static final int UNIFY_VARIABLE = 12;
+
+    /** {@code unify_value r}: unifies the next argument of a structure with r, or builds it. */
+    static final int UNIFY_VALUE = 13;
+
+    /** {@code unify_constant c}: unifies the next argument of a structure with c, or builds it. */
+    static final int UNIFY_CONSTANT = 14;
+
+    /** {@code allocate n}: pushes an environment with n permanent registers. */
+    static final int ALLOCATE = 15;
+
+    /** {@code deallocate}: pops the current environment. */
+    static final int DEALLOCATE = 16;
+
+    /** {@code call p}: calls the Predicate whose code starts at address p. */
+    static final int CALL = 17;
+
+    /** {@code execute p}: jumps to the Predicate whose code starts at p, as the last call. */
+    static final int EXECUTE = 18;
+
+    /** {@code proceed}: returns to the continuation. */
+    static final int PROCEED = 19;
+
+    /** {@code try_me_else l, n}: pushes a choice point for n arguments whose next clause is l. */
+    static final int TRY_ME_ELSE = 20;
+
+    /** {@code retry_me_else l}: restores the choice point, and makes l its next clause. */
+    static final int RETRY_ME_ELSE = 21;
+
+    /** {@code trust_me}: restores and pops the choice point, for the last clause. */
+    static final int TRUST_ME = 22;
+
+    /** {@code facts t, n}: pushes a choice point over the rows of FactTable t that match. */
+    static final int FACTS = 23;
+
+    /** {@code retry_facts t, n}: restores the FactTable choice point, and tries its next row. */
+    static final int RETRY_FACTS = 24;
+
+    /** {@code yield}: reports a solution to the query. */
+    static final int YIELD = 25;
+
+    /** The name of each opcode. */
+    static final String[] NAMES = {
+        "fail", "put_variable", "put_value", "put_constant", "put_structure", "set_variable",
+        "set_value", "set_constant", "get_variable", "get_value", "get_constant", "get_structure",
+        "unify_variable", "unify_value", "unify_constant", "allocate", "deallocate", "call",
+        "execute", "proceed", "try_me_else", "retry_me_else", "trust_me", "facts", "retry_facts",
+        "yield"
+    };
+
+    /** The number of operands of each opcode. */
+    static final int[] OPERAND_COUNTS = {
+        0, 2, 2, 2, 3, 1, 1, 1, 2, 2, 2, 3, 1, 1, 1, 1, 0, 1, 1, 0, 2, 1, 0, 2, 2, 0
+    };
+}
@@ -0,0 +1,510 @@
+package rogel.io.fopl.proof.wam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * The WamCompiler translates the HornClauses of a RuleSet into a WamProgram. The code of each
+ * Predicate signature is the code of its clauses, in the order of the RuleSet, chained by
+ * {@code try_me_else}, {@code retry_me_else} and {@code trust_me} instructions, followed by the
+ * rows of the signature's FactTable, if it has one.
+ * <p>
+ * Each clause is compiled the way the Warren Abstract Machine compiles it: the head becomes
+ * {@code get} and {@code unify} instructions over the argument registers, and each body goal
+ * becomes {@code put} and {@code set} instructions that load the argument registers, followed by
+ * a {@code call}. The last goal is an {@code execute}, so that it reuses the caller's continuation
+ * (last call optimization). Variables that occur in more than one goal (counting the head with the
+ * first goal) live in permanent registers of the clause's environment; the others live in
+ * temporary registers. Every Variable is created on the heap, so no Variable is ever unsafe.
+ * <p>
+ * Clause bodies must be Predicates or AndOperators over them.
+ *
+ * @author recardona
+ */
+public final class WamCompiler {
+
+    /** The code compiled so far. */
+    private int[] code;
+
+    /** The number of ints of code compiled so far. */
+    private int size;
+
+    /** The address of the first int of code. */
+    private int base;
+
+    /** The number of X registers needed by the code compiled so far. */
+    private int registerCount;
+
+    /** The program whose Predicates a query calls, or null while a program is compiled. */
+    private WamProgram program;
+
+    /** The address of the code of each Predicate signature compiled so far. */
+    private HashMap<Pair<Symbol, Integer>, Integer> entries;
+
+    /** The positions of the call operands to patch with each signature's address. */
+    private HashMap<Pair<Symbol, Integer>, List<Integer>> calls;
+
+    /** The register of each Variable of the clause being compiled. */
+    private HashMap<Variable, Integer> registers;
+
+    /** The Variables of the clause being compiled that have been given a value. */
+    private HashSet<Variable> seen;
+
+    /** The next free temporary register of the clause being compiled. */
+    private int nextTemporary;
+
+    /**
+     * Constructs a WamCompiler.
+     *
+     * @param base The address of the first int of code.
+     * @param program The program whose Predicates a query calls, or null to compile a program.
+     */
+    private WamCompiler(int base, WamProgram program) {
+        this.code = new int[1024];
+        this.size = 0;
+        this.base = base;
+        this.registerCount = 0;
+        this.program = program;
+        this.entries = new HashMap<Pair<Symbol, Integer>, Integer>();
+        this.calls = new HashMap<Pair<Symbol, Integer>, List<Integer>>();
+        this.registers = new HashMap<Variable, Integer>();
+        this.seen = new HashSet<Variable>();
+    }
+
+    /**
+     * Compiles the HornClauses and FactTables of a RuleSet into a WamProgram. Goal clauses are
+     * ignored.
+     *
+     * @param rules The RuleSet to compile, not null.
+     * @return the compiled program.
+     * @throws IllegalArgumentException if a clause body is not a Predicate or a conjunction.
+     */
+    public static WamProgram compile(RuleSet rules) {
+        WamCompiler compiler = new WamCompiler(0, null);
+        compiler.emit(Instruction.FAIL); // Address 0 is called for Predicates without clauses.
+
+        // Collect the signatures, in order of first appearance.
+        LinkedHashSet<Pair<Symbol, Integer>> signatures = new LinkedHashSet<Pair<Symbol, Integer>>();
+        for(int index = 0; index < rules.getRuleCount(); index++) {
+            Predicate consequent = rules.getRule(index).getConsequent();
+            if(consequent != null) {
+                signatures.add(Pair.of(consequent.getSymbol(), consequent.getArity()));
+            }
+        }
+        for(FactTable factTable : rules.getFactTables()) {
+            signatures.add(factTable.getSignature());
+        }
+
+        List<FactTable> factTables = new ArrayList<FactTable>();
+        for(Pair<Symbol, Integer> signature : signatures) {
+            FactTable factTable = rules.getFactTable(signature.getLeft(), signature.getRight());
+            int tableIndex = -1;
+            if(factTable != null) {
+                tableIndex = factTables.size();
+                factTables.add(factTable);
+            }
+            compiler.compilePredicate(signature, rules,
+                    rules.getRuleIndices(signature.getLeft(), signature.getRight()), tableIndex);
+        }
+
+        // Point every call at the code of its Predicate; calls to other Predicates fail.
+        for(Pair<Symbol, Integer> signature : compiler.calls.keySet()) {
+            Integer entry = compiler.entries.get(signature);
+            for(int position : compiler.calls.get(signature)) {
+                compiler.code[position] = (entry == null) ? 0 : entry;
+            }
+        }
+
+        return new WamProgram(Arrays.copyOf(compiler.code, compiler.size), compiler.entries,
+                factTables.toArray(new FactTable[factTables.size()]), compiler.registerCount);
+    }
+
+    /**
+     * Compiles a query against a program. The code of the query follows the code of the program:
+     * it allocates an environment with a permanent register for every Variable of the query,
+     * calls each goal in turn, and yields a solution.
+     *
+     * @param goal The query, a Predicate or a conjunction of Predicates, not null.
+     * @param program The program the query runs against, not null.
+     * @return the compiled query.
+     * @throws IllegalArgumentException if the goal is not a Predicate or a conjunction.
+     */
+    static CompiledQuery compileQuery(Formula goal, WamProgram program) {
+        WamCompiler compiler = new WamCompiler(program.getCodeSize(), program);
+        List<Predicate> goals = new ArrayList<Predicate>();
+        flatten(goal, goals);
+
+        // Every Variable of the query is permanent, so that it can be read when a solution is found.
+        List<Variable> variables = new ArrayList<Variable>();
+        for(Predicate subgoal : goals) {
+            compiler.collectVariables(subgoal, variables);
+        }
+        for(int index = 0; index < variables.size(); index++) {
+            compiler.registers.put(variables.get(index), -index - 1);
+        }
+
+        compiler.nextTemporary = maxArity(goals, 0);
+        compiler.emit(Instruction.ALLOCATE, variables.size());
+        for(Predicate subgoal : goals) {
+            compiler.compileGoal(subgoal);
+            compiler.emit(Instruction.CALL, program.getEntry(subgoal.getSymbol(), subgoal.getArity()));
+        }
+        compiler.emit(Instruction.YIELD);
+        compiler.registerCount = Math.max(compiler.registerCount, compiler.nextTemporary);
+
+        return new CompiledQuery(Arrays.copyOf(compiler.code, compiler.size),
+                variables.toArray(new Variable[variables.size()]), compiler.registerCount);
+    }
+
+    /**
+     * Compiles the code of a Predicate signature: its clauses, then its FactTable.
+     *
+     * @param signature The Symbol and arity of the Predicate.
+     * @param rules The RuleSet the clauses belong to.
+     * @param clauses The positions of the Predicate's clauses in the RuleSet.
+     * @param tableIndex The index of the Predicate's FactTable in the program, or -1 if it has none.
+     */
+    private void compilePredicate(Pair<Symbol, Integer> signature, RuleSet rules, int[] clauses, int tableIndex) {
+        this.entries.put(signature, this.base + this.size);
+        int alternatives = clauses.length + (tableIndex >= 0 ? 1 : 0);
+        int labelPosition = -1;
+
+        for(int alternative = 0; alternative < alternatives; alternative++) {
+
+            // Point the previous alternative's choice instruction here.
+            if(labelPosition >= 0) {
+                this.code[labelPosition] = this.base + this.size;
+            }
+
+            if(alternatives > 1) {
+                if(alternative == 0) {
+                    this.emit(Instruction.TRY_ME_ELSE, 0, signature.getRight());
+                    labelPosition = this.size - 2;
+                }
+                else if(alternative < alternatives - 1) {
+                    this.emit(Instruction.RETRY_ME_ELSE, 0);
+                    labelPosition = this.size - 1;
+                }
+                else {
+                    this.emit(Instruction.TRUST_ME);
+                }
+            }
+
+            if(alternative < clauses.length) {
+                this.compileClause(rules.getRule(clauses[alternative]));
+            }
+            else {
+                this.emit(Instruction.FACTS, tableIndex, signature.getRight());
+                this.emit(Instruction.RETRY_FACTS, tableIndex, signature.getRight());
+            }
+        }
+    }
+
+    /**
+     * Compiles a definite clause or a fact.
+     *
+     * @param clause The HornClause to compile.
+     */
+    private void compileClause(HornClause clause) {
+        Predicate head = clause.getConsequent();
+        List<Predicate> body = new ArrayList<Predicate>();
+        if(clause.getAntecedent() != null) {
+            flatten(clause.getAntecedent(), body);
+        }
+
+        // Variables are permanent if they occur in more than one chunk: the head and the first
+        // goal form the first chunk, and every later goal forms its own.
+        this.registers.clear();
+        this.seen.clear();
+        HashMap<Variable, Integer> chunks = new HashMap<Variable, Integer>();
+        List<Variable> permanent = new ArrayList<Variable>();
+        for(int goal = -1; goal < body.size(); goal++) {
+            List<Variable> variables = new ArrayList<Variable>();
+            this.collectVariables((goal < 0) ? head : body.get(goal), variables);
+            int chunk = Math.max(goal, 0);
+            for(Variable variable : variables) {
+                Integer firstChunk = chunks.get(variable);
+                if(firstChunk == null) {
+                    chunks.put(variable, chunk);
+                }
+                else if(firstChunk != chunk && !this.registers.containsKey(variable)) {
+                    this.registers.put(variable, -permanent.size() - 1);
+                    permanent.add(variable);
+                }
+            }
+        }
+
+        this.nextTemporary = Math.max(head.getArity(), maxArity(body, 0));
+        boolean hasEnvironment = body.size() > 1;
+        if(hasEnvironment) {
+            this.emit(Instruction.ALLOCATE, permanent.size());
+        }
+
+        for(int argument = 0; argument < head.getArity(); argument++) {
+            this.compileGet(head.getTerms().get(argument), argument);
+        }
+
+        if(body.isEmpty()) {
+            this.emit(Instruction.PROCEED);
+        }
+
+        for(int goal = 0; goal < body.size(); goal++) {
+            Predicate subgoal = body.get(goal);
+            this.compileGoal(subgoal);
+            if(goal < body.size() - 1) {
+                this.emitCall(Instruction.CALL, subgoal);
+            }
+            else {
+                if(hasEnvironment) {
+                    this.emit(Instruction.DEALLOCATE);
+                }
+                this.emitCall(Instruction.EXECUTE, subgoal);
+            }
+        }
+
+        this.registerCount = Math.max(this.registerCount, this.nextTemporary);
+    }
+
+    /**
+     * Compiles the unification of a head argument with the argument register that holds it.
+     *
+     * @param term The Term of the head argument.
+     * @param register The X register of the argument.
+     */
+    private void compileGet(Term term, int register) {
+        if(term instanceof Variable) {
+            Variable variable = (Variable) term;
+            int opcode = this.seen.add(variable) ? Instruction.GET_VARIABLE : Instruction.GET_VALUE;
+            this.emit(opcode, this.getRegister(variable), register);
+            return;
+        }
+
+        if(term.isConstant()) {
+            this.emit(Instruction.GET_CONSTANT, term.getSymbol().getId(), register);
+            return;
+        }
+
+        Function function = (Function) term;
+        // Unify the arguments, deferring nested structures to temporary registers.
+        this.emit(Instruction.GET_STRUCTURE, function.getSymbol().getId(), function.getArity(), register);
+        List<Function> nested = new ArrayList<Function>();
+        List<Integer> nestedRegisters = new ArrayList<Integer>();
+        for(Term argument : function.getArguments()) {
+            if(argument instanceof Variable) {
+                Variable variable = (Variable) argument;
+                int opcode = this.seen.add(variable) ? Instruction.UNIFY_VARIABLE : Instruction.UNIFY_VALUE;
+                this.emit(opcode, this.getRegister(variable));
+            }
+            else if(argument.isConstant()) {
+                this.emit(Instruction.UNIFY_CONSTANT, argument.getSymbol().getId());
+            }
+            else {
+                int temporary = this.nextTemporary++;
+                this.emit(Instruction.UNIFY_VARIABLE, temporary);
+                nested.add((Function) argument);
+                nestedRegisters.add(temporary);
+            }
+        }
+
+        for(int index = 0; index < nested.size(); index++) {
+            this.compileGet(nested.get(index), nestedRegisters.get(index));
+        }
+    }
+
+    /**
+     * Compiles the loading of a goal's arguments into the argument registers.
+     *
+     * @param goal The goal.
+     */
+    private void compileGoal(Predicate goal) {
+        for(int argument = 0; argument < goal.getArity(); argument++) {
+            Term term = goal.getTerms().get(argument);
+
+            if(term instanceof Variable) {
+                Variable variable = (Variable) term;
+                int opcode = this.seen.add(variable) ? Instruction.PUT_VARIABLE : Instruction.PUT_VALUE;
+                this.emit(opcode, this.getRegister(variable), argument);
+            }
+            else if(term.isConstant()) {
+                this.emit(Instruction.PUT_CONSTANT, term.getSymbol().getId(), argument);
+            }
+            else {
+                this.compilePut((Function) term, argument);
+            }
+        }
+    }
+
+    /**
+     * Compiles the building of a structure on the heap, after the structures nested in it.
+     *
+     * @param function The structure to build.
+     * @param register The X register to build it in.
+     */
+    private void compilePut(Function function, int register) {
+        int[] nestedRegisters = new int[function.getArity()];
+        for(int index = 0; index < function.getArity(); index++) {
+            Term argument = function.getArguments().get(index);
+            if(argument instanceof Function && !((Function) argument).isConstant()) {
+                nestedRegisters[index] = this.nextTemporary++;
+                this.compilePut((Function) argument, nestedRegisters[index]);
+            }
+        }
+
+        this.emit(Instruction.PUT_STRUCTURE, function.getSymbol().getId(), function.getArity(), register);
+        for(int index = 0; index < function.getArity(); index++) {
+            Term argument = function.getArguments().get(index);
+            if(argument instanceof Variable) {
+                Variable variable = (Variable) argument;
+                int opcode = this.seen.add(variable) ? Instruction.SET_VARIABLE : Instruction.SET_VALUE;
+                this.emit(opcode, this.getRegister(variable));
+            }
+            else if(argument.isConstant()) {
+                this.emit(Instruction.SET_CONSTANT, argument.getSymbol().getId());
+            }
+            else {
+                this.emit(Instruction.SET_VALUE, nestedRegisters[index]);
+            }
+        }
+    }
+
+    /**
+     * Returns the register of a Variable of the clause being compiled, giving it the next
+     * temporary register if it has none yet.
+     *
+     * @param variable The Variable.
+     * @return the register operand of the Variable.
+     */
+    private int getRegister(Variable variable) {
+        Integer register = this.registers.get(variable);
+        if(register == null) {
+            register = this.nextTemporary++;
+            this.registers.put(variable, register);
+        }
+        return register;
+    }
+
+    /**
+     * Adds the Variables of a Predicate to a list, in order of appearance, without repeating any.
+     *
+     * @param predicate The Predicate.
+     * @param variables The list to add the Variables to.
+     */
+    private void collectVariables(Predicate predicate, List<Variable> variables) {
+        for(int argument = 0; argument < predicate.getArity(); argument++) {
+            collectVariables(predicate.getTerms().get(argument), variables);
+        }
+    }
+
+    /**
+     * Adds the Variables of a Term to a list, in order of appearance, without repeating any.
+     *
+     * @param term The Term.
+     * @param variables The list to add the Variables to.
+     */
+    private static void collectVariables(Term term, List<Variable> variables) {
+        if(term instanceof Variable) {
+            if(!variables.contains(term)) {
+                variables.add((Variable) term);
+            }
+        }
+        else if(!term.isConstant()) {
+            for(Term argument : ((Function) term).getArguments()) {
+                collectVariables(argument, variables);
+            }
+        }
+    }
+
+    /**
+     * Emits a call or execute instruction for a goal. The address of the goal's Predicate is
+     * filled in once every Predicate is compiled, unless a query is being compiled.
+     *
+     * @param opcode CALL or EXECUTE.
+     * @param goal The goal to call.
+     */
+    private void emitCall(int opcode, Predicate goal) {
+        Pair<Symbol, Integer> signature = Pair.of(goal.getSymbol(), goal.getArity());
+        if(this.program != null) {
+            this.emit(opcode, this.program.getEntry(goal.getSymbol(), goal.getArity()));
+            return;
+        }
+
+        List<Integer> positions = this.calls.get(signature);
+        if(positions == null) {
+            positions = new ArrayList<Integer>();
+            this.calls.put(signature, positions);
+        }
+        this.emit(opcode, 0);
+        positions.add(this.size - 1);
+    }
+
+    /**
+     * Appends an instruction to the code.
+     *
+     * @param opcode The opcode of the instruction.
+     * @param operands The operands of the instruction.
+     */
+    private void emit(int opcode, int... operands) {
+        if(this.size + 1 + operands.length > this.code.length) {
+            this.code = Arrays.copyOf(this.code, 2 * this.code.length + operands.length);
+        }
+        this.code[this.size++] = opcode;
+        for(int operand : operands) {
+            this.code[this.size++] = operand;
+        }
+    }
+
+    /**
+     * Adds the Predicates of a clause body or query to a list, flattening nested conjunctions.
+     *
+     * @param formula The Formula.
+     * @param goals The list to add the Predicates to.
+     * @throws IllegalArgumentException if the Formula is not a Predicate or a conjunction.
+     */
+    private static void flatten(Formula formula, List<Predicate> goals) {
+        if(formula instanceof Predicate) {
+            goals.add((Predicate) formula);
+        }
+        else if(formula instanceof AndOperator) {
+            AndOperator conjunction = (AndOperator) formula;
+            for(int index = 0; index < conjunction.operandCount(); index++) {
+                flatten(conjunction.getOperand(index), goals);
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Cannot compile " + formula
+                    + ": only Predicates and conjunctions of Predicates are supported.");
+        }
+    }
+
+    /**
+     * Returns the largest arity of a list of goals.
+     *
+     * @param goals The goals.
+     * @param minimum The value to return if no goal has a larger arity.
+     * @return the largest arity.
+     */
+    private static int maxArity(List<Predicate> goals, int minimum) {
+        int maxArity = minimum;
+        for(Predicate goal : goals) {
+            maxArity = Math.max(maxArity, goal.getArity());
+        }
+        return maxArity;
+    }
+}
@@ -0,0 +1,770 @@
+package rogel.io.fopl.proof.wam;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+/**
+ * A WamMachine runs the code of a WamProgram to enumerate the solutions to a query. Like the root
+ * of a proof tree, each call to {@code nextSolution} resumes the search where the previous one
+ * stopped, and returns a Substitution that binds the Variables of the query.
+ * <p>
+ * The machine keeps its terms, environments, choice points and trail in int arrays. A heap cell
+ * is a tag in its two low bits and a value in the others: an unbound Variable is a reference to
+ * itself, a bound one refers to its value, a constant holds a Symbol id, and a structure refers
+ * to a functor cell, which is followed by the structure's arity and arguments. Like the Warren
+ * Abstract Machine, and unlike the proof tree solver, the machine does not perform the occurs
+ * check.
+ * <p>
+ * A WamMachine is not thread-safe, but several machines may run the same program at once.
+ *
+ * @author recardona
+ */
+public class WamMachine {
+
+    // The tags of heap cells.
+    private static final int REF = 0;
+    private static final int STR = 1;
+    private static final int CON = 2;
+    private static final int FUN = 3;
+
+    /** The mask of the tag bits of a cell. */
+    private static final int TAG_MASK = 3;
+
+    /** The Symbol of the Variables created for unbound terms of a solution. */
+    private static final Symbol ANONYMOUS = Symbol.get("_");
+
+    /** The program being run. */
+    private WamProgram program;
+
+    /** The code of the program. */
+    private int[] code;
+
+    /** The code of the query. */
+    private int[] queryCode;
+
+    /** The address of the first int of the query's code. */
+    private int queryBase;
+
+    /** The Variables of the query, by permanent register. */
+    private Variable[] queryVariables;
+
+    /** The heap of terms. */
+    private int[] heap;
+
+    /** The address of the next free heap cell (register H). */
+    private int h;
+
+    /** The stack of environments and choice points. */
+    private int[] stack;
+
+    /** The addresses of the bound Variables that must be reset on backtracking. */
+    private int[] trail;
+
+    /** The number of addresses on the trail (register TR). */
+    private int tr;
+
+    /** The X registers, whose first ones are the argument registers. */
+    private int[] x;
+
+    /** The pairs of cells left to unify. */
+    private int[] pushdownList;
+
+    /** The cursors of the FactTable choice points, by the slot stored in the choice point. */
+    private FactCursor[] cursors;
+
+    /** The number of cursors in use. */
+    private int cursorCount;
+
+    /** The address of the next instruction (register P). */
+    private int p;
+
+    /** The address of the continuation (register CP). */
+    private int cp;
+
+    /** The position of the current environment, or -1 (register E). */
+    private int e;
+
+    /** The position of the newest choice point, or -1 (register B). */
+    private int b;
+
+    /** The heap address of the newest choice point (register HB). */
+    private int hb;
+
+    /** The heap address of the next argument of the structure being read (register S). */
+    private int s;
+
+    /** Whether the structure of the current {@code get_structure} is being built, not read. */
+    private boolean writeMode;
+
+    /** Whether the first solution has been searched for. */
+    private boolean started;
+
+    /** Whether every solution has been found. */
+    private boolean exhausted;
+
+    /**
+     * Constructs a WamMachine that runs a compiled query against a program.
+     *
+     * @param program The program.
+     * @param query The query, compiled against the program.
+     */
+    WamMachine(WamProgram program, CompiledQuery query) {
+        this.program = program;
+        this.code = program.getCode();
+        this.queryCode = query.code;
+        this.queryBase = this.code.length;
+        this.queryVariables = query.variables;
+        this.heap = new int[1024];
+        this.stack = new int[1024];
+        this.trail = new int[256];
+        this.x = new int[Math.max(1, Math.max(program.getRegisterCount(), query.registerCount))];
+        this.pushdownList = new int[64];
+        this.cursors = new FactCursor[16];
+        this.p = this.queryBase;
+        this.cp = -1;
+        this.e = -1;
+        this.b = -1;
+    }
+
+    /**
+     * Computes the next solution to the query, if it exists.
+     *
+     * @return the Substitution that binds the Variables of the query in the next solution, or
+     *     null if there are no more solutions.
+     */
+    public Substitution nextSolution() {
+        if(this.exhausted) {
+            return null;
+        }
+
+        if(this.started && !this.backtrack()) {
+            this.exhausted = true;
+            return null;
+        }
+
+        this.started = true;
+        if(!this.run()) {
+            this.exhausted = true;
+            return null;
+        }
+        return this.getSolution();
+    }
+
+    /**
+     * Runs instructions until a solution is found, or every alternative fails.
+     *
+     * @return true if a solution was found.
+     */
+    private boolean run() {
+        while(true) {
+            int opcode = this.fetch(this.p);
+            boolean succeeded = true;
+
+            switch(opcode) {
+
+            case Instruction.FAIL:
+                succeeded = false;
+                break;
+
+            case Instruction.PUT_VARIABLE: {
+                int cell = this.newVariable();
+                this.setRegister(this.fetch(this.p + 1), cell);
+                this.x[this.fetch(this.p + 2)] = cell;
+                this.p += 3;
+                break;
+            }
+
+            case Instruction.PUT_VALUE:
+                this.x[this.fetch(this.p + 2)] = this.getRegister(this.fetch(this.p + 1));
+                this.p += 3;
+                break;
+
+            case Instruction.PUT_CONSTANT:
+                this.x[this.fetch(this.p + 2)] = constant(this.fetch(this.p + 1));
+                this.p += 3;
+                break;
+
+            case Instruction.PUT_STRUCTURE:
+                this.x[this.fetch(this.p + 3)] = this.newStructure(this.fetch(this.p + 1), this.fetch(this.p + 2));
+                this.p += 4;
+                break;
+
+            case Instruction.SET_VARIABLE:
+                this.setRegister(this.fetch(this.p + 1), this.newVariable());
+                this.p += 2;
+                break;
+
+            case Instruction.SET_VALUE:
+                this.push(this.getRegister(this.fetch(this.p + 1)));
+                this.p += 2;
+                break;
+
+            case Instruction.SET_CONSTANT:
+                this.push(constant(this.fetch(this.p + 1)));
+                this.p += 2;
+                break;
+
+            case Instruction.GET_VARIABLE:
+                this.setRegister(this.fetch(this.p + 1), this.x[this.fetch(this.p + 2)]);
+                this.p += 3;
+                break;
+
+            case Instruction.GET_VALUE:
+                succeeded = this.unify(this.getRegister(this.fetch(this.p + 1)), this.x[this.fetch(this.p + 2)]);
+                this.p += 3;
+                break;
+
+            case Instruction.GET_CONSTANT:
+                succeeded = this.unifyConstant(this.x[this.fetch(this.p + 2)], this.fetch(this.p + 1));
+                this.p += 3;
+                break;
+
+            case Instruction.GET_STRUCTURE: {
+                int symbolId = this.fetch(this.p + 1);
+                int arity = this.fetch(this.p + 2);
+                int cell = this.deref(this.x[this.fetch(this.p + 3)]);
+                if((cell & TAG_MASK) == REF) {
+                    this.bind(cell, this.newStructure(symbolId, arity));
+                    this.writeMode = true;
+                }
+                else if((cell & TAG_MASK) == STR
+                        && this.heap[cell >>> 2] == functor(symbolId) && this.heap[(cell >>> 2) + 1] == arity) {
+                    this.s = (cell >>> 2) + 2;
+                    this.writeMode = false;
+                }
+                else {
+                    succeeded = false;
+                }
+                this.p += 4;
+                break;
+            }
+
+            case Instruction.UNIFY_VARIABLE:
+                if(this.writeMode) {
+                    this.setRegister(this.fetch(this.p + 1), this.newVariable());
+                }
+                else {
+                    this.setRegister(this.fetch(this.p + 1), this.heap[this.s++]);
+                }
+                this.p += 2;
+                break;
+
+            case Instruction.UNIFY_VALUE:
+                if(this.writeMode) {
+                    this.push(this.getRegister(this.fetch(this.p + 1)));
+                }
+                else {
+                    succeeded = this.unify(this.getRegister(this.fetch(this.p + 1)), this.heap[this.s++]);
+                }
+                this.p += 2;
+                break;
+
+            case Instruction.UNIFY_CONSTANT:
+                if(this.writeMode) {
+                    this.push(constant(this.fetch(this.p + 1)));
+                }
+                else {
+                    succeeded = this.unifyConstant(this.heap[this.s++], this.fetch(this.p + 1));
+                }
+                this.p += 2;
+                break;
+
+            case Instruction.ALLOCATE: {
+                int size = this.fetch(this.p + 1);
+                int environment = this.getStackTop();
+                this.ensureStack(environment + 3 + size);
+                this.stack[environment] = this.e;
+                this.stack[environment + 1] = this.cp;
+                this.stack[environment + 2] = size;
+                this.e = environment;
+                this.p += 2;
+                break;
+            }
+
+            case Instruction.DEALLOCATE:
+                this.cp = this.stack[this.e + 1];
+                this.e = this.stack[this.e];
+                this.p += 1;
+                break;
+
+            case Instruction.CALL:
+                this.cp = this.p + 2;
+                this.p = this.fetch(this.p + 1);
+                break;
+
+            case Instruction.EXECUTE:
+                this.p = this.fetch(this.p + 1);
+                break;
+
+            case Instruction.PROCEED:
+                this.p = this.cp;
+                break;
+
+            case Instruction.TRY_ME_ELSE:
+                this.pushChoicePoint(this.fetch(this.p + 2), this.fetch(this.p + 1), -1);
+                this.p += 3;
+                break;
+
+            case Instruction.RETRY_ME_ELSE:
+                this.restoreChoicePoint();
+                this.stack[this.b + this.stack[this.b] + 4] = this.fetch(this.p + 1);
+                this.p += 2;
+                break;
+
+            case Instruction.TRUST_ME:
+                this.restoreChoicePoint();
+                this.popChoicePoint();
+                this.p += 1;
+                break;
+
+            case Instruction.FACTS:
+                succeeded = this.openFacts(this.program.getFactTable(this.fetch(this.p + 1)), this.fetch(this.p + 2));
+                break;
+
+            case Instruction.RETRY_FACTS:
+                this.restoreChoicePoint();
+                succeeded = this.nextFact(this.program.getFactTable(this.fetch(this.p + 1)), this.fetch(this.p + 2));
+                break;
+
+            case Instruction.YIELD:
+                return true;
+
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcode + " at address " + this.p);
+            }
+
+            if(!succeeded && !this.backtrack()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Opens a cursor over the rows of a FactTable that match the argument registers, pushes a
+     * choice point for it, and unifies the arguments with the first row.
+     *
+     * @param factTable The FactTable.
+     * @param arity The arity of the FactTable.
+     * @return true if a row unified with the arguments.
+     */
+    private boolean openFacts(FactTable factTable, int arity) {
+        int[] pattern = new int[arity];
+        for(int argument = 0; argument < arity; argument++) {
+            int cell = this.deref(this.x[argument]);
+            if((cell & TAG_MASK) == REF) {
+                pattern[argument] = FactTable.UNBOUND;
+            }
+            else if((cell & TAG_MASK) == CON) {
+                pattern[argument] = cell >>> 2;
+            }
+            else {
+                return false; // Facts only hold constants.
+            }
+        }
+
+        if(this.cursorCount == this.cursors.length) {
+            this.cursors = Arrays.copyOf(this.cursors, 2 * this.cursorCount);
+        }
+        this.cursors[this.cursorCount] = factTable.match(pattern);
+        this.pushChoicePoint(arity, this.p + 3, this.cursorCount++);
+        return this.nextFact(factTable, arity);
+    }
+
+    /**
+     * Unifies the argument registers with the next row of the newest choice point's cursor, and
+     * proceeds. The choice point is popped once its cursor has no more rows.
+     *
+     * @param factTable The FactTable of the cursor.
+     * @param arity The arity of the FactTable.
+     * @return true if a row unified with the arguments.
+     */
+    private boolean nextFact(FactTable factTable, int arity) {
+        FactCursor cursor = this.cursors[this.stack[this.b + arity + 7]];
+        for(int row = cursor.nextRow(); row != FactCursor.NO_MORE_ROWS; row = cursor.nextRow()) {
+            boolean unified = true;
+            for(int column = 0; column < arity && unified; column++) {
+                unified = this.unifyConstant(this.x[column], factTable.getSymbolId(row, column));
+            }
+
+            if(unified) {
+                this.p = this.cp;
+                return true;
+            }
+
+            // A Variable repeated in the goal may not match the row: undo and try the next one.
+            this.unwindTrail(this.stack[this.b + arity + 5]);
+        }
+
+        this.popChoicePoint();
+        return false;
+    }
+
+    /**
+     * Pushes a choice point that saves the machine's state and the argument registers.
+     *
+     * @param arity The number of argument registers to save.
+     * @param alternative The address of the next alternative.
+     * @param cursorSlot The slot of the choice point's FactCursor, or -1 if it has none.
+     */
+    private void pushChoicePoint(int arity, int alternative, int cursorSlot) {
+        int choicePoint = this.getStackTop();
+        this.ensureStack(choicePoint + arity + 8);
+        this.stack[choicePoint] = arity;
+        System.arraycopy(this.x, 0, this.stack, choicePoint + 1, arity);
+        this.stack[choicePoint + arity + 1] = this.e;
+        this.stack[choicePoint + arity + 2] = this.cp;
+        this.stack[choicePoint + arity + 3] = this.b;
+        this.stack[choicePoint + arity + 4] = alternative;
+        this.stack[choicePoint + arity + 5] = this.tr;
+        this.stack[choicePoint + arity + 6] = this.h;
+        this.stack[choicePoint + arity + 7] = cursorSlot;
+        this.b = choicePoint;
+        this.hb = this.h;
+    }
+
+    /**
+     * Restores the machine's state and argument registers from the newest choice point.
+     */
+    private void restoreChoicePoint() {
+        int arity = this.stack[this.b];
+        System.arraycopy(this.stack, this.b + 1, this.x, 0, arity);
+        this.e = this.stack[this.b + arity + 1];
+        this.cp = this.stack[this.b + arity + 2];
+        this.unwindTrail(this.stack[this.b + arity + 5]);
+        this.h = this.stack[this.b + arity + 6];
+    }
+
+    /**
+     * Pops the newest choice point, releasing its cursor.
+     */
+    private void popChoicePoint() {
+        int arity = this.stack[this.b];
+        int cursorSlot = this.stack[this.b + arity + 7];
+        if(cursorSlot >= 0) {
+            this.cursors[cursorSlot] = null;
+            this.cursorCount--;
+        }
+
+        this.b = this.stack[this.b + arity + 3];
+        this.hb = (this.b >= 0) ? this.stack[this.b + this.stack[this.b] + 6] : 0;
+    }
+
+    /**
+     * Resumes the newest choice point's next alternative.
+     *
+     * @return true if there was a choice point, false if the search is over.
+     */
+    private boolean backtrack() {
+        if(this.b < 0) {
+            return false;
+        }
+        this.p = this.stack[this.b + this.stack[this.b] + 4];
+        return true;
+    }
+
+    /**
+     * Resets the Variables bound since the trail had the given size.
+     *
+     * @param size The size of the trail to go back to.
+     */
+    private void unwindTrail(int size) {
+        while(this.tr > size) {
+            int address = this.trail[--this.tr];
+            this.heap[address] = address << 2 | REF;
+        }
+    }
+
+    /**
+     * Unifies two cells, binding Variables as needed.
+     *
+     * @param first The first cell.
+     * @param second The second cell.
+     * @return true if the cells unify.
+     */
+    private boolean unify(int first, int second) {
+        int top = 0;
+        this.pushdownList[top++] = first;
+        this.pushdownList[top++] = second;
+
+        while(top > 0) {
+            int cell1 = this.deref(this.pushdownList[--top]);
+            int cell2 = this.deref(this.pushdownList[--top]);
+            if(cell1 == cell2) {
+                continue;
+            }
+
+            if((cell1 & TAG_MASK) == REF || (cell2 & TAG_MASK) == REF) {
+                this.bind(cell1, cell2);
+                continue;
+            }
+
+            if((cell1 & TAG_MASK) != STR || (cell2 & TAG_MASK) != STR) {
+                return false; // Different constants, or a constant and a structure.
+            }
+
+            int address1 = cell1 >>> 2;
+            int address2 = cell2 >>> 2;
+            int arity = this.heap[address1 + 1];
+            if(this.heap[address1] != this.heap[address2] || arity != this.heap[address2 + 1]) {
+                return false;
+            }
+
+            if(top + 2 * arity > this.pushdownList.length) {
+                this.pushdownList = Arrays.copyOf(this.pushdownList, 2 * (top + 2 * arity));
+            }
+            for(int argument = 0; argument < arity; argument++) {
+                this.pushdownList[top++] = this.heap[address1 + 2 + argument];
+                this.pushdownList[top++] = this.heap[address2 + 2 + argument];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unifies a cell with a constant.
+     *
+     * @param cell The cell.
+     * @param symbolId The Symbol id of the constant.
+     * @return true if the cell unifies with the constant.
+     */
+    private boolean unifyConstant(int cell, int symbolId) {
+        cell = this.deref(cell);
+        if((cell & TAG_MASK) == REF) {
+            this.bindAddress(cell >>> 2, constant(symbolId));
+            return true;
+        }
+        return cell == constant(symbolId);
+    }
+
+    /**
+     * Binds an unbound Variable to another cell. When both cells are unbound Variables, the newer
+     * one is bound to the older one, so that no older cell refers to a newer one.
+     *
+     * @param first A dereferenced cell.
+     * @param second Another dereferenced cell; at least one of the two is an unbound Variable.
+     */
+    private void bind(int first, int second) {
+        if((first & TAG_MASK) == REF && ((second & TAG_MASK) != REF || (second >>> 2) < (first >>> 2))) {
+            this.bindAddress(first >>> 2, second);
+        }
+        else {
+            this.bindAddress(second >>> 2, first);
+        }
+    }
+
+    /**
+     * Binds the unbound Variable at a heap address to a cell, trailing it if it is older than the
+     * newest choice point.
+     *
+     * @param address The heap address of the Variable.
+     * @param value The cell to bind it to.
+     */
+    private void bindAddress(int address, int value) {
+        this.heap[address] = value;
+        if(address < this.hb) {
+            if(this.tr == this.trail.length) {
+                this.trail = Arrays.copyOf(this.trail, 2 * this.tr);
+            }
+            this.trail[this.tr++] = address;
+        }
+    }
+
+    /**
+     * Follows the references of a cell to its value.
+     *
+     * @param cell The cell.
+     * @return the first cell that is not a bound Variable.
+     */
+    private int deref(int cell) {
+        while((cell & TAG_MASK) == REF) {
+            int value = this.heap[cell >>> 2];
+            if(value == cell) {
+                break;
+            }
+            cell = value;
+        }
+        return cell;
+    }
+
+    /**
+     * Creates an unbound Variable on the heap.
+     *
+     * @return the cell of the Variable.
+     */
+    private int newVariable() {
+        int cell = this.h << 2 | REF;
+        this.push(cell);
+        return cell;
+    }
+
+    /**
+     * Starts a structure on the heap. Its arguments are the cells pushed next.
+     *
+     * @param symbolId The Symbol id of the structure's functor.
+     * @param arity The arity of the structure.
+     * @return the cell of the structure.
+     */
+    private int newStructure(int symbolId, int arity) {
+        int cell = this.h << 2 | STR;
+        this.push(functor(symbolId));
+        this.push(arity);
+        return cell;
+    }
+
+    /**
+     * Pushes a cell on the heap.
+     *
+     * @param cell The cell to push.
+     */
+    private void push(int cell) {
+        if(this.h == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, 2 * this.h);
+        }
+        this.heap[this.h++] = cell;
+    }
+
+    /**
+     * Returns the value of a register.
+     *
+     * @param register An X register, or a Y register {@code -r - 1} of the current environment.
+     * @return the cell in the register.
+     */
+    private int getRegister(int register) {
+        return (register >= 0) ? this.x[register] : this.stack[this.e + 2 - register];
+    }
+
+    /**
+     * Sets the value of a register.
+     *
+     * @param register An X register, or a Y register {@code -r - 1} of the current environment.
+     * @param cell The cell to put in the register.
+     */
+    private void setRegister(int register, int cell) {
+        if(register >= 0) {
+            this.x[register] = cell;
+        }
+        else {
+            this.stack[this.e + 2 - register] = cell;
+        }
+    }
+
+    /**
+     * Returns the position just above the newest environment and choice point of the stack.
+     *
+     * @return the first free position of the stack.
+     */
+    private int getStackTop() {
+        int environmentTop = (this.e >= 0) ? this.e + 3 + this.stack[this.e + 2] : 0;
+        int choicePointTop = (this.b >= 0) ? this.b + this.stack[this.b] + 8 : 0;
+        return Math.max(environmentTop, choicePointTop);
+    }
+
+    /**
+     * Grows the stack so that it holds at least the given number of ints.
+     *
+     * @param size The number of ints needed.
+     */
+    private void ensureStack(int size) {
+        if(size > this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, Math.max(size, 2 * this.stack.length));
+        }
+    }
+
+    /**
+     * Returns the int of code at the given address, in the program or in the query.
+     *
+     * @param address The address.
+     * @return the int of code.
+     */
+    private int fetch(int address) {
+        return (address < this.queryBase) ? this.code[address] : this.queryCode[address - this.queryBase];
+    }
+
+    /**
+     * Builds the Substitution of the current solution from the permanent registers of the query.
+     * Unbound Variables of the query stay unbound, or are bound to the first Variable of the query
+     * they share a value with.
+     *
+     * @return the Substitution of the current solution.
+     */
+    private Substitution getSolution() {
+        HashMap<Integer, Variable> variables = new HashMap<Integer, Variable>();
+        for(int index = 0; index < this.queryVariables.length; index++) {
+            int cell = this.deref(this.stack[this.e + 3 + index]);
+            if((cell & TAG_MASK) == REF && !variables.containsKey(cell >>> 2)) {
+                variables.put(cell >>> 2, this.queryVariables[index]);
+            }
+        }
+
+        Substitution solution = new Substitution();
+        for(int index = 0; index < this.queryVariables.length; index++) {
+            int cell = this.deref(this.stack[this.e + 3 + index]);
+            if((cell & TAG_MASK) != REF || variables.get(cell >>> 2) != this.queryVariables[index]) {
+                solution.add(this.queryVariables[index], this.toTerm(cell, variables));
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Builds the Term of a cell.
+     *
+     * @param cell The cell.
+     * @param variables The Variable of each unbound heap cell seen so far, by address.
+     * @return the Term the cell stands for.
+     */
+    private Term toTerm(int cell, HashMap<Integer, Variable> variables) {
+        cell = this.deref(cell);
+        switch(cell & TAG_MASK) {
+
+        case REF: {
+            Variable variable = variables.get(cell >>> 2);
+            if(variable == null) {
+                variable = new Variable(ANONYMOUS);
+                variables.put(cell >>> 2, variable);
+            }
+            return variable;
+        }
+
+        case CON:
+            return Term.constant(Symbol.getById(cell >>> 2));
+
+        default: {
+            int address = cell >>> 2;
+            Term[] arguments = new Term[this.heap[address + 1]];
+            for(int argument = 0; argument < arguments.length; argument++) {
+                arguments[argument] = this.toTerm(this.heap[address + 2 + argument], variables);
+            }
+            return new Function(Symbol.getById(this.heap[address] >>> 2), arguments);
+        }
+        }
+    }
+
+    /**
+     * Returns the cell of a constant.
+     *
+     * @param symbolId The Symbol id of the constant.
+     * @return the cell of the constant.
+     */
+    private static int constant(int symbolId) {
+        return symbolId << 2 | CON;
+    }
+
+    /**
+     * Returns the functor cell of a structure.
+     *
+     * @param symbolId The Symbol id of the structure's functor.
+     * @return the functor cell.
+     */
+    private static int functor(int symbolId) {
+        return symbolId << 2 | FUN;
+    }
+}
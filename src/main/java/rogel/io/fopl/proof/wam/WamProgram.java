@@ -0,0 +1,141 @@
+package rogel.io.fopl.proof.wam;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.proof.facts.FactTable;
+
+/**
+ * A WamProgram is a RuleSet compiled by the WamCompiler: the code of every Predicate signature,
+ * the address where each one starts, and the FactTables its code reads. A WamProgram is immutable,
+ * and may be queried by several WamMachines at once.
+ *
+ * @author recardona
+ */
+public class WamProgram {
+
+    /** The code of every Predicate. */
+    private int[] code;
+
+    /** The address of the code of each Predicate signature. */
+    private HashMap<Pair<Symbol, Integer>, Integer> entries;
+
+    /** The FactTables read by {@code facts} instructions, by index. */
+    private FactTable[] factTables;
+
+    /** The number of X registers the code needs. */
+    private int registerCount;
+
+    /**
+     * Constructs a WamProgram.
+     *
+     * @param code The code of every Predicate.
+     * @param entries The address of the code of each Predicate signature.
+     * @param factTables The FactTables read by the code, by index.
+     * @param registerCount The number of X registers the code needs.
+     */
+    WamProgram(int[] code, HashMap<Pair<Symbol, Integer>, Integer> entries, FactTable[] factTables,
+            int registerCount) {
+        this.code = code;
+        this.entries = entries;
+        this.factTables = factTables;
+        this.registerCount = registerCount;
+    }
+
+    /**
+     * Returns a WamMachine that enumerates the solutions to the parameter goal.
+     *
+     * @param goal The goal, a Predicate or a conjunction of Predicates, not null.
+     * @return a WamMachine over the solutions to the goal.
+     * @throws IllegalArgumentException if the goal is not a Predicate or a conjunction.
+     */
+    public WamMachine solve(Formula goal) {
+        return new WamMachine(this, WamCompiler.compileQuery(goal, this));
+    }
+
+    /**
+     * Returns the number of ints of code in this program.
+     *
+     * @return the size of this program's code.
+     */
+    public int getCodeSize() {
+        return this.code.length;
+    }
+
+    /**
+     * Returns the code of this program.
+     *
+     * @return the code of every Predicate.
+     */
+    int[] getCode() {
+        return this.code;
+    }
+
+    /**
+     * Returns the address of the code of a Predicate signature.
+     *
+     * @param predicateSymbol The Symbol of the Predicate.
+     * @param arity The arity of the Predicate.
+     * @return the address of the Predicate's code, or the address of a {@code fail} instruction
+     *     if this program has no code for the Predicate.
+     */
+    int getEntry(Symbol predicateSymbol, int arity) {
+        Integer entry = this.entries.get(Pair.of(predicateSymbol, arity));
+        return (entry == null) ? 0 : entry;
+    }
+
+    /**
+     * Returns the FactTable with the given index.
+     *
+     * @param index The index of the FactTable, as given to a {@code facts} instruction.
+     * @return the FactTable.
+     */
+    FactTable getFactTable(int index) {
+        return this.factTables[index];
+    }
+
+    /**
+     * Returns the number of X registers the code of this program needs.
+     *
+     * @return the number of X registers.
+     */
+    int getRegisterCount() {
+        return this.registerCount;
+    }
+
+    /**
+     * Returns a listing of this program's code, one instruction per line, with the signature of
+     * each Predicate before its code.
+     *
+     * @return the disassembled code.
+     */
+    @Override
+    public String toString() {
+        TreeMap<Integer, String> labels = new TreeMap<Integer, String>();
+        for(Map.Entry<Pair<Symbol, Integer>, Integer> entry : this.entries.entrySet()) {
+            labels.put(entry.getValue(), entry.getKey().getLeft() + "/" + entry.getKey().getRight());
+        }
+
+        StringBuilder builder = new StringBuilder();
+        int address = 0;
+        while(address < this.code.length) {
+            if(labels.containsKey(address)) {
+                builder.append(labels.get(address)).append(":\n");
+            }
+
+            int opcode = this.code[address];
+            builder.append(String.format("%6d  %s", address, Instruction.NAMES[opcode]));
+            for(int operand = 1; operand <= Instruction.OPERAND_COUNTS[opcode]; operand++) {
+                builder.append(operand == 1 ? " " : ", ").append(this.code[address + operand]);
+            }
+            builder.append('\n');
+            address += 1 + Instruction.OPERAND_COUNTS[opcode];
+        }
+        return builder.toString();
+    }
+}
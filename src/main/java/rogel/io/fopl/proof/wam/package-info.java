@@ -0,0 +1,8 @@
+/**
+ * Contains a compiler that translates a RuleSet into the instructions of an abstract machine in
+ * the style of the Warren Abstract Machine, and the machine that runs them. The machine answers
+ * the same queries as the proof tree solver, without interpreting HornClause objects.
+ *
+ * @author recardona
+ */
+package rogel.io.fopl.proof.wam;
@@ -0,0 +1,79 @@
+package rogel.io.fopl.terms;
+
+/**
+ * A FloatConstant is a NumericConstant whose value is a double, such as {@code 2.5} or
+ * {@code 1.0E-3}. A FloatConstant never equals an IntegerConstant, even one with the same value.
+ *
+ * @author recardona
+ */
+public final class FloatConstant extends NumericConstant {
+
+    /** The value of this FloatConstant. */
+    private final double value;
+
+    /**
+     * Constructs a FloatConstant with the given value.
+     *
+     * @param value The value of the FloatConstant.
+     */
+    public FloatConstant(double value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the value of this FloatConstant.
+     *
+     * @return the value.
+     */
+    public double doubleValue() {
+        return this.value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.terms.NumericConstant#getValue()
+     */
+    @Override
+    public Number getValue() {
+        return this.value;
+    }
+
+    /**
+     * Compares this FloatConstant to the parameter object. The result is true if and only if the
+     * argument is another FloatConstant with the same value, as compared by
+     * {@link Double#equals(Object)}.
+     *
+     * @param obj The object to compare this FloatConstant against.
+     * @return true if the given object is a FloatConstant with the same value, false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof FloatConstant)) {
+            return false;
+        }
+        return Double.doubleToLongBits(this.value) == Double.doubleToLongBits(((FloatConstant) obj).value);
+    }
+
+    /**
+     * Returns a hash code for this FloatConstant, computed as the hash of its value; i.e.
+     * {@code Double.valueOf(doubleValue()).hashCode()}.
+     *
+     * @return a hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(this.value);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * Returns a String representation of this FloatConstant, which is its numeral as written by
+     * {@link Double#toString(double)}.
+     *
+     * @return a String representation of this object.
+     */
+    @Override
+    public String toString() {
+        return Double.toString(this.value);
+    }
+}
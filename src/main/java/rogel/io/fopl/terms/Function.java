@@ -16,6 +16,11 @@ import rogel.io.util.VarargsUtils;
 /**
  * A Function is a mapping between a set of inputs and a set of outputs. In FOPL, the inputs and 
  * outputs are all Terms. 
+ * <p>
+ * A constant Function named by a numeral denotes the number the numeral writes (see
+ * {@link #getNumber()}): it is given the Symbol of the number's canonical numeral, and unifies
+ * with the NumericConstant of that number, so that clauses, FactTables and built-in predicates
+ * agree on it however the number was written.
  * @author recardona
  */
 public final class Function extends Term {
@@ -32,6 +37,9 @@ public final class Function extends Term {
     /** The underlying relation of this Function object. */
     private HashMap<List<Term>, Term> relation;
     
+    /** The number this constant Function's numeral writes, or null if it is not a numeral. */
+    private NumericConstant number;
+    
     /**
      * Constructs an n-ary Function with the given name. If the name is a String
      * that did not already exist within the domain of discourse (i.e. was 
@@ -56,14 +64,19 @@ public final class Function extends Term {
      *     null.
      * @param terms The parameters to this Function, not null.
      */
-    private Function(Symbol symbol, Term... terms) {
+    public Function(Symbol symbol, Term... terms) {
         super(symbol);
         this.arity = terms.length;
-        this.signature = Pair.of(this.symbol, this.arity);
                 
         // if the arity is 0, define arguments and the function itself as null.
         if(this.arity == 0) {
             this.arguments = null;
+            
+            // A numeral is named by the Symbol of the number it writes, however it is written.
+            this.number = NumericConstant.valueOf(this.symbol.toString());
+            if(this.number != null) {
+                this.symbol = this.number.getSymbol();
+            }
         }
         
         else {
@@ -71,6 +84,7 @@ public final class Function extends Term {
             this.arguments = Arrays.asList(terms);
             this.relation = new HashMap<List<Term>, Term>();    // Declare a new relation.    
         }
+        this.signature = Pair.of(this.symbol, this.arity);
     }
     
     /**
@@ -161,6 +175,7 @@ public final class Function extends Term {
      * 
      * @return true if this Function has no arguments attached.
      */
+    @Override
     public boolean isConstant() {
         return (this.arity == 0);
     }
@@ -185,6 +200,17 @@ public final class Function extends Term {
         return this.arguments;
     }
     
+    /**
+     * Returns the number this Function denotes, if it is a constant named by a numeral (see
+     * {@link NumericConstant#valueOf(String)}). Such a Function unifies with the number, and the
+     * built-in predicates take it for the number.
+     * 
+     * @return the NumericConstant the numeral writes, or null if this Function is not a numeral.
+     */
+    public NumericConstant getNumber() {
+        return this.number;
+    }
+    
     /**
      * Returns this Function's signature, defined as a Pair: (Symbol, getArity()).
      * 
@@ -214,6 +240,11 @@ public final class Function extends Term {
             // depending on whether this Function is a constant or not.
             if(this.isConstant()) {
                 
+                // A numeral unifies as the number it writes.
+                if(this.number != null) {
+                    return this.number.unify(unifiable, substitution);
+                }
+                
                 // If they're the same, then any Substitution will make
                 // this and that unify.
                 if(this.equals(unifiable)) {
@@ -0,0 +1,75 @@
+package rogel.io.fopl.terms;
+
+/**
+ * An IntegerConstant is a NumericConstant whose value is a long, such as {@code 42} or {@code -7}.
+ *
+ * @author recardona
+ */
+public final class IntegerConstant extends NumericConstant {
+
+    /** The value of this IntegerConstant. */
+    private final long value;
+
+    /**
+     * Constructs an IntegerConstant with the given value.
+     *
+     * @param value The value of the IntegerConstant.
+     */
+    public IntegerConstant(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the value of this IntegerConstant.
+     *
+     * @return the value.
+     */
+    public long longValue() {
+        return this.value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.terms.NumericConstant#getValue()
+     */
+    @Override
+    public Number getValue() {
+        return this.value;
+    }
+
+    /**
+     * Compares this IntegerConstant to the parameter object. The result is true if and only if the
+     * argument is another IntegerConstant with the same value.
+     *
+     * @param obj The object to compare this IntegerConstant against.
+     * @return true if the given object is an IntegerConstant with the same value, false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof IntegerConstant)) {
+            return false;
+        }
+        return this.value == ((IntegerConstant) obj).value;
+    }
+
+    /**
+     * Returns a hash code for this IntegerConstant, computed as the hash of its value; i.e.
+     * {@code Long.valueOf(longValue()).hashCode()}.
+     *
+     * @return a hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+        return (int) (this.value ^ (this.value >>> 32));
+    }
+
+    /**
+     * Returns a String representation of this IntegerConstant, which is its decimal numeral.
+     *
+     * @return a String representation of this object.
+     */
+    @Override
+    public String toString() {
+        return Long.toString(this.value);
+    }
+}
@@ -0,0 +1,168 @@
+package rogel.io.fopl.terms;
+
+import java.util.HashMap;
+
+import rogel.io.fopl.Expression;
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.Unifiable;
+
+/**
+ * A NumericConstant is a constant Term that denotes a number: an IntegerConstant or a
+ * FloatConstant. Unlike a constant Function, a NumericConstant stores its value rather than a
+ * Symbol, so numbers do not add to the domain of discourse: two NumericConstants are equal, and
+ * unify, if they are of the same type and have the same value.
+ * <p>
+ * A NumericConstant has no Symbol until one is asked for, through {@link Term#getSymbol()}: the
+ * Symbol named by its numeral is then added to the domain of discourse. Only the stores that keep
+ * constants as Symbol ids, such as FactTables, ask for it. A constant Function named by a numeral
+ * has the same Symbol, and unifies with the number (see {@link Function#getNumber()}).
+ *
+ * @author recardona
+ */
+public abstract class NumericConstant extends Term {
+
+    /**
+     * Constructs a NumericConstant, which has no Symbol until one is asked for.
+     */
+    NumericConstant() {
+        super((Symbol) null);
+    }
+
+    /**
+     * Returns the NumericConstant written by a numeral: an optional sign and digits, for an
+     * IntegerConstant, followed by a fraction ({@code 2.5}), an exponent ({@code 1e3}) or both
+     * ({@code 1.0E-3}) for a FloatConstant.
+     *
+     * @param numeral The numeral, not null.
+     * @return the NumericConstant the numeral writes, or null if the String is not a numeral, or
+     *     is an integer too large for a long.
+     */
+    public static NumericConstant valueOf(String numeral) {
+        int length = numeral.length();
+        int position = 0;
+        if(position < length && (numeral.charAt(position) == '-' || numeral.charAt(position) == '+')) {
+            position++;
+        }
+        int digits = skipDigits(numeral, position);
+        if(digits == position) {
+            return null; // A numeral starts with a digit, after its sign.
+        }
+        position = digits;
+
+        boolean integer = true;
+        if(position < length && numeral.charAt(position) == '.') {
+            digits = skipDigits(numeral, position + 1);
+            if(digits == position + 1) {
+                return null;
+            }
+            position = digits;
+            integer = false;
+        }
+        if(position < length && (numeral.charAt(position) == 'e' || numeral.charAt(position) == 'E')) {
+            position++;
+            if(position < length && (numeral.charAt(position) == '-' || numeral.charAt(position) == '+')) {
+                position++;
+            }
+            digits = skipDigits(numeral, position);
+            if(digits == position) {
+                return null;
+            }
+            position = digits;
+            integer = false;
+        }
+        if(position != length) {
+            return null;
+        }
+
+        if(!integer) {
+            return new FloatConstant(Double.parseDouble(numeral));
+        }
+        try {
+            return new IntegerConstant(Long.parseLong(numeral));
+        }
+        catch(NumberFormatException e) {
+            return null; // The integer does not fit in a long.
+        }
+    }
+
+    /**
+     * Returns the position of the first character at or after the given position that is not a
+     * digit.
+     *
+     * @param text The text to scan.
+     * @param position The position to start at.
+     * @return the position after the digits.
+     */
+    private static int skipDigits(String text, int position) {
+        while(position < text.length() && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the value of this NumericConstant.
+     *
+     * @return a Long for an IntegerConstant, or a Double for a FloatConstant.
+     */
+    public abstract Number getValue();
+
+    /**
+     * Returns true, since a number is a constant.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isConstant() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Unifiable#unify(rogel.io.fopl.Unifiable, rogel.io.fopl.Substitution)
+     */
+    @Override
+    public Substitution unify(Unifiable unifiable, Substitution substitution) {
+
+        // If we're trying to unify with a Variable, then just delegate to that
+        // Variable's unify method.
+        if(unifiable instanceof Variable) {
+            return unifiable.unify(this, substitution);
+        }
+
+        // Otherwise, a number only unifies with the same number, which a constant Function may
+        // also denote by its numeral.
+        if(unifiable instanceof Function && ((Function) unifiable).getNumber() != null) {
+            unifiable = ((Function) unifiable).getNumber();
+        }
+        return this.equals(unifiable) ? substitution : null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Unifiable#containsVariable(rogel.io.fopl.terms.Variable, rogel.io.fopl.Substitution)
+     */
+    @Override
+    public boolean containsVariable(Variable variable, Substitution substitution) {
+        return false; // A number cannot contain a Variable.
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Expression#replaceVariables(rogel.io.fopl.Substitution)
+     */
+    @Override
+    public Expression replaceVariables(Substitution substitution) {
+        return this;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see rogel.io.fopl.Expression#standardizeVariablesApart(java.util.HashMap)
+     */
+    @Override
+    public Expression standardizeVariablesApart(HashMap<Variable, Variable> newVariables) {
+        return this;
+    }
+}
@@ -9,7 +9,8 @@ import rogel.io.fopl.formulas.Predicate;
 
 /**
  * Terms name objects or things. As such, Terms require at least one Symbol, to uniquely identify
- * the Term within the domain of discourse.
+ * the Term within the domain of discourse. NumericConstants, which are identified by their values,
+ * are the exception: they are given a Symbol only when one is asked for.
  * 
  * @author recardona
  */
@@ -38,14 +39,47 @@ public abstract class Term implements Unifiable {
     }
     
     /**
-     * Gets the Symbol associated with this Term.
+     * Gets the Symbol associated with this Term. A NumericConstant is given the Symbol named by
+     * its numeral the first time this method is called.
      * 
      * @return the Symbol.
      */
     public final Symbol getSymbol() {
+        if(this.symbol == null) {
+            this.symbol = Symbol.get(this.toString());
+        }
         return this.symbol;
     }
     
+    /**
+     * Returns true if this Term is a constant: a 0-ary Function or a NumericConstant.
+     * 
+     * @return true if this Term is a constant.
+     */
+    public boolean isConstant() {
+        return false;
+    }
+    
+    /**
+     * Returns the constant Term named by the parameter Symbol: a NumericConstant if the Symbol's
+     * name is a numeral, and a 0-ary Function otherwise. This method turns the Symbol ids kept by
+     * FactTables and the other stores of constants back into Terms.
+     * 
+     * @param symbol The Symbol of the constant, not null.
+     * @return the constant Term.
+     * @see NumericConstant#valueOf(String)
+     */
+    public static Term constant(Symbol symbol) {
+        NumericConstant number = NumericConstant.valueOf(symbol.toString());
+        if(number == null) {
+            return new Function(symbol);
+        }
+        if(number.toString().equals(symbol.toString())) {
+            number.symbol = symbol; // The numeral is canonical, so the Symbol need not be looked up again.
+        }
+        return number;
+    }
+    
     /**
      * Compares this Term to the parameter object. The result is true if and only if the argument
      * is another Term with the same symbol.
@@ -78,7 +112,8 @@ public abstract class Term implements Unifiable {
     
     /**
      * Returns a String representation of this Term. Since this class is abstract, the class defers 
-     * to the {@code toString()} methods of the known implementing classes: Function and Variable. 
+     * to the {@code toString()} methods of the known implementing classes: Function and Variable.
+     * NumericConstants override this method.
      * 
      * @return a String representation of this object.
      */
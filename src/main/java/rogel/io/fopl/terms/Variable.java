@@ -1,6 +1,7 @@
 package rogel.io.fopl.terms;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rogel.io.fopl.Expression;
 import rogel.io.fopl.Substitution;
@@ -18,12 +19,13 @@ public final class Variable extends Term {
     
     /** 
      * The Variable class' unique identifier. This number monotonically increases with each
-     * constructed Variable object.
+     * constructed Variable object. It is atomic, so that Variables created on different threads,
+     * for instance while rules are standardized apart by a parallel search, never share an id.
      */
-    private static int nextId = 1;
+    private static final AtomicInteger nextId = new AtomicInteger(1);
     
     /** This Variable's unique identifier. */
-    private int id;
+    private final int id;
 
     /**
      * Constructs a Variable with the given name. If the name is a String that did not 
@@ -43,8 +45,7 @@ public final class Variable extends Term {
      */    
     public Variable(Symbol symbol) {
         super(symbol);
-        this.id = Variable.nextId;
-        Variable.nextId++;
+        this.id = Variable.nextId.getAndIncrement();
     }
 
     /*
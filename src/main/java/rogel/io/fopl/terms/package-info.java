@@ -1,6 +1,7 @@
 /**
  * Contains classes relevant to Terms within FOPL. Terms name objects or things. Terms require at
- * least one Symbol to uniquely identify the Term within the domain of discourse.
+ * least one Symbol to uniquely identify the Term within the domain of discourse, except for the
+ * NumericConstants, which are identified by their values.
  * 
  * @author recardona
  */
@@ -0,0 +1,114 @@
+package rogel.io.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A MappedFile is a file mapped into memory through {@code FileChannel.map}. Because a single 
+ * mapping cannot exceed 2GB, the file is mapped as a sequence of fixed-size segments, and values 
+ * are addressed by their long byte position in the file.
+ * <p>
+ * Ints and longs are never split across segments as long as they are stored at positions that are
+ * multiples of their size.
+ * 
+ * @author recardona
+ */
+public final class MappedFile {
+
+    /** The log2 of the size of each mapped segment, in bytes. */
+    private static final int SEGMENT_SHIFT = 30;
+    
+    /** The mask that extracts a position within a segment from a position within the file. */
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    
+    /** The mapped segments of the file, in order. */
+    private MappedByteBuffer[] segments;
+    
+    /**
+     * Maps the first {@code length} bytes of the channel's file into memory.
+     * 
+     * @param channel The channel of the file to map, not null.
+     * @param mode The mapping mode, either read-only or read-write.
+     * @param length The number of bytes to map.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public MappedFile(FileChannel channel, FileChannel.MapMode mode, long length) throws IOException {
+        int segmentCount = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for(int segment = 0; segment < segmentCount; segment++) {
+            long start = ((long) segment) << SEGMENT_SHIFT;
+            long size = Math.min(SEGMENT_MASK + 1, length - start);
+            this.segments[segment] = channel.map(mode, start, size);
+        }
+    }
+    
+    /**
+     * Returns the byte at the given position of the file.
+     * 
+     * @param position The position of the byte.
+     * @return the byte at the position.
+     */
+    public byte getByte(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+    
+    /**
+     * Returns the int at the given position of the file, which must be a multiple of 4.
+     * 
+     * @param position The position of the int.
+     * @return the int at the position.
+     */
+    public int getInt(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+    
+    /**
+     * Returns the long at the given position of the file, which must be a multiple of 8.
+     * 
+     * @param position The position of the long.
+     * @return the long at the position.
+     */
+    public long getLong(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+    
+    /**
+     * Writes a byte at the given position of the file.
+     * 
+     * @param position The position of the byte.
+     * @param value The byte to write.
+     */
+    public void putByte(long position, byte value) {
+        this.segments[(int) (position >>> SEGMENT_SHIFT)].put((int) (position & SEGMENT_MASK), value);
+    }
+    
+    /**
+     * Writes an int at the given position of the file, which must be a multiple of 4.
+     * 
+     * @param position The position of the int.
+     * @param value The int to write.
+     */
+    public void putInt(long position, int value) {
+        this.segments[(int) (position >>> SEGMENT_SHIFT)].putInt((int) (position & SEGMENT_MASK), value);
+    }
+    
+    /**
+     * Writes a long at the given position of the file, which must be a multiple of 8.
+     * 
+     * @param position The position of the long.
+     * @param value The long to write.
+     */
+    public void putLong(long position, long value) {
+        this.segments[(int) (position >>> SEGMENT_SHIFT)].putLong((int) (position & SEGMENT_MASK), value);
+    }
+    
+    /**
+     * Forces any changes made to the mapped segments to be written to the file.
+     */
+    public void force() {
+        for(MappedByteBuffer segment : this.segments) {
+            segment.force();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package rogel.io.fopl;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.FactCursor;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+
+/**
+ * Contains utility methods shared by the tests.
+ *
+ * @author recardona
+ */
+public final class TestUtils {
+
+    private TestUtils() { /* Private constructor for no initialization. */ }
+
+    /**
+     * Returns a RuleSet of the given clauses, in the order they are given.
+     *
+     * @param clauses The clauses, as read by {@link ClauseReader#parseClause(String)}.
+     * @return the RuleSet.
+     * @throws ParseException if a clause cannot be parsed.
+     */
+    public static RuleSet parse(String... clauses) throws ParseException {
+        HornClause[] rules = new HornClause[clauses.length];
+        for(int index = 0; index < clauses.length; index++) {
+            rules[index] = ClauseReader.parseClause(clauses[index]);
+        }
+        return new RuleSet(rules);
+    }
+
+    /**
+     * Returns every solution the node finds for the goal, in the order they are found, as the goal
+     * with its Variables replaced. The ids of the Variables left in an answer are removed, so that
+     * answers found by different nodes can be compared.
+     *
+     * @param root The node that solves the goal.
+     * @param goal The goal.
+     * @return the answers.
+     */
+    public static List<String> solve(AbstractSolutionNode root, Formula goal) {
+        List<String> answers = new ArrayList<String>();
+        for(Substitution solution = root.nextSolution(); solution != null; solution = root.nextSolution()) {
+            answers.add(goal.replaceVariables(solution).toString().replaceAll("_[0-9]+", ""));
+        }
+        return answers;
+    }
+
+    /**
+     * Returns the Strings of the given objects, in sorted order.
+     *
+     * @param objects The objects.
+     * @return the sorted Strings.
+     */
+    public static List<String> sorted(Iterable<?> objects) {
+        List<String> strings = new ArrayList<String>();
+        for(Object object : objects) {
+            strings.add(object.toString());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+
+    /**
+     * Returns the number of rows left in the cursor, moving it past all of them.
+     *
+     * @param cursor The cursor.
+     * @return the number of rows.
+     */
+    public static int countRows(FactCursor cursor) {
+        int count = 0;
+        while(cursor.nextRow() != FactCursor.NO_MORE_ROWS) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package rogel.io.fopl.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.text.ParseException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.facts.FactTable;
+import rogel.io.fopl.proof.facts.MappedFactTable;
+
+public class BulkFactLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DelimitedFactReader reader(String text, char delimiter, int... columns) throws IOException {
+        return new DelimitedFactReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes("UTF-8"))), delimiter, columns);
+    }
+
+    private File write(String name, String text) throws IOException {
+        File file = folder.newFile(name);
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(text.getBytes("UTF-8"));
+        output.close();
+        return file;
+    }
+
+    @Test
+    public void testReadRow() throws Exception {
+        DelimitedFactReader reader = reader(
+                "id,child,parent\r\n"
+              + "1,audrey,bill\r\n"
+              + "\r\n"
+              + "2,\"bill\",\"maria, \"\"the elder\"\"\"\r\n"
+              + "3,maria,joe", ',', 2, 1);
+        reader.skipLine();
+
+        Symbol[] row = new Symbol[2];
+        assertTrue("There should be a first fact.", reader.readRow(row));
+        assertArrayEquals("Arguments should follow the column mapping.",
+                new Symbol[] {Symbol.get("bill"), Symbol.get("audrey")}, row);
+        assertTrue("There should be a second fact.", reader.readRow(row));
+        assertEquals("Quoted fields may hold delimiters and quotes.",
+                Symbol.get("maria, \"the elder\""), row[0]);
+        assertTrue("The last line needs no line break.", reader.readRow(row));
+        assertEquals("Carriage returns should not be part of fields.", Symbol.get("joe"), row[0]);
+        assertFalse("There should be no more facts.", reader.readRow(row));
+        reader.close();
+
+        reader = reader("a\tb\nc\n", '\t', 0, 1);
+        assertTrue("There should be a first fact.", reader.readRow(row));
+        try {
+            reader.readRow(row);
+            fail("A line without the mapped columns is an error.");
+        }
+        catch(ParseException e) {
+            assertEquals("The error should be on line 2.", 2, e.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File parents = write("parent.csv", "child,parent\naudrey,bill\nbill,maria\nmaria,joe\n");
+        File ages = write("age.tsv", "bill\t61\tignored\naudrey\t30\tignored\n");
+
+        BulkFactLoader loader = new BulkFactLoader(',', true);
+        loader.addFile(parents, "parent", 1, 0);
+        try {
+            loader.addFile(parents, "parent", 0, 1);
+            fail("Two files cannot hold the facts of the same signature.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+
+        RuleSet rules = new RuleSet();
+        loader.loadInto(rules, 2);
+        assertEquals("Three rows should be loaded.", 3, loader.getRowCount());
+        FactTable parentTable = rules.getFactTable(Symbol.get("parent"), 2);
+        assertTrue("Facts should be loaded into a ColumnarFactTable.", parentTable instanceof ColumnarFactTable);
+        assertEquals("Arguments should follow the column mapping.", "(parent maria bill)",
+                parentTable.getFact(1).toString());
+
+        loader = new BulkFactLoader('\t', false);
+        loader.addFile(ages, "age", folder.newFile("age.facts"), 0, 1);
+        List<FactTable> tables = loader.load(1);
+        assertTrue("Facts should be written to a MappedFactTable.", tables.get(0) instanceof MappedFactTable);
+        assertEquals("Two rows should be loaded.", 2, tables.get(0).getFactCount());
+        ((MappedFactTable) tables.get(0)).close();
+    }
+}
@@ -0,0 +1,109 @@
+package rogel.io.fopl.parser;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.text.ParseException;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+public class ClauseReaderTest {
+
+    private static final String ANCESTRY =
+          "; Who is whose parent.\n"
+        + "(parent bill audrey)\n"
+        + "(parent maria bill) (parent joe maria)\n"
+        + "(parent charles joe)\n"
+        + "\n"
+        + "(ancestor ?X ?Y) :- (and (parent ?X ?Y))\n"
+        + "(ancestor ?X ?Y) :- \n"
+        + "    (and (parent ?X ?Z)    ; x is a parent of z,\n"
+        + "         (ancestor ?Z ?Y)) ; and z is an ancestor of y.\n";
+    
+    @Test
+    public void testReadRuleSet() throws Exception {
+        ClauseReader reader = new ClauseReader(Channels.newChannel(
+                new ByteArrayInputStream(ANCESTRY.getBytes("UTF-8"))));
+        RuleSet rules = reader.readRuleSet();
+        reader.close();
+        
+        assertEquals("There should be six clauses.", 6, rules.getRuleCount());
+        assertTrue("The first clause should be a fact.", rules.getRule(0).isFact());
+        assertTrue("The last clause should be a definite clause.", rules.getRule(5).isDefiniteClause());
+        
+        // Variables with the same name in a clause are the same Variable.
+        HornClause rule = rules.getRule(5);
+        Predicate parent = (Predicate) ((AndOperator) rule.getAntecedent()).getOperand(0);
+        assertSame("?X in the head and body should be the same Variable.", 
+                rule.getConsequent().getTerms().get(0), parent.getTerms().get(0));
+        assertNotSame("?X in different clauses should be different Variables.", 
+                rules.getRule(4).getConsequent().getTerms().get(0), rule.getConsequent().getTerms().get(0));
+        
+        Formula goal = ClauseReader.parseFormula("(ancestor charles ?Y)");
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        int solutions = 0;
+        while(root.nextSolution() != null) {
+            solutions++;
+        }
+        assertEquals("There should be four solutions to the query.", 4, solutions);
+    }
+    
+    @Test
+    public void testReadRuleSetSkipsGoalClauses() throws Exception {
+        String text = "(parent bill audrey)\n:- (and (parent ?X audrey))\n(parent maria bill)\n";
+        ClauseReader reader = new ClauseReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes("UTF-8"))));
+        RuleSet rules = reader.readRuleSet();
+        reader.close();
+        
+        assertEquals("The goal clause should be left out.", 2, rules.getRuleCount());
+        assertEquals("(parent maria bill)", rules.getRule(1).toString());
+        assertTrue(ClauseReader.parseClause(":- (and (parent ?X audrey))").isGoalClause());
+    }
+    
+    @Test
+    public void testRoundTrip() throws ParseException {
+        Variable x = new Variable("x");
+        HornClause clause = new HornClause(
+            new Predicate("grandfather", new Function("father_of", new Function("father_of", x)), x),
+                new AndOperator(
+                    new Predicate("person", x),
+                    new Predicate("raining")
+                )
+            );
+        
+        HornClause parsed = ClauseReader.parseClause(clause.toString());
+        assertEquals("A parsed clause should print like the original, up to Variable ids.", 
+                clause.toString().replaceAll("_[0-9]+", ""), parsed.toString().replaceAll("_[0-9]+", ""));
+        
+        HornClause goalClause = ClauseReader.parseClause(":- (or (p a) (not (q b)))");
+        assertTrue("A clause with no head should be a goal clause.", goalClause.isGoalClause());
+        assertEquals("Goal clauses should round trip.", ":- (or (p a) (not (q b)))", goalClause.toString());
+    }
+    
+    @Test
+    public void testErrors() {
+        String[] invalid = { "(parent alice", "parent alice bob", "(and (p a)) :- (q b)", 
+                "(p a) :- ", "(p ?)", "(p (q a))", "(not (p a) (q b))", "(p a) extra" };
+        
+        for(String text : invalid) {
+            try {
+                ClauseReader.parseClause(text);
+                fail("\"" + text + "\" should not be a valid clause.");
+            }
+            catch(ParseException e) { }
+        }
+    }
+}
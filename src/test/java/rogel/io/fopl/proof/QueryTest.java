@@ -0,0 +1,78 @@
+package rogel.io.fopl.proof;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+
+public class QueryTest {
+
+    private RuleSet rules;
+    private Formula goal;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(
+                ClauseReader.parseClause("(parent bill audrey)"),
+                ClauseReader.parseClause("(parent maria bill)"),
+                ClauseReader.parseClause("(parent joe maria)"),
+                ClauseReader.parseClause("(ancestor ?X ?Y) :- (and (parent ?X ?Y))"),
+                ClauseReader.parseClause("(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))"));
+        goal = ClauseReader.parseFormula("(ancestor joe ?Y)");
+    }
+
+    @Test
+    public void testIteration() {
+        Query query = new Query(goal, rules);
+        int count = 0;
+        for(Substitution solution : query) {
+            assertNotNull("Every solution should be a Substitution.", solution);
+            count++;
+        }
+        assertEquals("Joe has three descendants.", 3, count);
+        assertTrue("The Query should close itself after its last solution.", query.isClosed());
+
+        try {
+            query.next();
+            fail("A finished Query has no next solution.");
+        }
+        catch(NoSuchElementException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testLimitAndFindFirst() {
+        List<Substitution> solutions = new Query(goal, rules).limit(2).toList();
+        assertEquals("The limit should cap the number of solutions.", 2, solutions.size());
+
+        Query query = new Query(goal, rules);
+        assertTrue(query.hasNext());
+        assertEquals("A computed solution should count against the limit.", 1, query.limit(1).toList().size());
+
+        Query first = new Query(goal, rules);
+        Substitution solution = first.findFirst();
+        assertEquals("The first solution should be Maria.", "(ancestor joe maria)",
+                goal.replaceVariables(solution).toString());
+        assertTrue("findFirst should close the Query.", first.isClosed());
+        assertFalse("A closed Query has no solutions.", first.hasNext());
+    }
+
+    @Test
+    public void testClose() {
+        Query query = new Query(goal, rules);
+        assertTrue(query.hasNext());
+        query.close();
+        assertTrue("A closed Query should be closed.", query.isClosed());
+        assertFalse("A closed Query has no solutions.", query.hasNext());
+        assertEquals("A Query limited to no solutions has none.", 0, new Query(goal, rules).limit(0).toList().size());
+    }
+}
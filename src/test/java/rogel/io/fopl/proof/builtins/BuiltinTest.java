@@ -0,0 +1,145 @@
+package rogel.io.fopl.proof.builtins;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.IntegerConstant;
+import rogel.io.fopl.terms.Term;
+
+public class BuiltinTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(factorial 0 1)"),
+                ClauseReader.parseClause("(factorial ?N ?F) :- (and (> ?N 0) (is ?M -(?N, 1)) (factorial ?M ?G) (is ?F *(?N, ?G)))"),
+                ClauseReader.parseClause("(between ?L ?H ?L) :- (=< ?L ?H)"),
+                ClauseReader.parseClause("(between ?L ?H ?X) :- (and (< ?L ?H) (is ?M +(?L, 1)) (between ?M ?H ?X))"),
+                ClauseReader.parseClause("(size small 2)"),
+                ClauseReader.parseClause("(size large 2.5e1)"),
+                ClauseReader.parseClause("(size odd f(x))")
+        });
+    }
+
+    private List<String> solve(String query, boolean stack) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = stack ? SolutionNodeFactory.getStackSolver(goal, rules, new Substitution())
+                : SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return TestUtils.solve(root, goal);
+    }
+
+    private void assertBothSolvers(List<String> expected, String query) throws ParseException {
+        assertEquals(expected, solve(query, false));
+        assertEquals(expected, solve(query, true));
+    }
+
+    @Test
+    public void testArithmetic() throws ParseException {
+        assertBothSolvers(Collections.singletonList("(factorial 10 3628800)"), "(factorial 10 ?F)");
+        assertBothSolvers(Arrays.asList("(between 1 3 1)", "(between 1 3 2)", "(between 1 3 3)"), "(between 1 3 ?X)");
+        assertBothSolvers(Collections.singletonList("(is 3.5 /(7.0, 2))"), "(is ?X /(7.0, 2))");
+        assertBothSolvers(Collections.singletonList("(is 3 /(7, 2))"), "(is ?X /(7, 2))");
+        assertBothSolvers(Collections.singletonList("(is 2 mod(-7, 3))"), "(is ?X mod(-7, 3))");
+        assertBothSolvers(Collections.singletonList("(is 4 max(abs(-4), -(1)))"), "(is ?X max(abs(-4), -(1)))");
+        assertBothSolvers(Collections.<String>emptyList(), "(is 5 +(2, 2))");
+
+        // Integers and floats are compared by value.
+        assertEquals(1, solve("(=:= 2 2.0)", false).size());
+        assertEquals(0, solve("(=\\= 2 2.0)", true).size());
+        assertEquals(Collections.singletonList("(and (size large 25.0) (number 25.0) (> 25.0 10))"),
+                solve("(and (size ?X ?Y) (number ?Y) (> ?Y 10))", false));
+    }
+
+    @Test
+    public void testTypesAndEquality() throws ParseException {
+        assertBothSolvers(Arrays.asList("(and (size small 2) (integer 2))"), "(and (size ?X ?Y) (integer ?Y))");
+        assertBothSolvers(Arrays.asList("(and (size large 25.0) (float 25.0))"), "(and (size ?X ?Y) (float ?Y))");
+        assertBothSolvers(Arrays.asList("(and (size odd f(x)) (compound f(x)))"), "(and (size ?X ?Y) (compound ?Y))");
+        assertEquals(3, solve("(and (size ?X ?Y) (atom ?X) (nonvar ?Y))", true).size());
+        assertEquals(1, solve("(var ?X)", false).size());
+        assertEquals(0, solve("(atom 42)", false).size());
+
+        assertBothSolvers(Collections.singletonList("(= f(a, b) f(a, b))"), "(= f(?X, b) f(a, ?Y))");
+        assertBothSolvers(Collections.<String>emptyList(), "(\\= f(?X, b) f(a, ?Y))");
+        assertEquals(1, solve("(\\= f(?X, b) f(a, c))", true).size());
+        assertEquals(0, solve("(== ?X a)", false).size());
+        assertEquals(1, solve("(and (= ?X a) (== ?X a))", false).size());
+        assertEquals(1, solve("(\\== ?X ?Y)", true).size());
+    }
+
+    @Test
+    public void testErrors() throws ParseException {
+        try {
+            solve("(< ?X 3)", false);
+            fail("The Variable is unbound.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            solve("(is ?X +(a, 1))", true);
+            fail("The constant is not a number.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            BuiltinRegistry.STANDARD.register(Symbol.get("succ"), 2, StandardBuiltin.IS);
+            fail("The standard registry cannot be changed.");
+        }
+        catch(UnsupportedOperationException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testUserDefinitionsTakePrecedence() throws ParseException {
+        rules = TestUtils.parse("(atom hydrogen)", "(atom helium)", "(integer ?X) :- (and (atom ?X))");
+        ColumnarFactTable numbers = new ColumnarFactTable("number", 1);
+        numbers.add(Symbol.get("one"));
+        rules.addFactTable(numbers);
+
+        assertNull("atom/1 is defined by the program.", rules.getBuiltin(Symbol.get("atom"), 1));
+        assertNotNull(rules.getBuiltin(Symbol.get("float"), 1));
+        assertBothSolvers(Arrays.asList("(atom hydrogen)", "(atom helium)"), "(atom ?X)");
+        assertBothSolvers(Arrays.asList("(integer hydrogen)", "(integer helium)"), "(integer ?X)");
+        assertBothSolvers(Collections.singletonList("(number one)"), "(number ?X)");
+        assertBothSolvers(Collections.singletonList("(float 2.5)"), "(float 2.5)");
+    }
+
+    @Test
+    public void testCustomRegistry() throws ParseException {
+        BuiltinRegistry registry = new BuiltinRegistry();
+        registry.register(Symbol.get("succ"), 2, new Builtin() {
+            @Override
+            public Substitution solve(List<Term> arguments, Substitution substitution) {
+                IntegerConstant value = (IntegerConstant) Arithmetic.evaluate(arguments.get(0), substitution);
+                return arguments.get(1).unify(new IntegerConstant(value.longValue() + 1), substitution);
+            }
+        });
+        rules.setBuiltins(registry);
+        assertSame(registry, rules.getBuiltins());
+        assertNotNull(rules.getBuiltin(Symbol.get("is"), 2));
+        assertNull(rules.getBuiltin(Symbol.get("is"), 3));
+        assertBothSolvers(Collections.singletonList("(and (succ 41 42) (succ 42 43))"), "(and (succ 41 ?X) (succ ?X ?Y))");
+    }
+}
@@ -0,0 +1,122 @@
+package rogel.io.fopl.proof.datalog;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.parse;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+public class DatalogEngineTest {
+
+    private static List<String> facts(DatalogModel model, String predicateName, int arity) {
+        List<String> facts = new ArrayList<String>();
+        Relation relation = model.getRelation(Symbol.get(predicateName), arity);
+        for(int row = 0; row < relation.getFactCount(); row++) {
+            facts.add(relation.getFact(row).toString());
+        }
+        Collections.sort(facts);
+        return facts;
+    }
+
+    @Test
+    public void testSameFactsAsTopDown() throws ParseException {
+        RuleSet rules = parse(
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))",
+                "(same ?X ?Y) :- (and (path ?X ?Z) (path ?Y ?Z))");
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        for(int node = 0; node < 6; node++) {
+            edges.add(Symbol.get("n" + node), Symbol.get("n" + (node + 1)));
+            edges.add(Symbol.get("n" + node), Symbol.get("n" + (node + 2)));
+        }
+        rules.addFactTable(edges);
+
+        DatalogModel model = new DatalogEngine(rules).evaluate();
+        for(String query : new String[] {"(path ?X ?Y)", "(same ?X ?Y)"}) {
+            Formula goal = ClauseReader.parseFormula(query);
+            AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+            List<String> expected = new ArrayList<String>();
+            for(Substitution solution = root.nextSolution(); solution != null; solution = root.nextSolution()) {
+                String answer = goal.replaceVariables(solution).toString();
+                if(!expected.contains(answer)) {
+                    expected.add(answer);
+                }
+            }
+            Collections.sort(expected);
+            assertEquals(expected, facts(model, ((Predicate) goal).getSymbol().toString(), 2));
+        }
+    }
+
+    @Test
+    public void testCyclicClosure() throws ParseException {
+        RuleSet rules = parse(
+                "(edge a b)", "(edge b c)", "(edge c a)", "(edge c d)",
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(path ?X ?Y) :- (and (path ?X ?Z) (path ?Z ?Y))",
+                "(loop ?X) :- (and (path ?X ?X))");
+        DatalogModel model = new DatalogEngine(rules).evaluate();
+        assertEquals("Each of a, b and c reaches all four nodes.", 12, model.getRelation(Symbol.get("path"), 2).getFactCount());
+        assertEquals(3, model.getRelation(Symbol.get("loop"), 1).getFactCount());
+        assertTrue(model.contains((Predicate) ClauseReader.parseFormula("(path b d)")));
+        assertFalse(model.contains((Predicate) ClauseReader.parseFormula("(path d a)")));
+    }
+
+    @Test
+    public void testStratifiedNegation() throws ParseException {
+        RuleSet rules = parse(
+                "(edge a b)", "(edge b c)", "(node a)", "(node b)", "(node c)", "(node d)",
+                "(reach ?Y) :- (and (edge a ?Y))",
+                "(reach ?Y) :- (and (reach ?X) (edge ?X ?Y))",
+                "(unreached ?X) :- (and (node ?X) (not (reach ?X)))");
+        DatalogEngine engine = new DatalogEngine(rules);
+        assertEquals(2, engine.getStratumCount());
+        assertEquals(Arrays.asList("(unreached a)", "(unreached d)"), facts(engine.evaluate(), "unreached", 1));
+    }
+
+    @Test
+    public void testGoalClausesIgnored() throws ParseException {
+        RuleSet rules = parse(
+                "(edge a b)", "(edge b c)",
+                ":- (and (path a ?Y))",
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))");
+        assertEquals(Arrays.asList("(path a b)", "(path a c)", "(path b c)"),
+                facts(new DatalogEngine(rules).evaluate(), "path", 2));
+        assertEquals(3, new IncrementalModel(rules).getModel().getRelation(Symbol.get("path"), 2).getFactCount());
+        assertEquals(2, new MagicSets(rules, (Predicate) ClauseReader.parseFormula("(path a ?Y)")).solve().size());
+    }
+
+    @Test
+    public void testRejectsUnstratifiedAndUnsafeRules() throws ParseException {
+        String[][] programs = {
+                {"(p ?X) :- (and (q ?X) (not (p ?X)))"},
+                {"(p ?X ?Y) :- (and (q ?X))"},
+                {"(p ?X) :- (and (q ?X) (not (r ?Y)))"},
+                {"(p ?X) :- (and (q f(?X)))"}
+        };
+        for(String[] program : programs) {
+            try {
+                new DatalogEngine(parse(program));
+                fail("Program " + program[0] + " should be rejected.");
+            }
+            catch(IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+}
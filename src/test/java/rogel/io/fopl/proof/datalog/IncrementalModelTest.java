@@ -0,0 +1,172 @@
+package rogel.io.fopl.proof.datalog;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+
+public class IncrementalModelTest {
+
+    private static final int NODE_COUNT = 6;
+
+    private static RuleSet rules(Set<String> edges) throws ParseException {
+        String[] clauses = {
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))",
+                "(cyclic ?X) :- (and (path ?X ?X))",
+                "(unreachable ?X ?Y) :- (and (node ?X) (node ?Y) (not (path ?X ?Y)))",
+                "(isolated ?X) :- (and (node ?X) (not (cyclic ?X)) (unreachable ?X n0))"
+        };
+        HornClause[] parsed = new HornClause[clauses.length];
+        for(int index = 0; index < clauses.length; index++) {
+            parsed[index] = ClauseReader.parseClause(clauses[index]);
+        }
+        RuleSet rules = new RuleSet(parsed);
+
+        ColumnarFactTable edgeTable = new ColumnarFactTable("edge", 2);
+        for(String edge : edges) {
+            String[] nodes = edge.split(" ");
+            edgeTable.add(Symbol.get(nodes[0]), Symbol.get(nodes[1]));
+        }
+        ColumnarFactTable nodeTable = new ColumnarFactTable("node", 1);
+        for(int node = 0; node < NODE_COUNT; node++) {
+            nodeTable.add(Symbol.get("n" + node));
+        }
+        rules.addFactTable(edgeTable);
+        rules.addFactTable(nodeTable);
+        return rules;
+    }
+
+    private static Predicate edge(String edge) {
+        String[] nodes = edge.split(" ");
+        return new Predicate(Symbol.get("edge"), new Function(Symbol.get(nodes[0])), new Function(Symbol.get(nodes[1])));
+    }
+
+    private static List<String> facts(DatalogModel model) {
+        List<String> facts = new ArrayList<String>();
+        for(Relation relation : model.getRelations()) {
+            for(int row = 0; row < relation.getFactCount(); row++) {
+                facts.add(relation.getFact(row).toString());
+            }
+        }
+        Collections.sort(facts);
+        return facts;
+    }
+
+    @Test
+    public void testSameModelAsFullEvaluation() throws ParseException {
+        Random random = new Random(42);
+        Set<String> edges = new HashSet<String>();
+        IncrementalModel model = new IncrementalModel(rules(edges));
+
+        for(int step = 0; step < 300; step++) {
+            List<Predicate> assertions = new ArrayList<Predicate>();
+            List<Predicate> retractions = new ArrayList<Predicate>();
+            Set<String> changed = new HashSet<String>();
+            int changeCount = 1 + random.nextInt(3);
+            for(int change = 0; change < changeCount; change++) {
+                String edge = "n" + random.nextInt(NODE_COUNT) + " n" + random.nextInt(NODE_COUNT);
+                if(!changed.add(edge)) {
+                    continue;
+                }
+                if(edges.contains(edge) && random.nextBoolean()) {
+                    retractions.add(edge(edge));
+                    edges.remove(edge);
+                }
+                else if(!edges.contains(edge)) {
+                    assertions.add(edge(edge));
+                    edges.add(edge);
+                }
+            }
+            model.update(assertions, retractions);
+            assertEquals("After step " + step, facts(new DatalogEngine(rules(edges)).evaluate()), facts(model.getModel()));
+        }
+    }
+
+    @Test
+    public void testDerivedFactsOutliveRetractionWhileSupported() throws ParseException {
+        Set<String> edges = new HashSet<String>();
+        edges.add("n0 n1");
+        edges.add("n1 n2");
+        edges.add("n2 n0");
+        IncrementalModel model = new IncrementalModel(rules(edges));
+        Predicate path = (Predicate) ClauseReader.parseFormula("(path n0 n2)");
+        assertTrue(model.contains(path));
+
+        model.assertFact(edge("n0 n2"));
+        model.retractFact(edge("n1 n2"));
+        assertTrue("The new edge still supports the path.", model.contains(path));
+        model.retractFact(edge("n0 n2"));
+        assertFalse(model.contains(path));
+        assertTrue(model.contains((Predicate) ClauseReader.parseFormula("(unreachable n0 n2)")));
+
+        // Retracting a derived fact, which was never asserted, changes nothing.
+        model.retractFact((Predicate) ClauseReader.parseFormula("(path n0 n1)"));
+        assertTrue(model.contains((Predicate) ClauseReader.parseFormula("(path n0 n1)")));
+    }
+
+    @Test
+    public void testListenersReceiveAnswerDeltas() throws ParseException {
+        Random random = new Random(7);
+        Set<String> edges = new HashSet<String>();
+        IncrementalModel model = new IncrementalModel(rules(edges));
+
+        final Set<String> answers = new HashSet<String>();
+        final int[] notifications = new int[1];
+        StandingQueryListener listener = new StandingQueryListener() {
+            @Override
+            public void answersChanged(StandingQuery query, List<Predicate> added, List<Predicate> removed) {
+                notifications[0]++;
+                for(Predicate answer : removed) {
+                    assertTrue("Removed an answer twice: " + answer, answers.remove(answer.toString()));
+                }
+                for(Predicate answer : added) {
+                    assertTrue("Added an answer twice: " + answer, answers.add(answer.toString()));
+                }
+            }
+        };
+        StandingQuery query = model.addQuery((Predicate) ClauseReader.parseFormula("(unreachable n0 ?Y)"), listener);
+        answers.addAll(sorted(query.getAnswers()));
+        assertEquals(NODE_COUNT, answers.size());
+
+        for(int step = 0; step < 100; step++) {
+            String edge = "n" + random.nextInt(NODE_COUNT) + " n" + random.nextInt(NODE_COUNT);
+            if(edges.remove(edge)) {
+                model.retractFact(edge(edge));
+            }
+            else {
+                edges.add(edge);
+                model.assertFact(edge(edge));
+            }
+            assertEquals("After step " + step, sorted(query.getAnswers()), sorted(answers));
+        }
+        assertTrue(notifications[0] > 0);
+
+        assertTrue(model.removeQuery(query));
+        int notificationCount = notifications[0];
+        model.assertFact(edge("n0 n5"));
+        model.retractFact(edge("n0 n5"));
+        assertEquals(notificationCount, notifications[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPredicateRejected() throws ParseException {
+        new IncrementalModel(rules(new HashSet<String>())).assertFact((Predicate) ClauseReader.parseFormula("(color n0 red)"));
+    }
+}
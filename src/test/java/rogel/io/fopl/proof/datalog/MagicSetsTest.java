@@ -0,0 +1,91 @@
+package rogel.io.fopl.proof.datalog;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+public class MagicSetsTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        String[] clauses = {
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))",
+                "(path x x)",
+                "(sibling ?X ?Y) :- (and (edge ?P ?X) (edge ?P ?Y))",
+                "(cousin ?X ?Y) :- (and (sibling ?X ?Y))",
+                "(cousin ?X ?Y) :- (and (edge ?P ?X) (cousin ?P ?Q) (edge ?Q ?Y))",
+                "(stranger ?X ?Y) :- (and (node ?X) (node ?Y) (not (path ?X ?Y)))"
+        };
+        HornClause[] parsed = new HornClause[clauses.length];
+        for(int index = 0; index < clauses.length; index++) {
+            parsed[index] = ClauseReader.parseClause(clauses[index]);
+        }
+        rules = new RuleSet(parsed);
+
+        // A binary tree of depth 3, plus an edge out of a leaf.
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        ColumnarFactTable nodes = new ColumnarFactTable("node", 1);
+        for(int node = 1; node < 8; node++) {
+            edges.add(Symbol.get("t" + node), Symbol.get("t" + (2 * node)));
+            edges.add(Symbol.get("t" + node), Symbol.get("t" + (2 * node + 1)));
+            nodes.add(Symbol.get("t" + node));
+        }
+        edges.add(Symbol.get("t15"), Symbol.get("x"));
+        rules.addFactTable(edges);
+        rules.addFactTable(nodes);
+    }
+
+    private static List<Predicate> instances(DatalogModel model, Predicate goal) {
+        List<Predicate> instances = new ArrayList<Predicate>();
+        Relation relation = model.getRelation(goal.getSymbol(), goal.getArity());
+        for(int row = 0; row < relation.getFactCount(); row++) {
+            Predicate fact = relation.getFact(row);
+            if(goal.unify(fact, new Substitution()) != null) {
+                instances.add(fact);
+            }
+        }
+        return instances;
+    }
+
+    @Test
+    public void testSameAnswersAsFullEvaluation() throws ParseException {
+        DatalogModel model = new DatalogEngine(rules).evaluate();
+        String[] queries = {"(path t2 ?Y)", "(path ?X t9)", "(path ?X ?X)", "(path t15 x)", "(cousin t8 ?Y)",
+                "(cousin ?X t15)", "(stranger t2 ?Y)", "(edge t3 ?Y)", "(path t9 ?Y)"};
+        for(String query : queries) {
+            Predicate goal = (Predicate) ClauseReader.parseFormula(query);
+            assertEquals(query, sorted(instances(model, goal)), sorted(new MagicSets(rules, goal).solve()));
+        }
+    }
+
+    @Test
+    public void testOnlyRelevantFactsDerived() throws ParseException {
+        Predicate goal = (Predicate) ClauseReader.parseFormula("(path t7 ?Y)");
+        MagicSets magicSets = new MagicSets(rules, goal);
+        assertEquals("path_bf", magicSets.getAdornedGoal().getSymbol().toString());
+
+        DatalogModel model = new DatalogEngine(magicSets.getRewrittenRules()).evaluate();
+        assertEquals(3, magicSets.getAnswers(model).size());
+        assertEquals("Only the paths from t7 should be derived.", 3,
+                model.getRelation(Symbol.get("path_bf"), 2).getFactCount());
+        assertEquals("The original rules of path should not be kept when nothing negates it.", 1,
+                model.getRelation(Symbol.get("path"), 2).getFactCount());
+    }
+}
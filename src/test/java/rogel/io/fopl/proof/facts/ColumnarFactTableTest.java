@@ -0,0 +1,120 @@
+package rogel.io.fopl.proof.facts;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.countRows;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+public class ColumnarFactTableTest {
+
+    Function bill, audrey, maria, joe, charles;
+    Variable X, Y, Z;
+    ColumnarFactTable parents;
+    
+    @Before
+    public void setUp() throws Exception {
+        bill = new Function("bill");
+        audrey = new Function("audrey");
+        maria = new Function("maria");
+        joe = new Function("joe");
+        charles = new Function("charles");
+        X = new Variable("X");
+        Y = new Variable("Y");
+        Z = new Variable("Z");
+        
+        parents = new ColumnarFactTable("parent", 2);
+        parents.add(new Predicate("parent", bill, audrey));
+        parents.add(new Predicate("parent", maria, bill));
+        parents.add(bill.getSymbol(), joe.getSymbol());
+        parents.add(new Predicate("parent", joe, maria));
+        parents.add(charles.getSymbol().getId(), joe.getSymbol().getId());
+    }
+    
+    @Test
+    public void testAdd() {
+        assertEquals("There should be five facts.", 5, parents.getFactCount());
+        assertEquals("The third fact should be (parent bill joe).", 
+                new Predicate("parent", bill, joe).toString(), parents.getFact(2).toString());
+        
+        try {
+            parents.add(new Predicate("parent", bill, X));
+            fail("Facts with Variables should be rejected.");
+        }
+        catch(IllegalArgumentException e) { }
+        
+        try {
+            parents.add(bill.getSymbol());
+            fail("Facts of the wrong arity should be rejected.");
+        }
+        catch(IllegalArgumentException e) { }
+    }
+
+    @Test
+    public void testMatch() {
+        int[] pattern = { bill.getSymbol().getId(), FactTable.UNBOUND };
+        assertEquals("Bill has two children.", 2, countRows(parents.match(pattern)));
+        
+        pattern = new int[] { FactTable.UNBOUND, joe.getSymbol().getId() };
+        assertEquals("Joe has two parents.", 2, countRows(parents.match(pattern)));
+        
+        pattern = new int[] { charles.getSymbol().getId(), audrey.getSymbol().getId() };
+        assertEquals("Charles is not Audrey's parent.", 0, countRows(parents.match(pattern)));
+        
+        pattern = new int[] { FactTable.UNBOUND, FactTable.UNBOUND };
+        assertEquals("Every fact matches an unbound pattern.", 5, countRows(parents.match(pattern)));
+        
+        // Indexes must reflect facts added after a query.
+        parents.add(bill.getSymbol(), charles.getSymbol());
+        pattern = new int[] { bill.getSymbol().getId(), FactTable.UNBOUND };
+        assertEquals("Bill now has three children.", 3, countRows(parents.match(pattern)));
+        
+        pattern = new int[] { Symbol.get("nobody").getId(), FactTable.UNBOUND };
+        assertEquals("Unused Symbols match nothing.", 0, countRows(parents.match(pattern)));
+    }
+    
+    @Test
+    public void testSolverUsesFactTable() {
+        RuleSet rules = new RuleSet(
+            new HornClause(
+                new Predicate("grandparent", X, Y), /* <- */
+                    new AndOperator(
+                        new Predicate("parent", X, Z),
+                        new Predicate("parent", Z, Y)
+                    )
+                )
+            );
+        rules.addFactTable(parents);
+        
+        Predicate goal = new Predicate("grandparent", X, Y);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        
+        Set<String> answers = new HashSet<String>();
+        Substitution solution;
+        while( (solution = root.nextSolution()) != null) {
+            answers.add(goal.replaceVariables(solution).toString());
+        }
+        
+        Set<String> expected = new HashSet<String>();
+        expected.add(new Predicate("grandparent", maria, audrey).toString());
+        expected.add(new Predicate("grandparent", maria, joe).toString());
+        expected.add(new Predicate("grandparent", bill, maria).toString());
+        expected.add(new Predicate("grandparent", joe, bill).toString());
+        expected.add(new Predicate("grandparent", charles, maria).toString());
+        assertEquals("Grandparents should be derived from the FactTable.", expected, answers);
+    }
+}
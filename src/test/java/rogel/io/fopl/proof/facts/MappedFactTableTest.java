@@ -0,0 +1,101 @@
+package rogel.io.fopl.proof.facts;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.countRows;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+public class MappedFactTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    Function bill, audrey, maria, joe, charles;
+    Variable X;
+    File file;
+    
+    @Before
+    public void setUp() throws Exception {
+        bill = new Function("bill");
+        audrey = new Function("audrey");
+        maria = new Function("maria");
+        joe = new Function("joe");
+        charles = new Function("charles");
+        X = new Variable("X");
+        
+        file = folder.newFile("parent.facts");
+        MappedFactTableWriter writer = new MappedFactTableWriter(file, Symbol.get("parent"), 2);
+        writer.add(new Predicate("parent", bill, audrey));
+        writer.add(new Predicate("parent", maria, bill));
+        writer.add(bill.getSymbol(), joe.getSymbol());
+        writer.add(new Predicate("parent", joe, maria));
+        writer.add(charles.getSymbol(), joe.getSymbol());
+        writer.close();
+    }
+    
+    @Test
+    public void testOpen() throws IOException {
+        MappedFactTable table = MappedFactTable.open(file);
+        assertEquals("The table should be for parent/2.", Symbol.get("parent"), table.getPredicateSymbol());
+        assertEquals("The table should be for parent/2.", 2, table.getArity());
+        assertEquals("There should be five facts.", 5, table.getFactCount());
+        assertEquals("Facts should keep their insertion order.", 
+                new Predicate("parent", maria, bill).toString(), table.getFact(1).toString());
+        
+        try {
+            MappedFactTable.open(folder.newFile("empty.facts"));
+            fail("Files that are not MappedFactTables should be rejected.");
+        }
+        catch(IOException e) { }
+    }
+    
+    @Test
+    public void testMatch() throws IOException {
+        MappedFactTable table = MappedFactTable.open(file);
+        
+        int[] pattern = { bill.getSymbol().getId(), FactTable.UNBOUND };
+        assertEquals("Bill has two children.", 2, countRows(table.match(pattern)));
+        
+        pattern = new int[] { FactTable.UNBOUND, joe.getSymbol().getId() };
+        assertEquals("Joe has two parents.", 2, countRows(table.match(pattern)));
+        
+        pattern = new int[] { joe.getSymbol().getId(), maria.getSymbol().getId() };
+        assertEquals("Joe is Maria's parent.", 1, countRows(table.match(pattern)));
+        
+        pattern = new int[] { Symbol.get("nobody").getId(), FactTable.UNBOUND };
+        assertEquals("Constants missing from the file match nothing.", 0, countRows(table.match(pattern)));
+        
+        pattern = new int[] { FactTable.UNBOUND, FactTable.UNBOUND };
+        assertEquals("Every fact matches an unbound pattern.", 5, countRows(table.match(pattern)));
+    }
+    
+    @Test
+    public void testSolverUsesMappedFactTable() throws IOException {
+        RuleSet rules = new RuleSet();
+        rules.addFactTable(MappedFactTable.open(file));
+        
+        Predicate goal = new Predicate("parent", X, joe);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        
+        assertEquals("Bill is Joe's parent.", new Predicate("parent", bill, joe).toString(), 
+                goal.replaceVariables(root.nextSolution()).toString());
+        assertEquals("Charles is Joe's parent.", new Predicate("parent", charles, joe).toString(), 
+                goal.replaceVariables(root.nextSolution()).toString());
+        assertNull("Joe has no other parents.", root.nextSolution());
+    }
+}
@@ -0,0 +1,152 @@
+package rogel.io.fopl.proof.rete;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.datalog.DatalogEngine;
+import rogel.io.fopl.proof.datalog.DatalogModel;
+import rogel.io.fopl.proof.datalog.Relation;
+
+public class ReteNetworkTest {
+
+    private static final String[] RULES = {
+            "(grandparent ?X ?Z) :- (and (parent ?X ?Y) (parent ?Y ?Z))",
+            "(sibling ?X ?Y) :- (and (parent ?P ?X) (parent ?P ?Y))",
+            "(self ?X) :- (and (parent ?X ?X))",
+            "(root-child ?X) :- (and (parent root ?X))",
+            "(ancestor ?X ?Y) :- (and (parent ?X ?Y))",
+            "(ancestor ?X ?Z) :- (and (ancestor ?X ?Y) (parent ?Y ?Z))"
+    };
+
+    private static RuleSet parse(String[] clauses, List<String> facts) throws ParseException {
+        List<HornClause> parsed = new ArrayList<HornClause>();
+        for(String clause : clauses) {
+            parsed.add(ClauseReader.parseClause(clause));
+        }
+        for(String fact : facts) {
+            parsed.add(ClauseReader.parseClause(fact));
+        }
+        return new RuleSet(parsed.toArray(new HornClause[parsed.size()]));
+    }
+
+    private static List<String> expected(List<String> facts, String predicateName, int arity) throws ParseException {
+        DatalogModel model = new DatalogEngine(parse(RULES, facts)).evaluate();
+        Relation relation = model.getRelation(Symbol.get(predicateName), arity);
+        List<Predicate> predicates = new ArrayList<Predicate>();
+        for(int row = 0; relation != null && row < relation.getFactCount(); row++) {
+            predicates.add(relation.getFact(row));
+        }
+        return sorted(predicates);
+    }
+
+    private static void assertSameModel(ReteNetwork network, List<String> facts) throws ParseException {
+        String[][] signatures = {{"grandparent", "2"}, {"sibling", "2"}, {"self", "1"}, {"root-child", "1"}, {"ancestor", "2"}};
+        for(String[] signature : signatures) {
+            int arity = Integer.parseInt(signature[1]);
+            assertEquals(signature[0] + " after " + facts, expected(facts, signature[0], arity),
+                    sorted(network.getFacts(Symbol.get(signature[0]), arity)));
+        }
+    }
+
+    @Test
+    public void testAssertionsDeriveSameFactsAsBottomUp() throws ParseException {
+        ReteNetwork network = new ReteNetwork(parse(RULES, Collections.<String>emptyList()));
+        String[] stream = {"(parent root a)", "(parent a b)", "(parent a c)", "(parent b d)", "(parent c c)",
+                "(parent d e)", "(parent root f)"};
+        List<String> facts = new ArrayList<String>();
+        for(String fact : stream) {
+            List<Predicate> derived = network.assertFact((Predicate) ClauseReader.parseFormula(fact));
+            facts.add(fact);
+            assertSameModel(network, facts);
+            for(Predicate conclusion : derived) {
+                assertTrue(network.contains(conclusion));
+            }
+        }
+        assertTrue("Asserting a fact again should derive nothing.",
+                network.assertFact((Predicate) ClauseReader.parseFormula("(parent a b)")).isEmpty());
+    }
+
+    @Test
+    public void testRetractionsUndoSupport() throws ParseException {
+        List<String> facts = new ArrayList<String>();
+        Collections.addAll(facts, "(parent root a)", "(parent a b)", "(parent a c)", "(parent b d)", "(parent x d)",
+                "(parent d e)");
+        ReteNetwork network = new ReteNetwork(parse(RULES, facts));
+        assertSameModel(network, facts);
+
+        List<Predicate> retracted = network.retractFact((Predicate) ClauseReader.parseFormula("(parent a b)"));
+        facts.remove("(parent a b)");
+        assertSameModel(network, facts);
+        assertTrue(sorted(retracted).contains("(grandparent root b)"));
+        assertFalse("(sibling d d) is still derived from (parent x d).", sorted(retracted).contains("(sibling d d)"));
+
+        network.retractFact((Predicate) ClauseReader.parseFormula("(parent d e)"));
+        facts.remove("(parent d e)");
+        assertSameModel(network, facts);
+        network.assertFact((Predicate) ClauseReader.parseFormula("(parent a b)"));
+        facts.add("(parent a b)");
+        assertSameModel(network, facts);
+    }
+
+    @Test
+    public void testRetractionsFromCycle() throws ParseException {
+        String[] rules = {
+                "(tc ?X ?Y) :- (and (e ?X ?Y))",
+                "(tc ?X ?Z) :- (and (tc ?X ?Y) (e ?Y ?Z))",
+                "(reached ?Y) :- (and (tc a ?Y))"
+        };
+        ReteNetwork network = new ReteNetwork(parse(rules, Arrays.asList("(e a b)", "(e b c)", "(e c b)")));
+        assertEquals(Arrays.asList("(tc a b)", "(tc a c)", "(tc b b)", "(tc b c)", "(tc c b)", "(tc c c)"),
+                sorted(network.getFacts(Symbol.get("tc"), 2)));
+
+        List<Predicate> retracted = network.retractFact((Predicate) ClauseReader.parseFormula("(e a b)"));
+        assertEquals("The cycle through b and c no longer derives anything from a.",
+                Arrays.asList("(reached b)", "(reached c)", "(tc a b)", "(tc a c)"), sorted(retracted));
+        assertEquals(Arrays.asList("(tc b b)", "(tc b c)", "(tc c b)", "(tc c c)"),
+                sorted(network.getFacts(Symbol.get("tc"), 2)));
+        assertTrue(network.getFacts(Symbol.get("reached"), 1).isEmpty());
+
+        // The facts of the cycle that are still derived are overdeleted, rederived, and not reported.
+        network.assertFact((Predicate) ClauseReader.parseFormula("(tc b b)"));
+        assertTrue(network.retractFact((Predicate) ClauseReader.parseFormula("(tc b b)")).isEmpty());
+        assertTrue(network.retractFact((Predicate) ClauseReader.parseFormula("(e c b)")).contains(
+                ClauseReader.parseFormula("(tc b b)")));
+        assertEquals(Arrays.asList("(tc b c)"), sorted(network.getFacts(Symbol.get("tc"), 2)));
+    }
+
+    @Test
+    public void testNodesShared() throws ParseException {
+        ReteNetwork network = new ReteNetwork(parse(new String[] {
+                "(p ?X) :- (and (a ?X k) (b ?X))",
+                "(q ?Y) :- (and (a ?Y k) (b ?Y) (c ?Y))",
+                "(r ?X) :- (and (a ?X j))"
+        }, Collections.<String>emptyList()));
+        assertEquals(3, network.getRuleCount());
+        assertEquals("a/k, a/j, b and c", 4, network.getAlphaMemoryCount());
+        assertEquals("The prefix (a ?X k) (b ?X) is shared.", 4, network.getJoinNodeCount());
+
+        network.assertFact((Predicate) ClauseReader.parseFormula("(a z k)"));
+        network.assertFact((Predicate) ClauseReader.parseFormula("(c z)"));
+        assertEquals(Arrays.asList("(p z)", "(q z)"), sorted(network.assertFact((Predicate) ClauseReader.parseFormula("(b z)"))));
+    }
+
+    @Test
+    public void testGoalClausesIgnored() throws ParseException {
+        ReteNetwork network = new ReteNetwork(parse(RULES, Arrays.asList("(parent a b)", ":- (and (parent ?X b))")));
+        assertEquals(RULES.length, network.getRuleCount());
+        assertEquals(Arrays.asList("(parent a b)"), sorted(network.getFacts(Symbol.get("parent"), 2)));
+    }
+}
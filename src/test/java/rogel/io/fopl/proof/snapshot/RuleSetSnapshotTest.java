@@ -0,0 +1,120 @@
+package rogel.io.fopl.proof.snapshot;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.parse;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+public class RuleSetSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[] CLAUSES = {
+        "(parent bill audrey)",
+        "(parent maria bill)",
+        "(ancestor ?X ?Y) :- (and (parent ?X ?Y))",
+        "(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))",
+        "(grandfather f(f(?x)) ?x) :- (and (person ?x) (raining))",
+        ":- (or (p a) (not (q b)))"
+    };
+
+    private static int countSolutions(Formula goal, RuleSet rules) {
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        int solutions = 0;
+        while(root.nextSolution() != null) {
+            solutions++;
+        }
+        return solutions;
+    }
+
+    @Test
+    public void testWriteAndLoad() throws Exception {
+        RuleSet rules = parse(CLAUSES);
+        ColumnarFactTable parents = new ColumnarFactTable("parent", 2);
+        parents.add(Symbol.get("joe"), Symbol.get("maria"));
+        parents.add(Symbol.get("charles"), Symbol.get("joe"));
+        rules.addFactTable(parents);
+
+        File file = folder.newFile("ancestry.snapshot");
+        RuleSetSnapshot.write(rules, file);
+        RuleSet loaded = RuleSetSnapshot.load(file);
+
+        assertEquals("The snapshot should have every rule.", rules.getRuleCount(), loaded.getRuleCount());
+        for(int index = 0; index < rules.getRuleCount(); index++) {
+            assertEquals("Rules should load like the originals, up to Variable ids.",
+                    rules.getRule(index).toString().replaceAll("_[0-9]+", ""),
+                    loaded.getRule(index).toString().replaceAll("_[0-9]+", ""));
+        }
+        assertSame("A rule should only be decoded once.", loaded.getRule(3), loaded.getRule(3));
+
+        // Variables with the same number in a clause are the same Variable.
+        HornClause rule = loaded.getRule(3);
+        Predicate parent = (Predicate) ((AndOperator) rule.getAntecedent()).getOperand(0);
+        assertSame("?X in the head and body should be the same Variable.",
+                rule.getConsequent().getTerms().get(0), parent.getTerms().get(0));
+
+        assertArrayEquals("The rule index should be saved.", new int[] {2, 3},
+                loaded.getRuleIndices(Symbol.get("ancestor"), 2));
+        assertEquals("The FactTable should be saved.", 2,
+                loaded.getFactTable(Symbol.get("parent"), 2).getFactCount());
+        assertEquals("There should be four solutions to the query.", 4,
+                countSolutions(ClauseReader.parseFormula("(ancestor charles ?Y)"), loaded));
+    }
+
+    @Test
+    public void testStrata() throws Exception {
+        File stratifiedFile = folder.newFile("stratified.snapshot");
+        RuleSetSnapshot.write(parse("(q a)", "(p ?X) :- (and (q ?X))", "(r ?X) :- (and (q ?X) (not (p ?X)))"),
+                stratifiedFile);
+        RuleSet stratified = RuleSetSnapshot.load(stratifiedFile);
+        assertTrue(stratified.isStratified());
+        assertEquals(0, stratified.getStratum(Symbol.get("p"), 1));
+        assertEquals(1, stratified.getStratum(Symbol.get("r"), 1));
+
+        File unstratifiedFile = folder.newFile("unstratified.snapshot");
+        RuleSetSnapshot.write(parse("(q a)", "(p ?X) :- (and (q ?X) (not (p ?X)))"), unstratifiedFile);
+        assertFalse("A snapshot of a program that negates its own head is not stratified.",
+                RuleSetSnapshot.load(unstratifiedFile).isStratified());
+    }
+
+    @Test
+    public void testLoadInvalidFile() throws IOException {
+        try {
+            RuleSetSnapshot.load(folder.newFile("empty.snapshot"));
+            fail("An empty file is not a snapshot.");
+        }
+        catch(IOException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testRuleIndices() throws ParseException {
+        RuleSet rules = parse(CLAUSES);
+        assertArrayEquals("Rules should be indexed by the signature of their consequent.",
+                new int[] {0, 1}, rules.getRuleIndices(Symbol.get("parent"), 2));
+        assertEquals("No rule has the signature parent/3.", 0,
+                rules.getRuleIndices(Symbol.get("parent"), 3).length);
+        assertEquals("The grandfather rule should be indexed under grandfather/2.", 1,
+                rules.getRuleIndices(Symbol.get("grandfather"), 2).length);
+    }
+}
@@ -0,0 +1,87 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.solve;
+
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+public class AndSolutionNodeTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(p a)"),
+                ClauseReader.parseClause("(p b)"),
+                ClauseReader.parseClause("(p c)"),
+                ClauseReader.parseClause("(q a x)"),
+                ClauseReader.parseClause("(q a y)"),
+                ClauseReader.parseClause("(q c z)"),
+                ClauseReader.parseClause("(r x)"),
+                ClauseReader.parseClause("(r y)"),
+                ClauseReader.parseClause("(r z)"),
+                ClauseReader.parseClause("(s c z)")
+        });
+    }
+
+    private AndSolutionNode node(AndOperator goal) {
+        return new AndSolutionNode(goal, rules, new Substitution(), new ProofContext());
+    }
+
+    @Test
+    public void testEmptyConjunction() {
+        Substitution parent = new Substitution();
+        parent.add(new Variable("X"), new Function("a"));
+        AndSolutionNode root = new AndSolutionNode(new AndOperator(), rules, parent, new ProofContext());
+        assertSame("An empty conjunction holds under the parent solution.", parent, root.nextSolution());
+        assertNull("An empty conjunction holds only once.", root.nextSolution());
+        assertNull(root.getHeadSolutionNode());
+
+        @SuppressWarnings("deprecation")
+        AndSolutionNode deprecated = new AndSolutionNode(new AndOperator(), rules, parent);
+        assertSame(parent, deprecated.nextSolution());
+        assertNull(deprecated.nextSolution());
+    }
+
+    @Test
+    public void testSolutionOrder() throws ParseException {
+        AndOperator goal = (AndOperator) ClauseReader.parseFormula("(and (p ?X) (q ?X ?Y))");
+        assertEquals("Solutions should follow the order of the rules, operand by operand.",
+                Arrays.asList("(and (p a) (q a x))", "(and (p a) (q a y))", "(and (p c) (q c z))"),
+                solve(node(goal), goal));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testBacktrackingAcrossOperands() throws ParseException {
+        AndOperator goal = (AndOperator) ClauseReader.parseFormula("(and (p ?X) (r ?Y) (s ?X ?Y))");
+        AndSolutionNode root = node(goal);
+        assertNull("The search has not moved past the head.", root.getTailSolutionNode());
+
+        // Only the last binding of each of the first two operands satisfies the third, so the
+        // search backs up through both of them before finding it.
+        Substitution solution = root.nextSolution();
+        assertNotNull(solution);
+        assertEquals("(and (p c) (r z) (s c z))", goal.replaceVariables(solution).toString());
+        assertNotNull(root.getHeadSolutionNode());
+        assertSame(root.getOperandSolutionNode(1), root.getTailSolutionNode());
+        assertNotNull(root.getOperandSolutionNode(2));
+
+        assertNull(root.nextSolution());
+        assertNull("Exhausted operands should have no nodes.", root.getOperandSolutionNode(0));
+        assertNull(root.getTailSolutionNode());
+    }
+}
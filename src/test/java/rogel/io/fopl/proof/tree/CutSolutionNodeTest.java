@@ -0,0 +1,121 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.OnceOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+
+public class CutSolutionNodeTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(item a)"),
+                ClauseReader.parseClause("(item b)"),
+                ClauseReader.parseClause("(item c)"),
+                ClauseReader.parseClause("(other d)"),
+                ClauseReader.parseClause("(first ?X) :- (and (item ?X) (!))"),
+                ClauseReader.parseClause("(first none)"),
+                ClauseReader.parseClause("(pick ?X) :- (or (and (item ?X) (!)) (other ?X))"),
+                ClauseReader.parseClause("(late ?X) :- (and (item ?X) (!) (other ?X))"),
+                ClauseReader.parseClause("(late none)"),
+                ClauseReader.parseClause("(firstTwo ?X ?Y) :- (and (once (item ?X)) (item ?Y))"),
+                ClauseReader.parseClause("(lonely ?X) :- (and (item ?X) (not (and (item ?Y) (!) (other ?Y))))"),
+                ClauseReader.parseClause("(nat zero)"),
+                ClauseReader.parseClause("(nat s(?X)) :- (nat ?X)"),
+                ClauseReader.parseClause("(count zero)"),
+                ClauseReader.parseClause("(count s(?X)) :- (and (!) (count ?X))"),
+                ClauseReader.parseClause("(count s(?X)) :- (item never)")
+        });
+    }
+
+    private List<String> solve(String query, boolean stack) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = stack ? SolutionNodeFactory.getStackSolver(goal, rules, new Substitution())
+                : SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return TestUtils.solve(root, goal);
+    }
+
+    private void assertBothSolvers(List<String> expected, String query) throws ParseException {
+        assertEquals(expected, solve(query, false));
+        assertEquals(expected, solve(query, true));
+    }
+
+    @Test
+    public void testCutPrunesRuleAlternatives() throws ParseException {
+        assertBothSolvers(Collections.singletonList("(first a)"), "(first ?X)");
+        assertBothSolvers(Collections.singletonList("(late none)"), "(late none)");
+        assertBothSolvers(Collections.<String>emptyList(), "(late ?X)");
+
+        // The cut only prunes inside the rule: the caller's alternatives are kept.
+        assertBothSolvers(Arrays.asList("(and (item a) (first a))", "(and (item b) (first a))",
+                "(and (item c) (first a))"), "(and (item ?X) (first ?Y))");
+
+        // A cut in one operand of a disjunction prunes the other operands as well.
+        assertEquals(Collections.singletonList("(pick a)"), solve("(pick ?X)", false));
+    }
+
+    @Test
+    public void testOnce() throws ParseException {
+        assertBothSolvers(Collections.singletonList("(once (item a))"), "(once (item ?X))");
+        assertBothSolvers(Arrays.asList("(firstTwo a a)", "(firstTwo a b)", "(firstTwo a c)"), "(firstTwo ?X ?Y)");
+
+        // The operand has infinitely many solutions; only the first one is searched for.
+        assertBothSolvers(Collections.singletonList("(once (nat zero))"), "(once (nat ?X))");
+
+        // A cut inside a once or a negation prunes back to it.
+        assertBothSolvers(Collections.<String>emptyList(), "(once (and (item ?X) (!) (other ?X)))");
+        assertEquals(Arrays.asList("(lonely a)", "(lonely b)", "(lonely c)"), solve("(lonely ?X)", false));
+        assertTrue(ClauseReader.parseFormula("(once (item ?X))") instanceof OnceOperator);
+    }
+
+    @Test
+    public void testDeterministicRecursion() throws ParseException {
+        Term number = new Function("zero");
+        for(int count = 0; count < 100000; count++) {
+            number = new Function("s", number);
+        }
+        AbstractSolutionNode root = SolutionNodeFactory.getStackSolver(new Predicate("count", number), rules,
+                new Substitution());
+        assertNotNull(root.nextSolution());
+        assertNull(root.nextSolution());
+        assertEquals(1, solve("(count s(s(s(zero))))", false).size());
+    }
+
+    @Test
+    public void testCutOutsideOfRule() throws ParseException {
+        Formula goal = ClauseReader.parseFormula("(and (item ?X) (!))");
+        try {
+            SolutionNodeFactory.getSolver(goal, rules, new Substitution()).nextSolution();
+            fail("The cut is not in the body of a rule.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            SolutionNodeFactory.getStackSolver(goal, rules, new Substitution());
+            fail("The cut is not in the body of a rule.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Variable;
+
+public class GoalPlannerTest {
+
+    private RuleSet rules;
+    private ColumnarFactTable works;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(colleague ?X ?Y) :- (and (works ?X ?D) (works ?Y ?D) (senior ?Y))"),
+                ClauseReader.parseClause("(senior e7)"),
+                ClauseReader.parseClause("(senior e12)")
+        });
+        works = new ColumnarFactTable("works", 2);
+        for(int employee = 0; employee < 200; employee++) {
+            works.add(Symbol.get("e" + employee), Symbol.get("d" + (employee % 5)));
+        }
+        rules.addFactTable(works);
+    }
+
+    private List<String> solve(String query, GoalPlanner planner) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(),
+                new ProofContext(null, planner));
+        return sorted(TestUtils.solve(root, goal));
+    }
+
+    @Test
+    public void testSameSolutionsAsWrittenOrder() throws ParseException {
+        GoalPlanner planner = new GoalPlanner(rules);
+        String[] queries = {"(colleague ?X ?Y)", "(colleague e2 ?Y)", "(colleague ?X e12)",
+                "(and (works ?X d2) (senior ?X))", "(and (works ?X ?D) (works e7 ?D) (works ?X d3))"};
+        for(String query : queries) {
+            List<String> expected = solve(query, null);
+            assertEquals(query, expected, solve(query, planner));
+        }
+        assertEquals(80, solve("(colleague ?X ?Y)", planner).size());
+    }
+
+    @Test
+    public void testSelectiveOperandSolvedFirst() throws ParseException {
+        GoalPlanner planner = new GoalPlanner(rules);
+        Formula goal = ClauseReader.parseFormula("(and (works ?X ?D) (works ?Y ?D) (senior ?Y))");
+        AndSolutionNode node = (AndSolutionNode) SolutionNodeFactory.getSolver(goal, rules, new Substitution(),
+                new ProofContext(null, planner));
+        assertNotNull("The two senior facts should be solved first.", node.getOperandSolutionNode(2));
+        assertNull(node.getOperandSolutionNode(0));
+
+        // Once ?Y is bound, its department is one row away through the index on the first column,
+        // while ?X ranges over every employee of the department.
+        Variable x = new Variable("X");
+        Variable y = new Variable("Y");
+        Variable d = new Variable("D");
+        Substitution boundY = new Substitution();
+        boundY.add(y, new Function("e7"));
+        assertTrue(planner.estimateCost(new Predicate("works", y, d), boundY)
+                < planner.estimateCost(new Predicate("works", x, d), boundY));
+        assertNotNull(node.nextSolution());
+        assertNotNull(node.getOperandSolutionNode(0));
+    }
+
+    @Test
+    public void testStatisticsFollowFactTable() throws ParseException {
+        GoalPlanner planner = new GoalPlanner(rules);
+        Predicate senior = (Predicate) ClauseReader.parseFormula("(senior ?X)");
+        Predicate works = (Predicate) ClauseReader.parseFormula("(works ?X d1)");
+        assertTrue(planner.estimateCost(senior, new Substitution()) < planner.estimateCost(works, new Substitution()));
+
+        double before = planner.estimateCost(works, new Substitution());
+        for(int employee = 200; employee < 400; employee++) {
+            this.works.add(Symbol.get("e" + employee), Symbol.get("d" + (employee % 5)));
+        }
+        assertTrue(planner.estimateCost(works, new Substitution()) > before);
+    }
+
+    @Test
+    public void testImpureRulesNotReordered() throws ParseException {
+        List<String> clauses = new ArrayList<String>();
+        for(int person = 0; person < 299; person++) {
+            clauses.add("(person p" + person + ")");
+            clauses.add("(num " + person + ")");
+        }
+        clauses.add("(bad p3)");
+        clauses.add("(good ?X) :- (and (not (bad ?X)))");
+        clauses.add("(next ?X ?Y) :- (and (is ?Y +(?X, 1)))");
+        clauses.add("(kind ?X) :- (and (good ?X))");
+        rules = TestUtils.parse(clauses.toArray(new String[clauses.size()]));
+        GoalPlanner planner = new GoalPlanner(rules);
+
+        assertEquals(298, solve("(and (person ?X) (good ?X))", planner).size());
+        assertEquals(298, solve("(and (person ?X) (kind ?X))", planner).size());
+        assertEquals(299, solve("(and (num ?X) (next ?X ?Y))", planner).size());
+        assertFalse(planner.isReorderable((AndOperator) ClauseReader.parseFormula("(and (person ?X) (good ?X))")));
+        assertFalse("The negation is reached through a rule.",
+                planner.isReorderable((AndOperator) ClauseReader.parseFormula("(and (person ?X) (kind ?X))")));
+        assertTrue(planner.isReorderable((AndOperator) ClauseReader.parseFormula("(and (person ?X) (num ?Y))")));
+    }
+}
@@ -0,0 +1,92 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.solve;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.terms.Variable;
+
+public class IndependentAndSolutionNodeTest {
+
+    private ForkJoinPool pool;
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        pool = new ForkJoinPool(2);
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(p a)"),
+                ClauseReader.parseClause("(p b)"),
+                ClauseReader.parseClause("(p c)"),
+                ClauseReader.parseClause("(r a)"),
+                ClauseReader.parseClause("(r c)"),
+                ClauseReader.parseClause("(num n1)"),
+                ClauseReader.parseClause("(num n2)"),
+                ClauseReader.parseClause("(q ?Y) :- (and (num ?Y))"),
+                ClauseReader.parseClause("(s a)"),
+                ClauseReader.parseClause("(s a)"),
+                ClauseReader.parseClause("(pair ?X ?Y) :- (and (p ?X) (q ?Y) (r ?X))")
+        });
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static ProofContext independent() {
+        ProofContext context = new ProofContext();
+        context.setIndependentConjunctions(true);
+        return context;
+    }
+
+    @Test
+    public void testPartition() throws ParseException {
+        AndOperator goal = (AndOperator) ClauseReader.parseFormula("(and (p ?X) (q ?Y) (r ?X) (s a) (s a))");
+        AbstractSolutionNode node = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        assertTrue("Operands should be solved in order by default.", node instanceof AndSolutionNode);
+        node = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), independent());
+        assertTrue("Independent operands should be solved as groups.", node instanceof IndependentAndSolutionNode);
+
+        IndependentAndSolutionNode groups = (IndependentAndSolutionNode) node;
+        assertEquals(3, groups.getGroupCount());
+        assertEquals(new AndOperator(goal.getOperand(0), goal.getOperand(2)), groups.getGroupGoal(0));
+        assertEquals(goal.getOperand(1), groups.getGroupGoal(1));
+        assertEquals(new AndOperator(goal.getOperand(3), goal.getOperand(4)), groups.getGroupGoal(2));
+
+        AndOperator conjunction = (AndOperator) ClauseReader.parseFormula("(and (p ?X) (q ?Y) (r ?X))");
+        Substitution bound = new Substitution();
+        bound.add((Variable) ((Predicate) conjunction.getOperand(1)).getTerms().get(0),
+                ((Predicate) conjunction.getOperand(0)).getTerms().get(0));
+        node = SolutionNodeFactory.getSolver(conjunction, rules, bound, independent());
+        assertTrue("Operands connected through the parent solution share a group.", node instanceof AndSolutionNode);
+    }
+
+    @Test
+    public void testSameSolutionsAsNestedLoops() throws ParseException {
+        for(String query : new String[] {"(and (p ?X) (q ?Y) (r ?X) (s a) (s a))", "(pair ?A ?B)",
+                "(and (pair ?A ?B) (p ?C))", "(and (p ?X) (q ?Y) (r b))"}) {
+            Formula goal = ClauseReader.parseFormula(query);
+            List<String> expected = sorted(solve(SolutionNodeFactory.getStackSolver(goal, rules, new Substitution()), goal));
+            assertEquals("The groups should find every solution to " + query + ".", expected,
+                    sorted(solve(SolutionNodeFactory.getSolver(goal, rules, new Substitution(), independent()), goal)));
+            assertEquals("The parallel groups should find every solution to " + query + ".", expected,
+                    sorted(solve(SolutionNodeFactory.getAndParallelSolver(goal, rules, new Substitution(), pool), goal)));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.solve;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.operators.AndOperator;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+public class LeapfrogJoinSolutionNodeTest {
+
+    private RuleSet rules;
+    private ColumnarFactTable edge;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(path ?X ?Y) :- (edge ?X ?Y)"),
+                ClauseReader.parseClause("(red n3)")
+        });
+        edge = new ColumnarFactTable("edge", 2);
+        Random random = new Random(44);
+        for(int index = 0; index < 300; index++) {
+            edge.add(Symbol.get("n" + random.nextInt(30)), Symbol.get("n" + random.nextInt(30)));
+        }
+        edge.add(Symbol.get("n1"), Symbol.get("n2"));
+        ColumnarFactTable marked = new ColumnarFactTable("marked", 1);
+        for(int node = 0; node < 30; node += 3) {
+            marked.add(Symbol.get("n" + node));
+        }
+        rules.addFactTable(edge);
+        rules.addFactTable(marked);
+        rules.addFactTable(new ColumnarFactTable("blue", 1));
+    }
+
+    private static ProofContext leapfrog() {
+        ProofContext context = new ProofContext();
+        context.setLeapfrogJoins(true);
+        return context;
+    }
+
+    private List<String> distinct(List<String> answers) {
+        List<String> distinct = new ArrayList<String>();
+        for(String answer : answers) {
+            if(distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(answer)) {
+                distinct.add(answer);
+            }
+        }
+        return distinct;
+    }
+
+    @Test
+    public void testSameSolutionsAsStackSolver() throws ParseException {
+        String[] queries = {
+                "(and (edge ?X ?Y) (edge ?Y ?Z) (edge ?Z ?X))",
+                "(and (edge ?X ?Y) (edge ?Y ?Z) (edge ?Z ?W) (edge ?W ?X))",
+                "(and (edge n1 ?Y) (edge ?Y ?Z) (marked ?Z))",
+                "(and (edge ?X ?Y) (marked ?X) (marked ?Y))",
+                "(and (edge n1 n2) (marked ?X))",
+                "(and (marked ?X) (marked ?Y))",
+                "(and (edge n1 n2) (edge ?X n2))"
+        };
+        for(String query : queries) {
+            Formula goal = ClauseReader.parseFormula(query);
+            AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), leapfrog());
+            assertTrue(query, root instanceof LeapfrogJoinSolutionNode);
+            assertTrue("Operands should be solved in order by default.",
+                    SolutionNodeFactory.getSolver(goal, rules, new Substitution()) instanceof AndSolutionNode);
+            List<String> expected = distinct(sorted(solve(SolutionNodeFactory.getStackSolver(goal, rules, new Substitution()), goal)));
+            assertEquals(query, expected, sorted(solve(root, goal)));
+            assertFalse(query, expected.isEmpty());
+        }
+    }
+
+    @Test
+    public void testEmptyJoins() throws ParseException {
+        String[] queries = {
+                "(and (edge ?X ?Y) (blue ?X))",
+                "(and (edge missing ?Y) (edge ?Y ?Z))",
+                "(and (edge n1 n2) (edge missing n2))"
+        };
+        for(String query : queries) {
+            Formula goal = ClauseReader.parseFormula(query);
+            AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), leapfrog());
+            assertTrue(query, root instanceof LeapfrogJoinSolutionNode);
+            assertNull(query, root.nextSolution());
+            assertNull(query, root.nextSolution());
+        }
+    }
+
+    @Test
+    public void testApplicability() throws ParseException {
+        String[] queries = {
+                "(and (edge ?X ?Y) (path ?Y ?Z))",
+                "(and (edge ?X ?Y) (red ?Y))",
+                "(and (edge ?X ?X) (marked ?X))",
+                "(and (edge ?X f(?Y)) (marked ?X))",
+                "(and (edge ?X ?Y))"
+        };
+        for(String query : queries) {
+            AndOperator goal = (AndOperator) ClauseReader.parseFormula(query);
+            assertFalse(query, LeapfrogJoinSolutionNode.isApplicable(goal, rules, new Substitution()));
+        }
+        AndOperator goal = (AndOperator) ClauseReader.parseFormula("(and (edge ?X ?Y) (marked ?Y))");
+        assertTrue(LeapfrogJoinSolutionNode.isApplicable(goal, rules, new Substitution()));
+    }
+}
@@ -0,0 +1,100 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+
+public class NotSolutionNodeTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(person ann)"),
+                ClauseReader.parseClause("(person bob)"),
+                ClauseReader.parseClause("(person cal)"),
+                ClauseReader.parseClause("(works ann acme)"),
+                ClauseReader.parseClause("(works cal acme)"),
+                ClauseReader.parseClause("(works cal initech)"),
+                ClauseReader.parseClause("(employed ?X) :- (works ?X ?C)"),
+                ClauseReader.parseClause("(idle ?X) :- (and (person ?X) (not (employed ?X)))"),
+                ClauseReader.parseClause("(nat zero)"),
+                ClauseReader.parseClause("(nat s(?X)) :- (nat ?X)")
+        });
+    }
+
+    private List<String> solve(String query) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return sorted(TestUtils.solve(root, goal));
+    }
+
+    @Test
+    public void testNegationAsFailure() throws ParseException {
+        assertEquals(Collections.singletonList("(idle bob)"), solve("(idle ?X)"));
+        assertEquals(Collections.singletonList("(and (person bob) (not (employed bob)))"),
+                solve("(and (person ?X) (not (employed ?X)))"));
+        assertEquals(1, solve("(not (employed bob))").size());
+        assertEquals(0, solve("(not (employed cal))").size());
+
+        // An unbound Variable is read inside the negation: somebody is employed.
+        assertEquals(0, solve("(not (employed ?X))").size());
+        assertEquals(1, solve("(not (not (employed ?X)))").size());
+    }
+
+    @Test
+    public void testStopsAtFirstProof() throws ParseException {
+        // The operand has infinitely many proofs; only the first one is searched for.
+        assertEquals(0, solve("(not (nat ?X))").size());
+        assertEquals(Collections.singletonList("(and (person bob) (not (works bob acme)))"),
+                solve("(and (person ?X) (not (works ?X acme)))"));
+
+        ProofContext context = new ProofContext(null, null, new QueryLimits(0, 100, 0, 0, null));
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(ClauseReader.parseFormula("(not (nat ?X))"), rules,
+                new Substitution(), context);
+        assertTrue(root instanceof NotSolutionNode);
+        assertNull(root.nextSolution());
+        assertTrue(context.getInferenceCount() < 5);
+    }
+
+    @Test
+    public void testStratification() throws ParseException {
+        assertTrue(rules.isStratified());
+        assertEquals(0, rules.getStratum(Symbol.get("employed"), 1));
+        assertEquals(1, rules.getStratum(Symbol.get("idle"), 1));
+        assertEquals(0, rules.getStratum(Symbol.get("unknown"), 3));
+
+        RuleSet unstratified = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(win ?X) :- (and (move ?X ?Y) (not (win ?Y)))"),
+                ClauseReader.parseClause("(move a b)")
+        });
+        assertFalse(unstratified.isStratified());
+        try {
+            unstratified.getStratum(Symbol.get("win"), 1);
+            fail("The rules are not stratified.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+
+        RuleSet doubleNegation = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(p ?X) :- (and (q ?X) (not (not (p ?X))))")
+        });
+        assertFalse(doubleNegation.isStratified());
+    }
+}
@@ -0,0 +1,112 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.parse;
+import static rogel.io.fopl.TestUtils.solve;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.Query;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+public class OrParallelSolutionNodeTest {
+
+    private ForkJoinPool pool;
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        pool = new ForkJoinPool(4);
+
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(int index = 0; index < 12; index++) {
+            clauses.add(ClauseReader.parseClause("(edge n" + index + " n" + (index + 1) + ")"));
+            clauses.add(ClauseReader.parseClause("(edge n" + index + " n" + (index + 2) + ")"));
+        }
+        clauses.add(ClauseReader.parseClause("(reach ?X ?Y) :- (and (edge ?X ?Y))"));
+        clauses.add(ClauseReader.parseClause("(reach ?X ?Y) :- (and (edge ?X ?Z) (reach ?Z ?Y))"));
+        rules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+
+        ColumnarFactTable edges = new ColumnarFactTable("edge", 2);
+        edges.add(Symbol.get("m0"), Symbol.get("n8"));
+        rules.addFactTable(edges);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSameSolutionsAsTree() throws ParseException {
+        for(String query : new String[] {"(reach n5 ?Y)", "(reach ?X n10)", "(and (reach m0 ?Y) (edge ?Y ?Z))"}) {
+            Formula goal = ClauseReader.parseFormula(query);
+            List<String> expected = sorted(solve(SolutionNodeFactory.getSolver(goal, rules, new Substitution()), goal));
+            assertFalse(expected.isEmpty());
+            assertEquals("The parallel search should find every solution to " + query + ".", expected,
+                    sorted(solve(SolutionNodeFactory.getOrParallelSolver(goal, rules, new Substitution(), pool), goal)));
+        }
+    }
+
+    @Test
+    public void testTabledGoals() throws ParseException {
+        RuleSet tabled = parse(
+                "(link a b)",
+                "(link b a)",
+                "(link b c)",
+                "(tc ?X ?Y) :- (and (tc ?X ?Z) (link ?Z ?Y))",
+                "(tc ?X ?Y) :- (and (link ?X ?Y))");
+        tabled.addTabledPredicate(Symbol.get("tc"), 2);
+        for(String query : new String[] {"(tc a ?Y)", "(and (link ?X b) (tc ?X ?Y))"}) {
+            Formula goal = ClauseReader.parseFormula(query);
+            assertEquals("Left recursion should end for the tabled " + query + ".",
+                    sorted(solve(SolutionNodeFactory.getSolver(goal, tabled, new Substitution()), goal)),
+                    sorted(solve(SolutionNodeFactory.getOrParallelSolver(goal, tabled, new Substitution(), pool), goal)));
+        }
+    }
+
+    @Test
+    public void testBranchFailure() throws ParseException, InterruptedException {
+        RuleSet values = parse("(value a 1)", "(value b c)");
+        Formula goal = ClauseReader.parseFormula("(and (value ?X ?V) (< ?V 3))");
+        AbstractSolutionNode root = SolutionNodeFactory.getOrParallelSolver(goal, values, new Substitution(), pool);
+        try {
+            // The first branch may find its solution before the second one fails.
+            root.nextSolution();
+            for(int wait = 0; wait < 1000 && !pool.isQuiescent(); wait++) {
+                Thread.sleep(10);
+            }
+            root.nextSolution();
+            fail("The second branch compares a constant that is not a number.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+        assertNull("The failed search should have no more solutions.", root.nextSolution());
+    }
+
+    @Test
+    public void testEarlyClose() throws ParseException, InterruptedException {
+        Formula goal = ClauseReader.parseFormula("(reach ?X ?Y)");
+        Query query = new Query(SolutionNodeFactory.getOrParallelSolver(goal, rules, new Substitution(), pool));
+        assertEquals("The Query should stop after its limit.", 5, query.limit(5).toList().size());
+        for(int wait = 0; wait < 1000 && !pool.isQuiescent(); wait++) {
+            Thread.sleep(10);
+        }
+        assertTrue("The search should stop once the node is closed.", pool.isQuiescent());
+    }
+}
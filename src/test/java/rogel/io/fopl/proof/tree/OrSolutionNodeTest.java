@@ -0,0 +1,82 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+
+public class OrSolutionNodeTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(parent ann bob)"),
+                ClauseReader.parseClause("(parent bob cal)"),
+                ClauseReader.parseClause("(mentor ann cal)"),
+                ClauseReader.parseClause("(mentor bob cal)"),
+                ClauseReader.parseClause("(elder ?X ?Y) :- (or (parent ?X ?Y) (mentor ?X ?Y))"),
+                ClauseReader.parseClause("(split ?X ?Y) :- (parent ?X ?Y)"),
+                ClauseReader.parseClause("(split ?X ?Y) :- (mentor ?X ?Y)"),
+                ClauseReader.parseClause("(nat zero)"),
+                ClauseReader.parseClause("(nat s(?X)) :- (nat ?X)")
+        });
+    }
+
+    private List<String> solve(String query, boolean distinct) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        ProofContext context = new ProofContext();
+        context.setDistinctDisjunctions(distinct);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context);
+        return TestUtils.solve(root, goal);
+    }
+
+    @Test
+    public void testSameSolutionsAsSplitRules() throws ParseException {
+        List<String> split = new ArrayList<String>();
+        for(String answer : solve("(split ?X ?Y)", false)) {
+            split.add(answer.replace("split", "elder"));
+        }
+        assertEquals(split, solve("(elder ?X ?Y)", false));
+        assertEquals(Arrays.asList("(elder ann bob)", "(elder bob cal)", "(elder ann cal)", "(elder bob cal)"),
+                solve("(elder ?X ?Y)", false));
+        assertEquals(Collections.singletonList("(and (parent ann bob) (or (parent bob cal) (mentor bob cal)))"),
+                solve("(and (parent ann ?Y) (or (parent ?Y cal) (mentor ?Y cal)))", true));
+        assertTrue(solve("(or (parent cal ?X) (mentor cal ?X))", false).isEmpty());
+    }
+
+    @Test
+    public void testDistinctAnswers() throws ParseException {
+        assertEquals(Arrays.asList("(elder ann bob)", "(elder bob cal)", "(elder ann cal)"), solve("(elder ?X ?Y)", true));
+        assertEquals(Arrays.asList("(or (parent bob cal) (mentor bob cal))"),
+                solve("(or (parent bob cal) (mentor bob cal))", true));
+        assertEquals(2, solve("(or (parent bob cal) (mentor bob cal))", false).size());
+    }
+
+    @Test
+    public void testOperandsSolvedLazily() throws ParseException {
+        // The second operand is never reached, and the first has infinitely many solutions.
+        Formula goal = ClauseReader.parseFormula("(or (nat ?X) (parent ?X ?Y))");
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        assertTrue(root instanceof OrSolutionNode);
+        for(int count = 0; count < 50; count++) {
+            assertNotNull(root.nextSolution());
+        }
+        root.close();
+        assertNull(root.nextSolution());
+    }
+}
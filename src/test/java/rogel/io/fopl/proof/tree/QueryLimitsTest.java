@@ -0,0 +1,111 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.Query;
+import rogel.io.fopl.proof.RuleSet;
+
+public class QueryLimitsTest {
+
+    private RuleSet rules;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(nat zero)"),
+                ClauseReader.parseClause("(nat s(?X)) :- (nat ?X)"),
+                ClauseReader.parseClause("(loop ?X) :- (loop ?X)"),
+                ClauseReader.parseClause("(parent a b)"),
+                ClauseReader.parseClause("(parent b c)"),
+                ClauseReader.parseClause("(ancestor ?X ?Y) :- (parent ?X ?Y)"),
+                ClauseReader.parseClause("(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))")
+        });
+    }
+
+    private QueryLimitException.Reason solveAll(Formula goal, QueryLimits limits) {
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(),
+                new ProofContext(null, null, limits));
+        try {
+            while(root.nextSolution() != null) {
+                // Keep searching.
+            }
+            return null;
+        }
+        catch(QueryLimitException e) {
+            return e.getReason();
+        }
+    }
+
+    @Test
+    public void testLimitsStopRunawayQueries() throws ParseException {
+        Formula nat = ClauseReader.parseFormula("(nat ?X)");
+        Formula loop = ClauseReader.parseFormula("(loop a)");
+        assertEquals(QueryLimitException.Reason.INFERENCES, solveAll(nat, new QueryLimits(0, 5000, 0, 0, null)));
+        assertEquals(QueryLimitException.Reason.DEPTH, solveAll(loop, new QueryLimits(0, 0, 100, 0, null)));
+        assertEquals(QueryLimitException.Reason.TIMEOUT, solveAll(nat, new QueryLimits(50, 0, 0, 0, null)));
+        assertEquals(QueryLimitException.Reason.BINDINGS, solveAll(nat, new QueryLimits(0, 0, 0, 200, null)));
+
+        // The StackSolutionNode, which does not nest, counts its inferences as well.
+        AbstractSolutionNode stack = new StackSolutionNode(loop, rules, new Substitution(),
+                new ProofContext(null, null, new QueryLimits(0, 10000, 0, 0, null)));
+        try {
+            stack.nextSolution();
+            fail("The stack solver should stop after 10000 inferences.");
+        }
+        catch(QueryLimitException e) {
+            assertEquals(QueryLimitException.Reason.INFERENCES, e.getReason());
+            assertEquals(10001, e.getInferenceCount());
+        }
+    }
+
+    @Test
+    public void testLimitsDoNotChangeSolutions() throws ParseException {
+        Formula goal = ClauseReader.parseFormula("(ancestor ?X ?Y)");
+        ProofContext context = new ProofContext(null, null, new QueryLimits(60000, 1000, 10, 100, new CancellationToken()));
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), context);
+        int count = 0;
+        while(root.nextSolution() != null) {
+            count++;
+        }
+        assertEquals(3, count);
+        assertTrue(context.getInferenceCount() > 0);
+    }
+
+    @Test
+    public void testCancellation() throws ParseException {
+        final CancellationToken token = new CancellationToken();
+        Query query = new Query(ClauseReader.parseFormula("(nat ?X)"), rules, new QueryLimits(0, 0, 0, 0, token));
+        List<Substitution> partial = new ArrayList<Substitution>();
+        try {
+            for(Substitution solution : query) {
+                partial.add(solution);
+                if(partial.size() == 10) {
+                    token.cancel();
+                }
+            }
+            fail("The query should have been cancelled.");
+        }
+        catch(QueryLimitException e) {
+            assertEquals(QueryLimitException.Reason.CANCELLED, e.getReason());
+        }
+        assertTrue(partial.size() >= 10);
+        assertTrue(query.isClosed());
+        assertFalse(query.hasNext());
+
+        Formula loop = ClauseReader.parseFormula("(loop a)");
+        Thread.currentThread().interrupt();
+        assertEquals(QueryLimitException.Reason.INTERRUPTED, solveAll(loop, new QueryLimits(0, 0, 0, 0, null)));
+        assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,116 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.parse;
+import static rogel.io.fopl.TestUtils.solve;
+
+import java.text.ParseException;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.terms.Function;
+import rogel.io.fopl.terms.Term;
+import rogel.io.fopl.terms.Variable;
+
+public class StackSolutionNodeTest {
+
+    @Test
+    public void testSameSolutionsAsTree() throws ParseException {
+        RuleSet rules = parse(
+                "(parent bill audrey)",
+                "(parent maria bill)",
+                "(parent bill tony)",
+                "(ancestor ?X ?Y) :- (and (parent ?X ?Y))",
+                "(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))",
+                "(append nil ?L ?L)",
+                "(append cons(?H, ?T) ?L cons(?H, ?R)) :- (and (append ?T ?L ?R))",
+                "(same ?X ?X)");
+        ColumnarFactTable parents = new ColumnarFactTable("parent", 2);
+        parents.add(Symbol.get("joe"), Symbol.get("maria"));
+        rules.addFactTable(parents);
+        ColumnarFactTable likes = new ColumnarFactTable("likes", 2);
+        likes.add(Symbol.get("tony"), Symbol.get("bill"));
+        likes.add(Symbol.get("tony"), Symbol.get("tony"));
+        rules.addFactTable(likes);
+
+        String[] queries = {
+            "(ancestor ?X ?Y)",
+            "(ancestor joe ?Y)",
+            "(and (parent ?X ?Y) (parent ?Y ?Z))",
+            "(likes ?X ?X)",
+            "(append ?X ?Y cons(a, cons(b, nil)))",
+            "(same f(?X, b) f(a, ?Y))",
+            "(same ?X f(?X))",
+            "(undefined ?X)"
+        };
+
+        for(String query : queries) {
+            Formula goal = ClauseReader.parseFormula(query);
+            assertEquals("The node should solve " + query + " like the proof tree, in the same order.",
+                    solve(SolutionNodeFactory.getSolver(goal, rules, new Substitution()), goal),
+                    solve(SolutionNodeFactory.getStackSolver(goal, rules, new Substitution()), goal));
+        }
+    }
+
+    @Test
+    public void testDeepRecursion() throws ParseException {
+        RuleSet rules = parse(
+                "(length nil zero)",
+                "(length cons(?H, ?T) s(?N)) :- (and (length ?T ?N))");
+
+        int depth = 100000;
+        Term list = new Function("nil");
+        for(int index = 0; index < depth; index++) {
+            list = new Function("cons", new Function("a"), list);
+        }
+        Variable length = new Variable("N");
+        Predicate goal = new Predicate("length", list, length);
+
+        AbstractSolutionNode root = SolutionNodeFactory.getStackSolver(goal, rules, new Substitution());
+        Substitution solution = root.nextSolution();
+        assertNotNull("The length of a long list should be found.", solution);
+
+        int count = 0;
+        Term term = (Term) solution.getBinding(length);
+        while(term instanceof Function && !((Function) term).isConstant()) {
+            term = ((Function) term).getArguments().get(0);
+            count++;
+        }
+        assertEquals("The length should count every element.", depth, count);
+        assertEquals("The length should end with zero.", Symbol.get("zero"), term.getSymbol());
+        assertNull("There should be no other solution.", root.nextSolution());
+    }
+
+    @Test
+    public void testTabledGoals() throws ParseException {
+        RuleSet rules = parse(
+                "(edge a b)",
+                "(edge b a)",
+                "(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))",
+                "(path ?X ?Y) :- (and (edge ?X ?Y))",
+                "(linked ?X) :- (and (path ?X b))");
+        rules.addTabledPredicate(Symbol.get("path"), 2);
+        try {
+            SolutionNodeFactory.getStackSolver(ClauseReader.parseFormula("(path a ?Y)"), rules, new Substitution());
+            fail("The node does not table.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            SolutionNodeFactory.getStackSolver(ClauseReader.parseFormula("(linked a)"), rules, new Substitution())
+                    .nextSolution();
+            fail("The node does not table the goals of a rule's body either.");
+        }
+        catch(IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
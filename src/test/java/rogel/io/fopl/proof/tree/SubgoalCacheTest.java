@@ -0,0 +1,94 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+
+public class SubgoalCacheTest {
+
+    private RuleSet rules;
+    private ColumnarFactTable edges;
+
+    @Before
+    public void setUp() throws ParseException {
+        rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))"),
+                ClauseReader.parseClause("(path ?X ?Y) :- (and (edge ?X ?Y))")
+        });
+        edges = new ColumnarFactTable("edge", 2);
+        edges.add(Symbol.get("a"), Symbol.get("b"));
+        edges.add(Symbol.get("b"), Symbol.get("c"));
+        edges.add(Symbol.get("c"), Symbol.get("a"));
+        edges.add(Symbol.get("x"), Symbol.get("y"));
+        rules.addFactTable(edges);
+        rules.addTabledPredicate(Symbol.get("path"), 2);
+    }
+
+    private List<String> solve(String query, SubgoalCache cache) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution(), new ProofContext(cache));
+        return sorted(TestUtils.solve(root, goal));
+    }
+
+    @Test
+    public void testVariantsAnsweredFromCache() throws ParseException {
+        SubgoalCache cache = new SubgoalCache(rules, 100);
+        List<String> expected = solve("(path a ?Y)", null);
+        assertEquals(expected, solve("(path a ?Y)", cache));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getSize());
+
+        assertEquals("A variant should be answered from the cache.", expected, solve("(path a ?Z)", cache));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(4, cache.getAnswerCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws ParseException {
+        SubgoalCache cache = new SubgoalCache(rules, 6);
+        solve("(path a ?Y)", cache);
+        solve("(path x ?Y)", cache);
+        assertEquals(2, cache.getSize());
+
+        // (path x ?Y) has 1 answer and (path b ?Y) has 3: the least recently used, (path a ?Y), goes.
+        solve("(path x ?Y)", cache);
+        solve("(path b ?Y)", cache);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(6, cache.getAnswerCount());
+
+        long hits = cache.getHitCount();
+        solve("(path x ?Y)", cache);
+        assertEquals(hits + 1, cache.getHitCount());
+        solve("(path a ?Y)", cache);
+        assertEquals("An evicted subgoal should be solved again.", hits + 1, cache.getHitCount());
+    }
+
+    @Test
+    public void testInvalidatedWhenRulesChange() throws ParseException {
+        SubgoalCache cache = new SubgoalCache(rules, 100);
+        assertEquals(Collections.singletonList("(path x y)"), solve("(path x ?Y)", cache));
+        assertEquals(1, cache.getSize());
+
+        edges.add(Symbol.get("y"), Symbol.get("z"));
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals("New facts should be seen.", 2, solve("(path x ?Y)", cache).size());
+    }
+}
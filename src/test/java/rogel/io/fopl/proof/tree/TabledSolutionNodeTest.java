@@ -0,0 +1,78 @@
+package rogel.io.fopl.proof.tree;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+
+public class TabledSolutionNodeTest {
+
+    private static final String[] EDGES = {"(edge a b)", "(edge b c)", "(edge c a)", "(edge c d)"};
+
+    private static RuleSet tabledRules(String... pathRules) throws ParseException {
+        List<HornClause> clauses = new ArrayList<HornClause>();
+        for(String clause : EDGES) {
+            clauses.add(ClauseReader.parseClause(clause));
+        }
+        for(String clause : pathRules) {
+            clauses.add(ClauseReader.parseClause(clause));
+        }
+        RuleSet rules = new RuleSet(clauses.toArray(new HornClause[clauses.size()]));
+        rules.addTabledPredicate(Symbol.get("path"), 2);
+        return rules;
+    }
+
+    private static List<String> solve(String query, RuleSet rules) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return sorted(TestUtils.solve(root, goal));
+    }
+
+    @Test
+    public void testLeftRecursionOverCycle() throws ParseException {
+        RuleSet rules = tabledRules("(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Y))");
+        assertEquals(Arrays.asList("(path a a)", "(path a b)", "(path a c)", "(path a d)"), solve("(path a ?Y)", rules));
+        assertEquals(Arrays.asList("(path a c)", "(path b c)", "(path c c)"), solve("(path ?X c)", rules));
+        assertEquals("Every pair should be found once.", 12, solve("(path ?X ?Y)", rules).size());
+        assertTrue(solve("(path d ?Y)", rules).isEmpty());
+    }
+
+    @Test
+    public void testMutuallyDependentCalls() throws ParseException {
+        RuleSet left = tabledRules("(path ?X ?Y) :- (and (path ?X ?Z) (edge ?Z ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Y))");
+        RuleSet doubled = tabledRules("(path ?X ?Y) :- (and (path ?X ?Z) (path ?Z ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Y))");
+        RuleSet right = tabledRules("(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Y))");
+        for(String query : new String[] {"(path a ?Y)", "(path ?X d)", "(path ?X ?Y)", "(and (path b ?Y) (path ?Y a))"}) {
+            List<String> expected = solve(query, left);
+            assertEquals("Double recursion should find the same answers to " + query + ".", expected, solve(query, doubled));
+            assertEquals("Right recursion should find the same answers to " + query + ".", expected, solve(query, right));
+        }
+    }
+
+    @Test
+    public void testTablesShared() throws ParseException {
+        RuleSet rules = tabledRules("(path ?X ?Y) :- (and (edge ?X ?Z) (path ?Z ?Y))", "(path ?X ?Y) :- (and (edge ?X ?Y))");
+        Formula goal = ClauseReader.parseFormula("(and (path a ?Y) (path a ?Z))");
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        int solutions = 0;
+        while(root.nextSolution() != null) {
+            solutions++;
+        }
+        assertEquals(16, solutions);
+        assertEquals("The variants (path a ?), (path b ?), (path c ?) and (path d ?) should be tabled.", 4,
+                root.getContext().getTableCount());
+    }
+}
@@ -0,0 +1,97 @@
+package rogel.io.fopl.proof.wam;
+
+import static org.junit.Assert.*;
+import static rogel.io.fopl.TestUtils.parse;
+import static rogel.io.fopl.TestUtils.solve;
+import static rogel.io.fopl.TestUtils.sorted;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+public class WamMachineTest {
+
+    private static final String[] CLAUSES = {
+        "(parent bill audrey)",
+        "(parent maria bill)",
+        "(parent bill tony)",
+        "(ancestor ?X ?Y) :- (and (parent ?X ?Y))",
+        "(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))",
+        "(append nil ?L ?L)",
+        "(append cons(?H, ?T) ?L cons(?H, ?R)) :- (and (append ?T ?L ?R))",
+        "(reverse nil nil)",
+        "(reverse cons(?H, ?T) ?R) :- (and (reverse ?T ?S) (append ?S cons(?H, nil) ?R))",
+        "(same ?X ?X)"
+    };
+
+    private static List<String> solveWithTree(String query, RuleSet rules) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return sorted(solve(root, goal));
+    }
+
+    private static List<String> solveWithWam(String query, WamProgram program) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        WamMachine machine = program.solve(goal);
+        List<String> answers = new ArrayList<String>();
+        for(Substitution solution = machine.nextSolution(); solution != null; solution = machine.nextSolution()) {
+            answers.add(goal.replaceVariables(solution).toString().replaceAll("_[0-9]+", ""));
+        }
+        Collections.sort(answers);
+        return answers;
+    }
+
+    @Test
+    public void testSameAnswersAsTree() throws ParseException {
+        RuleSet rules = parse(CLAUSES);
+        WamProgram program = WamCompiler.compile(rules);
+        String[] queries = {
+            "(ancestor maria ?Y)",
+            "(ancestor ?X ?Y)",
+            "(ancestor ?X audrey)",
+            "(ancestor audrey ?Y)",
+            "(and (parent ?X ?Y) (parent ?Y ?Z))",
+            "(reverse cons(a, cons(b, cons(c, nil))) ?R)",
+            "(append ?X ?Y cons(a, cons(b, nil)))",
+            "(same f(?X, b) f(a, ?Y))",
+            "(undefined ?X)"
+        };
+
+        for(String query : queries) {
+            assertEquals("The machine should answer " + query + " like the tree solver.",
+                    solveWithTree(query, rules), solveWithWam(query, program));
+        }
+    }
+
+    @Test
+    public void testFactTables() throws ParseException {
+        RuleSet rules = parse("(ancestor ?X ?Y) :- (and (parent ?X ?Y))",
+                "(ancestor ?X ?Y) :- (and (parent ?X ?Z) (ancestor ?Z ?Y))",
+                "(parent bill audrey)");
+        ColumnarFactTable parents = new ColumnarFactTable("parent", 2);
+        parents.add(Symbol.get("joe"), Symbol.get("bill"));
+        parents.add(Symbol.get("charles"), Symbol.get("joe"));
+        parents.add(Symbol.get("tony"), Symbol.get("tony"));
+        rules.addFactTable(parents);
+        WamProgram program = WamCompiler.compile(rules);
+
+        assertEquals("Rules should combine the clauses and rows of parent/2.",
+                solveWithTree("(ancestor charles ?Y)", rules), solveWithWam("(ancestor charles ?Y)", program));
+        assertEquals("A repeated Variable should only match rows with equal columns.",
+                solveWithTree("(parent ?X ?X)", rules), solveWithWam("(parent ?X ?X)", program));
+        assertEquals("A structure never matches a row.", 0,
+                solveWithWam("(parent f(joe) ?Y)", program).size());
+    }
+}
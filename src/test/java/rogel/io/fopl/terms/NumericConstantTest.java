@@ -0,0 +1,203 @@
+package rogel.io.fopl.terms;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rogel.io.fopl.Substitution;
+import rogel.io.fopl.Symbol;
+import rogel.io.fopl.TestUtils;
+import rogel.io.fopl.formulas.Formula;
+import rogel.io.fopl.formulas.Predicate;
+import rogel.io.fopl.parser.ClauseReader;
+import rogel.io.fopl.proof.HornClause;
+import rogel.io.fopl.proof.RuleSet;
+import rogel.io.fopl.proof.builtins.Arithmetic;
+import rogel.io.fopl.proof.facts.ColumnarFactTable;
+import rogel.io.fopl.proof.snapshot.RuleSetSnapshot;
+import rogel.io.fopl.proof.tree.AbstractSolutionNode;
+import rogel.io.fopl.proof.tree.SolutionNodeFactory;
+
+public class NumericConstantTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> solve(String query, RuleSet rules, boolean stack) throws ParseException {
+        Formula goal = ClauseReader.parseFormula(query);
+        AbstractSolutionNode root = stack ? SolutionNodeFactory.getStackSolver(goal, rules, new Substitution())
+                : SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+        return TestUtils.solve(root, goal);
+    }
+
+    @Test
+    public void testValueOf() {
+        assertEquals(new IntegerConstant(42), NumericConstant.valueOf("42"));
+        assertEquals(new IntegerConstant(-7), NumericConstant.valueOf("-7"));
+        assertEquals(new IntegerConstant(7), NumericConstant.valueOf("+007"));
+        assertEquals(new FloatConstant(2.5), NumericConstant.valueOf("2.5"));
+        assertEquals(new FloatConstant(25.0), NumericConstant.valueOf("2.5e1"));
+        assertEquals(new FloatConstant(0.001), NumericConstant.valueOf("1.0E-3"));
+        assertEquals("25.0", NumericConstant.valueOf("2.5e1").toString());
+        assertEquals("-7", new IntegerConstant(-7).toString());
+
+        for(String name : Arrays.asList("abc", "-", "1.", ".5", "1f", "1e", "0x10", "1_000", "99999999999999999999")) {
+            assertNull(name, NumericConstant.valueOf(name));
+        }
+    }
+
+    @Test
+    public void testEqualityAndUnification() {
+        Variable x = new Variable("x");
+        int symbolCount = Symbol.getSymbolCount();
+        IntegerConstant three = new IntegerConstant(3000000007L);
+        FloatConstant half = new FloatConstant(0.5);
+        assertEquals(three, new IntegerConstant(3000000007L));
+        assertEquals(three.hashCode(), new IntegerConstant(3000000007L).hashCode());
+        assertEquals(half, new FloatConstant(0.5));
+        assertNotEquals(new IntegerConstant(1), new FloatConstant(1.0));
+        assertTrue(three.isConstant());
+        assertEquals(Long.valueOf(3000000007L), three.getValue());
+
+        HashSet<Term> terms = new HashSet<Term>(Arrays.<Term>asList(three, half, new IntegerConstant(3000000007L)));
+        assertEquals(2, terms.size());
+
+        Substitution substitution = x.unify(three, new Substitution());
+        assertEquals(three, substitution.getBinding(x));
+        assertNotNull(three.unify(new IntegerConstant(3000000007L), new Substitution()));
+        assertNotNull(three.unify(x, substitution));
+        assertNull(three.unify(new IntegerConstant(3), new Substitution()));
+        assertNull(new IntegerConstant(1).unify(new FloatConstant(1.0), new Substitution()));
+        assertEquals(symbolCount, Symbol.getSymbolCount());
+
+        // A Symbol is only given to a number when one is asked for.
+        assertEquals("3000000007", three.getSymbol().toString());
+        assertNotEquals(three, new Function("3000000007"));
+        assertNotNull(three.unify(new Function("3000000007"), new Substitution()));
+        assertNotNull(new Function("+3000000007").unify(three, new Substitution()));
+        assertNull(new Function("3").unify(new FloatConstant(3.0), new Substitution()));
+        assertEquals(three, Term.constant(Symbol.get("3000000007")));
+        assertTrue(Term.constant(Symbol.get("abc")) instanceof Function);
+    }
+
+    @Test
+    public void testParsingAndSolving() throws ParseException {
+        ClauseReader.parseFormula("(warm up)"); // The parser names its operators on first use.
+        int symbolCount = Symbol.getSymbolCount();
+        Predicate fact = (Predicate) ClauseReader.parseFormula("(measure 123456789 -0.25 x)");
+        assertTrue(fact.getTerms().get(0) instanceof IntegerConstant);
+        assertTrue(fact.getTerms().get(1) instanceof FloatConstant);
+        assertEquals("(measure 123456789 -0.25 x)", fact.toString());
+        assertTrue(Symbol.getSymbolCount() - symbolCount <= 2); // The names measure and x.
+
+        RuleSet rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(age ann 41)"),
+                ClauseReader.parseClause("(age bob 42)"),
+                ClauseReader.parseClause("(older ?X ?Y) :- (and (age ?X ?A) (age ?Y ?B) (> ?A ?B))")
+        });
+        ColumnarFactTable weight = new ColumnarFactTable("weight", 2);
+        weight.add((Predicate) ClauseReader.parseFormula("(weight ann 60.5)"));
+        weight.add((Predicate) ClauseReader.parseFormula("(weight bob 42)"));
+        weight.add(Symbol.get("cal"), Symbol.get("70"));
+        rules.addFactTable(weight);
+
+        for(boolean stack : new boolean[] {false, true}) {
+            assertEquals(Arrays.asList("(age bob 42)"), solve("(age ?X 42)", rules, stack));
+            assertEquals(Arrays.asList("(older bob ann)"), solve("(older ?X ?Y)", rules, stack));
+            assertEquals(Arrays.asList("(weight bob 42)"), solve("(weight ?X 42)", rules, stack));
+            assertEquals(1, solve("(and (weight cal ?W) (> ?W 65))", rules, stack).size());
+            assertTrue(solve("(weight ?X 42.0)", rules, stack).isEmpty());
+            assertTrue(solve("(age ?X 42.0)", rules, stack).isEmpty());
+        }
+
+        // Numbers read back from a FactTable are numbers.
+        Formula goal = ClauseReader.parseFormula("(weight ann ?W)");
+        Substitution solution = SolutionNodeFactory.getSolver(goal, rules, new Substitution()).nextSolution();
+        Term value = (Term) ((Predicate) goal).getTerms().get(1).replaceVariables(solution);
+        assertEquals(new FloatConstant(60.5), value);
+    }
+
+    @Test
+    public void testNumeralFunctionsInFactTables() throws ParseException {
+        RuleSet rules = new RuleSet(new HornClause[0]);
+        ColumnarFactTable age = new ColumnarFactTable("age", 2);
+        age.add(new Predicate("age", new Function("bob"), new Function("5")));
+        age.add(new Predicate("age", new Function("cal"), new Function("007")));
+        age.add((Predicate) ClauseReader.parseFormula("(age dan 5.0)"));
+        rules.addFactTable(age);
+
+        // A number written as a constant Function is stored, matched and read back as the number.
+        Predicate bob = new Predicate("age", new Function("bob"), new Function("5"));
+        Predicate cal = new Predicate("age", new Function("cal"), new IntegerConstant(7));
+        for(boolean stack : new boolean[] {false, true}) {
+            for(Predicate goal : new Predicate[] {bob, cal}) {
+                AbstractSolutionNode root = stack ? SolutionNodeFactory.getStackSolver(goal, rules, new Substitution())
+                        : SolutionNodeFactory.getSolver(goal, rules, new Substitution());
+                assertEquals(goal.toString(), 1, TestUtils.solve(root, goal).size());
+            }
+            assertEquals(Arrays.asList("(age bob 5)"), solve("(age ?X 5)", rules, stack));
+            assertEquals(Arrays.asList("(age cal 7)"), solve("(age cal ?A)", rules, stack));
+            assertEquals(Arrays.asList("(age dan 5.0)"), solve("(age ?X 5.0)", rules, stack));
+        }
+        Formula goal = ClauseReader.parseFormula("(age bob ?A)");
+        Substitution solution = SolutionNodeFactory.getSolver(goal, rules, new Substitution()).nextSolution();
+        assertEquals(new IntegerConstant(5), ((Predicate) goal).getTerms().get(1).replaceVariables(solution));
+        assertEquals(new IntegerConstant(7), age.getFact(1).getTerms().get(1));
+    }
+
+    @Test
+    public void testNumeralFunctionsAcrossStores() throws ParseException {
+        RuleSet rules = new RuleSet(new HornClause[] {
+                new HornClause(new Predicate("age", new Function("bob"), new Function("05"))),
+                ClauseReader.parseClause("(age cal 7)"),
+                ClauseReader.parseClause("(next ?X ?Y) :- (and (age ?X ?A) (is ?Y +(?A, 1)))")
+        });
+        ColumnarFactTable weight = new ColumnarFactTable("weight", 2);
+        weight.add(new Predicate("weight", new Function("bob"), new Function("42")));
+        rules.addFactTable(weight);
+
+        assertEquals("5", new Function("05").getSymbol().toString());
+        assertEquals(new IntegerConstant(5), new Function("05").getNumber());
+        assertNull(new Function("bob").getNumber());
+        assertEquals(new IntegerConstant(5), Arithmetic.evaluate(new Function("5"), new Substitution()));
+
+        // A clause written with a numeral Function, a parsed clause, a FactTable and the built-in
+        // predicates all agree on the numbers.
+        for(boolean stack : new boolean[] {false, true}) {
+            assertEquals(Arrays.asList("(age bob 5)"), solve("(age bob 5)", rules, stack));
+            assertEquals(Arrays.asList("(age bob 5)"), solve("(age ?X 5)", rules, stack));
+            assertEquals(Arrays.asList("(next bob 6)", "(next cal 8)"), solve("(next ?X ?Y)", rules, stack));
+            assertEquals(Arrays.asList("(and (age bob 5) (integer 5))"), solve("(and (age bob ?A) (integer ?A))", rules, stack));
+            assertEquals(Arrays.asList("(and (weight bob 42) (=:= 42 42))"),
+                    solve("(and (weight bob ?W) (=:= ?W 42))", rules, stack));
+            assertTrue(solve("(and (age bob ?A) (atom ?A))", rules, stack).isEmpty());
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException, ParseException {
+        RuleSet rules = new RuleSet(new HornClause[] {
+                ClauseReader.parseClause("(limit speed 130)"),
+                ClauseReader.parseClause("(limit ratio -1.5E-8)"),
+                ClauseReader.parseClause("(fast ?X) :- (and (limit speed ?L) (> ?X ?L))")
+        });
+        File file = folder.newFile("numbers.snapshot");
+        RuleSetSnapshot.write(rules, file);
+        RuleSet loaded = RuleSetSnapshot.load(file);
+
+        assertEquals(rules.getRule(0).toString(), loaded.getRule(0).toString());
+        assertEquals(rules.getRule(1).toString(), loaded.getRule(1).toString());
+        assertEquals(Arrays.asList("(limit speed 130)"), solve("(limit speed 130)", loaded, false));
+        assertEquals(1, solve("(fast 131)", loaded, true).size());
+        assertTrue(solve("(fast 130.0)", loaded, true).isEmpty());
+    }
+}